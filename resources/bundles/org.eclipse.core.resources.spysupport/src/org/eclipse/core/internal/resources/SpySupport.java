@@ -47,12 +47,19 @@ public class SpySupport {
 			return null;
 		return getSessionProperties(info);
 	}
-	@SuppressWarnings("unchecked")
 	public static Map<QualifiedName, Object> getSessionProperties(ResourceInfo info) {
-		return info.sessionProperties == null ? null : (Map<QualifiedName, Object>) info.sessionProperties.clone();
+		Map<QualifiedName, Object> properties = info.getSessionProperties();
+		return properties.isEmpty() ? null : properties;
 	}
 	public static Map<QualifiedName, Object> getSyncInfo(ResourceInfo info) {
-		return info.syncInfo;
+		return info.getSyncInfo(false);
+	}
+	/**
+	 * Returns the object holding the optional data of the given info, or
+	 * <code>null</code> if it has none
+	 */
+	public static Object getExtension(ResourceInfo info) {
+		return info.getExtension();
 	}
 	public static ElementTree getOldestTree() {
 		return ((Workspace) ResourcesPlugin.getWorkspace()).getSaveManager().lastSnap;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2021 IBM Corporation and others.
+ *  Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -218,6 +218,7 @@ public class BuildManager implements ICoreConstants, IManager, ILifecycleListene
 			currentTree = ((trigger == IncrementalProjectBuilder.FULL_BUILD) || clean) ? null : workspace.getElementTree();
 			int depth = -1;
 			ISchedulingRule rule = null;
+			Object buildEvent = null;
 			try {
 				//short-circuit if none of the projects this builder cares about have changed.
 				if (!needsBuild(currentBuilder, trigger)) {
@@ -236,6 +237,8 @@ public class BuildManager implements ICoreConstants, IManager, ILifecycleListene
 				}
 				monitor.subTask(message);
 				hookStartBuild(builder, trigger);
+				if (WorkspaceEventsSupport.AVAILABLE)
+					buildEvent = WorkspaceEvents.beginBuild(builder, trigger);
 				// Make the current tree immutable before releasing the WS lock
 				if (rule != null && currentTree != null) {
 					workspace.newWorkingTree();
@@ -277,6 +280,8 @@ public class BuildManager implements ICoreConstants, IManager, ILifecycleListene
 					currentBuilder.setLastBuiltTree(lastTree);
 				}
 				hookEndBuild(builder);
+				if (buildEvent != null)
+					WorkspaceEvents.end(buildEvent);
 			}
 		} finally {
 			currentBuilders.remove(currentBuilder);
@@ -18,28 +18,35 @@ import org.eclipse.core.runtime.IPath;
 /**
  * A specialized map that maps Node IDs to their old and new paths.
  * Used for calculating moves during resource change notification.
+ * <p>
+ * The keys are kept in a primitive array that is probed linearly. The table
+ * size is a power of two, so an index is computed by multiplicative hashing
+ * and a shift instead of a division. A node ID of zero marks an empty slot.
  */
 public class NodeIDMap {
-	//using prime table sizes improves our hash function
-	private static final int[] SIZES = new int[] {13, 29, 71, 173, 349, 733, 1511, 3079, 6133, 16381, 32653, 65543, 131111, 262139, 524287, 1051601};
-	private static final double LOAD_FACTOR = 0.75;
-	//2^32 * golden ratio
-	private static final long LARGE_NUMBER = 2654435761L;
+	private static final int MINIMUM_CAPACITY = 16;
+	//2^64 / golden ratio
+	private static final long LARGE_NUMBER = 0x9E3779B97F4A7C15L;
 
-	int sizeOffset = 0;
 	protected int elementCount = 0;
 	protected long[] ids;
 	protected IPath[] oldPaths;
 	protected IPath[] newPaths;
+	/** the number of bits to shift a hashed id right to get a table index */
+	private int shift;
 
 	/**
 	 * Creates a new node ID map of default capacity.
 	 */
 	public NodeIDMap() {
-		this.sizeOffset = 0;
-		this.ids = new long[SIZES[sizeOffset]];
-		this.oldPaths = new IPath[SIZES[sizeOffset]];
-		this.newPaths = new IPath[SIZES[sizeOffset]];
+		allocate(MINIMUM_CAPACITY);
+	}
+
+	private void allocate(int length) {
+		ids = new long[length];
+		oldPaths = new IPath[length];
+		newPaths = new IPath[length];
+		shift = Long.numberOfLeadingZeros(length - 1);
 	}
 
 	/**
@@ -47,63 +54,36 @@ public class NodeIDMap {
 	 * all its current values.
 	 */
 	protected void expand() {
-		int newLength;
-		try {
-			newLength = SIZES[++sizeOffset];
-		} catch (ArrayIndexOutOfBoundsException e) {
-			//will only occur if there are > 1 million elements in delta
-			newLength = ids.length * 2;
-		}
-		long[] grownIds = new long[newLength];
-		IPath[] grownOldPaths = new IPath[newLength];
-		IPath[] grownNewPaths = new IPath[newLength];
-		int maxArrayIndex = newLength - 1;
-		for (int i = 0; i < ids.length; i++) {
-			long id = ids[i];
+		long[] oldIds = ids;
+		IPath[] oldOldPaths = oldPaths;
+		IPath[] oldNewPaths = newPaths;
+		allocate(oldIds.length * 2);
+		int mask = ids.length - 1;
+		for (int i = 0; i < oldIds.length; i++) {
+			long id = oldIds[i];
 			if (id != 0) {
-				int hash = hashFor(id, newLength);
-				while (grownIds[hash] != 0) {
-					hash++;
-					if (hash > maxArrayIndex)
-						hash = 0;
-				}
-				grownIds[hash] = id;
-				grownOldPaths[hash] = oldPaths[i];
-				grownNewPaths[hash] = newPaths[i];
+				int index = hashFor(id);
+				while (ids[index] != 0)
+					index = (index + 1) & mask;
+				ids[index] = id;
+				oldPaths[index] = oldOldPaths[i];
+				newPaths[index] = oldNewPaths[i];
 			}
 		}
-		ids = grownIds;
-		oldPaths = grownOldPaths;
-		newPaths = grownNewPaths;
 	}
 
 	/**
-	 * Returns the index of the given element in the map.  If not
-	 * found, returns -1.
+	 * Returns the index of the given element in the map, or of the empty slot
+	 * where it would be inserted.
 	 */
 	private int getIndex(long searchID) {
-		final int len = ids.length;
-		int hash = hashFor(searchID, len);
-
-		// search the last half of the array
-		for (int i = hash; i < len; i++) {
-			if (ids[i] == searchID)
-				return i;
-			// marker info not found so return -1
-			if (ids[i] == 0)
-				return -1;
-		}
-
-		// search the beginning of the array
-		for (int i = 0; i < hash - 1; i++) {
-			if (ids[i] == searchID)
-				return i;
-			// marker info not found so return -1
-			if (ids[i] == 0)
-				return -1;
-		}
-		// marker info not found so return -1
-		return -1;
+		int mask = ids.length - 1;
+		int index = hashFor(searchID);
+		long id;
+		// the load factor guarantees an empty slot
+		while ((id = ids[index]) != searchID && id != 0)
+			index = (index + 1) & mask;
+		return index;
 	}
 
 	/**
@@ -111,10 +91,7 @@ public class NodeIDMap {
 	 * if no new path is available.
 	 */
 	public IPath getNewPath(long nodeID) {
-		int index = getIndex(nodeID);
-		if (index == -1)
-			return null;
-		return newPaths[index];
+		return newPaths[getIndex(nodeID)];
 	}
 
 	/**
@@ -122,15 +99,13 @@ public class NodeIDMap {
 	 * if no old path is available.
 	 */
 	public IPath getOldPath(long nodeID) {
-		int index = getIndex(nodeID);
-		if (index == -1)
-			return null;
-		return oldPaths[index];
+		return oldPaths[getIndex(nodeID)];
 	}
 
-	private int hashFor(long id, int size) {
-		//Knuth's hash function from Art of Computer Programming section 6.4
-		return (int) Math.abs((id * LARGE_NUMBER) % size);
+	private int hashFor(long id) {
+		//Knuth's multiplicative hash from Art of Computer Programming section 6.4,
+		//taking the high bits of the product as index
+		return (int) ((id * LARGE_NUMBER) >>> shift);
 	}
 
 	/**
@@ -148,60 +123,20 @@ public class NodeIDMap {
 	private void put(long id, IPath oldPath, IPath newPath) {
 		if (oldPath == null && newPath == null)
 			return;
-		int hash = hashFor(id, ids.length);
-
-		// search for an empty slot at the end of the array
-		for (int i = hash; i < ids.length; i++) {
-			if (ids[i] == id) {
-				//replace value for existing entry
-				if (oldPath != null)
-					oldPaths[i] = oldPath;
-				if (newPath != null)
-					newPaths[i] = newPath;
-				return;
-			}
-			if (ids[i] == 0) {
-				//add a new entry to the map
-				ids[i] = id;
-				if (oldPath != null)
-					oldPaths[i] = oldPath;
-				if (newPath != null)
-					newPaths[i] = newPath;
-				elementCount++;
-				// grow if necessary
-				if (shouldGrow())
-					expand();
-				return;
-			}
-		}
-
-		// search for an empty slot at the beginning of the array
-		for (int i = 0; i < hash - 1; i++) {
-			if (ids[i] == id) {
-				//replace value for existing entry
-				if (oldPath != null)
-					oldPaths[i] = oldPath;
-				if (newPath != null)
-					newPaths[i] = newPath;
-				return;
-			}
-			if (ids[i] == 0) {
-				//add a new entry to the map
-				ids[i] = id;
-				if (oldPath != null)
-					oldPaths[i] = oldPath;
-				if (newPath != null)
-					newPaths[i] = newPath;
-				elementCount++;
-				// grow if necessary
-				if (shouldGrow())
-					expand();
-				return;
-			}
+		int index = getIndex(id);
+		if (ids[index] == 0) {
+			//add a new entry to the map
+			ids[index] = id;
+			elementCount++;
 		}
-		// if we didn't find a free slot, then try again with the expanded set
-		expand();
-		put(id, oldPath, newPath);
+		//replace values of an existing entry
+		if (oldPath != null)
+			oldPaths[index] = oldPath;
+		if (newPath != null)
+			newPaths[index] = newPath;
+		// grow if necessary
+		if (shouldGrow())
+			expand();
 	}
 
 	/**
@@ -219,6 +154,7 @@ public class NodeIDMap {
 	}
 
 	private boolean shouldGrow() {
-		return elementCount > ids.length * LOAD_FACTOR;
+		// keep the load factor at most 0.75
+		return elementCount > ids.length - (ids.length >> 2);
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -294,6 +294,7 @@ public class NotificationManager implements IManager, ILifecycleListener {
 					final IResourceChangeListener listener = resourceListener.listener;
 					if (ResourceStats.TRACE_LISTENERS)
 						ResourceStats.startNotify(listener);
+					Object notifyEvent = WorkspaceEventsSupport.AVAILABLE ? WorkspaceEvents.beginNotify(listener, type) : null;
 					SafeRunner.run(new ISafeRunnable() {
 						@Override
 						public void handleException(Throwable e) {
@@ -307,6 +308,8 @@ public class NotificationManager implements IManager, ILifecycleListener {
 							listener.resourceChanged(event);
 						}
 					});
+					if (notifyEvent != null)
+						WorkspaceEvents.end(notifyEvent);
 					if (ResourceStats.TRACE_LISTENERS)
 						ResourceStats.endNotify();
 				}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.events;
+
+import jdk.jfr.*;
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+
+/**
+ * Java Flight Recorder events of the workspace: top level workspace operations,
+ * waiting for the workspace lock, builder invocations, resource change listener
+ * calls, and saves and snapshots.
+ * <p>
+ * The <code>jdk.jfr</code> package is imported optionally. Callers must check
+ * {@link WorkspaceEventsSupport#AVAILABLE} before using this class. The begin
+ * methods return null unless a recording that enables the event is in
+ * progress, so nothing but the check of the event type is done otherwise. The
+ * returned events are typed as Object so that callers do not depend on
+ * <code>jdk.jfr</code>.
+ * </p>
+ */
+public final class WorkspaceEvents {
+	private static final String CATEGORY = "Eclipse"; //$NON-NLS-1$
+	private static final String SUB_CATEGORY = "Resources"; //$NON-NLS-1$
+
+	@Name("org.eclipse.core.resources.Operation")
+	@Label("Workspace Operation")
+	@Description("A top level workspace operation, from acquiring the workspace lock until the end of its notifications")
+	@Category({CATEGORY, SUB_CATEGORY})
+	static final class OperationEvent extends Event {
+		@Label("Scheduling Rule")
+		String rule;
+	}
+
+	@Name("org.eclipse.core.resources.LockWait")
+	@Label("Workspace Lock Wait")
+	@Description("Waiting for the scheduling rule and the lock of a workspace operation")
+	@Category({CATEGORY, SUB_CATEGORY})
+	static final class LockWaitEvent extends Event {
+		@Label("Scheduling Rule")
+		String rule;
+	}
+
+	@Name("org.eclipse.core.resources.Build")
+	@Label("Builder Invocation")
+	@Description("A builder building a project")
+	@Category({CATEGORY, SUB_CATEGORY})
+	static final class BuildEvent extends Event {
+		@Label("Builder Class")
+		Class<?> builderClass;
+		@Label("Project")
+		String project;
+		@Label("Build Kind")
+		int kind;
+	}
+
+	@Name("org.eclipse.core.resources.ResourceChangeListener")
+	@Label("Resource Change Listener")
+	@Description("A resource change listener notified of a resource change event")
+	@Category({CATEGORY, SUB_CATEGORY})
+	static final class ListenerEvent extends Event {
+		@Label("Listener Class")
+		Class<?> listenerClass;
+		@Label("Event Type")
+		int type;
+	}
+
+	@Name("org.eclipse.core.resources.Save")
+	@Label("Workspace Save")
+	@Description("A full save, project save or snapshot of the workspace")
+	@Category({CATEGORY, SUB_CATEGORY})
+	static final class SaveEvent extends Event {
+		@Label("Save Kind")
+		int kind;
+		@Label("Project")
+		String project;
+	}
+
+	/**
+	 * The types of the events. They are looked up once the flight recorder is
+	 * initialized, so that checking whether an event is enabled neither creates
+	 * the event nor initializes the recorder.
+	 */
+	private static final class Types {
+		static final EventType OPERATION = EventType.getEventType(OperationEvent.class);
+		static final EventType LOCK_WAIT = EventType.getEventType(LockWaitEvent.class);
+		static final EventType BUILD = EventType.getEventType(BuildEvent.class);
+		static final EventType LISTENER = EventType.getEventType(ListenerEvent.class);
+		static final EventType SAVE = EventType.getEventType(SaveEvent.class);
+	}
+
+	private WorkspaceEvents() {
+		// not instantiated
+	}
+
+	/**
+	 * Returns whether workspace operation events are recorded.
+	 */
+	public static boolean isOperationEnabled() {
+		return FlightRecorder.isInitialized() && Types.OPERATION.isEnabled();
+	}
+
+	public static Object beginOperation(ISchedulingRule rule) {
+		if (!FlightRecorder.isInitialized() || !Types.OPERATION.isEnabled())
+			return null;
+		OperationEvent event = new OperationEvent();
+		event.rule = String.valueOf(rule);
+		event.begin();
+		return event;
+	}
+
+	public static Object beginLockWait(ISchedulingRule rule) {
+		if (!FlightRecorder.isInitialized() || !Types.LOCK_WAIT.isEnabled())
+			return null;
+		LockWaitEvent event = new LockWaitEvent();
+		event.rule = String.valueOf(rule);
+		event.begin();
+		return event;
+	}
+
+	public static Object beginBuild(IncrementalProjectBuilder builder, int kind) {
+		if (!FlightRecorder.isInitialized() || !Types.BUILD.isEnabled())
+			return null;
+		BuildEvent event = new BuildEvent();
+		event.builderClass = builder.getClass();
+		event.project = builder.getProject().getName();
+		event.kind = kind;
+		event.begin();
+		return event;
+	}
+
+	public static Object beginNotify(IResourceChangeListener listener, int type) {
+		if (!FlightRecorder.isInitialized() || !Types.LISTENER.isEnabled())
+			return null;
+		ListenerEvent event = new ListenerEvent();
+		event.listenerClass = listener.getClass();
+		event.type = type;
+		event.begin();
+		return event;
+	}
+
+	public static Object beginSave(int kind, IProject project) {
+		if (!FlightRecorder.isInitialized() || !Types.SAVE.isEnabled())
+			return null;
+		SaveEvent event = new SaveEvent();
+		event.kind = kind;
+		event.project = project == null ? null : project.getName();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends the given event returned by one of the begin methods, and commits it
+	 * if it is long enough to be recorded.
+	 */
+	public static void end(Object event) {
+		Event jfrEvent = (Event) event;
+		jfrEvent.end();
+		if (jfrEvent.shouldCommit())
+			jfrEvent.commit();
+	}
+}
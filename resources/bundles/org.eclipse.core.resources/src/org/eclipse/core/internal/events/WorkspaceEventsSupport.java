@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.events;
+
+/**
+ * Tells whether the {@link WorkspaceEvents} can be used. This class must not
+ * refer to <code>jdk.jfr</code>, which is imported optionally, so that callers
+ * can check it when the package is missing.
+ */
+public final class WorkspaceEventsSupport {
+	/**
+	 * Whether the Java runtime provides flight recorder events.
+	 */
+	public static final boolean AVAILABLE = isAvailable();
+
+	private WorkspaceEventsSupport() {
+		// not instantiated
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event"); //$NON-NLS-1$
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+}
@@ -18,26 +18,187 @@ package org.eclipse.core.internal.resources;
 
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.UnaryOperator;
 import org.eclipse.core.internal.utils.IStringPoolParticipant;
 import org.eclipse.core.internal.utils.StringPool;
+import org.eclipse.core.resources.IMarker;
 
 /**
  * A specialized Map<String,Object> implementation that is optimized for a small
  * set of strings as keys. The keys will be interned() on insert.
  *
  * Unlike a java.util.HashMap nulls are neither allowed for key or value.
+ *
+ * Integer values of the well known attributes listed in {@link #INT_ATTRIBUTES}
+ * are stored in primitive slots. All other entries are stored as alternating
+ * keys and values in a plain array. This keeps the footprint of a typical
+ * problem marker far below that of a hash map with boxed values.
  */
 // the Map interface is not implemented as it would allow to insert null key or values
 // or non interned keys via the iterator if not a specific entrySet is implemented.
 public class MarkerAttributeMap implements IStringPoolParticipant {
+	/**
+	 * The attributes that are stored in primitive int slots when their value is an
+	 * Integer. The index in this array is the slot number.
+	 */
+	static final String[] INT_ATTRIBUTES = {IMarker.SEVERITY, IMarker.PRIORITY, IMarker.LINE_NUMBER,
+			IMarker.CHAR_START, IMarker.CHAR_END, "id", "categoryId"}; //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static final int[] NO_INTS = new int[0];
+	private static final Object[] NO_OTHERS = new Object[0];
+
+	/**
+	 * Immutable content of a marker attribute map.
+	 */
+	static final class State {
+		static final State EMPTY = new State(0, NO_INTS, NO_OTHERS);
+
+		/** bit <code>i</code> is set if slot <code>i</code> has a value **/
+		final int intMask;
+		/** the values of the set slots, in slot order **/
+		final int[] ints;
+		/** all other entries as alternating interned key and value **/
+		final Object[] others;
+
+		State(int intMask, int[] ints, Object[] others) {
+			this.intMask = intMask;
+			this.ints = ints;
+			this.others = others;
+		}
+
+		Object get(String key) {
+			int slot = intSlot(key);
+			if (slot >= 0 && (intMask & (1 << slot)) != 0)
+				return Integer.valueOf(ints[rank(slot)]);
+			int index = indexOf(others, key);
+			return index < 0 ? null : others[index + 1];
+		}
+
+		int rank(int slot) {
+			return Integer.bitCount(intMask & ((1 << slot) - 1));
+		}
+
+		int size() {
+			return ints.length + others.length / 2;
+		}
+	}
+
+	/**
+	 * Mutable scratch space used to compute the next state on modification.
+	 */
+	private static final class Builder {
+		private int intMask;
+		private final int[] ints = new int[INT_ATTRIBUTES.length];
+		private final List<Object> others;
+
+		Builder(State state) {
+			intMask = state.intMask;
+			for (int slot = 0, i = 0; slot < ints.length; slot++)
+				if ((intMask & (1 << slot)) != 0)
+					ints[slot] = state.ints[i++];
+			others = new ArrayList<>(Arrays.asList(state.others));
+		}
+
+		/** key must be interned and value must not be null **/
+		Builder put(String key, Object value) {
+			int slot = value instanceof Integer ? intSlot(key) : -1;
+			if (slot >= 0) {
+				removeOther(key);
+				intMask |= 1 << slot;
+				ints[slot] = ((Integer) value).intValue();
+				return this;
+			}
+			removeInt(key);
+			for (int i = 0; i < others.size(); i += 2) {
+				if (others.get(i) == key) {
+					others.set(i + 1, value);
+					return this;
+				}
+			}
+			others.add(key);
+			others.add(value);
+			return this;
+		}
+
+		Builder remove(String key) {
+			removeInt(key);
+			removeOther(key);
+			return this;
+		}
+
+		private void removeInt(String key) {
+			int slot = intSlot(key);
+			if (slot >= 0)
+				intMask &= ~(1 << slot);
+		}
+
+		private void removeOther(String key) {
+			for (int i = 0; i < others.size(); i += 2) {
+				if (key.equals(others.get(i))) {
+					others.subList(i, i + 2).clear();
+					return;
+				}
+			}
+		}
+
+		State build() {
+			if (intMask == 0 && others.isEmpty())
+				return State.EMPTY;
+			int[] packed = intMask == 0 ? NO_INTS : new int[Integer.bitCount(intMask)];
+			for (int slot = 0, i = 0; slot < ints.length; slot++)
+				if ((intMask & (1 << slot)) != 0)
+					packed[i++] = ints[slot];
+			return new State(intMask, packed, others.isEmpty() ? NO_OTHERS : others.toArray());
+		}
+	}
+
+	private static final AtomicReferenceFieldUpdater<MarkerAttributeMap, State> STATE = AtomicReferenceFieldUpdater
+			.newUpdater(MarkerAttributeMap.class, State.class, "state"); //$NON-NLS-1$
+
 	// This implementation is a copy on write map.
-	private final AtomicReference<Map<String, Object>> mapRef;
+	private volatile State state;
 
 	// Typically contains 9 keys:
 	// "severity","sourceId","charStart","charEnd","arguments","id","message","lineNumber","categoryId"
 	protected static final int DEFAULT_SIZE = 9;
 
+	/**
+	 * Returns the primitive slot of the given attribute name, or -1 if the
+	 * attribute is not stored in a slot.
+	 */
+	static int intSlot(String key) {
+		switch (key) {
+			case IMarker.SEVERITY :
+				return 0;
+			case IMarker.PRIORITY :
+				return 1;
+			case IMarker.LINE_NUMBER :
+				return 2;
+			case IMarker.CHAR_START :
+				return 3;
+			case IMarker.CHAR_END :
+				return 4;
+			case "id" : //$NON-NLS-1$
+				return 5;
+			case "categoryId" : //$NON-NLS-1$
+				return 6;
+			default :
+				return -1;
+		}
+	}
+
+	private static int indexOf(Object[] others, String key) {
+		// keys are interned, so try identity first
+		for (int i = 0; i < others.length; i += 2)
+			if (others[i] == key)
+				return i;
+		for (int i = 0; i < others.length; i += 2)
+			if (others[i].equals(key))
+				return i;
+		return -1;
+	}
+
 	/**
 	 * Creates a new marker attribute map of default size
 	 */
@@ -53,7 +214,7 @@ public class MarkerAttributeMap implements IStringPoolParticipant {
 	 */
 	public MarkerAttributeMap(int initialCapacity) {
 		// ignore initialCapacity - a copy on write datastructure will be copied anyway.
-		mapRef = new AtomicReference<>(Map.of());
+		state = State.EMPTY;
 	}
 
 	/**
@@ -61,7 +222,8 @@ public class MarkerAttributeMap implements IStringPoolParticipant {
 	 * contain null keys or null values, or keys that are not interned.
 	 */
 	public MarkerAttributeMap(MarkerAttributeMap m) {
-		mapRef = new AtomicReference<>(copy(m.getMap()));
+		// the state is immutable and can be shared
+		state = m.state;
 	}
 
 	/**
@@ -69,7 +231,27 @@ public class MarkerAttributeMap implements IStringPoolParticipant {
 	 * values are silently ignored.
 	 */
 	public MarkerAttributeMap(Map<String, ? extends Object> map, boolean validate) {
-		mapRef = new AtomicReference<>(copy(map, validate));
+		state = putAll(State.EMPTY, map, validate);
+	}
+
+	/**
+	 * Creates a map with the given content as read from disk. The keys of the
+	 * other entries must be interned.
+	 */
+	MarkerAttributeMap(int intMask, int[] ints, Object[] others) {
+		state = intMask == 0 && others.length == 0 ? State.EMPTY
+				: new State(intMask, intMask == 0 ? NO_INTS : ints, others.length == 0 ? NO_OTHERS : others);
+	}
+
+	/**
+	 * Returns the current immutable content of this map.
+	 */
+	State getState() {
+		return state;
+	}
+
+	private void update(UnaryOperator<State> function) {
+		STATE.getAndUpdate(this, function);
 	}
 
 	/**
@@ -77,13 +259,7 @@ public class MarkerAttributeMap implements IStringPoolParticipant {
 	 * are not allowed. Entries with null values are silently ignored.
 	 */
 	public void setAttributes(Map<String, ? extends Object> map, boolean validate) {
-		mapRef.set(copy(map, validate));
-	}
-
-	private Map<String, Object> copy(Map<String, ? extends Object> map, boolean validate) {
-		Map<String, Object> target = new HashMap<>();
-		putAll(target, map, validate);
-		return target;
+		state = putAll(State.EMPTY, map, validate);
 	}
 
 	/**
@@ -91,17 +267,14 @@ public class MarkerAttributeMap implements IStringPoolParticipant {
 	 * Entries with null values are silently ignored.
 	 */
 	public void putAll(Map<String, ? extends Object> map, boolean validate) {
-		mapRef.getAndUpdate(old -> {
-			Map<String, Object> copy = copy(old);
-			putAll(copy, map, validate);
-			return copy;
-		});
+		update(old -> putAll(old, map, validate));
 	}
 
-	private void putAll(Map<String, Object> target, Map<String, ? extends Object> source, boolean validate) {
-		if (source == null) {
-			return;
+	private State putAll(State target, Map<String, ? extends Object> source, boolean validate) {
+		if (source == null || source.isEmpty()) {
+			return target;
 		}
+		Builder builder = new Builder(target);
 		for (Entry<String, ? extends Object> e : source.entrySet()) {
 			String key = e.getKey();
 			Objects.requireNonNull(key, "insert of null key not allowed"); //$NON-NLS-1$
@@ -110,27 +283,32 @@ public class MarkerAttributeMap implements IStringPoolParticipant {
 				value = MarkerInfo.checkValidAttribute(value);
 			}
 			if (value != null) { // null values => ignore
-				target.put(e.getKey().intern(), value);
+				builder.put(key.intern(), value);
 			}
 		}
-	}
-
-	private Map<String, Object> copy(Map<String, ? extends Object> map) {
-		return new HashMap<>(map);
-	}
-
-	private Map<String, Object> getMap() {
-		return mapRef.get();
+		return builder.build();
 	}
 
 	/** creates a copy that fulfills the java.util.Map interface **/
 	public Map<String, Object> toMap() {
-		return copy(this.getMap());
+		State current = state;
+		Map<String, Object> result = new HashMap<>();
+		for (int slot = 0, i = 0; slot < INT_ATTRIBUTES.length; slot++)
+			if ((current.intMask & (1 << slot)) != 0)
+				result.put(INT_ATTRIBUTES[slot], Integer.valueOf(current.ints[i++]));
+		Object[] others = current.others;
+		for (int i = 0; i < others.length; i += 2)
+			result.put((String) others[i], others[i + 1]);
+		return result;
 	}
 
-	/** @see java.util.Map#entrySet **/
+	/**
+	 * @see java.util.Map#entrySet
+	 * @return a snapshot of the entries. Changes to the returned set are not
+	 *         reflected in this map.
+	 **/
 	public Set<Map.Entry<String, Object>> entrySet() {
-		return getMap().entrySet();
+		return toMap().entrySet();
 	}
 
 	/**
@@ -140,44 +318,71 @@ public class MarkerAttributeMap implements IStringPoolParticipant {
 	public void put(String k, Object value) {
 		Objects.requireNonNull(k, "insert of null key not allowed"); //$NON-NLS-1$
 		Objects.requireNonNull(value, "insert of null value not allowed"); //$NON-NLS-1$
-		mapRef.getAndUpdate(map -> {
-			Map<String, Object> m = copy(map);
-			m.put(k.intern(), value);
-			return m;
-		});
+		String key = k.intern();
+		update(old -> new Builder(old).put(key, value).build());
 	}
 
 	@Override
 	public void shareStrings(StringPool set) {
 		// don't share keys because they are already interned
-		for (java.util.Map.Entry<String, Object> e : getMap().entrySet()) {
-			Object o = e.getValue();
+		State current = state;
+		Object[] others = current.others;
+		Object[] shared = null;
+		for (int i = 1; i < others.length; i += 2) {
+			Object o = others[i];
 			if (o instanceof String) {
-				e.setValue(set.add((String) o));
+				String pooled = set.add((String) o);
+				if (pooled != o) {
+					// the state may be shared with copies of this map, so don't modify it
+					if (shared == null)
+						shared = others.clone();
+					shared[i] = pooled;
+				}
 			} else if (o instanceof IStringPoolParticipant) {
 				((IStringPoolParticipant) o).shareStrings(set);
 			}
 		}
+		// if the map was modified meanwhile, the strings are shared next time
+		if (shared != null)
+			STATE.compareAndSet(this, current, new State(current.intMask, current.ints, shared));
 	}
 
 	/** @see java.util.Map#isEmpty **/
 	public boolean isEmpty() {
-		return getMap().isEmpty();
+		return state.size() == 0;
 	}
 
 	/** @see java.util.Map#remove **/
 	public Object remove(Object key) {
-		return getMap().remove(key);
+		if (!(key instanceof String))
+			return null;
+		State old = STATE.getAndUpdate(this, s -> s.get((String) key) == null ? s : new Builder(s).remove((String) key).build());
+		return old.get((String) key);
 	}
 
 	/** @see java.util.Map#get **/
 	public Object get(Object key) {
-		return getMap().get(key);
+		if (!(key instanceof String))
+			return null;
+		return state.get((String) key);
+	}
+
+	/**
+	 * Returns the value of the given attribute if it is an Integer, and the
+	 * default value otherwise. Avoids boxing for the well known int attributes.
+	 */
+	public int getInt(String key, int defaultValue) {
+		State current = state;
+		int slot = intSlot(key);
+		if (slot >= 0 && (current.intMask & (1 << slot)) != 0)
+			return current.ints[current.rank(slot)];
+		Object value = current.get(key);
+		return value instanceof Integer ? ((Integer) value).intValue() : defaultValue;
 	}
 
 	/** @see java.util.Map#size **/
 	public int size() {
-		return getMap().size();
+		return state.size();
 	}
 
 }
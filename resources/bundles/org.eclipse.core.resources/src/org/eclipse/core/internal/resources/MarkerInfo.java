@@ -112,6 +112,14 @@ public class MarkerInfo implements IMarkerSetElement, Cloneable, IStringPoolPart
 		return attributes.get(attributeName);
 	}
 
+	/**
+	 * Returns the value of the given attribute if it is an Integer, and the
+	 * default value otherwise.
+	 */
+	public int getAttribute(String attributeName, int defaultValue) {
+		return attributes.getInt(attributeName, defaultValue);
+	}
+
 	public Map<String, Object> getAttributes() {
 		if (attributes.isEmpty())
 			return null;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,7 @@ package org.eclipse.core.internal.resources;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.eclipse.core.internal.localstore.SafeChunkyInputStream;
 import org.eclipse.core.internal.localstore.SafeFileInputStream;
@@ -25,6 +26,7 @@ import org.eclipse.core.internal.utils.Policy;
 import org.eclipse.core.internal.watson.*;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.osgi.util.NLS;
 
 /**
@@ -39,6 +41,22 @@ public class MarkerManager implements IManager {
 	private final AtomicLong changeId = new AtomicLong();
 	protected volatile Map<IPath, MarkerSet> currentDeltas = null;
 	protected final MarkerDeltaManager deltaManager = new MarkerDeltaManager();
+	protected final MarkerTypeIndex typeIndex = new MarkerTypeIndex();
+
+	/**
+	 * If set, the markers of the open projects are not restored on startup but
+	 * by the {@link #restoreJob} once the workspace is open. Until then problem
+	 * severity queries are answered from the {@link MarkerSummary} written on the
+	 * last save. Initialized from the
+	 * <code>org.eclipse.core.resources.lazyMarkerRestore</code> system property.
+	 */
+	private volatile boolean lazyRestore = Boolean.getBoolean("org.eclipse.core.resources.lazyMarkerRestore"); //$NON-NLS-1$
+
+	/** the summaries of the projects whose markers are not restored yet, by project name */
+	private final Map<String, MarkerSummary> deferred = new ConcurrentHashMap<>();
+
+	/** restores the markers of the deferred projects */
+	protected final Job restoreJob = new RestoreJob();
 
 	protected final Workspace workspace;
 	protected final MarkerWriter writer = new MarkerWriter(this);
@@ -57,6 +75,7 @@ public class MarkerManager implements IManager {
 	 */
 	public void add(IResource resource, MarkerInfo newMarker) throws CoreException {
 		Resource target = (Resource) resource;
+		restoreDeferred(target.getFullPath());
 		ResourceInfo info = workspace.getResourceInfo(target.getFullPath(), false, false);
 		target.checkExists(target.getFlags(info), false);
 		info = workspace.getResourceInfo(resource.getFullPath(), false, true);
@@ -72,8 +91,55 @@ public class MarkerManager implements IManager {
 		if (markers == null)
 			markers = new MarkerSet(1);
 		basicAdd(resource, markers, newMarker);
-		if (!markers.isEmpty())
+		if (!markers.isEmpty()) {
 			info.setMarkers(markers);
+			typeIndex.add(newMarker.getType(), target.getFullPath());
+		}
+	}
+
+	/**
+	 * Adds the given markers to the given resource in one step. If
+	 * <code>replacedType</code> is not <code>null</code> all existing markers of
+	 * exactly that type are removed first. Only a single marker delta entry is
+	 * recorded for the resource, regardless of the number of markers.
+	 *
+	 * @see IResource#createMarkers(String, List)
+	 * @see IResource#replaceMarkers(String, List)
+	 */
+	public void addAll(IResource resource, String replacedType, MarkerInfo[] newMarkers) throws CoreException {
+		Resource target = (Resource) resource;
+		restoreDeferred(target.getFullPath());
+		ResourceInfo info = workspace.getResourceInfo(target.getFullPath(), false, false);
+		target.checkExists(target.getFlags(info), false);
+		info = workspace.getResourceInfo(resource.getFullPath(), false, true);
+		// resource may have been deleted concurrently -- just bail out if this happens
+		if (info == null)
+			return;
+		// Concurrency: copy the marker set on modify
+		MarkerSet markers = info.getMarkers(true);
+		if (markers == null)
+			markers = new MarkerSet(Math.max(newMarkers.length, 1));
+		MarkerInfo[] removed = NO_MARKER_INFO;
+		if (replacedType != null) {
+			removed = basicFindMatching(markers, replacedType, false);
+			markers.removeAll(removed);
+		}
+		markers.addAll(newMarkers);
+		// set the M_MARKERS_SNAP_DIRTY flag to indicate that this
+		// resource's markers have changed since the last snapshot
+		if (hasPersistent(removed) || hasPersistent(newMarkers))
+			info.set(ICoreConstants.M_MARKERS_SNAP_DIRTY);
+		info.setMarkers(markers.isEmpty() ? null : markers);
+		IPath path = target.getFullPath();
+		typeIndex.removeAll(path, removed, markers);
+		for (MarkerInfo newMarker : newMarkers)
+			typeIndex.add(newMarker.getType(), path);
+		IMarkerSetElement[] changes = new IMarkerSetElement[removed.length + newMarkers.length];
+		for (int i = 0; i < removed.length; i++)
+			changes[i] = new MarkerDelta(IResourceDelta.REMOVED, resource, removed[i]);
+		for (int i = 0; i < newMarkers.length; i++)
+			changes[removed.length + i] = new MarkerDelta(IResourceDelta.ADDED, resource, newMarkers[i]);
+		changedMarkers(resource, changes);
 	}
 
 	/**
@@ -146,12 +212,7 @@ public class MarkerManager implements IManager {
 	}
 
 	private int getSeverity(MarkerInfo marker) {
-		Object o = marker.getAttribute(IMarker.SEVERITY);
-		if (o instanceof Integer) {
-			Integer i = (Integer) o;
-			return i.intValue();
-		}
-		return -1;
+		return marker.getAttribute(IMarker.SEVERITY, -1);
 	}
 
 	/**
@@ -173,6 +234,7 @@ public class MarkerManager implements IManager {
 			info = workspace.getResourceInfo(path, false, true);
 			info.setMarkers(null);
 			matching = markers.elements();
+			typeIndex.removeAll(path, matching, null);
 		} else {
 			matching = basicFindMatching(markers, type, includeSubtypes);
 			// if none match, there is nothing to remove
@@ -187,9 +249,11 @@ public class MarkerManager implements IManager {
 			// set if there are no remaining markers
 			if (markers.size() == matching.length) {
 				info.setMarkers(null);
+				typeIndex.removeAll(path, matching, null);
 			} else {
 				markers.removeAll(matching);
 				info.setMarkers(markers);
+				typeIndex.removeAll(path, matching, markers);
 			}
 		}
 		info.set(ICoreConstants.M_MARKERS_SNAP_DIRTY);
@@ -279,10 +343,13 @@ public class MarkerManager implements IManager {
 	 */
 	public void doFindMarkers(IResource target, ArrayList<IMarker> result, final String type,
 			final boolean includeSubtypes, int depth) {
-		// optimize the deep searches with an element tree visitor
-		if (depth == IResource.DEPTH_INFINITE && target.getType() != IResource.FILE)
-			visitorFindMarkers(target.getFullPath(), result, type, includeSubtypes);
-		else
+		// optimize the deep searches with the type index or an element tree visitor
+		if (depth == IResource.DEPTH_INFINITE && target.getType() != IResource.FILE) {
+			if (type != null)
+				indexFindMarkers(target.getFullPath(), result, type, includeSubtypes);
+			else
+				visitorFindMarkers(target.getFullPath(), result, type, includeSubtypes);
+		} else
 			recursiveFindMarkers(target.getFullPath(), result, type, includeSubtypes, depth);
 	}
 
@@ -291,10 +358,38 @@ public class MarkerManager implements IManager {
 	 * option to search the target's children.
 	 */
 	public int findMaxProblemSeverity(IResource target, String type, boolean includeSubtypes, int depth) {
-		// optimize the deep searches with an element tree visitor
-		if (depth == IResource.DEPTH_INFINITE && target.getType() != IResource.FILE)
-			return visitorFindMaxSeverity(target.getFullPath(), type, includeSubtypes);
-		return recursiveFindMaxSeverity(target.getFullPath(), type, includeSubtypes, depth);
+		int deferredMax = -1;
+		// whole projects with deferred markers are answered by their summary
+		if (!deferred.isEmpty() && IMarker.PROBLEM.equals(type) && includeSubtypes && depth == IResource.DEPTH_INFINITE
+				&& (target.getType() == IResource.ROOT || target.getType() == IResource.PROJECT))
+			deferredMax = deferredMaxSeverity(target);
+		if (deferredMax >= IMarker.SEVERITY_ERROR)
+			return deferredMax;
+		int max;
+		// optimize the deep searches with the type index or an element tree visitor
+		if (depth == IResource.DEPTH_INFINITE && target.getType() != IResource.FILE) {
+			if (type != null)
+				max = indexFindMaxSeverity(target.getFullPath(), type, includeSubtypes);
+			else
+				max = visitorFindMaxSeverity(target.getFullPath(), type, includeSubtypes);
+		} else
+			max = recursiveFindMaxSeverity(target.getFullPath(), type, includeSubtypes, depth);
+		return Math.max(max, deferredMax);
+	}
+
+	/**
+	 * Returns the max severity recorded in the summaries of the accessible
+	 * projects with deferred markers at or below the given target.
+	 */
+	private int deferredMaxSeverity(IResource target) {
+		int max = -1;
+		for (Map.Entry<String, MarkerSummary> entry : deferred.entrySet()) {
+			if (target.getType() == IResource.PROJECT && !target.getName().equals(entry.getKey()))
+				continue;
+			if (workspace.getRoot().getProject(entry.getKey()).isAccessible())
+				max = Math.max(max, entry.getValue().getMaxSeverity());
+		}
+		return max;
 	}
 
 	public long getChangeId() {
@@ -321,6 +416,82 @@ public class MarkerManager implements IManager {
 		return set.get(id) != null;
 	}
 
+	/**
+	 * Records the given markers, which have just been set on the resource at the
+	 * given path, in the marker type index.
+	 */
+	void indexMarkers(IPath path, MarkerSet markers) {
+		typeIndex.addAll(path, markers);
+	}
+
+	/**
+	 * Returns the indexed marker types that match the given type.
+	 */
+	private Collection<String> indexedTypes(String type, boolean includeSubtypes) {
+		if (!includeSubtypes)
+			return Collections.singleton(type);
+		List<String> result = new ArrayList<>();
+		for (String indexedType : typeIndex.getTypes()) {
+			if (cache.isSubtype(indexedType, type))
+				result.add(indexedType);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the markers of exactly the given type on the given resource info,
+	 * which may be <code>null</code>.
+	 */
+	private MarkerInfo[] indexedMarkers(ResourceInfo info, String type) {
+		MarkerSet markers = info == null ? null : info.getMarkers(false);
+		return markers == null ? NO_MARKER_INFO : basicFindMatching(markers, type, false);
+	}
+
+	/**
+	 * Adds the markers of the given type for a subtree of resources to the list,
+	 * only looking at the resources recorded in the type index.
+	 */
+	private void indexFindMarkers(IPath root, ArrayList<IMarker> list, String type, boolean includeSubtypes) {
+		for (String indexedType : indexedTypes(type, includeSubtypes)) {
+			for (IPath path : typeIndex.getPaths(indexedType, root)) {
+				ResourceInfo info = workspace.getResourceInfo(path, false, false);
+				MarkerInfo[] matching = indexedMarkers(info, indexedType);
+				if (matching.length > 0)
+					buildMarkers(matching, path, info.getType(), list);
+			}
+		}
+	}
+
+	/**
+	 * Finds the max severity across markers of the given type for a subtree of
+	 * resources, only looking at the resources recorded in the type index.
+	 */
+	private int indexFindMaxSeverity(IPath root, String type, boolean includeSubtypes) {
+		int max = -1;
+		for (String indexedType : indexedTypes(type, includeSubtypes)) {
+			for (IPath path : typeIndex.getPaths(indexedType, root)) {
+				ResourceInfo info = workspace.getResourceInfo(path, false, false);
+				for (MarkerInfo marker : indexedMarkers(info, indexedType)) {
+					max = Math.max(max, getSeverity(marker));
+					if (max >= IMarker.SEVERITY_ERROR)
+						return max;
+				}
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Returns true if any of the given markers is persistent, and false otherwise.
+	 */
+	private boolean hasPersistent(MarkerInfo[] markers) {
+		for (MarkerInfo marker : markers) {
+			if (isPersistent(marker))
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Returns true if the given marker is persistent, and false otherwise.
 	 */
@@ -373,6 +544,8 @@ public class MarkerManager implements IManager {
 			}
 			changedMarkers(resource, added);
 			changedMarkers(sourceChild, removed);
+			typeIndex.addAll(resource.getFullPath(), markers);
+			typeIndex.removeAll(path, elements, null);
 			return true;
 		};
 		destination.accept(visitor, depth, IContainer.INCLUDE_TEAM_PRIVATE_MEMBERS | IContainer.INCLUDE_HIDDEN);
@@ -473,6 +646,7 @@ public class MarkerManager implements IManager {
 	 * Removes the specified marker
 	 */
 	public void removeMarker(IResource resource, long id) {
+		restoreDeferred(resource.getFullPath());
 		MarkerInfo markerInfo = findMarkerInfo(resource, id);
 		if (markerInfo == null)
 			return;
@@ -483,6 +657,7 @@ public class MarkerManager implements IManager {
 		markers.remove(markerInfo);
 		// if that was the last marker remove the set to save space.
 		info.setMarkers(markers.size() == 0 ? null : markers);
+		typeIndex.removeAll(resource.getFullPath(), new IMarkerSetElement[] {markerInfo}, markers);
 		// if we actually did remove a marker, post a delta for the change.
 		if (markers.size() != size) {
 			if (isPersistent(markerInfo))
@@ -506,6 +681,7 @@ public class MarkerManager implements IManager {
 	 * <code>null</code> is a wildcard.
 	 */
 	public void removeMarkers(IResource target, final String type, final boolean includeSubtypes, int depth) {
+		restoreDeferred(target.getFullPath());
 		if (depth == IResource.DEPTH_INFINITE && target.getType() != IResource.FILE)
 			visitorRemoveMarkers(target.getFullPath(), type, includeSubtypes);
 		else
@@ -521,11 +697,120 @@ public class MarkerManager implements IManager {
 	}
 
 	public void restore(IResource resource, boolean generateDeltas, IProgressMonitor monitor) throws CoreException {
+		if (resource.getType() == IResource.PROJECT) {
+			// on startup defer the restore if the summary of the last save is still valid
+			if (lazyRestore && !generateDeltas) {
+				MarkerSummary summary = readSummary((IProject) resource);
+				if (summary != null) {
+					deferred.put(resource.getName(), summary);
+					if (workspace.isOpen())
+						restoreJob.schedule();
+					return;
+				}
+			}
+			deferred.remove(resource.getName());
+		}
 		// first try and load the last saved file, then apply the snapshots
 		restoreFromSave(resource, generateDeltas);
 		restoreFromSnap(resource);
 	}
 
+	/**
+	 * Returns the summary of the markers saved for the given project, or
+	 * <code>null</code> if there is none or if it does not describe all markers
+	 * of the project because snapshots have been taken after the last save.
+	 */
+	private MarkerSummary readSummary(IProject project) {
+		LocalMetaArea metaArea = workspace.getMetaArea();
+		java.io.File snapFile = metaArea.getMarkersSnapshotLocationFor(project).toFile();
+		if (snapFile.length() > 0)
+			return null;
+		IPath markersLocation = metaArea.getMarkersLocationFor(project);
+		if (!markersLocation.toFile().exists() && !metaArea.getBackupLocationFor(markersLocation).toFile().exists())
+			return null;
+		IPath location = metaArea.getMarkersSummaryLocationFor(project);
+		IPath tempLocation = metaArea.getBackupLocationFor(location);
+		if (!location.toFile().exists() && !tempLocation.toFile().exists())
+			return null;
+		try {
+			return MarkerSummary.read(location, tempLocation);
+		} catch (IOException e) {
+			// restore eagerly, the markers file itself is still intact
+			return null;
+		}
+	}
+
+	/**
+	 * Returns whether the markers of the given project have been restored, or
+	 * their restore is still deferred.
+	 */
+	boolean isRestored(IProject project) {
+		return !deferred.containsKey(project.getName());
+	}
+
+	/**
+	 * Sets whether the markers of projects restored on startup are restored
+	 * in the background instead.
+	 */
+	void setLazyRestore(boolean lazyRestore) {
+		this.lazyRestore = lazyRestore;
+	}
+
+	/**
+	 * Returns the info the markers of the resource at the given path are
+	 * restored into, or <code>null</code> if the resource doesn't exist. The
+	 * info is opened for modification unless the markers are restored into the
+	 * tree read on startup.
+	 */
+	ResourceInfo getRestoreInfo(IPath path) {
+		return workspace.getResourceInfo(path, false, !workspace.getElementTree().isImmutable());
+	}
+
+	/**
+	 * Restores the markers of the projects at or below the given path whose
+	 * restore has been deferred on startup, so that they can be modified. Must
+	 * be called inside an operation. Queries never restore markers, they just
+	 * don't see the markers of a deferred project until the {@link #restoreJob}
+	 * has restored them.
+	 * <p>
+	 * If the markers of a project cannot be read, the failure is logged and
+	 * the saved markers are dropped as on an eager restore on startup, so that
+	 * the modification is not lost on the next save.
+	 * </p>
+	 */
+	void restoreDeferred(IPath path) {
+		if (deferred.isEmpty())
+			return;
+		Collection<String> names = path.segmentCount() == 0 ? new ArrayList<>(deferred.keySet())
+				: Collections.singleton(path.segment(0));
+		for (String name : names) {
+			try {
+				restoreDeferred(name);
+			} catch (CoreException e) {
+				Policy.log(e.getStatus());
+				deferred.remove(name);
+			}
+		}
+	}
+
+	/**
+	 * Restores the markers of a project whose restore has been deferred on
+	 * startup and reports them as added. Must be called inside an operation.
+	 * The project stays deferred if its markers cannot be read, so that the
+	 * markers file is not saved over.
+	 */
+	private void restoreDeferred(String projectName) throws CoreException {
+		if (!deferred.containsKey(projectName))
+			return;
+		IProject project = workspace.getRoot().getProject(projectName);
+		// closed projects are restored when opened
+		if (project.isAccessible()) {
+			restoreFromSave(project, true);
+			restoreFromSnap(project);
+		}
+		deferred.remove(projectName);
+	}
+
 	protected void restoreFromSave(IResource resource, boolean generateDeltas) throws CoreException {
 		IPath sourceLocation = workspace.getMetaArea().getMarkersLocationFor(resource);
 		IPath tempLocation = workspace.getMetaArea().getBackupLocationFor(sourceLocation);
@@ -561,14 +846,19 @@ public class MarkerManager implements IManager {
 		}
 	}
 
-	public void save(ResourceInfo info, IPathRequestor requestor, DataOutputStream output, List<String> list)
+	public void save(ResourceInfo info, IPathRequestor requestor, DataOutputStream output, Map<String, Integer> list)
 			throws IOException {
 		writer.save(info, requestor, output, list);
 	}
 
+	public void save(ResourceInfo info, IPathRequestor requestor, DataOutputStream output, Map<String, Integer> list,
+			MarkerSummary summary) throws IOException {
+		writer.save(info, requestor, output, list, summary);
+	}
+
 	@Override
 	public void shutdown(IProgressMonitor monitor) {
-		// do nothing
+		restoreJob.cancel();
 	}
 
 	public void snap(ResourceInfo info, IPathRequestor requestor, DataOutputStream output) throws IOException {
@@ -580,6 +870,15 @@ public class MarkerManager implements IManager {
 		// do nothing
 	}
 
+	/**
+	 * Starts restoring the markers of the projects whose restore has been
+	 * deferred on startup. Called once the workspace is open.
+	 */
+	void startDeferredRestore() {
+		if (!deferred.isEmpty())
+			restoreJob.schedule();
+	}
+
 	/**
 	 * Adds the markers for a subtree of resources to the list.
 	 */
@@ -648,4 +947,41 @@ public class MarkerManager implements IManager {
 		};
 		new ElementTreeIterator(workspace.getElementTree(), path).iterate(visitor);
 	}
+
+	/**
+	 * Restores the markers of the deferred projects, each in an operation on
+	 * the project.
+	 */
+	private class RestoreJob extends Job {
+		RestoreJob() {
+			super(Messages.resources_restoringMarkers);
+			setSystem(true);
+			setPriority(Job.LONG);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			MultiStatus result = new MultiStatus(ResourcesPlugin.PI_RESOURCES, IResourceStatus.FAILED_READ_METADATA,
+					Messages.resources_restoringMarkers, null);
+			for (String name : new ArrayList<>(deferred.keySet())) {
+				if (monitor.isCanceled())
+					return Status.CANCEL_STATUS;
+				IProject project = workspace.getRoot().getProject(name);
+				try {
+					try {
+						workspace.prepareOperation(project, monitor);
+						workspace.beginOperation(true);
+						restoreDeferred(name);
+					} finally {
+						workspace.endOperation(project, false);
+					}
+				} catch (OperationCanceledException e) {
+					return Status.CANCEL_STATUS;
+				} catch (CoreException e) {
+					result.add(e.getStatus());
+				}
+			}
+			return result;
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -43,6 +43,8 @@ public class MarkerReader {
 				return new MarkerReader_2(workspace);
 			case 3 :
 				return new MarkerReader_3(workspace);
+			case 4 :
+				return new MarkerReader_4(workspace);
 			default :
 				throw new IOException(NLS.bind(Messages.resources_format, formatVersion));
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -79,10 +79,11 @@ public class MarkerReader_3 extends MarkerReader {
 				// if the resource doesn't exist then return. ensure we do this after
 				// reading the markers from the file so we don't get into an
 				// inconsistent state.
-				ResourceInfo info = workspace.getResourceInfo(path, false, false);
+				ResourceInfo info = workspace.getMarkerManager().getRestoreInfo(path);
 				if (info == null)
 					continue;
 				info.setMarkers(markers);
+				workspace.getMarkerManager().indexMarkers(path, markers);
 				if (generateDeltas) {
 					// Iterate over all elements and add not null ones. This saves us from copying
 					// and shrinking the array.
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.resources;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.core.internal.utils.Messages;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceStatus;
+import org.eclipse.core.runtime.*;
+
+/**
+ * This class is used to read markers from disk. This is for version 4, which
+ * stores the well known int attributes in primitive slots and shares attribute
+ * keys through the table of written strings.
+ */
+public class MarkerReader_4 extends MarkerReader {
+
+	// type constants
+	public static final byte INDEX = 1;
+	public static final byte QNAME = 2;
+
+	// marker attribute types
+	public static final byte ATTRIBUTE_NULL = 0;
+	public static final byte ATTRIBUTE_BOOLEAN = 1;
+	public static final byte ATTRIBUTE_INTEGER = 2;
+	public static final byte ATTRIBUTE_STRING = 3;
+
+	private static final Object[] NO_OTHERS = new Object[0];
+
+	public MarkerReader_4(Workspace workspace) {
+		super(workspace);
+	}
+
+	/**
+	 * <pre> {@code
+	 * SAVE_FILE -> VERSION_ID RESOURCE+
+	 * VERSION_ID -> int
+	 * RESOURCE -> RESOURCE_PATH MARKERS_SIZE MARKER+
+	 * RESOURCE_PATH -> String
+	 * MARKERS_SIZE -> int
+	 * MARKER -> MARKER_ID TYPE INT_MASK INT_VALUE* ATTRIBUTES_SIZE ATTRIBUTE* CREATION_TIME
+	 * MARKER_ID -> long
+	 * TYPE -> INDEX | QNAME
+	 * INDEX -> byte int
+	 * QNAME -> byte String
+	 * INT_MASK -> int
+	 * INT_VALUE -> int
+	 * ATTRIBUTES_SIZE -> short
+	 * ATTRIBUTE -> ATTRIBUTE_KEY ATTRIBUTE_VALUE
+	 * ATTRIBUTE_KEY -> INDEX | QNAME
+	 * ATTRIBUTE_VALUE -> INTEGER_VALUE | BOOLEAN_VALUE | STRING_VALUE | NULL_VALUE
+	 * INTEGER_VALUE -> byte int
+	 * BOOLEAN_VALUE -> byte boolean
+	 * STRING_VALUE -> byte String
+	 * NULL_VALUE -> byte
+	 * CREATION_TIME -> long
+	 * }</pre>
+	 */
+	@Override
+	public void read(DataInputStream input, boolean generateDeltas) throws IOException, CoreException {
+		try {
+			List<String> readStrings = new ArrayList<>(16);
+			while (true) {
+				IPath path = new Path(input.readUTF());
+				int markersSize = input.readInt();
+				MarkerSet markers = new MarkerSet(markersSize);
+				for (int i = 0; i < markersSize; i++)
+					markers.add(readMarkerInfo(input, readStrings));
+				// if the resource doesn't exist then return. ensure we do this after
+				// reading the markers from the file so we don't get into an
+				// inconsistent state.
+				ResourceInfo info = workspace.getMarkerManager().getRestoreInfo(path);
+				if (info == null)
+					continue;
+				info.setMarkers(markers);
+				workspace.getMarkerManager().indexMarkers(path, markers);
+				if (generateDeltas) {
+					// Iterate over all elements and add not null ones. This saves us from copying
+					// and shrinking the array.
+					Resource resource = workspace.newResource(path, info.getType());
+					IMarkerSetElement[] infos = markers.elements;
+					ArrayList<MarkerDelta> deltas = new ArrayList<>(infos.length);
+					for (IMarkerSetElement info2 : infos)
+						if (info2 != null)
+							deltas.add(new MarkerDelta(IResourceDelta.ADDED, resource, (MarkerInfo) info2));
+					workspace.getMarkerManager().changedMarkers(resource, deltas.toArray(new IMarkerSetElement[deltas.size()]));
+				}
+			}
+		} catch (EOFException e) {
+			// ignore end of file
+		}
+	}
+
+	private MarkerAttributeMap readAttributes(DataInputStream input, List<String> readStrings) throws IOException, CoreException {
+		int intMask = input.readInt();
+		if ((intMask >>> MarkerAttributeMap.INT_ATTRIBUTES.length) != 0)
+			throw new ResourceException(IResourceStatus.FAILED_READ_METADATA, null, Messages.resources_readMarkers, null);
+		int[] ints = new int[Integer.bitCount(intMask)];
+		for (int i = 0; i < ints.length; i++)
+			ints[i] = input.readInt();
+		int attributesSize = input.readShort();
+		if (attributesSize == 0)
+			return new MarkerAttributeMap(intMask, ints, NO_OTHERS);
+		List<Object> others = new ArrayList<>(attributesSize * 2);
+		for (int j = 0; j < attributesSize; j++) {
+			String key = readString(input, readStrings);
+			byte type = input.readByte();
+			Object value = null;
+			switch (type) {
+				case ATTRIBUTE_INTEGER :
+					value = Integer.valueOf(input.readInt());
+					break;
+				case ATTRIBUTE_BOOLEAN :
+					value = Boolean.valueOf(input.readBoolean());
+					break;
+				case ATTRIBUTE_STRING :
+					value = input.readUTF();
+					break;
+				case ATTRIBUTE_NULL :
+					// do nothing
+					break;
+			}
+			if (value != null) {
+				others.add(key);
+				others.add(value);
+			}
+		}
+		return new MarkerAttributeMap(intMask, ints, others.toArray());
+	}
+
+	private MarkerInfo readMarkerInfo(DataInputStream input, List<String> readStrings) throws IOException, CoreException {
+		long id = input.readLong();
+		String type = readString(input, readStrings);
+		MarkerAttributeMap map = readAttributes(input, readStrings);
+		long creationTime = input.readLong();
+		return new MarkerInfo(map, creationTime, type, id);
+	}
+
+	/**
+	 * Reads a string or the index of a previously read string. Strings are
+	 * interned since they are marker types and attribute keys.
+	 */
+	private String readString(DataInputStream input, List<String> readStrings) throws IOException, CoreException {
+		byte constant = input.readByte();
+		switch (constant) {
+			case QNAME :
+				String string = input.readUTF().intern();
+				readStrings.add(string);
+				return string;
+			case INDEX :
+				return readStrings.get(input.readInt());
+			default :
+				//if we get here the marker file is corrupt
+				String msg = Messages.resources_readMarkers;
+				throw new ResourceException(IResourceStatus.FAILED_READ_METADATA, null, msg, null);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -75,10 +75,11 @@ public class MarkerSnapshotReader_1 extends MarkerSnapshotReader {
 			markers.add(readMarkerInfo(input, readTypes));
 		// we've read all the markers from the file for this snap. if the resource
 		// doesn't exist in the workspace then consider this a delete and return
-		ResourceInfo info = workspace.getResourceInfo(path, false, false);
+		ResourceInfo info = workspace.getMarkerManager().getRestoreInfo(path);
 		if (info == null)
 			return;
 		info.setMarkers(markers);
+		workspace.getMarkerManager().indexMarkers(path, markers);
 		info.clear(ICoreConstants.M_MARKERS_SNAP_DIRTY);
 	}
 
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.resources;
+
+import java.io.*;
+import org.eclipse.core.internal.localstore.SafeFileInputStream;
+import org.eclipse.core.internal.localstore.SafeFileOutputStream;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * The number of persistent problem markers of a project by severity. It is
+ * written next to the saved markers of the project, so that problem severity
+ * queries can be answered for projects whose markers are not restored yet.
+ */
+public class MarkerSummary {
+	private static final int SUMMARY_VERSION = 1;
+
+	// indexed by IMarker.SEVERITY_INFO, SEVERITY_WARNING and SEVERITY_ERROR
+	private final int[] counts = new int[IMarker.SEVERITY_ERROR + 1];
+
+	/**
+	 * Counts a problem marker of the given severity. Markers without a valid
+	 * severity are not counted.
+	 */
+	void add(int severity) {
+		if (severity >= IMarker.SEVERITY_INFO && severity <= IMarker.SEVERITY_ERROR)
+			counts[severity]++;
+	}
+
+	/**
+	 * Returns the number of problem markers with the given severity.
+	 */
+	public int getCount(int severity) {
+		if (severity < IMarker.SEVERITY_INFO || severity > IMarker.SEVERITY_ERROR)
+			return 0;
+		return counts[severity];
+	}
+
+	/**
+	 * Returns the maximum severity of the counted problem markers, or -1 if there
+	 * are none.
+	 */
+	public int getMaxSeverity() {
+		for (int severity = IMarker.SEVERITY_ERROR; severity >= IMarker.SEVERITY_INFO; severity--)
+			if (counts[severity] > 0)
+				return severity;
+		return -1;
+	}
+
+	/**
+	 * Reads the summary at the given location. Returns <code>null</code> if the
+	 * summary was written in an unknown format.
+	 */
+	public static MarkerSummary read(IPath location, IPath tempLocation) throws IOException {
+		try (DataInputStream input = new DataInputStream(new SafeFileInputStream(location.toOSString(), tempLocation.toOSString()))) {
+			if (input.readInt() != SUMMARY_VERSION)
+				return null;
+			MarkerSummary summary = new MarkerSummary();
+			for (int severity = IMarker.SEVERITY_INFO; severity <= IMarker.SEVERITY_ERROR; severity++)
+				summary.counts[severity] = input.readInt();
+			return summary;
+		}
+	}
+
+	/**
+	 * Writes this summary to the given location.
+	 */
+	void write(IPath location, IPath tempLocation) throws IOException {
+		try (DataOutputStream output = new DataOutputStream(new SafeFileOutputStream(location.toOSString(), tempLocation.toOSString()))) {
+			output.writeInt(SUMMARY_VERSION);
+			for (int severity = IMarker.SEVERITY_INFO; severity <= IMarker.SEVERITY_ERROR; severity++)
+				output.writeInt(counts[severity]);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.resources;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * A workspace wide index from marker type to the paths of the resources that
+ * carry markers of exactly that type.
+ * <p>
+ * The index is a hint: every resource that has a marker of a given type is
+ * guaranteed to be recorded for that type, but a recorded path may no longer
+ * have such markers (for example because the resource was deleted without its
+ * markers being removed). The {@link MarkerManager} removes the entries of a
+ * resource when it removes the last marker of a type from it.
+ * </p><p>
+ * The paths of a type are kept sorted segment by segment, so the paths below a
+ * given root are adjacent and can be found without looking at the others.
+ * </p><p>
+ * This class is used concurrently. To keep the guarantee above, a path must be
+ * recorded <em>after</em> the markers have been set on its resource info. The
+ * markers are only modified while the workspace lock is held, so a path is
+ * never removed while a marker of that type is added to it.
+ * </p>
+ */
+public class MarkerTypeIndex {
+	/**
+	 * Orders paths segment by segment, so a path is directly followed by the
+	 * paths below it.
+	 */
+	private static final Comparator<IPath> PATH_ORDER = (path1, path2) -> {
+		int count1 = path1.segmentCount();
+		int count2 = path2.segmentCount();
+		for (int i = 0, count = Math.min(count1, count2); i < count; i++) {
+			int result = path1.segment(i).compareTo(path2.segment(i));
+			if (result != 0)
+				return result;
+		}
+		return count1 - count2;
+	};
+
+	private final Map<String, NavigableSet<IPath>> pathsByType = new ConcurrentHashMap<>();
+
+	/**
+	 * Records that the resource at the given path has markers of the given type.
+	 */
+	public void add(String type, IPath path) {
+		pathsByType.computeIfAbsent(type, t -> new ConcurrentSkipListSet<>(PATH_ORDER)).add(path);
+	}
+
+	/**
+	 * Records all the marker types found in the given set for the resource at
+	 * the given path.
+	 */
+	public void addAll(IPath path, MarkerSet markers) {
+		if (markers == null)
+			return;
+		String lastType = null;
+		for (IMarkerSetElement element : markers.elements()) {
+			String type = ((MarkerInfo) element).getType();
+			// markers on one resource are typically all of the same type
+			if (type.equals(lastType))
+				continue;
+			add(type, path);
+			lastType = type;
+		}
+	}
+
+	/**
+	 * Returns the paths recorded for the given type that are equal to or
+	 * below the given root path.
+	 */
+	public List<IPath> getPaths(String type, IPath root) {
+		NavigableSet<IPath> paths = pathsByType.get(type);
+		if (paths == null || paths.isEmpty())
+			return Collections.emptyList();
+		if (root.isRoot())
+			return new ArrayList<>(paths);
+		List<IPath> result = new ArrayList<>();
+		for (IPath path : paths.tailSet(root, true)) {
+			if (!root.isPrefixOf(path))
+				break;
+			result.add(path);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a snapshot of all the marker types currently recorded.
+	 */
+	public Set<String> getTypes() {
+		return new HashSet<>(pathsByType.keySet());
+	}
+
+	/**
+	 * Removes the given path from the entries of the given type. Must only be
+	 * called while the workspace lock is held and the resource at the given
+	 * path has no markers of that type.
+	 */
+	public void remove(String type, IPath path) {
+		Set<IPath> paths = pathsByType.get(type);
+		if (paths != null)
+			paths.remove(path);
+	}
+
+	/**
+	 * Removes the given path from the entries of all the marker types found in
+	 * the given set that are not found in the remaining markers.
+	 */
+	public void removeAll(IPath path, IMarkerSetElement[] removed, MarkerSet remaining) {
+		String lastType = null;
+		for (IMarkerSetElement element : removed) {
+			String type = ((MarkerInfo) element).getType();
+			if (type.equals(lastType))
+				continue;
+			lastType = type;
+			if (remaining == null || !hasType(remaining, type))
+				remove(type, path);
+		}
+	}
+
+	private static boolean hasType(MarkerSet markers, String type) {
+		for (IMarkerSetElement element : markers.elements()) {
+			if (((MarkerInfo) element).getType().equals(type))
+				return true;
+		}
+		return false;
+	}
+}
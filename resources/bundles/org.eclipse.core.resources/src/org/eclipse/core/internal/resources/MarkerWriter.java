@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -20,6 +20,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.*;
 import org.eclipse.core.internal.watson.IPathRequestor;
+import org.eclipse.core.resources.IMarker;
 
 //
 public class MarkerWriter {
@@ -27,7 +28,7 @@ public class MarkerWriter {
 	protected MarkerManager manager;
 
 	// version numbers
-	public static final int MARKERS_SAVE_VERSION = 3;
+	public static final int MARKERS_SAVE_VERSION = 4;
 	public static final int MARKERS_SNAP_VERSION = 2;
 
 	// type constants
@@ -73,14 +74,16 @@ public class MarkerWriter {
 	 * RESOURCE -> RESOURCE_PATH MARKERS_SIZE MARKER+
 	 * RESOURCE_PATH -> String
 	 * MARKERS_SIZE -> int
-	 * MARKER -> MARKER_ID TYPE ATTRIBUTES_SIZE ATTRIBUTE* CREATION_TIME
+	 * MARKER -> MARKER_ID TYPE INT_MASK INT_VALUE* ATTRIBUTES_SIZE ATTRIBUTE* CREATION_TIME
 	 * MARKER_ID -> long
 	 * TYPE -> INDEX | QNAME
 	 * INDEX -> byte int
 	 * QNAME -> byte String
+	 * INT_MASK -> int
+	 * INT_VALUE -> int
 	 * ATTRIBUTES_SIZE -> short
 	 * ATTRIBUTE -> ATTRIBUTE_KEY ATTRIBUTE_VALUE
-	 * ATTRIBUTE_KEY -> String
+	 * ATTRIBUTE_KEY -> INDEX | QNAME
 	 * ATTRIBUTE_VALUE -> INTEGER_VALUE | BOOLEAN_VALUE | STRING_VALUE | NULL_VALUE
 	 * INTEGER_VALUE -> byte int
 	 * BOOLEAN_VALUE -> byte boolean
@@ -88,8 +91,22 @@ public class MarkerWriter {
 	 * NULL_VALUE -> byte
 	 * CREATION_TIME -> long
 	 * }</pre>
+	 * Bit <code>i</code> of INT_MASK is set if the well known int attribute
+	 * <code>MarkerAttributeMap.INT_ATTRIBUTES[i]</code> is present. One INT_VALUE
+	 * follows for each set bit, in bit order. Types and attribute keys share one
+	 * table of written strings that INDEX refers to. The given map holds that
+	 * table, from each written string to its index.
+	 */
+	public void save(ResourceInfo info, IPathRequestor requestor, DataOutputStream output, Map<String, Integer> writtenStrings) throws IOException {
+		save(info, requestor, output, writtenStrings, null);
+	}
+
+	/**
+	 * Like {@link #save(ResourceInfo, IPathRequestor, DataOutputStream, Map)},
+	 * additionally counting the written problem markers in the given summary if it
+	 * is not <code>null</code>.
 	 */
-	public void save(ResourceInfo info, IPathRequestor requestor, DataOutputStream output, List<String> writtenTypes) throws IOException {
+	public void save(ResourceInfo info, IPathRequestor requestor, DataOutputStream output, Map<String, Integer> writtenStrings, MarkerSummary summary) throws IOException {
 		// phantom resources don't have markers
 		if (info.isSet(ICoreConstants.M_PHANTOM))
 			return;
@@ -109,9 +126,14 @@ public class MarkerWriter {
 		boolean[] isPersistent = (boolean[]) result[1];
 		output.writeUTF(requestor.requestPath().toString());
 		output.writeInt(count);
-		for (int i = 0; i < elements.length; i++)
-			if (isPersistent[i])
-				write((MarkerInfo) elements[i], output, writtenTypes);
+		for (int i = 0; i < elements.length; i++) {
+			if (isPersistent[i]) {
+				MarkerInfo marker = (MarkerInfo) elements[i];
+				writeCompact(marker, output, writtenStrings);
+				if (summary != null && manager.isSubtype(marker.getType(), IMarker.PROBLEM))
+					summary.add(marker.getAttribute(IMarker.SEVERITY, -1));
+			}
+		}
 	}
 
 	/**
@@ -159,7 +181,7 @@ public class MarkerWriter {
 		// always write out the count...even if its zero. this will help
 		// use pick up marker deletions from our snapshot.
 		output.writeInt(count);
-		List<String> writtenTypes = new ArrayList<>();
+		Map<String, Integer> writtenTypes = new HashMap<>();
 		for (int i = 0; i < elements.length; i++)
 			if (isPersistent[i])
 				write((MarkerInfo) elements[i], output, writtenTypes);
@@ -170,46 +192,66 @@ public class MarkerWriter {
 	 * Write out the given marker attributes to the given output stream.
 	 */
 	private void write(MarkerAttributeMap markerAttributeMap, DataOutputStream output) throws IOException {
-		output.writeShort(markerAttributeMap.size());
-		for (Map.Entry<String, Object> e : markerAttributeMap.entrySet()) {
-			String key = e.getKey();
-			output.writeUTF(key);
-			Object value = e.getValue();
-			if (value instanceof Integer) {
+		MarkerAttributeMap.State state = markerAttributeMap.getState();
+		output.writeShort(state.size());
+		for (int slot = 0, i = 0; slot < MarkerAttributeMap.INT_ATTRIBUTES.length; slot++) {
+			if ((state.intMask & (1 << slot)) != 0) {
+				output.writeUTF(MarkerAttributeMap.INT_ATTRIBUTES[slot]);
 				output.writeByte(ATTRIBUTE_INTEGER);
-				output.writeInt(((Integer) value).intValue());
-				continue;
+				output.writeInt(state.ints[i++]);
 			}
-			if (value instanceof Boolean) {
-				output.writeByte(ATTRIBUTE_BOOLEAN);
-				output.writeBoolean(((Boolean) value).booleanValue());
-				continue;
-			}
-			if (value instanceof String) {
-				output.writeByte(ATTRIBUTE_STRING);
-				output.writeUTF((String) value);
-				continue;
-			}
-			// otherwise we came across an attribute of an unknown type
-			// so just write out null since we don't know how to marshal it.
-			output.writeByte(ATTRIBUTE_NULL);
+		}
+		Object[] others = state.others;
+		for (int i = 0; i < others.length; i += 2) {
+			output.writeUTF((String) others[i]);
+			writeValue(others[i + 1], output);
 		}
 	}
 
-	private void write(MarkerInfo info, DataOutputStream output, List<String> writtenTypes) throws IOException {
-		output.writeLong(info.getId());
-		// if we have already written the type once, then write an integer
-		// constant to represent it instead to remove duplication
-		String type = info.getType();
-		int index = writtenTypes.indexOf(type);
-		if (index == -1) {
+	/*
+	 * Write out the type tag and value of a marker attribute to the given output stream.
+	 */
+	private void writeValue(Object value, DataOutputStream output) throws IOException {
+		if (value instanceof Integer) {
+			output.writeByte(ATTRIBUTE_INTEGER);
+			output.writeInt(((Integer) value).intValue());
+			return;
+		}
+		if (value instanceof Boolean) {
+			output.writeByte(ATTRIBUTE_BOOLEAN);
+			output.writeBoolean(((Boolean) value).booleanValue());
+			return;
+		}
+		if (value instanceof String) {
+			output.writeByte(ATTRIBUTE_STRING);
+			output.writeUTF((String) value);
+			return;
+		}
+		// otherwise we came across an attribute of an unknown type
+		// so just write out null since we don't know how to marshal it.
+		output.writeByte(ATTRIBUTE_NULL);
+	}
+
+	/*
+	 * Write out the given string, or its index if it has been written before.
+	 */
+	private void writeString(String string, DataOutputStream output, Map<String, Integer> writtenStrings) throws IOException {
+		Integer index = writtenStrings.get(string);
+		if (index == null) {
 			output.writeByte(QNAME);
-			output.writeUTF(type);
-			writtenTypes.add(type);
+			output.writeUTF(string);
+			writtenStrings.put(string, writtenStrings.size());
 		} else {
 			output.writeByte(INDEX);
-			output.writeInt(index);
+			output.writeInt(index.intValue());
 		}
+	}
+
+	private void write(MarkerInfo info, DataOutputStream output, Map<String, Integer> writtenTypes) throws IOException {
+		output.writeLong(info.getId());
+		// if we have already written the type once, then write an integer
+		// constant to represent it instead to remove duplication
+		writeString(info.getType(), output, writtenTypes);
 
 		// write out the size of the attribute table and
 		// then each attribute.
@@ -223,4 +265,26 @@ public class MarkerWriter {
 		// write out the creation time
 		output.writeLong(info.getCreationTime());
 	}
+
+	/*
+	 * Write out the given marker in the compact format of MARKERS_SAVE_VERSION.
+	 */
+	private void writeCompact(MarkerInfo info, DataOutputStream output, Map<String, Integer> writtenStrings) throws IOException {
+		output.writeLong(info.getId());
+		writeString(info.getType(), output, writtenStrings);
+		MarkerAttributeMap attributes = info.getAttributes(false);
+		MarkerAttributeMap.State state = attributes == null ? MarkerAttributeMap.State.EMPTY : attributes.getState();
+		// the well known int attributes as a bit mask followed by the values
+		output.writeInt(state.intMask);
+		for (int value : state.ints)
+			output.writeInt(value);
+		// all other attributes with shared keys
+		Object[] others = state.others;
+		output.writeShort(others.length / 2);
+		for (int i = 0; i < others.length; i += 2) {
+			writeString((String) others[i], output, writtenStrings);
+			writeValue(others[i + 1], output);
+		}
+		output.writeLong(info.getCreationTime());
+	}
 }
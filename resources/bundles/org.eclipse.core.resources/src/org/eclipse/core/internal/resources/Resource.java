@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -37,11 +37,10 @@ import org.eclipse.core.internal.watson.*;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.resources.team.IMoveDeleteHook;
 import org.eclipse.core.runtime.*;
-import org.eclipse.core.runtime.jobs.ISchedulingRule;
-import org.eclipse.core.runtime.jobs.MultiRule;
+import org.eclipse.core.runtime.jobs.*;
 import org.eclipse.osgi.util.NLS;
 
-public abstract class Resource extends PlatformObject implements IResource, ICoreConstants, Cloneable, IPathRequestor {
+public abstract class Resource extends PlatformObject implements IResource, ICoreConstants, Cloneable, IPathRequestor, IHierarchicalRule {
 	final IPath path;
 	final Workspace workspace;
 
@@ -715,6 +714,45 @@ public abstract class Resource extends PlatformObject implements IResource, ICor
 			workspace.endOperation(rule, false);
 		}
 	}
+
+	@Override
+	public IMarker[] createMarkers(String type, List<? extends Map<String, ? extends Object>> attributesList) throws CoreException {
+		return addMarkers(type, attributesList, false);
+	}
+
+	@Override
+	public IMarker[] replaceMarkers(String type, List<? extends Map<String, ? extends Object>> attributesList) throws CoreException {
+		return addMarkers(type, attributesList, true);
+	}
+
+	/**
+	 * Creates one marker of the given type per attribute map in a single operation,
+	 * optionally replacing the existing markers of that type.
+	 */
+	private IMarker[] addMarkers(String type, List<? extends Map<String, ? extends Object>> attributesList, boolean replace) throws CoreException {
+		Assert.isNotNull(type);
+		Assert.isNotNull(attributesList);
+		final ISchedulingRule rule = workspace.getRuleFactory().markerRule(this);
+		try {
+			workspace.prepareOperation(rule, null);
+			checkAccessible(getFlags(getResourceInfo(false, false)));
+			workspace.beginOperation(true);
+			MarkerManager manager = workspace.getMarkerManager();
+			boolean validate = manager.isPersistentType(type);
+			MarkerInfo[] markerInfos = new MarkerInfo[attributesList.size()];
+			IMarker[] result = new IMarker[markerInfos.length];
+			int i = 0;
+			for (Map<String, ? extends Object> attributes : attributesList) {
+				markerInfos[i] = new MarkerInfo(attributes, validate, type, workspace.nextMarkerId());
+				result[i] = new Marker(this, markerInfos[i].getId());
+				i++;
+			}
+			manager.addAll(this, replace ? type : null, markerInfos);
+			return result;
+		} finally {
+			workspace.endOperation(rule, false);
+		}
+	}
 	@Override
 	public IResourceProxy createProxy() {
 		ResourceProxy result = new ResourceProxy();
@@ -1073,6 +1111,20 @@ public abstract class Resource extends PlatformObject implements IResource, ICor
 		return path;
 	}
 
+	/**
+	 * Resources conflict exactly when they belong to the same workspace and one
+	 * path is a prefix of the other, see {@link #isConflicting(ISchedulingRule)}.
+	 */
+	@Override
+	public Object getHierarchy() {
+		return workspace;
+	}
+
+	@Override
+	public IPath getHierarchyPath() {
+		return path;
+	}
+
 	public FileSystemResourceManager getLocalManager() {
 		return workspace.getFileSystemManager();
 	}
@@ -18,6 +18,7 @@ package org.eclipse.core.internal.resources;
 
 import java.io.*;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import org.eclipse.core.internal.localstore.FileStoreRoot;
 import org.eclipse.core.internal.utils.*;
 import org.eclipse.core.internal.watson.IElementTreeData;
@@ -26,11 +27,80 @@ import org.eclipse.core.runtime.QualifiedName;
 
 /**
  * A data structure containing the in-memory state of a resource in the workspace.
+ * <p>
+ * There is one info per resource and tree layer, so its footprint matters. The
+ * markers, sync info and session properties that only few resources have are
+ * kept in a separate {@link Extension} object.
  */
 public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPoolParticipant {
 	protected static final int LOWER = 0xFFFF;
 	protected static final int UPPER = 0xFFFF0000;
 
+	/**
+	 * The optional data of a resource info. Instances are immutable, so they can
+	 * be shared between clones of an info. An info has no extension while none
+	 * of the optional data is set.
+	 */
+	static final class Extension {
+		/** The collection of markers for this resource. */
+		final MarkerSet markers;
+
+		/**
+		 * The properties which are maintained for the lifecycle of the workspace.
+		 * <p>
+		 * This field is declared as the implementing class rather than the
+		 * interface so we ensure that we get it right since we are making certain
+		 * assumptions about the object type w.r.t. casting.
+		 */
+		final ObjectMap<QualifiedName, Object> sessionProperties;
+
+		/**
+		 * The table of sync information.
+		 * <p>
+		 * This field is declared as the implementing class rather than the
+		 * interface so we ensure that we get it right since we are making certain
+		 * assumptions about the object type w.r.t. casting.
+		 */
+		final ObjectMap<QualifiedName, Object> syncInfo;
+
+		private Extension(MarkerSet markers, ObjectMap<QualifiedName, Object> sessionProperties, ObjectMap<QualifiedName, Object> syncInfo) {
+			this.markers = markers;
+			this.sessionProperties = sessionProperties;
+			this.syncInfo = syncInfo;
+		}
+
+		/**
+		 * Returns an extension with the given content, or <code>null</code> if
+		 * there is none.
+		 */
+		static Extension of(MarkerSet markers, ObjectMap<QualifiedName, Object> sessionProperties, ObjectMap<QualifiedName, Object> syncInfo) {
+			if (markers == null && sessionProperties == null && syncInfo == null)
+				return null;
+			return new Extension(markers, sessionProperties, syncInfo);
+		}
+
+		static Extension withMarkers(Extension extension, MarkerSet markers) {
+			if (extension == null)
+				return of(markers, null, null);
+			return of(markers, extension.sessionProperties, extension.syncInfo);
+		}
+
+		static Extension withSessionProperties(Extension extension, ObjectMap<QualifiedName, Object> sessionProperties) {
+			if (extension == null)
+				return of(null, sessionProperties, null);
+			return of(extension.markers, sessionProperties, extension.syncInfo);
+		}
+
+		static Extension withSyncInfo(Extension extension, ObjectMap<QualifiedName, Object> syncInfo) {
+			if (extension == null)
+				return of(null, null, syncInfo);
+			return of(extension.markers, extension.sessionProperties, syncInfo);
+		}
+	}
+
+	private static final AtomicReferenceFieldUpdater<ResourceInfo, Extension> EXTENSION = AtomicReferenceFieldUpdater
+			.newUpdater(ResourceInfo.class, Extension.class, "extension"); //$NON-NLS-1$
+
 	/**
 	 * This field stores the resource modification stamp in the lower two bytes,
 	 * and the character set generation count in the higher two bytes.
@@ -55,9 +125,6 @@ public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPo
 	 */
 	protected volatile int markerAndSyncStamp;
 
-	/** The collection of markers for this resource. */
-	protected MarkerSet markers;
-
 	/** Modification stamp */
 	protected long modStamp;
 
@@ -66,22 +133,11 @@ public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPo
 	protected volatile long nodeId;
 
 	/**
-	 * The properties which are maintained for the lifecycle of the workspace.
-	 * <p>
-	 * This field is declared as the implementing class rather than the
-	 * interface so we ensure that we get it right since we are making certain
-	 * assumptions about the object type w.r.t. casting.
+	 * The markers, session properties and sync info of this resource, or
+	 * <code>null</code> if it has none of them.
 	 */
-	protected ObjectMap<QualifiedName, Object> sessionProperties;
-
-	/**
-	 * The table of sync information.
-	 * <p>
-	 * This field is declared as the implementing class rather than the
-	 * interface so we ensure that we get it right since we are making certain
-	 * assumptions about the object type w.r.t. casting.
-	 */
-	protected ObjectMap<QualifiedName, Object> syncInfo;
+	// thread safety: updated atomically since markers are set without holding the monitor
+	private volatile Extension extension;
 
 	/**
 	 * Default constructor (for easier debugging)
@@ -128,7 +184,7 @@ public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPo
 	}
 
 	public synchronized void clearSessionProperties() {
-		sessionProperties = null;
+		EXTENSION.updateAndGet(this, e -> Extension.withSessionProperties(e, null));
 	}
 
 	@Override
@@ -187,6 +243,8 @@ public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPo
 	 * <code>null</code> is returned if there are none.
 	 */
 	public MarkerSet getMarkers(boolean makeCopy) {
+		Extension temp = extension;
+		MarkerSet markers = temp == null ? null : temp.markers;
 		if (markers == null)
 			return null;
 		return makeCopy ? (MarkerSet) markers.clone() : markers;
@@ -214,11 +272,11 @@ public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPo
 	@SuppressWarnings({"unchecked"})
 	public Map<QualifiedName, Object> getSessionProperties() {
 		// thread safety: (Concurrency001)
-		ObjectMap<QualifiedName, Object> temp = sessionProperties;
+		ObjectMap<QualifiedName, Object> temp = getSessionPropertiesMap();
 		if (temp == null)
 			temp = new ObjectMap<>(5);
 		else
-			temp = (ObjectMap<QualifiedName, Object>) sessionProperties.clone();
+			temp = (ObjectMap<QualifiedName, Object>) temp.clone();
 		return temp;
 	}
 
@@ -227,12 +285,25 @@ public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPo
 	 */
 	public Object getSessionProperty(QualifiedName name) {
 		// thread safety: (Concurrency001)
-		Map<QualifiedName, Object> temp = sessionProperties;
+		Map<QualifiedName, Object> temp = getSessionPropertiesMap();
 		if (temp == null)
 			return null;
 		return temp.get(name);
 	}
 
+	private ObjectMap<QualifiedName, Object> getSessionPropertiesMap() {
+		Extension temp = extension;
+		return temp == null ? null : temp.sessionProperties;
+	}
+
+	/**
+	 * Returns the optional data of this info, or <code>null</code> if there is
+	 * none. For memory statistics.
+	 */
+	Object getExtension() {
+		return extension;
+	}
+
 	/**
 	 * The parameter to this method is the implementing class rather than the
 	 * interface so we ensure that we get it right since we are making certain
@@ -240,6 +311,7 @@ public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPo
 	 */
 	@SuppressWarnings({"unchecked"})
 	public synchronized ObjectMap<QualifiedName, Object> getSyncInfo(boolean makeCopy) {
+		ObjectMap<QualifiedName, Object> syncInfo = getSyncInfoMap();
 		if (syncInfo == null)
 			return null;
 		return makeCopy ? (ObjectMap<QualifiedName, Object>) syncInfo.clone() : syncInfo;
@@ -248,12 +320,18 @@ public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPo
 	public synchronized byte[] getSyncInfo(QualifiedName id, boolean makeCopy) {
 		// thread safety: (Concurrency001)
 		byte[] b;
+		ObjectMap<QualifiedName, Object> syncInfo = getSyncInfoMap();
 		if (syncInfo == null)
 			return null;
 		b = (byte[]) syncInfo.get(id);
 		return b == null ? null : (makeCopy ? (byte[]) b.clone() : b);
 	}
 
+	private ObjectMap<QualifiedName, Object> getSyncInfoMap() {
+		Extension temp = extension;
+		return temp == null ? null : temp.syncInfo;
+	}
+
 	/**
 	 * Returns the sync information generation count.
 	 * The count is incremented whenever sync info on the resource changes.
@@ -375,7 +453,7 @@ public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPo
 	 * <code>null</code> is passed in if there are no markers.
 	 */
 	public void setMarkers(MarkerSet value) {
-		markers = value;
+		EXTENSION.updateAndGet(this, e -> Extension.withMarkers(e, value));
 	}
 
 	/**
@@ -410,24 +488,24 @@ public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPo
 	@SuppressWarnings({"unchecked"})
 	public synchronized void setSessionProperty(QualifiedName name, Object value) {
 		// thread safety: (Concurrency001)
+		ObjectMap<QualifiedName, Object> sessionProperties = getSessionPropertiesMap();
+		ObjectMap<QualifiedName, Object> temp;
 		if (value == null) {
 			if (sessionProperties == null)
 				return;
-			ObjectMap<QualifiedName, Object> temp = (ObjectMap<QualifiedName, Object>) sessionProperties.clone();
+			temp = (ObjectMap<QualifiedName, Object>) sessionProperties.clone();
 			temp.remove(name);
 			if (temp.isEmpty())
-				sessionProperties = null;
-			else
-				sessionProperties = temp;
+				temp = null;
 		} else {
-			ObjectMap<QualifiedName, Object> temp = sessionProperties;
-			if (temp == null)
+			if (sessionProperties == null)
 				temp = new ObjectMap<>(5);
 			else
 				temp = (ObjectMap<QualifiedName, Object>) sessionProperties.clone();
 			temp.put(name, value);
-			sessionProperties = temp;
 		}
+		ObjectMap<QualifiedName, Object> newProperties = temp;
+		EXTENSION.updateAndGet(this, e -> Extension.withSessionProperties(e, newProperties));
 	}
 
 	/**
@@ -436,22 +514,26 @@ public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPo
 	 * assumptions about the object type w.r.t. casting.
 	 */
 	protected void setSyncInfo(ObjectMap<QualifiedName, Object> syncInfo) {
-		this.syncInfo = syncInfo;
+		EXTENSION.updateAndGet(this, e -> Extension.withSyncInfo(e, syncInfo));
 	}
 
 	public synchronized void setSyncInfo(QualifiedName id, byte[] value) {
+		ObjectMap<QualifiedName, Object> syncInfo = getSyncInfoMap();
 		if (value == null) {
 			//delete sync info
 			if (syncInfo == null)
 				return;
 			syncInfo.remove(id);
 			if (syncInfo.isEmpty())
-				syncInfo = null;
+				setSyncInfo(null);
 		} else {
 			//add sync info
-			if (syncInfo == null)
+			if (syncInfo == null) {
 				syncInfo = new ObjectMap<>(5);
-			syncInfo.put(id, value.clone());
+				syncInfo.put(id, value.clone());
+				setSyncInfo(syncInfo);
+			} else
+				syncInfo.put(id, value.clone());
 		}
 	}
 
@@ -468,13 +550,16 @@ public class ResourceInfo implements IElementTreeData, ICoreConstants, IStringPo
 	 */
 	@Override
 	public void shareStrings(StringPool set) {
-		ObjectMap<QualifiedName, Object> map = syncInfo;
+		Extension temp = extension;
+		if (temp == null)
+			return;
+		ObjectMap<QualifiedName, Object> map = temp.syncInfo;
 		if (map != null)
 			map.shareStrings(set);
-		map = sessionProperties;
+		map = temp.sessionProperties;
 		if (map != null)
 			map.shareStrings(set);
-		MarkerSet markerSet = markers;
+		MarkerSet markerSet = temp.markers;
 		if (markerSet != null)
 			markerSet.shareStrings(set);
 	}
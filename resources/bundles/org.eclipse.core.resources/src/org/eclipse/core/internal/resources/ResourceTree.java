@@ -658,6 +658,9 @@ class ResourceTree implements IResourceTree {
 					return false;
 				}
 
+				// Restore deferred markers before their file moves along with the metadata area
+				workspace.getMarkerManager().restoreDeferred(source.getFullPath());
+
 				// Rename the project metadata area. Close the property store to flush everything to disk
 				try {
 					source.getPropertyManager().closePropertyStore(source);
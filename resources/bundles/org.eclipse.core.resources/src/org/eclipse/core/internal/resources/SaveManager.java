@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -1160,10 +1160,13 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 			message = Messages.resources_saveWarnings;
 			MultiStatus warnings = new MultiStatus(ResourcesPlugin.PI_RESOURCES, IStatus.WARNING, message, null);
 			ISchedulingRule rule = project != null ? (IResource) project : workspace.getRoot();
+			Object saveEvent = null;
 			try {
 				workspace.prepareOperation(rule, monitor);
 				workspace.beginOperation(false);
 				hookStartSave(kind, project);
+				if (WorkspaceEventsSupport.AVAILABLE)
+					saveEvent = WorkspaceEvents.beginSave(kind, project);
 				long start = System.currentTimeMillis();
 				Map<String, SaveContext> contexts = computeSaveContexts(getSaveParticipantPluginIds(), kind, project);
 				broadcastLifecycle(PREPARE_TO_SAVE, contexts, warnings, Policy.subMonitorFor(monitor, 1));
@@ -1250,6 +1253,8 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 				workspace.getWorkManager().operationCanceled();
 				throw e;
 			} finally {
+				if (saveEvent != null)
+					WorkspaceEvents.end(saveEvent);
 				workspace.endOperation(rule, false);
 			}
 		} finally {
@@ -1658,6 +1663,21 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 		return messageBuffer.toString();
 	}
 
+	/**
+	 * Writes the problem marker summary of the given project next to its saved
+	 * markers, or deletes it if no markers have been saved.
+	 */
+	private void saveMarkerSummary(IProject project, MarkerSummary summary, boolean hasMarkers) throws IOException {
+		IPath location = workspace.getMetaArea().getMarkersSummaryLocationFor(project);
+		IPath tempLocation = workspace.getMetaArea().getBackupLocationFor(location);
+		if (hasMarkers) {
+			summary.write(location, tempLocation);
+		} else {
+			location.toFile().delete();
+			tempLocation.toFile().delete();
+		}
+	}
+
 	/**
 	 * Visit the given resource (to depth infinite) and write out extra information
 	 * like markers and sync info. To be called during a full save and project save.
@@ -1678,15 +1698,19 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 		IPath markersTempLocation = workspace.getMetaArea().getBackupLocationFor(markersLocation);
 		IPath syncInfoLocation = workspace.getMetaArea().getSyncInfoLocationFor(root);
 		IPath syncInfoTempLocation = workspace.getMetaArea().getBackupLocationFor(syncInfoLocation);
-		final List<String> writtenTypes = new ArrayList<>(5);
+		final Map<String, Integer> writtenTypes = new HashMap<>(5);
 		final List<QualifiedName> writtenPartners = new ArrayList<>(synchronizer.registry.size());
+		// the markers of a project that were never restored are unchanged on disk
+		boolean saveMarkers = root.getType() == IResource.ROOT || markerManager.isRestored((IProject) root);
+		final MarkerSummary summary = saveMarkers && root.getType() == IResource.PROJECT ? new MarkerSummary() : null;
 		DataOutputStream o1 = null;
 		DataOutputStream o2 = null;
 		String message;
 
 		// Create the output streams
 		try {
-			o1 = new DataOutputStream(new SafeFileOutputStream(markersLocation.toOSString(), markersTempLocation.toOSString()));
+			if (saveMarkers)
+				o1 = new DataOutputStream(new SafeFileOutputStream(markersLocation.toOSString(), markersTempLocation.toOSString()));
 			// we don't store the sync info for the workspace root so don't create
 			// an empty file
 			if (root.getType() != IResource.ROOT)
@@ -1711,9 +1735,10 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 			ResourceInfo info = (ResourceInfo) elementContents;
 			if (info != null) {
 				try {
-					// save the markers
+					// save the markers - if their restore is still deferred then the output stream will be null
 					long start = System.currentTimeMillis();
-					markerManager.save(info, requestor, markersOutput, writtenTypes);
+					if (markersOutput != null)
+						markerManager.save(info, requestor, markersOutput, writtenTypes, summary);
 					long markerSaveTime = System.currentTimeMillis() - start;
 					saveTimes[0] += markerSaveTime;
 					persistMarkers += markerSaveTime;
@@ -1744,14 +1769,18 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 				Policy.debug("Save Markers for " + root.getFullPath() + ": " + saveTimes[0] + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 			if (Policy.DEBUG_SAVE_SYNCINFO)
 				Policy.debug("Save SyncInfo for " + root.getFullPath() + ": " + saveTimes[1] + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-			removeGarbage(markersOutput, markersLocation, markersTempLocation);
+			if (markersOutput != null) {
+				removeGarbage(markersOutput, markersLocation, markersTempLocation);
+				markersOutput.close();
+			}
 			// if we have the workspace root the output stream will be null and we
 			// don't have to perform cleanup code
 			if (syncInfoOutput != null) {
 				removeGarbage(syncInfoOutput, syncInfoLocation, syncInfoTempLocation);
 				syncInfoOutput.close();
 			}
-			markersOutput.close();
+			if (summary != null)
+				saveMarkerSummary((IProject) root, summary, markersLocation.toFile().exists());
 		} catch (IOException e) {
 			message = NLS.bind(Messages.resources_writeMeta, root.getFullPath());
 			throw new ResourceException(IResourceStatus.FAILED_WRITE_METADATA, root.getFullPath(), message, e);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2005 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,7 @@
 package org.eclipse.core.internal.resources;
 
 import java.util.Properties;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ResourcesPlugin;
 
 /**
@@ -43,6 +44,39 @@ public class TestingSupport {
 		}
 	}
 
+	/**
+	 * Sets whether the markers of projects restored on startup are restored in
+	 * the background instead, as with the
+	 * <code>org.eclipse.core.resources.lazyMarkerRestore</code> system property.
+	 * @since 3.18
+	 */
+	public static void setLazyMarkerRestore(boolean lazyRestore) {
+		((Workspace) ResourcesPlugin.getWorkspace()).getMarkerManager().setLazyRestore(lazyRestore);
+	}
+
+	/**
+	 * Returns whether the markers of the given project have been restored, or
+	 * their restore is still deferred.
+	 * @since 3.18
+	 */
+	public static boolean isMarkerRestored(IProject project) {
+		return ((Workspace) ResourcesPlugin.getWorkspace()).getMarkerManager().isRestored(project);
+	}
+
+	/**
+	 * Blocks the calling thread until the background restore of deferred
+	 * markers completes.
+	 * @since 3.18
+	 */
+	public static void waitForMarkerRestore() {
+		try {
+			((Workspace) ResourcesPlugin.getWorkspace()).getMarkerManager().restoreJob.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+			throw new RuntimeException("Interrupted while waiting for marker restore"); //$NON-NLS-1$
+		}
+	}
+
 	/*
 	 * Class cannot be instantiated.
 	 */
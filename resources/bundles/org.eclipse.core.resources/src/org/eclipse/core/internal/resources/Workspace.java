@@ -131,6 +131,11 @@ public class Workspace extends PlatformObject implements IWorkspace, ICoreConsta
 	protected NotificationManager notificationManager;
 	protected boolean openFlag = false;
 	protected ElementTree operationTree; // tree at the start of the current operation
+	/**
+	 * The flight recorder event of the current top level operation, or null if
+	 * it is not recorded. Guarded by the workspace lock.
+	 */
+	private Object operationEvent;
 	protected PathVariableManager pathVariableManager;
 	protected IPropertyManager propertyManager;
 
@@ -1523,6 +1528,10 @@ public class Workspace extends PlatformObject implements IWorkspace, ICoreConsta
 					newWorkingTree();
 			}
 		} finally {
+			if (depthOne && operationEvent != null) {
+				WorkspaceEvents.end(operationEvent);
+				operationEvent = null;
+			}
 			workManager.checkOut(rule);
 		}
 		if (depthOne)
@@ -2106,6 +2115,8 @@ public class Workspace extends PlatformObject implements IWorkspace, ICoreConsta
 
 	/* package */
 	void move(Resource source, IPath destination, int depth, int updateFlags, boolean keepSyncInfo) throws CoreException {
+		// markers are moved along with the tree, so they must have been restored
+		markerManager.restoreDeferred(source.getFullPath());
 		// overlay the tree at the destination path, preserving any important info
 		// in any already existing resource information
 		copyTree(source, destination, depth, updateFlags, keepSyncInfo, true, source.getType() == IResource.PROJECT);
@@ -2253,6 +2264,7 @@ public class Workspace extends PlatformObject implements IWorkspace, ICoreConsta
 		// restart the notification manager so it is initialized with the right tree
 		notificationManager.startup(null);
 		openFlag = true;
+		markerManager.startDeferredRestore();
 		if (crashed || refreshRequested()) {
 			try {
 				refreshManager.refresh(getRoot());
@@ -2327,8 +2339,16 @@ public class Workspace extends PlatformObject implements IWorkspace, ICoreConsta
 			if (rule != null && buildRule != null && (rule.isConflicting(buildRule) || buildRule.isConflicting(rule)))
 				buildManager.interrupt();
 		} finally {
-			getWorkManager().checkIn(rule, monitor);
+			Object lockWaitEvent = WorkspaceEventsSupport.AVAILABLE ? WorkspaceEvents.beginLockWait(rule) : null;
+			try {
+				getWorkManager().checkIn(rule, monitor);
+			} finally {
+				if (lockWaitEvent != null)
+					WorkspaceEvents.end(lockWaitEvent);
+			}
 		}
+		if (WorkspaceEventsSupport.AVAILABLE && WorkspaceEvents.isOperationEnabled() && getWorkManager().getPreparedOperationDepth() == 1)
+			operationEvent = WorkspaceEvents.beginOperation(rule);
 		if (!isOpen()) {
 			String message = Messages.resources_workspaceClosed;
 			throw new ResourceException(IResourceStatus.OPERATION_FAILED, null, message, null);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -272,6 +272,7 @@ public class Messages extends NLS {
 	public static String resources_refreshingRoot;
 	public static String resources_resetMarkers;
 	public static String resources_resetSync;
+	public static String resources_restoringMarkers;
 	public static String resources_resourcePath;
 	public static String resources_saveOp;
 	public static String resources_saveProblem;
@@ -18,6 +18,7 @@
 package org.eclipse.core.resources;
 
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
@@ -979,6 +980,80 @@ public interface IResource extends IAdaptable, ISchedulingRule {
 		return marker;
 	}
 
+	/**
+	 * Creates and returns markers with the specified type on this resource, one
+	 * for each of the given attribute maps. All markers are created in a single
+	 * operation and are reported in a single marker delta for this resource.
+	 * Marker type ids should be the id of an extension installed in the
+	 * <code>org.eclipse.core.resources.markers</code> extension point. The
+	 * specified type string must not be <code>null</code>.
+	 *
+	 * <p>
+	 * Note: default implementation is provided for backwards compatibility only and
+	 * is not optimized for performance.
+	 *
+	 * @param type           the type of the markers to create
+	 * @param attributesList a list of maps of attribute names to attribute values
+	 *                       (key type : <code>String</code> value type :
+	 *                       <code>String</code>, <code>Integer</code>, or
+	 *                       <code>Boolean</code>), one per marker to create
+	 * @return the handles of the new markers, in the order of the given list
+	 * @exception CoreException if this method fails. Reasons include:
+	 *                          <ul>
+	 *                          <li>This resource does not exist.</li>
+	 *                          <li>This resource is a project that is not
+	 *                          open.</li>
+	 *                          </ul>
+	 * @see #createMarker(String, Map)
+	 * @see IResourceRuleFactory#markerRule(IResource)
+	 *
+	 * @since 3.18
+	 */
+	default IMarker[] createMarkers(String type, List<? extends Map<String, ? extends Object>> attributesList)
+			throws CoreException {
+		IMarker[] result = new IMarker[attributesList.size()];
+		int i = 0;
+		for (Map<String, ? extends Object> attributes : attributesList) {
+			result[i++] = createMarker(type, attributes);
+		}
+		return result;
+	}
+
+	/**
+	 * Replaces all markers of exactly the specified type on this resource with
+	 * new markers, one for each of the given attribute maps. Markers of subtypes
+	 * are not affected. The removal and the creation are performed in a single
+	 * operation and are reported in a single marker delta for this resource.
+	 * The specified type string must not be <code>null</code>.
+	 *
+	 * <p>
+	 * Note: default implementation is provided for backwards compatibility only and
+	 * is not optimized for performance.
+	 *
+	 * @param type           the type of the markers to replace
+	 * @param attributesList a list of maps of attribute names to attribute values
+	 *                       (key type : <code>String</code> value type :
+	 *                       <code>String</code>, <code>Integer</code>, or
+	 *                       <code>Boolean</code>), one per marker to create
+	 * @return the handles of the new markers, in the order of the given list
+	 * @exception CoreException if this method fails. Reasons include:
+	 *                          <ul>
+	 *                          <li>This resource does not exist.</li>
+	 *                          <li>This resource is a project that is not
+	 *                          open.</li>
+	 *                          </ul>
+	 * @see #createMarkers(String, List)
+	 * @see #deleteMarkers(String, boolean, int)
+	 * @see IResourceRuleFactory#markerRule(IResource)
+	 *
+	 * @since 3.18
+	 */
+	default IMarker[] replaceMarkers(String type, List<? extends Map<String, ? extends Object>> attributesList)
+			throws CoreException {
+		deleteMarkers(type, false, DEPTH_ZERO);
+		return createMarkers(type, attributesList);
+	}
+
 	/**
 	 * Creates a resource proxy representing the current state of this resource.
 	 * <p>
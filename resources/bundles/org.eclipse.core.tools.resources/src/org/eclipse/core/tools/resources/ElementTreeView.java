@@ -69,6 +69,8 @@ public class ElementTreeView extends SpyView implements IResourceChangeListener
 
 		}
 
+		int extensionCount;
+		int extensionMemory;
 		int layerCount;
 		int markerCount;
 		int markerMemory;
@@ -220,6 +222,8 @@ public class ElementTreeView extends SpyView implements IResourceChangeListener
 			nodeCount = 0;
 
 			treeNodeMemory = 0;
+			extensionCount = 0;
+			extensionMemory = 0;
 			stringMemory = 0;
 			markerMemory = 0;
 			syncInfoMemory = 0;
@@ -295,8 +299,17 @@ public class ElementTreeView extends SpyView implements IResourceChangeListener
 		}
 
 		int sizeof(ResourceInfo resourceInfo) {
-			//object header plus all slots
-			int count = DeepSize.OBJECT_HEADER_SIZE + (11 * 4);
+			//object header plus all slots, including those of subclasses
+			int count = DeepSize.shallowSizeOf(resourceInfo.getClass());
+
+			//optional data, only present if there are markers, sync info or session properties
+			Object extension = SpySupport.getExtension(resourceInfo);
+			if (extension != null && !DeepSize.ignore(extension)) {
+				int extensionSize = DeepSize.shallowSizeOf(extension.getClass());
+				extensionCount++;
+				extensionMemory += extensionSize;
+				count += extensionSize;
+			}
 
 			//markers
 			markerMemory += sizeof(resourceInfo.getMarkers());
@@ -306,13 +319,6 @@ public class ElementTreeView extends SpyView implements IResourceChangeListener
 
 			//session properties
 			sessionPropertyMemory.deepSize(SpySupport.getSessionProperties(resourceInfo));
-
-			if (resourceInfo.getClass() == RootInfo.class) {
-				count += 4;//ref to property store
-			}
-			if (resourceInfo.getClass() == ProjectInfo.class) {
-				count += 4 * 4;//four more slots
-			}
 			return count;
 		}
 
@@ -343,6 +349,7 @@ public class ElementTreeView extends SpyView implements IResourceChangeListener
 			int totalMemory = treeNodeMemory + stringMemory + markerMemory + syncInfoMemory + sessionSize;
 			buffer.append("Total memory used by nodes: " + prettyPrint(totalMemory) + "\n");
 			buffer.append("\tNodes and ResourceInfo: " + prettyPrint(treeNodeMemory) + "\n");
+			buffer.append("\t\tResourceInfo extensions: " + prettyPrint(extensionMemory) + " (" + prettyPrint(extensionCount) + ")\n");
 			buffer.append("\tStrings: " + prettyPrint(stringMemory) + "\n");
 			buffer.append("\tMarkers: " + prettyPrint(markerMemory) + "\n");
 			buffer.append("\tSync info: " + prettyPrint(syncInfoMemory) + "\n");
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.internal.events;
+
+import org.eclipse.core.internal.events.NodeIDMap;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.tests.resources.ResourceTest;
+
+public class NodeIDMapTest extends ResourceTest {
+
+	public void testPutAndGet() {
+		NodeIDMap map = new NodeIDMap();
+		assertTrue("1.0", map.isEmpty());
+		int max = 10000;
+		// use ids that collide in the low bits
+		for (int i = 1; i <= max; i++) {
+			map.putOldPath(i * 1024L, new Path("/old/" + i));
+			assertFalse("2.0." + i, map.isEmpty());
+		}
+		for (int i = 1; i <= max; i += 2) {
+			map.putNewPath(i * 1024L, new Path("/new/" + i));
+		}
+		for (int i = 1; i <= max; i++) {
+			assertEquals("3.0." + i, new Path("/old/" + i), map.getOldPath(i * 1024L));
+			IPath expected = i % 2 == 1 ? new Path("/new/" + i) : null;
+			assertEquals("3.1." + i, expected, map.getNewPath(i * 1024L));
+		}
+		assertNull("4.0", map.getOldPath(max * 1024L + 1));
+		assertNull("4.1", map.getNewPath(-1L));
+	}
+
+	public void testPutDoesNotOverwriteWithNull() {
+		NodeIDMap map = new NodeIDMap();
+		IPath oldPath = new Path("/project/old");
+		IPath newPath = new Path("/project/new");
+		map.putOldPath(42, oldPath);
+		map.putNewPath(42, newPath);
+		map.putOldPath(42, null);
+		assertEquals("1.0", oldPath, map.getOldPath(42));
+		assertEquals("1.1", newPath, map.getNewPath(42));
+	}
+}
@@ -16,6 +16,7 @@ package org.eclipse.core.tests.internal.resources;
 
 import java.io.*;
 import java.util.Map;
+import org.eclipse.core.internal.resources.MarkerSet;
 import org.eclipse.core.internal.resources.ResourceInfo;
 import org.eclipse.core.runtime.QualifiedName;
 import org.eclipse.core.tests.resources.ResourceTest;
@@ -123,4 +124,40 @@ public class ResourceInfoTest extends ResourceTest {
 		}
 		assertEquals("2.2", info, newInfo);
 	}
+
+	/**
+	 * Tests that markers, session properties and sync info are kept independently
+	 * of each other and of clones of the info.
+	 */
+	public void testOptionalData() {
+		ResourceInfo info = new ResourceInfo();
+		QualifiedName name = new QualifiedName("org.eclipse.core.tests", "myTest");
+		assertNull("1.0", info.getMarkers(false));
+		assertTrue("1.1", info.getSessionProperties().isEmpty());
+		assertNull("1.2", info.getSyncInfo(false));
+
+		MarkerSet markers = new MarkerSet();
+		info.setMarkers(markers);
+		info.setSessionProperty(name, "value");
+		info.setSyncInfo(name, new byte[] {1, 2});
+		assertSame("2.0", markers, info.getMarkers(false));
+		assertEquals("2.1", "value", info.getSessionProperty(name));
+		assertEquals("2.2", new byte[] {1, 2}, info.getSyncInfo(name, false));
+
+		ResourceInfo clone = (ResourceInfo) info.clone();
+		clone.setMarkers(null);
+		clone.setSessionProperty(name, null);
+		assertNull("3.0", clone.getMarkers(false));
+		assertNull("3.1", clone.getSessionProperty(name));
+		assertSame("3.2", markers, info.getMarkers(false));
+		assertEquals("3.3", "value", info.getSessionProperty(name));
+
+		info.setMarkers(null);
+		info.clearSessionProperties();
+		assertEquals("4.0", new byte[] {1, 2}, info.getSyncInfo(name, false));
+		info.setSyncInfo(name, null);
+		assertNull("4.1", info.getSyncInfo(false));
+		assertNull("4.2", info.getMarkers(false));
+		assertNull("4.3", info.getSessionProperty(name));
+	}
 }
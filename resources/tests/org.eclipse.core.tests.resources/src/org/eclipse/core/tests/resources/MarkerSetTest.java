@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,7 @@ package org.eclipse.core.tests.resources;
 import java.util.Arrays;
 import java.util.Map;
 import org.eclipse.core.internal.resources.*;
+import org.eclipse.core.internal.utils.StringPool;
 import org.eclipse.core.resources.IMarker;
 
 public class MarkerSetTest extends ResourceTest {
@@ -151,4 +152,43 @@ public class MarkerSetTest extends ResourceTest {
 		map2.put(null, 1); // allowed for clients using IMarker.getAttributes()
 		map2.put("0", null);// allowed for clients
 	}
+
+	public void testMarkerAttributeMapWellKnownAttributes() {
+		MarkerAttributeMap map = new MarkerAttributeMap(Map.of(IMarker.SEVERITY, IMarker.SEVERITY_ERROR,
+				IMarker.LINE_NUMBER, 4711, IMarker.MESSAGE, "message"), true);
+		assertEquals(3, map.size());
+		assertEquals(IMarker.SEVERITY_ERROR, map.get(IMarker.SEVERITY));
+		assertEquals(4711, map.getInt(IMarker.LINE_NUMBER, -1));
+		assertEquals(-1, map.getInt(IMarker.MESSAGE, -1));
+		assertEquals(-1, map.getInt(IMarker.CHAR_START, -1));
+
+		// a well known attribute with a value that is not an Integer
+		map.put(IMarker.LINE_NUMBER, "4711");
+		assertEquals(3, map.size());
+		assertEquals("4711", map.get(IMarker.LINE_NUMBER));
+		assertEquals(-1, map.getInt(IMarker.LINE_NUMBER, -1));
+		map.put(IMarker.LINE_NUMBER, 42);
+		assertEquals(3, map.size());
+		assertEquals(42, map.get(IMarker.LINE_NUMBER));
+
+		MarkerAttributeMap copy = new MarkerAttributeMap(map);
+		assertEquals(42, map.remove(IMarker.LINE_NUMBER));
+		assertNull(map.get(IMarker.LINE_NUMBER));
+		assertEquals(Map.of(IMarker.SEVERITY, IMarker.SEVERITY_ERROR, IMarker.MESSAGE, "message"), map.toMap());
+		assertEquals(Map.of(IMarker.SEVERITY, IMarker.SEVERITY_ERROR, IMarker.LINE_NUMBER, 42, IMarker.MESSAGE,
+				"message"), copy.toMap());
+	}
+
+	public void testMarkerAttributeMapShareStrings() {
+		StringPool pool = new StringPool();
+		String pooled = pool.add(String.valueOf("message".toCharArray()));
+		String message = String.valueOf("message".toCharArray());
+		MarkerAttributeMap map = new MarkerAttributeMap(Map.of(IMarker.MESSAGE, message, IMarker.SEVERITY, IMarker.SEVERITY_ERROR), true);
+		MarkerAttributeMap copy = new MarkerAttributeMap(map);
+		map.shareStrings(pool);
+		assertSame(pooled, map.get(IMarker.MESSAGE));
+		assertEquals(IMarker.SEVERITY_ERROR, map.get(IMarker.SEVERITY));
+		// copies share the immutable content, which must not change
+		assertSame(message, copy.get(IMarker.MESSAGE));
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2017 IBM Corporation and others.
+ *  Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -16,7 +16,12 @@ package org.eclipse.core.tests.resources;
 
 import java.io.*;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import org.eclipse.core.internal.resources.*;
 import org.eclipse.core.internal.watson.IPathRequestor;
 import org.eclipse.core.resources.*;
@@ -24,6 +29,7 @@ import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.eclipse.core.tests.harness.TestBarrier2;
 
 public class MarkerTest extends ResourceTest {
 
@@ -616,6 +622,112 @@ public class MarkerTest extends ResourceTest {
 		// cleanup
 		getWorkspace().removeResourceChangeListener(listener);
 	}
+
+	public void testCreateMarkers() throws CoreException {
+		MarkersChangeListener listener = new MarkersChangeListener();
+		addResourceChangeListener(listener);
+		try {
+			for (IResource resource : resources) {
+				listener.reset();
+				List<Map<String, Object>> attributes = new ArrayList<>();
+				for (int i = 0; i < 100; i++) {
+					attributes.add(Map.of(IMarker.MESSAGE, "message " + i, IMarker.LINE_NUMBER, i));
+				}
+				IMarker[] markers = resource.createMarkers(TEST_PROBLEM_MARKER, attributes);
+				assertEquals("1.0." + resource.getFullPath(), 100, markers.length);
+				assertExists("1.1." + resource.getFullPath(), markers);
+				for (int i = 0; i < markers.length; i++) {
+					assertEquals("1.2." + resource.getFullPath(), i, markers[i].getAttribute(IMarker.LINE_NUMBER, -1));
+				}
+				assertEquals("1.3." + resource.getFullPath(), 1, listener.numAffectedResources());
+				assertTrue("1.4." + resource.getFullPath(), listener.checkChanges(resource, markers, null, null));
+			}
+		} finally {
+			removeResourceChangeListener(listener);
+		}
+	}
+
+	public void testReplaceMarkers() throws CoreException {
+		MarkersChangeListener listener = new MarkersChangeListener();
+		addResourceChangeListener(listener);
+		try {
+			for (IResource resource : resources) {
+				IMarker bookmark = resource.createMarker(IMarker.BOOKMARK);
+				IMarker[] oldMarkers = resource.createMarkers(IMarker.PROBLEM,
+						List.of(Map.of(IMarker.MESSAGE, "old 1"), Map.of(IMarker.MESSAGE, "old 2")));
+				listener.reset();
+				IMarker[] newMarkers = resource.replaceMarkers(IMarker.PROBLEM,
+						List.of(Map.of(IMarker.MESSAGE, "new 1")));
+				assertDoesNotExist("1.0." + resource.getFullPath(), oldMarkers);
+				assertExists("1.1." + resource.getFullPath(), newMarkers);
+				assertExists("1.2." + resource.getFullPath(), bookmark);
+				assertEquals("1.3." + resource.getFullPath(), newMarkers,
+						resource.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_ZERO));
+				assertEquals("1.4." + resource.getFullPath(), 1, listener.numAffectedResources());
+				assertTrue("1.5." + resource.getFullPath(), listener.checkChanges(resource, newMarkers, oldMarkers, null));
+			}
+		} finally {
+			removeResourceChangeListener(listener);
+		}
+	}
+
+	/**
+	 * Tests that deep searches by type find the markers of moved and deleted
+	 * resources at their current location only.
+	 */
+	public void testFindMarkersByTypeAfterMoveAndDelete() throws CoreException {
+		IProject project = getWorkspace().getRoot().getProject(getUniqueString());
+		IFolder folder = project.getFolder("folder");
+		IFile file = folder.getFile("file.txt");
+		IFile other = project.getFile("other.txt");
+		ensureExistsInWorkspace(new IResource[] {project, folder, file, other}, true);
+		file.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_WARNING));
+		other.createMarker(IMarker.TASK);
+
+		IFolder destination = project.getFolder("destination");
+		folder.move(destination.getFullPath(), true, getMonitor());
+		IMarker[] found = project.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_INFINITE);
+		assertEquals("1.0", 1, found.length);
+		assertEquals("1.1", destination.getFile(file.getName()), found[0].getResource());
+		assertEquals("1.2", 2, project.findMarkers(IMarker.MARKER, true, IResource.DEPTH_INFINITE).length);
+		assertEquals("1.3", IMarker.SEVERITY_WARNING,
+				project.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+
+		destination.delete(true, getMonitor());
+		assertEquals("2.0", 0, project.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE).length);
+		assertEquals("2.1", 1, project.findMarkers(IMarker.TASK, true, IResource.DEPTH_INFINITE).length);
+		assertEquals("2.2", -1, project.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+	}
+
+	/**
+	 * Tests that deep searches by type only find the markers below the target,
+	 * and not those of siblings whose names start with the target's name.
+	 */
+	public void testFindMarkersByTypeInSubtree() throws CoreException {
+		IProject project = getWorkspace().getRoot().getProject(getUniqueString());
+		IFolder folder = project.getFolder("a");
+		IFile file = folder.getFile("file.txt");
+		IFolder sibling = project.getFolder("a.b");
+		IFile siblingFile = sibling.getFile("file.txt");
+		IFile other = project.getFile("b.txt");
+		ensureExistsInWorkspace(new IResource[] {project, folder, file, sibling, siblingFile, other}, true);
+		IMarker folderMarker = folder.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_INFO));
+		IMarker fileMarker = file.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_ERROR));
+		siblingFile.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_WARNING));
+		other.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_ERROR));
+
+		assertEquals("1.0", new IMarker[] {folderMarker, fileMarker}, folder.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_INFINITE));
+		assertEquals("1.1", 1, sibling.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_INFINITE).length);
+		assertEquals("1.2", 4, project.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_INFINITE).length);
+		assertEquals("1.3", IMarker.SEVERITY_WARNING, sibling.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+
+		fileMarker.delete();
+		assertEquals("2.0", new IMarker[] {folderMarker}, folder.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		assertEquals("2.1", IMarker.SEVERITY_INFO, folder.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		file.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_WARNING));
+		assertEquals("2.2", IMarker.SEVERITY_WARNING, folder.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+	}
+
 	public void testCreationTime() {
 
 		for (int i = 0; i < resources.length; i++) {
@@ -914,6 +1026,297 @@ public class MarkerTest extends ResourceTest {
 
 	}
 
+	/**
+	 * Tests that saving a project writes the summary of its persistent problem
+	 * markers, which is used to answer severity queries while the restore of
+	 * the markers is deferred.
+	 */
+	public void testMarkerSummarySave() throws Exception {
+		IProject project = getWorkspace().getRoot().getProject(getUniqueString());
+		IFile file = project.getFile("file.txt");
+		ensureExistsInWorkspace(new IResource[] {project, file}, true);
+		file.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_ERROR));
+		file.createMarker(TEST_PROBLEM_MARKER, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_ERROR));
+		project.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_WARNING));
+		file.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_INFO, IMarker.TRANSIENT, true));
+		file.createMarker(IMarker.TASK, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_INFO));
+		getWorkspace().save(true, getMonitor());
+
+		LocalMetaArea metaArea = ((Workspace) getWorkspace()).getMetaArea();
+		IPath location = metaArea.getMarkersSummaryLocationFor(project);
+		MarkerSummary summary = MarkerSummary.read(location, metaArea.getBackupLocationFor(location));
+		assertNotNull("1.0", summary);
+		// the test problem marker type is not persistent
+		assertEquals("1.1", 1, summary.getCount(IMarker.SEVERITY_ERROR));
+		assertEquals("1.2", 1, summary.getCount(IMarker.SEVERITY_WARNING));
+		assertEquals("1.3", 0, summary.getCount(IMarker.SEVERITY_INFO));
+		assertEquals("1.4", IMarker.SEVERITY_ERROR, summary.getMaxSeverity());
+
+		project.deleteMarkers(null, true, IResource.DEPTH_INFINITE);
+		getWorkspace().save(true, getMonitor());
+		assertFalse("2.0", location.toFile().exists());
+	}
+
+	/**
+	 * Saves problem markers of the given project. The markers are removed from
+	 * memory afterwards, so that they can only come back from the saved file.
+	 */
+	private void saveMarkers(IProject project) throws CoreException {
+		IFile file = project.getFile("file.txt");
+		ensureExistsInWorkspace(new IResource[] {project, file}, true);
+		file.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_ERROR));
+		project.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_WARNING));
+		// a snapshot after the save would disable the summary, so let pending snapshots finish
+		getWorkspace().save(false, getMonitor());
+		TestingSupport.waitForSnapshot();
+		getWorkspace().save(true, getMonitor());
+		project.deleteMarkers(null, true, IResource.DEPTH_INFINITE);
+	}
+
+	/**
+	 * Defers the restore of the saved markers of the given project as on
+	 * startup. The caller must keep the restore job from running by holding a
+	 * rule that conflicts with the project.
+	 */
+	private void deferMarkers(IProject project) throws CoreException {
+		TestingSupport.setLazyMarkerRestore(true);
+		((Workspace) getWorkspace()).getMarkerManager().restore(project, false, getMonitor());
+		assertFalse("0.0", TestingSupport.isMarkerRestored(project));
+	}
+
+	/**
+	 * Tests that queries on a project whose marker restore is deferred don't
+	 * restore the markers, problem severity queries being answered from the
+	 * summary, and that the restore job reports the markers as added.
+	 */
+	public void testDeferredMarkerRestore() throws CoreException {
+		IProject project = getWorkspace().getRoot().getProject(getUniqueString());
+		IWorkspaceRoot root = getWorkspace().getRoot();
+		List<IMarkerDelta> added = Collections.synchronizedList(new ArrayList<>());
+		IResourceChangeListener listener = event -> {
+			for (IMarkerDelta delta : event.findMarkerDeltas(IMarker.PROBLEM, true))
+				if (delta.getKind() == IResourceDelta.ADDED && project.equals(delta.getResource().getProject()))
+					added.add(delta);
+		};
+		try {
+			saveMarkers(project);
+			getWorkspace().addResourceChangeListener(listener, IResourceChangeEvent.POST_CHANGE);
+			Job.getJobManager().beginRule(root, getMonitor());
+			try {
+				deferMarkers(project);
+				assertEquals("1.0", IMarker.SEVERITY_ERROR, project.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+				assertEquals("1.1", IMarker.SEVERITY_ERROR, root.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+				assertEquals("1.2", 0, project.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE).length);
+				assertFalse("1.3", TestingSupport.isMarkerRestored(project));
+			} finally {
+				Job.getJobManager().endRule(root);
+			}
+
+			TestingSupport.waitForMarkerRestore();
+			assertTrue("2.0", TestingSupport.isMarkerRestored(project));
+			assertEquals("2.1", 2, project.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE).length);
+			assertEquals("2.2", 2, added.size());
+			assertEquals("2.3", IMarker.SEVERITY_WARNING, project.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_ZERO));
+			assertEquals("2.4", IMarker.SEVERITY_ERROR, project.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		} finally {
+			getWorkspace().removeResourceChangeListener(listener);
+			TestingSupport.setLazyMarkerRestore(false);
+		}
+	}
+
+	/**
+	 * Tests that modifying the markers of a project whose marker restore is
+	 * deferred restores them first.
+	 */
+	public void testDeferredMarkerRestoreOnUpdate() throws CoreException {
+		IProject project = getWorkspace().getRoot().getProject(getUniqueString());
+		IWorkspaceRoot root = getWorkspace().getRoot();
+		try {
+			saveMarkers(project);
+			Job.getJobManager().beginRule(root, getMonitor());
+			try {
+				deferMarkers(project);
+				project.getFile("file.txt").createMarker(IMarker.TASK);
+				assertTrue("1.0", TestingSupport.isMarkerRestored(project));
+				assertEquals("1.1", 2, project.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE).length);
+				assertEquals("1.2", 1, project.findMarkers(IMarker.TASK, true, IResource.DEPTH_INFINITE).length);
+			} finally {
+				Job.getJobManager().endRule(root);
+			}
+		} finally {
+			TestingSupport.setLazyMarkerRestore(false);
+		}
+	}
+
+	/**
+	 * Tests that saving the workspace does not overwrite the saved markers of a
+	 * project whose marker restore is deferred.
+	 */
+	public void testDeferredMarkersSave() throws Exception {
+		IProject project = getWorkspace().getRoot().getProject(getUniqueString());
+		IWorkspaceRoot root = getWorkspace().getRoot();
+		try {
+			saveMarkers(project);
+			LocalMetaArea metaArea = ((Workspace) getWorkspace()).getMetaArea();
+			File markersFile = metaArea.getMarkersLocationFor(project).toFile();
+			byte[] saved = Files.readAllBytes(markersFile.toPath());
+
+			Job.getJobManager().beginRule(root, getMonitor());
+			try {
+				deferMarkers(project);
+				getWorkspace().save(true, getMonitor());
+				assertFalse("1.0", TestingSupport.isMarkerRestored(project));
+				assertTrue("1.1", Arrays.equals(saved, Files.readAllBytes(markersFile.toPath())));
+				assertTrue("1.2", metaArea.getMarkersSummaryLocationFor(project).toFile().exists());
+			} finally {
+				Job.getJobManager().endRule(root);
+			}
+
+			TestingSupport.waitForMarkerRestore();
+			assertEquals("2.0", 2, project.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE).length);
+		} finally {
+			TestingSupport.setLazyMarkerRestore(false);
+		}
+	}
+
+	/**
+	 * Tests that a project stays deferred if the restore job cannot read its
+	 * markers, and that the failure is reported.
+	 */
+	public void testDeferredMarkerRestoreFailure() throws Exception {
+		IProject project = getWorkspace().getRoot().getProject(getUniqueString());
+		IWorkspaceRoot root = getWorkspace().getRoot();
+		// the job result is logged after the job is done
+		CountDownLatch logged = new CountDownLatch(1);
+		ILogListener logListener = (status, plugin) -> {
+			if (status.matches(IStatus.ERROR))
+				logged.countDown();
+		};
+		try {
+			saveMarkers(project);
+			LocalMetaArea metaArea = ((Workspace) getWorkspace()).getMetaArea();
+			File markersFile = metaArea.getMarkersLocationFor(project).toFile();
+			byte[] corrupt = new byte[] {0, 0, 0, 42};
+			Files.write(markersFile.toPath(), corrupt);
+			Platform.addLogListener(logListener);
+
+			Job.getJobManager().beginRule(root, getMonitor());
+			try {
+				deferMarkers(project);
+			} finally {
+				Job.getJobManager().endRule(root);
+			}
+			TestingSupport.waitForMarkerRestore();
+			assertFalse("1.0", TestingSupport.isMarkerRestored(project));
+			assertTrue("1.1", logged.await(10, TimeUnit.SECONDS));
+			assertEquals("1.2", IMarker.SEVERITY_ERROR, project.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+
+			// the saved markers file is kept as long as the project is deferred
+			getWorkspace().save(true, getMonitor());
+			assertTrue("2.0", Arrays.equals(corrupt, Files.readAllBytes(markersFile.toPath())));
+		} finally {
+			Platform.removeLogListener(logListener);
+			// modifying the markers gives up the markers that cannot be read
+			project.deleteMarkers(null, true, IResource.DEPTH_INFINITE);
+			TestingSupport.setLazyMarkerRestore(false);
+		}
+		assertTrue("3.0", TestingSupport.isMarkerRestored(project));
+	}
+
+	/**
+	 * Tests that the markers of a project are restored eagerly if a snapshot
+	 * was taken after the last save, because the summary does not describe the
+	 * markers of the snapshot.
+	 */
+	public void testSnapshotDisablesMarkerSummary() throws CoreException {
+		IProject project = getWorkspace().getRoot().getProject(getUniqueString());
+		IFile file = project.getFile("file.txt");
+		ensureExistsInWorkspace(new IResource[] {project, file}, true);
+		file.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_WARNING));
+		getWorkspace().save(true, getMonitor());
+		file.createMarker(IMarker.PROBLEM, Map.of(IMarker.SEVERITY, IMarker.SEVERITY_ERROR));
+		getWorkspace().save(false, getMonitor());
+		TestingSupport.waitForSnapshot();
+
+		try {
+			TestingSupport.setLazyMarkerRestore(true);
+			getWorkspace().run(monitor -> ((Workspace) getWorkspace()).getMarkerManager().restore(project, false, monitor), project, IResource.NONE, getMonitor());
+			assertTrue("1.0", TestingSupport.isMarkerRestored(project));
+			assertEquals("1.1", IMarker.SEVERITY_ERROR, project.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		} finally {
+			TestingSupport.setLazyMarkerRestore(false);
+		}
+	}
+
+	/**
+	 * Tests that queries on a project whose marker restore is deferred don't
+	 * wait for an operation that holds the workspace lock.
+	 */
+	public void testDeferredMarkerQueriesDontWaitForWorkspace() throws Exception {
+		IProject project = getWorkspace().getRoot().getProject(getUniqueString());
+		IProject other = getWorkspace().getRoot().getProject(getUniqueString());
+		ensureExistsInWorkspace(other, true);
+		final AtomicIntegerArray status = new AtomicIntegerArray(new int[1]);
+		Job operation = Job.create("testDeferredMarkerQueriesDontWaitForWorkspace", monitor -> {
+			other.getFile("file.txt").create(getRandomContents(), true, monitor);
+		});
+		// block the operation while it notifies its listeners and holds the workspace lock
+		IResourceChangeListener listener = event -> {
+			if (Job.getJobManager().currentJob() == operation && status.compareAndSet(0, TestBarrier2.STATUS_START, TestBarrier2.STATUS_RUNNING))
+				TestBarrier2.waitForStatus(status, TestBarrier2.STATUS_WAIT_FOR_DONE);
+		};
+		try {
+			saveMarkers(project);
+			getWorkspace().addResourceChangeListener(listener, IResourceChangeEvent.POST_CHANGE);
+			status.set(0, TestBarrier2.STATUS_START);
+			operation.schedule();
+			TestBarrier2.waitForStatus(status, TestBarrier2.STATUS_RUNNING);
+			// the restore job waits for the workspace lock
+			deferMarkers(project);
+
+			final int[] severity = {-1};
+			final IMarker[][] markers = new IMarker[1][];
+			Thread query = new Thread(() -> {
+				severity[0] = getMaxProblemSeverity(project);
+				markers[0] = findProblemMarkers(project);
+			});
+			query.start();
+			query.join(10000);
+			assertFalse("1.0", query.isAlive());
+			assertEquals("1.1", IMarker.SEVERITY_ERROR, severity[0]);
+			assertEquals("1.2", 0, markers[0].length);
+			assertFalse("1.3", TestingSupport.isMarkerRestored(project));
+
+			status.set(0, TestBarrier2.STATUS_WAIT_FOR_DONE);
+			TestingSupport.waitForMarkerRestore();
+			assertTrue("2.0", TestingSupport.isMarkerRestored(project));
+			assertEquals("2.1", 2, findProblemMarkers(project).length);
+		} finally {
+			status.set(0, TestBarrier2.STATUS_WAIT_FOR_DONE);
+			operation.join();
+			getWorkspace().removeResourceChangeListener(listener);
+			TestingSupport.setLazyMarkerRestore(false);
+		}
+	}
+
+	private int getMaxProblemSeverity(IResource resource) {
+		try {
+			return resource.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE);
+		} catch (CoreException e) {
+			fail("4.99", e);
+			return -1;
+		}
+	}
+
+	private IMarker[] findProblemMarkers(IResource resource) {
+		try {
+			return resource.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE);
+		} catch (CoreException e) {
+			fail("5.99", e);
+			return null;
+		}
+	}
+
 	/**
 	 * Tests public API method IMarker#isSubTypeOf
 	 */
@@ -1617,7 +2020,7 @@ public class MarkerTest extends ResourceTest {
 			fail("2.0", e);
 		}
 		final DataOutputStream output = o1;
-		final List<String> list = new ArrayList<>(5);
+		final Map<String, Integer> list = new HashMap<>(5);
 		IResourceVisitor visitor = resource -> {
 			try {
 				ResourceInfo info = ((Resource) resource).getResourceInfo(false, false);
@@ -1702,6 +2105,78 @@ public class MarkerTest extends ResourceTest {
 		assertTrue("6.0", file.delete());
 	}
 
+	/**
+	 * Tests that the attributes of markers written in the current save format
+	 * are read back unchanged, with keys and types shared between markers.
+	 */
+	public void testMarkerSaveAttributes() throws Exception {
+		IProject project = getWorkspace().getRoot().getProject(getUniqueString());
+		IFile file1 = project.getFile("file1.txt");
+		IFile file2 = project.getFile("file2.txt");
+		ensureExistsInWorkspace(new IResource[] {project, file1, file2}, true);
+		Map<String, Object> attributes1 = new HashMap<>();
+		attributes1.put(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
+		attributes1.put(IMarker.LINE_NUMBER, 7);
+		attributes1.put(IMarker.CHAR_START, "not a number");
+		attributes1.put(IMarker.MESSAGE, "message 1");
+		attributes1.put("custom", 3);
+		attributes1.put("flag", Boolean.TRUE);
+		Map<String, Object> attributes2 = Map.of(IMarker.SEVERITY, IMarker.SEVERITY_WARNING, IMarker.MESSAGE, "message 2", "custom", -4);
+		IMarker[] markers = {file1.createMarker(IMarker.PROBLEM, attributes1), file1.createMarker(IMarker.TASK),
+				file2.createMarker(IMarker.PROBLEM, attributes2)};
+		long[] creationTimes = new long[markers.length];
+		for (int i = 0; i < markers.length; i++)
+			creationTimes[i] = markers[i].getCreationTime();
+
+		// write the markers of the project
+		MarkerManager manager = ((Workspace) getWorkspace()).getMarkerManager();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		Map<String, Integer> writtenStrings = new HashMap<>();
+		project.accept(resource -> {
+			ResourceInfo info = ((Resource) resource).getResourceInfo(false, false);
+			IPathRequestor requestor = new IPathRequestor() {
+				@Override
+				public IPath requestPath() {
+					return resource.getFullPath();
+				}
+
+				@Override
+				public String requestName() {
+					return resource.getName();
+				}
+			};
+			try {
+				manager.save(info, requestor, output, writtenStrings);
+			} catch (IOException e) {
+				fail("0.0", e);
+			}
+			return true;
+		});
+		output.close();
+		assertEquals("1.0", MarkerWriter.MARKERS_SAVE_VERSION, ByteBuffer.wrap(bytes.toByteArray()).getInt());
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+		// read them back
+		project.deleteMarkers(null, true, IResource.DEPTH_INFINITE);
+		assertDoesNotExist("2.0", markers);
+		getWorkspace().run((IWorkspaceRunnable) monitor -> {
+			try {
+				new MarkerReader((Workspace) getWorkspace()).read(input, true);
+			} catch (IOException e) {
+				fail("2.1", e);
+			}
+		}, getMonitor());
+
+		assertExists("3.0", markers);
+		assertEquals("3.1", attributes1, markers[0].getAttributes());
+		assertNull("3.2", markers[1].getAttributes());
+		assertEquals("3.3", attributes2, markers[2].getAttributes());
+		assertEquals("3.4", IMarker.TASK, markers[1].getType());
+		for (int i = 0; i < markers.length; i++)
+			assertEquals("3.5." + i, creationTimes[i], markers[i].getCreationTime());
+	}
+
 	public void testMarkerSaveTransient() {
 		debug("TestMarkerSaveTransient");
 
@@ -1746,7 +2221,7 @@ public class MarkerTest extends ResourceTest {
 			fail("2.0", e);
 		}
 		final DataOutputStream output = o1;
-		final List<String> list = new ArrayList<>(5);
+		final Map<String, Integer> list = new HashMap<>(5);
 		visitor = resource -> {
 			try {
 				ResourceInfo info = ((Resource) resource).getResourceInfo(false, false);
@@ -13,9 +13,12 @@
  *******************************************************************************/
 package org.eclipse.core.tests.resources.perf;
 
+import org.eclipse.core.internal.events.ResourceDeltaFactory;
 import org.eclipse.core.internal.resources.Workspace;
+import org.eclipse.core.internal.watson.ElementTree;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.tests.harness.PerformanceTestRunner;
 import org.eclipse.core.tests.resources.ResourceTest;
 
@@ -184,6 +187,30 @@ public class BenchWorkspace extends ResourceTest {
 		}
 	}
 
+	/**
+	 * Tests computing the delta for moving all resources of a project, where
+	 * every resource is matched up by its node id.
+	 */
+	public void testDeltaOfLargeMove() throws CoreException {
+		final Workspace workspace = (Workspace) getWorkspace();
+		final ElementTree oldTree = workspace.getElementTree();
+		final IFolder destination = project.getFolder("destination");
+		workspace.run((IWorkspaceRunnable) monitor -> {
+			destination.create(true, true, null);
+			for (IResource member : project.members()) {
+				if (member.getType() == IResource.FOLDER && !member.equals(destination))
+					member.move(destination.getFullPath().append(member.getName()), true, null);
+			}
+		}, getMonitor());
+		final ElementTree newTree = workspace.getElementTree();
+		new PerformanceTestRunner() {
+			@Override
+			protected void test() {
+				ResourceDeltaFactory.computeDelta(workspace, oldTree, newTree, Path.ROOT, -1);
+			}
+		}.run(this, 10, 10);
+	}
+
 	/**
 	 * Tests computing max marker severity
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -30,7 +30,7 @@ public class EqualsExpression extends Expression {
 	 */
 	private static final int HASH_INITIAL= EqualsExpression.class.getName().hashCode();
 
-	private Object fExpectedValue;
+	/* package */ Object fExpectedValue;
 
 	public EqualsExpression(Object expectedValue) {
 		Assert.isNotNull(expectedValue);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,8 +13,12 @@
  *******************************************************************************/
 package org.eclipse.core.expressions;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
@@ -38,6 +42,44 @@ public class EvaluationContext implements IEvaluationContext {
 	private IVariableResolver[] fVariableResolvers;
 	private Boolean fAllowPluginActivation;
 
+	/**
+	 * The version each variable had when it was last added or removed
+	 */
+	private Map<String, Long> fVariableVersions;
+
+	/**
+	 * The results of {@link #evaluateCached(Expression)}
+	 */
+	private Map<Expression, CachedResult> fCachedResults;
+
+	/**
+	 * The source of variable versions. A global clock makes the latest
+	 * change of a variable anywhere in a hierarchy of contexts the one with
+	 * the highest version.
+	 */
+	private static final AtomicLong fgVersionClock= new AtomicLong();
+
+	/**
+	 * The result of an expression together with the versions of the
+	 * variables it was computed from.
+	 */
+	private static final class CachedResult {
+		final String[] variableNames;
+		final String[] propertyNames;
+		final boolean cacheable;
+		long[] versions;
+		boolean allowPluginActivation;
+		int typeExtensionGeneration;
+		EvaluationResult result;
+
+		CachedResult(ExpressionInfo info) {
+			variableNames= info.getAccessedVariableNames();
+			propertyNames= info.getAccessedPropertyNames();
+			cacheable= info.getMisbehavingExpressionTypes() == null && !info.hasSystemPropertyAccess();
+			versions= new long[variableNames.length];
+		}
+	}
+
 	/**
 	 * Create a new evaluation context with the given parent and default
 	 * variable.
@@ -109,6 +151,7 @@ public class EvaluationContext implements IEvaluationContext {
 		if (fVariables == null)
 			fVariables= new HashMap<>();
 		fVariables.put(name, value);
+		changed(name);
 	}
 
 	@Override
@@ -116,7 +159,16 @@ public class EvaluationContext implements IEvaluationContext {
 		Assert.isNotNull(name);
 		if (fVariables == null)
 			return null;
-		return fVariables.remove(name);
+		Object result= fVariables.remove(name);
+		if (result != null)
+			changed(name);
+		return result;
+	}
+
+	private void changed(String name) {
+		if (fVariableVersions == null)
+			fVariableVersions= new HashMap<>();
+		fVariableVersions.put(name, Long.valueOf(fgVersionClock.incrementAndGet()));
 	}
 
 	@Override
@@ -146,4 +198,106 @@ public class EvaluationContext implements IEvaluationContext {
 			return fParent.resolveVariable(name, args);
 		return null;
 	}
+
+	/**
+	 * Evaluates the given expression in this context. The result is kept
+	 * and returned again as long as none of the variables the expression
+	 * accesses according to its {@link ExpressionInfo} is added to or
+	 * removed from this context or one of its parents, and plug-in
+	 * activation is still allowed or disallowed as before.
+	 * <p>
+	 * Results are only kept if this context and all its parents are
+	 * <code>EvaluationContext</code>s without variable resolvers, and if
+	 * the expression neither accesses system properties nor contains
+	 * expressions that don't provide expression information. Results that
+	 * are {@link EvaluationResult#NOT_LOADED} are not kept either, since
+	 * they may change when a plug-in gets loaded. If the outcome of a
+	 * property test changes without a variable being changed, call
+	 * {@link #clearCachedResults(String)}.
+	 * </p>
+	 *
+	 * @param expression the expression to evaluate
+	 * @return the result of the evaluation
+	 * @throws CoreException if the evaluation failed
+	 *
+	 * @since 3.9
+	 */
+	public EvaluationResult evaluateCached(Expression expression) throws CoreException {
+		Assert.isNotNull(expression);
+		if (fCachedResults == null)
+			fCachedResults= new WeakHashMap<>();
+		CachedResult cached= fCachedResults.get(expression);
+		if (cached == null) {
+			cached= new CachedResult(expression.computeExpressionInfo());
+			fCachedResults.put(expression, cached);
+		}
+		if (!cached.cacheable)
+			return expression.evaluate(this);
+		long[] versions= getVersions(cached.variableNames);
+		if (versions == null)
+			return expression.evaluate(this);
+		boolean allowPluginActivation= getAllowPluginActivation();
+		// property testers may come and go with their plug-ins
+		int generation= cached.propertyNames.length > 0 ? TestExpression.fgTypeExtensionManager.getCacheGeneration() : 0;
+		if (cached.result != null && cached.allowPluginActivation == allowPluginActivation
+				&& cached.typeExtensionGeneration == generation && Arrays.equals(cached.versions, versions))
+			return cached.result;
+		cached.result= null;
+		EvaluationResult result= expression.evaluate(this);
+		if (result != EvaluationResult.NOT_LOADED) {
+			cached.versions= versions;
+			cached.allowPluginActivation= allowPluginActivation;
+			cached.typeExtensionGeneration= generation;
+			cached.result= result;
+		}
+		return result;
+	}
+
+	/**
+	 * Discards the results kept by {@link #evaluateCached(Expression)} for
+	 * expressions that test the given property.
+	 *
+	 * @param propertyName the name of the property including its namespace,
+	 *  or <code>null</code> to discard all results
+	 *
+	 * @since 3.9
+	 */
+	public void clearCachedResults(String propertyName) {
+		if (fCachedResults == null)
+			return;
+		if (propertyName == null) {
+			fCachedResults.clear();
+			return;
+		}
+		for (Iterator<CachedResult> iter= fCachedResults.values().iterator(); iter.hasNext();) {
+			if (Arrays.asList(iter.next().propertyNames).contains(propertyName))
+				iter.remove();
+		}
+	}
+
+	/**
+	 * Returns the versions of the given variables as seen from this context,
+	 * or <code>null</code> if they cannot be tracked.
+	 */
+	private long[] getVersions(String[] names) {
+		long[] versions= new long[names.length];
+		IEvaluationContext context= this;
+		while (context != null) {
+			if (!(context instanceof EvaluationContext))
+				return null;
+			EvaluationContext evaluationContext= (EvaluationContext)context;
+			if (evaluationContext.fVariableResolvers != null && evaluationContext.fVariableResolvers.length > 0)
+				return null;
+			Map<String, Long> contextVersions= evaluationContext.fVariableVersions;
+			if (contextVersions != null) {
+				for (int i= 0; i < names.length; i++) {
+					Long version= contextVersions.get(names[i]);
+					if (version != null && version.longValue() > versions[i])
+						versions[i]= version.longValue();
+				}
+			}
+			context= evaluationContext.fParent;
+		}
+		return versions;
+	}
 }
@@ -0,0 +1,527 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.expressions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.core.internal.expressions.EnablementExpression;
+import org.eclipse.core.internal.expressions.Expressions;
+import org.eclipse.core.internal.expressions.InstanceofExpression;
+import org.eclipse.core.internal.expressions.IterateExpression;
+import org.eclipse.core.internal.expressions.NotExpression;
+import org.eclipse.core.internal.expressions.Property;
+import org.eclipse.core.internal.expressions.SystemTestExpression;
+import org.eclipse.core.internal.expressions.TypeExtensionManager;
+
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Compiles expression trees into trees of nodes that evaluate to the same
+ * results with less work:
+ * <ul>
+ * <li>the default variable is passed from node to node instead of creating a
+ * new evaluation context for every <code>with</code> expression and every
+ * element iterated over,</li>
+ * <li>test expressions remember the property they found for the last receiver
+ * type,</li>
+ * <li>instanceof expressions remember their result for the last receiver
+ * type,</li>
+ * <li>constant children of <code>and</code> and <code>or</code> expressions
+ * are folded, and children that are cheap and never fail are evaluated
+ * first.</li>
+ * </ul>
+ * Only expressions of the known types are compiled; all other expressions,
+ * including subclasses of the known types, are evaluated as they are.
+ *
+ * @see ExpressionConverter#compile(Expression)
+ */
+final class ExpressionCompiler {
+
+	/**
+	 * A compiled expression. Reports the expression information of the
+	 * expression it was compiled from.
+	 */
+	static final class CompiledExpression extends Expression {
+
+		private final Expression fSource;
+		private final Node fRoot;
+
+		CompiledExpression(Expression source, Node root) {
+			fSource= source;
+			fRoot= root;
+		}
+
+		@Override
+		public EvaluationResult evaluate(IEvaluationContext context) throws CoreException {
+			return fRoot.evaluate(context, context.getDefaultVariable());
+		}
+
+		@Override
+		public void collectExpressionInfo(ExpressionInfo info) {
+			fSource.collectExpressionInfo(info);
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if (!(object instanceof CompiledExpression))
+				return false;
+
+			final CompiledExpression that= (CompiledExpression)object;
+			return this.fSource.equals(that.fSource);
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return fSource.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder(getClass().getSimpleName());
+			builder.append(" [expression="); //$NON-NLS-1$
+			builder.append(fSource);
+			builder.append("]"); //$NON-NLS-1$
+			return builder.toString();
+		}
+	}
+
+	/**
+	 * A node of a compiled expression tree.
+	 */
+	abstract static class Node {
+		/**
+		 * Evaluates this node.
+		 *
+		 * @param context the evaluation context
+		 * @param defaultVariable the default variable to use instead of the
+		 *  one of the context
+		 * @return the result of the evaluation
+		 * @throws CoreException if the evaluation failed
+		 */
+		abstract EvaluationResult evaluate(IEvaluationContext context, Object defaultVariable) throws CoreException;
+
+		/**
+		 * Returns whether this node is cheap to evaluate, never fails and has
+		 * no side effects, so it can be evaluated before its siblings.
+		 */
+		boolean isCheap() {
+			return false;
+		}
+	}
+
+	private static final class ConstantNode extends Node {
+		private final EvaluationResult fResult;
+
+		ConstantNode(EvaluationResult result) {
+			fResult= result;
+		}
+
+		@Override
+		EvaluationResult evaluate(IEvaluationContext context, Object defaultVariable) {
+			return fResult;
+		}
+
+		@Override
+		boolean isCheap() {
+			return true;
+		}
+	}
+
+	private static final Node TRUE= new ConstantNode(EvaluationResult.TRUE);
+	private static final Node FALSE= new ConstantNode(EvaluationResult.FALSE);
+
+	/**
+	 * Evaluates an expression that is not compiled, in a context with the
+	 * given default variable.
+	 */
+	private static final class ExpressionNode extends Node {
+		private final Expression fExpression;
+		private final boolean fCheap;
+
+		ExpressionNode(Expression expression, boolean cheap) {
+			fExpression= expression;
+			fCheap= cheap;
+		}
+
+		@Override
+		EvaluationResult evaluate(IEvaluationContext context, Object defaultVariable) throws CoreException {
+			return fExpression.evaluate(withDefaultVariable(context, defaultVariable));
+		}
+
+		@Override
+		boolean isCheap() {
+			return fCheap;
+		}
+	}
+
+	private static final class AndNode extends Node {
+		private final Node[] fChildren;
+
+		AndNode(Node[] children) {
+			fChildren= children;
+		}
+
+		@Override
+		EvaluationResult evaluate(IEvaluationContext context, Object defaultVariable) throws CoreException {
+			EvaluationResult result= EvaluationResult.TRUE;
+			for (Node child : fChildren) {
+				result= result.and(child.evaluate(context, defaultVariable));
+				if (result == EvaluationResult.FALSE)
+					return result;
+			}
+			return result;
+		}
+	}
+
+	private static final class OrNode extends Node {
+		private final Node[] fChildren;
+
+		OrNode(Node[] children) {
+			fChildren= children;
+		}
+
+		@Override
+		EvaluationResult evaluate(IEvaluationContext context, Object defaultVariable) throws CoreException {
+			EvaluationResult result= EvaluationResult.FALSE;
+			for (Node child : fChildren) {
+				result= result.or(child.evaluate(context, defaultVariable));
+				if (result == EvaluationResult.TRUE)
+					return result;
+			}
+			return result;
+		}
+	}
+
+	private static final class NotNode extends Node {
+		private final Node fChild;
+
+		NotNode(Node child) {
+			fChild= child;
+		}
+
+		@Override
+		EvaluationResult evaluate(IEvaluationContext context, Object defaultVariable) throws CoreException {
+			return fChild.evaluate(context, defaultVariable).not();
+		}
+
+		@Override
+		boolean isCheap() {
+			return fChild.isCheap();
+		}
+	}
+
+	private static final class WithNode extends Node {
+		private final WithExpression fExpression;
+		private final Node fChild;
+
+		WithNode(WithExpression expression, Node child) {
+			fExpression= expression;
+			fChild= child;
+		}
+
+		@Override
+		EvaluationResult evaluate(IEvaluationContext context, Object defaultVariable) throws CoreException {
+			Object variable= context.getVariable(fExpression.fVariable);
+			if (variable == null || variable == IEvaluationContext.UNDEFINED_VARIABLE) {
+				// let the expression report the undefined variable
+				return fExpression.evaluate(context);
+			}
+			return fChild.evaluate(context, variable);
+		}
+	}
+
+	/**
+	 * Iterates over collections without creating an evaluation context for
+	 * every element. Other default variables are left to the expression.
+	 */
+	private static final class IterateNode extends Node {
+		private final IterateExpression fExpression;
+		private final boolean fOr;
+		private final Node fChild;
+
+		IterateNode(IterateExpression expression, Node child) {
+			fExpression= expression;
+			fOr= expression.isOrOperator();
+			fChild= child;
+		}
+
+		@Override
+		EvaluationResult evaluate(IEvaluationContext context, Object defaultVariable) throws CoreException {
+			if (!(defaultVariable instanceof Collection))
+				return fExpression.evaluate(withDefaultVariable(context, defaultVariable));
+			Collection<?> col= (Collection<?>)defaultVariable;
+			switch (col.size()) {
+				case 0:
+					Boolean emptyResult= fExpression.getEmptyResult();
+					if (emptyResult == null)
+						return fOr ? EvaluationResult.FALSE : EvaluationResult.TRUE;
+					return EvaluationResult.valueOf(emptyResult.booleanValue());
+				case 1:
+					if (col instanceof List)
+						return fChild.evaluate(context, ((List<?>)col).get(0));
+					//$FALL-THROUGH$
+				default:
+					EvaluationResult result= fOr ? EvaluationResult.FALSE : EvaluationResult.TRUE;
+					for (Object element : col) {
+						if (element == null) {
+							// no evaluation context can hold a null default variable
+							return fExpression.evaluate(withDefaultVariable(context, defaultVariable));
+						}
+						if (fOr) {
+							result= result.or(fChild.evaluate(context, element));
+							if (result == EvaluationResult.TRUE)
+								return result;
+						} else {
+							result= result.and(fChild.evaluate(context, element));
+							if (result != EvaluationResult.TRUE)
+								return result;
+						}
+					}
+					return result;
+			}
+		}
+	}
+
+	private static final class EqualsNode extends Node {
+		private final Object fExpectedValue;
+
+		EqualsNode(Object expectedValue) {
+			fExpectedValue= expectedValue;
+		}
+
+		@Override
+		EvaluationResult evaluate(IEvaluationContext context, Object defaultVariable) {
+			return EvaluationResult.valueOf(defaultVariable.equals(fExpectedValue));
+		}
+	}
+
+	private static final class InstanceofNode extends Node {
+		/**
+		 * The result for the last receiver type
+		 */
+		private static final class Cached {
+			final Class<?> type;
+			final boolean result;
+
+			Cached(Class<?> type, boolean result) {
+				this.type= type;
+				this.result= result;
+			}
+		}
+
+		private final String fTypeName;
+		private volatile Cached fCached;
+
+		InstanceofNode(String typeName) {
+			fTypeName= typeName;
+		}
+
+		@Override
+		EvaluationResult evaluate(IEvaluationContext context, Object defaultVariable) {
+			if (defaultVariable == null)
+				return EvaluationResult.FALSE;
+			Class<?> type= defaultVariable.getClass();
+			Cached cached= fCached;
+			if (cached == null || cached.type != type) {
+				cached= new Cached(type, Expressions.isInstanceOf(defaultVariable, fTypeName));
+				fCached= cached;
+			}
+			return EvaluationResult.valueOf(cached.result);
+		}
+
+		@Override
+		boolean isCheap() {
+			return true;
+		}
+	}
+
+	private static final class TestNode extends Node {
+		/**
+		 * The property found for the last receiver type
+		 */
+		private static final class Cached {
+			final Class<?> type;
+			final boolean forcePluginActivation;
+			final int generation;
+			final Property property;
+
+			Cached(Class<?> type, boolean forcePluginActivation, int generation, Property property) {
+				this.type= type;
+				this.forcePluginActivation= forcePluginActivation;
+				this.generation= generation;
+				this.property= property;
+			}
+		}
+
+		private final TestExpression fExpression;
+		private volatile Cached fCached;
+
+		TestNode(TestExpression expression) {
+			fExpression= expression;
+		}
+
+		@Override
+		EvaluationResult evaluate(IEvaluationContext context, Object defaultVariable) throws CoreException {
+			TestExpression expression= fExpression;
+			if (System.class.equals(defaultVariable)) {
+				String str= System.getProperty(expression.fProperty);
+				if (str == null)
+					return EvaluationResult.FALSE;
+				return EvaluationResult.valueOf(str.equals(expression.fArgs[0]));
+			}
+			boolean forcePluginActivation= context.getAllowPluginActivation() && expression.fForcePluginActivation;
+			TypeExtensionManager manager= TestExpression.fgTypeExtensionManager;
+			int generation= manager.getCacheGeneration();
+			// a class receiver tests static properties of that class
+			Class<?> type= defaultVariable instanceof Class ? (Class<?>)defaultVariable : defaultVariable.getClass();
+			Cached cached= fCached;
+			Property property;
+			if (cached != null && cached.type == type && cached.forcePluginActivation == forcePluginActivation
+					&& cached.generation == generation && cached.property.isValidCacheEntry(forcePluginActivation)) {
+				property= cached.property;
+			} else {
+				property= manager.getProperty(defaultVariable, expression.fNamespace, expression.fProperty, forcePluginActivation);
+				fCached= new Cached(type, forcePluginActivation, generation, property);
+			}
+			if (!property.isInstantiated())
+				return EvaluationResult.NOT_LOADED;
+			return EvaluationResult.valueOf(property.test(defaultVariable, expression.fArgs, expression.fExpectedValue));
+		}
+	}
+
+	private ExpressionCompiler() {
+		// no instance
+	}
+
+	/**
+	 * Returns a context that has the given default variable.
+	 */
+	static IEvaluationContext withDefaultVariable(IEvaluationContext context, Object defaultVariable) {
+		if (defaultVariable == context.getDefaultVariable())
+			return context;
+		return new EvaluationContext(context, defaultVariable);
+	}
+
+	/**
+	 * Compiles the given expression.
+	 *
+	 * @param expression the expression to compile
+	 * @return the compiled expression
+	 */
+	static Expression compile(Expression expression) {
+		if (expression == Expression.TRUE || expression == Expression.FALSE || expression instanceof CompiledExpression)
+			return expression;
+		return new CompiledExpression(expression, toNode(expression));
+	}
+
+	private static Node toNode(Expression expression) {
+		if (expression == Expression.TRUE)
+			return TRUE;
+		if (expression == Expression.FALSE)
+			return FALSE;
+		if (expression instanceof CompiledExpression)
+			return ((CompiledExpression) expression).fRoot;
+		Class<?> type= expression.getClass();
+		if (type == AndExpression.class || type == EnablementExpression.class)
+			return and(((CompositeExpression) expression).fExpressions);
+		if (type == OrExpression.class)
+			return or(((CompositeExpression) expression).fExpressions);
+		if (type == NotExpression.class) {
+			Node child= toNode(((NotExpression) expression).getExpression());
+			if (child == TRUE)
+				return FALSE;
+			if (child == FALSE)
+				return TRUE;
+			return new NotNode(child);
+		}
+		if (type == WithExpression.class) {
+			WithExpression with= (WithExpression) expression;
+			return new WithNode(with, and(with.fExpressions));
+		}
+		if (type == IterateExpression.class) {
+			IterateExpression iterate= (IterateExpression) expression;
+			return new IterateNode(iterate, and(iterate.fExpressions));
+		}
+		if (type == TestExpression.class)
+			return new TestNode((TestExpression) expression);
+		if (type == InstanceofExpression.class)
+			return new InstanceofNode(((InstanceofExpression) expression).getTypeName());
+		if (type == EqualsExpression.class)
+			return new EqualsNode(((EqualsExpression) expression).fExpectedValue);
+		return new ExpressionNode(expression, type == SystemTestExpression.class);
+	}
+
+	/**
+	 * Compiles the children of an expression that are and-ed together.
+	 */
+	private static Node and(List<Expression> expressions) {
+		if (expressions == null)
+			return TRUE;
+		List<Node> children= new ArrayList<>(expressions.size());
+		for (Expression expression : expressions) {
+			Node child= toNode(expression);
+			if (child == FALSE)
+				return FALSE;
+			if (child != TRUE)
+				children.add(child);
+		}
+		if (children.isEmpty())
+			return TRUE;
+		if (children.size() == 1)
+			return children.get(0);
+		return new AndNode(order(children));
+	}
+
+	/**
+	 * Compiles the children of an expression that are or-ed together.
+	 */
+	private static Node or(List<Expression> expressions) {
+		if (expressions == null)
+			return TRUE;
+		List<Node> children= new ArrayList<>(expressions.size());
+		for (Expression expression : expressions) {
+			Node child= toNode(expression);
+			if (child == TRUE)
+				return TRUE;
+			if (child != FALSE)
+				children.add(child);
+		}
+		if (children.isEmpty())
+			return FALSE;
+		if (children.size() == 1)
+			return children.get(0);
+		return new OrNode(order(children));
+	}
+
+	/**
+	 * Moves the cheap nodes to the front, keeping the order of the nodes
+	 * otherwise. The result of <code>and</code> and <code>or</code> does
+	 * not depend on the order of the operands.
+	 */
+	private static Node[] order(List<Node> nodes) {
+		Node[] result= new Node[nodes.size()];
+		int i= 0;
+		for (Node node : nodes) {
+			if (node.isCheap())
+				result[i++]= node;
+		}
+		for (Node node : nodes) {
+			if (!node.isCheap())
+				result[i++]= node;
+		}
+		return result;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -118,6 +118,36 @@ public final class ExpressionConverter {
 		return null;
 	}
 
+	/**
+	 * Compiles the given expression tree into an expression that evaluates
+	 * faster. The compiled expression reports the same expression information
+	 * as the given one. Expressions the compiler doesn't know, including
+	 * subclasses of the standard expressions, are evaluated as they are.
+	 * <p>
+	 * Whenever the given expression evaluates without an exception, the
+	 * compiled expression evaluates to the same result. The reverse doesn't
+	 * hold: the compiler drops operands of <code>and</code> and
+	 * <code>or</code> that can't change the result and evaluates cheap
+	 * operands first, so the compiled expression may return a result where
+	 * the given one throws a <code>CoreException</code>. For example, an
+	 * <code>and</code> of a <code>with</code> referring to an undefined
+	 * variable and <code>false</code> evaluates to <code>false</code> instead
+	 * of failing.
+	 * </p>
+	 * <p>
+	 * The given expression tree must not be modified afterwards.
+	 * </p>
+	 *
+	 * @param expression the expression to compile
+	 * @return the compiled expression
+	 *
+	 * @since 3.9
+	 */
+	public Expression compile(Expression expression) {
+		Assert.isNotNull(expression);
+		return ExpressionCompiler.compile(expression);
+	}
+
 	/* package */ void processChildren(IConfigurationElement element, CompositeExpression result) throws CoreException {
 		IConfigurationElement[] children= element.getChildren();
 		if (children != null) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -32,7 +32,7 @@ import org.eclipse.core.runtime.IConfigurationElement;
 
 public class WithExpression extends CompositeExpression {
 
-	private String fVariable;
+	/* package */ String fVariable;
 	private static final String ATT_VARIABLE= "variable";  //$NON-NLS-1$
 
 	/**
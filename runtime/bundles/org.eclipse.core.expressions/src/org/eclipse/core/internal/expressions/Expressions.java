@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,15 +14,17 @@
  *******************************************************************************/
 package org.eclipse.core.internal.expressions;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleListener;
@@ -42,18 +44,54 @@ import org.eclipse.core.runtime.Platform;
 public class Expressions {
 
 	/**
-	 * Cache to optimize instanceof computation. Weak Map of Class-&gt;Map(String, Boolean). Avoid
-	 * conflicts caused by multiple classloader contributions with the same class name. It's a rare
-	 * occurrence but is supported by the OSGi classloader.
+	 * Cache to optimize instanceof computation. Maps classes to maps of type names to whether the
+	 * class is a subtype. Avoid conflicts caused by multiple classloader contributions with the same
+	 * class name. It's a rare occurrence but is supported by the OSGi classloader. Replaced when a
+	 * bundle is stopped.
 	 */
-	private static WeakHashMap<Class<?>, Map<String, Boolean>> fgKnownClasses;
+	private static volatile ClassValue<Map<String, Boolean>> fgKnownClasses;
 
 	/**
-	 * Cache to optimize loading of classes for evaluation of adapt expressions. Keys are class
-	 * loaders. Values are sets of qualified class names that the corresponding class loader was
-	 * not able to find.
+	 * Cache to optimize loading of classes for evaluation of adapt expressions. Keys are weak
+	 * references to class loaders. Values are sets of qualified class names that the corresponding
+	 * class loader was not able to find.
 	 */
-	private static WeakHashMap<ClassLoader, Set<String>> fgNotFoundClasses;
+	private static volatile Map<LoaderKey, Set<String>> fgNotFoundClasses;
+
+	/**
+	 * The names of the classes the bootstrap class loader was not able to find.
+	 */
+	private static final Set<String> fgNotFoundBootstrapClasses= ConcurrentHashMap.newKeySet();
+
+	private static final ReferenceQueue<ClassLoader> fgCollectedClassLoaders= new ReferenceQueue<>();
+
+	/**
+	 * A weak reference to a class loader that is equal to the references to
+	 * the same class loader.
+	 */
+	private static final class LoaderKey extends WeakReference<ClassLoader> {
+		private final int fHashCode;
+
+		LoaderKey(ClassLoader classLoader, ReferenceQueue<ClassLoader> queue) {
+			super(classLoader, queue);
+			fHashCode= System.identityHashCode(classLoader);
+		}
+
+		@Override
+		public int hashCode() {
+			return fHashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof LoaderKey))
+				return false;
+			ClassLoader classLoader= get();
+			return classLoader != null && classLoader == ((LoaderKey) obj).get();
+		}
+	}
 
 	/* debugging flag to enable tracing */
 	public static final boolean TRACING= "true".equalsIgnoreCase(Platform.getDebugOption("org.eclipse.core.expressions/tracePropertyResolving")); //$NON-NLS-1$ //$NON-NLS-2$
@@ -70,20 +108,13 @@ public class Expressions {
 		return isSubtype(element.getClass(), type);
 	}
 
-	private static synchronized boolean isSubtype(Class<?> clazz, String type) {
-		WeakHashMap<Class<?>, Map<String, Boolean>> knownClassesMap= getKnownClasses();
-		Map<String, Boolean> nameMap = knownClassesMap.get(clazz);
-		if (nameMap != null) {
-			Object obj = nameMap.get(type);
-			if (obj != null)
-				return ((Boolean)obj).booleanValue();
-		}
-		if (nameMap == null) {
-			nameMap = new HashMap<>();
-			knownClassesMap.put(clazz, nameMap);
-		}
-		boolean isSubtype = uncachedIsSubtype(clazz, type);
-		nameMap.put(type, isSubtype ? Boolean.TRUE : Boolean.FALSE);
+	private static boolean isSubtype(Class<?> clazz, String type) {
+		Map<String, Boolean> nameMap= getKnownClasses().get(clazz);
+		Boolean cached= nameMap.get(type);
+		if (cached != null)
+			return cached.booleanValue();
+		boolean isSubtype= uncachedIsSubtype(clazz, type);
+		nameMap.put(type, Boolean.valueOf(isSubtype));
 		return isSubtype;
 	}
 
@@ -100,58 +131,78 @@ public class Expressions {
 		 * Class.forName is pretty slow when it throws a ClassNotFoundException. Since expression
 		 * evaluation is done very often, we use a cache of names of classes that failed to load.
 		 */
-		WeakHashMap<ClassLoader, Set<String>> cache;
-		synchronized (Expressions.class) {
-			cache = getNotFoundClasses();
-			Set<String> classNames= cache.get(classLoader);
-			if (classNames != null && classNames.contains(className)) {
-				return null;
-			}
+		Set<String> classNames= getNotFoundClassNames(classLoader, false);
+		if (classNames != null && classNames.contains(className)) {
+			return null;
 		}
 
 		try {
 			return Class.forName(className, false, classLoader);
 		} catch (ClassNotFoundException e) {
-			synchronized (Expressions.class) {
-				Set<String> classNames= cache.get(classLoader);
-				if (classNames == null) {
-					classNames= new HashSet<>();
-					cache.put(classLoader, classNames);
-				}
-				classNames.add(className);
-			}
+			getNotFoundClassNames(classLoader, true).add(className);
 		}
 		return null;
 	}
 
-	private static WeakHashMap<Class<?>, Map<String, Boolean>> getKnownClasses() {
-		createClassCaches();
-		return fgKnownClasses;
+	private static ClassValue<Map<String, Boolean>> getKnownClasses() {
+		ClassValue<Map<String, Boolean>> knownClasses= fgKnownClasses;
+		if (knownClasses == null) {
+			createClassCaches();
+			knownClasses= fgKnownClasses;
+		}
+		return knownClasses;
 	}
 
-	private static WeakHashMap<ClassLoader, Set<String>> getNotFoundClasses() {
-		createClassCaches();
-		return fgNotFoundClasses;
+	/**
+	 * Returns the names of the classes the given class loader was not able to find, or
+	 * <code>null</code> if there are none and <code>create</code> is <code>false</code>.
+	 */
+	private static Set<String> getNotFoundClassNames(ClassLoader classLoader, boolean create) {
+		if (classLoader == null)
+			return fgNotFoundBootstrapClasses;
+		Map<LoaderKey, Set<String>> notFoundClasses= fgNotFoundClasses;
+		if (notFoundClasses == null) {
+			createClassCaches();
+			notFoundClasses= fgNotFoundClasses;
+		}
+		if (!create)
+			return notFoundClasses.get(new LoaderKey(classLoader, null));
+		// forget the class loaders that were garbage collected
+		for (Reference<?> ref; (ref= fgCollectedClassLoaders.poll()) != null;) {
+			notFoundClasses.remove(ref);
+		}
+		return notFoundClasses.computeIfAbsent(new LoaderKey(classLoader, fgCollectedClassLoaders), k -> ConcurrentHashMap.newKeySet());
 	}
 
-	private static void createClassCaches() {
+	private static synchronized void createClassCaches() {
 		if (fgKnownClasses == null) {
-			fgKnownClasses= new WeakHashMap<>();
-			fgNotFoundClasses = new WeakHashMap<>();
-			BundleContext bundleContext = FrameworkUtil.getBundle(Expressions.class).getBundleContext();
+			fgKnownClasses= newKnownClasses();
+			fgNotFoundClasses= new ConcurrentHashMap<>();
+			Bundle bundle= FrameworkUtil.getBundle(Expressions.class);
+			BundleContext bundleContext= bundle != null ? bundle.getBundleContext() : null;
+			if (bundleContext == null)
+				return;
 			BundleListener listener= (BundleEvent event) -> {
 				// Invalidate the caches if any of the bundles is stopped
 				if (event.getType() == BundleEvent.STOPPED) {
-					synchronized (Expressions.class) {
-						fgKnownClasses.clear();
-						fgNotFoundClasses.clear();
-					}
+					fgKnownClasses= newKnownClasses();
+					fgNotFoundClasses.clear();
+					fgNotFoundBootstrapClasses.clear();
 				}
 			};
 			bundleContext.addBundleListener(listener);
 		}
 	}
 
+	private static ClassValue<Map<String, Boolean>> newKnownClasses() {
+		return new ClassValue<Map<String, Boolean>>() {
+			@Override
+			protected Map<String, Boolean> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<>(4);
+			}
+		};
+	}
+
 	public static boolean uncachedIsSubtype(Class<?> clazz, String type) {
 		if (clazz.getName().equals(type))
 			return true;
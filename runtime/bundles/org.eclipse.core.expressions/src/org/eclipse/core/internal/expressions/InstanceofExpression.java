@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2021 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -47,6 +47,10 @@ public class InstanceofExpression extends Expression {
 		fTypeName= typeName;
 	}
 
+	public String getTypeName() {
+		return fTypeName;
+	}
+
 	@Override
 	public EvaluationResult evaluate(IEvaluationContext context) {
 		Object element= context.getDefaultVariable();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -146,6 +146,20 @@ public class IterateExpression extends CompositeExpression {
 		}
 	}
 
+	public boolean isOrOperator() {
+		return fOperator == OR;
+	}
+
+	/**
+	 * Returns the result for empty collections, or <code>null</code> if it
+	 * depends on the operator.
+	 *
+	 * @return the result for empty collections or <code>null</code>
+	 */
+	public Boolean getEmptyResult() {
+		return fEmptyResult;
+	}
+
 	@Override
 	public EvaluationResult evaluate(IEvaluationContext context) throws CoreException {
 		Object var= context.getDefaultVariable();
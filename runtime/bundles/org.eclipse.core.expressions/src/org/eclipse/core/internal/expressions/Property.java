@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.eclipse.core.internal.expressions;
 
+import java.util.Objects;
+
 import org.eclipse.core.expressions.IPropertyTester;
 
 import org.eclipse.core.runtime.Assert;
@@ -38,6 +40,18 @@ public class Property {
 		fName= name;
 	}
 
+	/* package */ Class<?> getType() {
+		return fType;
+	}
+
+	/* package */ String getNamespace() {
+		return fNamespace;
+	}
+
+	/* package */ String getName() {
+		return fName;
+	}
+
 	/* package */ void setPropertyTester(IPropertyTester tester) {
 		Assert.isNotNull(tester);
 		fTester= tester;
@@ -79,7 +93,7 @@ public class Property {
 
 	@Override
 	public int hashCode() {
-		return (fType.hashCode() << 16) | fNamespace.hashCode() << 8 | fName.hashCode();
+		return Objects.hash(fType, fNamespace, fName);
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,26 +13,78 @@
  *******************************************************************************/
 package org.eclipse.core.internal.expressions;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.eclipse.core.internal.expressions.util.LRUCache;
 
 /* package */ class PropertyCache {
 
-	private LRUCache fCache;
+	/*
+	 * The cached properties by receiver type, namespace and name. Lookups
+	 * don't lock and don't allocate a key.
+	 */
+	private final Map<Class<?>, Map<String, Map<String, Property>>> fIndex= new ConcurrentHashMap<>();
+
+	/*
+	 * Decides which properties are dropped when the cache is full and keeps
+	 * the statistics. Lookups only record the access, put and remove have to
+	 * be synchronized by the callers.
+	 */
+	private final LRUCache<Property, Property> fCache;
 
 	public PropertyCache(final int cacheSize) {
-		fCache= new LRUCache(100);
-		fCache.setSpaceLimit(cacheSize);
+		fCache= new LRUCache<Property, Property>(cacheSize) {
+			@Override
+			protected void entryRemoved(Property key, Property value) {
+				removeFromIndex(value);
+			}
+		};
 	}
 
-	public Property get(Property key) {
-		return (Property)fCache.get(key);
+	public Property get(Class<?> type, String namespace, String name) {
+		Map<String, Map<String, Property>> namespaces= fIndex.get(type);
+		Map<String, Property> properties= namespaces != null ? namespaces.get(namespace) : null;
+		Property property= properties != null ? properties.get(name) : null;
+		if (property == null) {
+			fCache.recordMiss();
+			return null;
+		}
+		return fCache.get(property);
 	}
 
 	public void put(Property method) {
+		// index first, the cache may drop the property right away
+		fIndex.computeIfAbsent(method.getType(), t -> new ConcurrentHashMap<>(4))
+				.computeIfAbsent(method.getNamespace(), n -> new ConcurrentHashMap<>(4))
+				.put(method.getName(), method);
 		fCache.put(method, method);
 	}
 
 	public void remove(Property method) {
 		fCache.removeKey(method);
 	}
+
+	private void removeFromIndex(Property method) {
+		Map<String, Map<String, Property>> namespaces= fIndex.get(method.getType());
+		if (namespaces == null)
+			return;
+		Map<String, Property> properties= namespaces.get(method.getNamespace());
+		if (properties == null || !properties.remove(method.getName(), method))
+			return;
+		// don't keep the receiver types of dropped properties reachable
+		if (properties.isEmpty()) {
+			namespaces.remove(method.getNamespace());
+			if (namespaces.isEmpty())
+				fIndex.remove(method.getType());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return fCache.toStringFillingRation("PropertyCache") //$NON-NLS-1$
+				+ ", hits: " + fCache.getHitCount() //$NON-NLS-1$
+				+ ", misses: " + fCache.getMissCount() //$NON-NLS-1$
+				+ ", evictions: " + fCache.getEvictionCount(); //$NON-NLS-1$
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -80,8 +80,15 @@ public class TypeExtensionManager implements IRegistryChangeListener {
 
 	/*
 	 * A cache to give fast access to the last 1000 method invocations.
+	 * Read without locking; replaced and updated while holding the lock
+	 * on this manager.
 	 */
-	private PropertyCache fPropertyCache;
+	private volatile PropertyCache fPropertyCache;
+
+	/*
+	 * Incremented whenever the caches are discarded.
+	 */
+	private volatile int fCacheGeneration;
 
 
 	public TypeExtensionManager(String extensionPoint) {
@@ -95,23 +102,27 @@ public class TypeExtensionManager implements IRegistryChangeListener {
 		return getProperty(receiver, namespace, method, false);
 	}
 
-	public synchronized Property getProperty(Object receiver, String namespace, String method, boolean forcePluginActivation) throws CoreException  {
+	public Property getProperty(Object receiver, String namespace, String method, boolean forcePluginActivation) throws CoreException  {
 		long start= 0;
 		if (Expressions.TRACING)
 			start= System.currentTimeMillis();
 
 		// if we call a static method than the receiver is the class object
 		Class<?> clazz= receiver instanceof Class ? (Class<?>)receiver : receiver.getClass();
-		Property result= new Property(clazz, namespace, method);
-		Property cached= fPropertyCache.get(result);
+		Property cached= fPropertyCache.get(clazz, namespace, method);
+		if (cached != null && cached.isValidCacheEntry(forcePluginActivation)) {
+			traceCacheHit(clazz, method, start);
+			return cached;
+		}
+		return lookupProperty(receiver, clazz, namespace, method, forcePluginActivation, start);
+	}
+
+	private synchronized Property lookupProperty(Object receiver, Class<?> clazz, String namespace, String method, boolean forcePluginActivation, long start) throws CoreException  {
+		// another thread may have added the property meanwhile
+		Property cached= fPropertyCache.get(clazz, namespace, method);
 		if (cached != null) {
 			if (cached.isValidCacheEntry(forcePluginActivation)) {
-				if (Expressions.TRACING) {
-					System.out.println("[Type Extension] - method " + //$NON-NLS-1$
-						clazz.getName() + "#" + method + //$NON-NLS-1$
-						" found in cache: " +  //$NON-NLS-1$
-						(System.currentTimeMillis() - start) + " ms."); //$NON-NLS-1$
-				}
+				traceCacheHit(clazz, method, start);
 				return cached;
 			}
 			// The type extender isn't loaded in the cached method but can be loaded
@@ -119,6 +130,7 @@ public class TypeExtensionManager implements IRegistryChangeListener {
 			// implementation class gets loaded.
 			fPropertyCache.remove(cached);
 		}
+		Property result= new Property(clazz, namespace, method);
 		TypeExtension extension= get(clazz);
 		IPropertyTester extender= extension.findTypeExtender(this, namespace, method, receiver instanceof Class, forcePluginActivation);
 		if (extender == TypeExtension.CONTINUE || extender == null) {
@@ -146,9 +158,28 @@ public class TypeExtensionManager implements IRegistryChangeListener {
 		return result;
 	}
 
+	/**
+	 * Returns a number that changes whenever the cached properties are
+	 * discarded, for callers that hold on to properties themselves.
+	 *
+	 * @return the current cache generation
+	 */
+	public int getCacheGeneration() {
+		return fCacheGeneration;
+	}
+
+	private static void traceCacheHit(Class<?> clazz, String method, long start) {
+		if (Expressions.TRACING) {
+			System.out.println("[Type Extension] - method " + //$NON-NLS-1$
+				clazz.getName() + "#" + method + //$NON-NLS-1$
+				" found in cache: " +  //$NON-NLS-1$
+				(System.currentTimeMillis() - start) + " ms."); //$NON-NLS-1$
+		}
+	}
+
 	/*
 	 * This method doesn't need to be synchronized since it is called
-	 * from withing the getProperty method which is synchronized
+	 * from withing the lookupProperty method which is synchronized
 	 */
 	/* package */ TypeExtension get(Class<?> clazz) {
 		TypeExtension result= fTypeExtensionMap.get(clazz);
@@ -161,7 +192,7 @@ public class TypeExtensionManager implements IRegistryChangeListener {
 
 	/*
 	 * This method doesn't need to be synchronized since it is called
-	 * from withing the getProperty method which is synchronized
+	 * from withing the lookupProperty method which is synchronized
 	 */
 	/* package */ IPropertyTester[] loadTesters(Class<?> type) {
 		if (fConfigurationElementMap == null) {
@@ -211,5 +242,6 @@ public class TypeExtensionManager implements IRegistryChangeListener {
 		fTypeExtensionMap= new HashMap<>();
 		fConfigurationElementMap= null;
 		fPropertyCache= new PropertyCache(1000);
+		fCacheGeneration++;
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,185 +13,121 @@
  *******************************************************************************/
 package org.eclipse.core.internal.expressions.util;
 
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Copied from JDT/Core to get a cache which is independent from
- * JDK 1.4.
+ * A cache of limited size which drops the least recently used entries and
+ * which can be used by several threads at the same time.
+ * <p>
+ * The entries are spread over segments. Each segment has its own lock and its
+ * own queue of entries in access order, so writers only contend with writers
+ * of the same segment. Lookups don't block: they read a concurrent map and
+ * only move the entry in the queue if the segment's lock is free. Under
+ * contention the queue order is therefore approximate.
+ * </p>
+ * <p>
+ * The space limit applies to the whole cache, not to each segment, so keys
+ * whose hash codes are not spread evenly over the segments don't shrink the
+ * cache. When the cache is full, a writer drops the least recently used entry
+ * of its own segment, or of another segment if its own only holds the new
+ * entry. The least recently used entry of the whole cache may therefore stay
+ * while a more recently used one of another segment is dropped.
+ * </p>
+ * <p>
+ * The cache counts hits, misses and evictions.
+ * </p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
  */
-public class LRUCache implements Cloneable {
+public class LRUCache<K, V> {
 
 	/**
-	 * This type is used internally by the LRUCache to represent entries
-	 * stored in the cache.
-	 * It is static because it does not require a pointer to the cache
-	 * which contains it.
-	 *
-	 * @see LRUCache
+	 * A part of the cache with its own lock and queue.
 	 */
-	protected static class LRUCacheEntry {
-
-		/**
-		 * Hash table key
-		 */
-		public Object _fKey;
-
-		/**
-		 * Hash table value (an LRUCacheEntry object)
-		 */
-		public Object _fValue;
+	private static final class Segment<K, V> {
 
-		/**
-		 * Time value for queue sorting
-		 */
-		public int _fTimestamp;
+		final ReentrantLock fLock= new ReentrantLock();
 
 		/**
-		 * Cache footprint of this entry
+		 * The entries of this segment for lookups that don't lock
 		 */
-		public int _fSpace;
+		final Map<K, V> fEntries= new ConcurrentHashMap<>();
 
 		/**
-		 * Previous entry in queue
+		 * The entries of this segment in access order, guarded by
+		 * <code>fLock</code>
 		 */
-		public LRUCacheEntry _fPrevious;
-
-		/**
-		 * Next entry in queue
-		 */
-		public LRUCacheEntry _fNext;
-
-		/**
-		 * Creates a new instance of the receiver with the provided values
-		 * for key, value, and space.
-		 * @param key key
-		 * @param value value
-		 * @param space space
-		 */
-		public LRUCacheEntry (Object key, Object value, int space) {
-			_fKey = key;
-			_fValue = value;
-			_fSpace = space;
-		}
-
-		/**
-		 * Returns a String that represents the value of this object.
-		 * @return a string
-		 */
-		@Override
-		public String toString() {
-
-			return "LRUCacheEntry [" + _fKey + "-->" + _fValue + "]"; //$NON-NLS-3$ //$NON-NLS-1$ //$NON-NLS-2$
-		}
+		final LinkedHashMap<K, V> fQueue= new LinkedHashMap<>(16, 0.75f, true);
 	}
 
 	/**
-	 * Amount of cache space used so far
+	 * Default amount of space in the cache
 	 */
-	protected int fCurrentSpace;
+	protected static final int DEFAULT_SPACELIMIT = 100;
 
 	/**
-	 * Maximum space allowed in cache
+	 * Maximum number of segments
 	 */
-	protected int fSpaceLimit;
+	private static final int MAX_SEGMENTS= 16;
 
 	/**
-	 * Counter for handing out sequential timestamps
+	 * Minimum amount of space in a segment
 	 */
-	protected int	fTimestampCounter;
+	private static final int MIN_SEGMENT_SPACE= 16;
 
-	/**
-	 * Hash table for fast random access to cache entries
-	 */
-	protected Hashtable<Object, LRUCacheEntry> fEntryTable;
+	private final Segment<K, V>[] fSegments;
 
-	/**
-	 * Start of queue (most recently used entry)
-	 */
-	protected LRUCacheEntry fEntryQueue;
+	private final int fSpaceLimit;
 
 	/**
-	 * End of queue (least recently used entry)
+	 * The number of entries in all segments
 	 */
-	protected LRUCacheEntry fEntryQueueTail;
+	private final AtomicInteger fSize= new AtomicInteger();
 
 	/**
-	 * Default amount of space in the cache
+	 * The segment to try next when evicting from other segments
 	 */
-	protected static final int DEFAULT_SPACELIMIT = 100;
+	private final AtomicInteger fNextVictim= new AtomicInteger();
+
+	private final LongAdder fHits= new LongAdder();
+
+	private final LongAdder fMisses= new LongAdder();
+
+	private final LongAdder fEvictions= new LongAdder();
+
 	/**
 	 * Creates a new cache.  Size of cache is defined by
 	 * <code>DEFAULT_SPACELIMIT</code>.
 	 */
 	public LRUCache() {
-
 		this(DEFAULT_SPACELIMIT);
 	}
+
 	/**
 	 * Creates a new cache.
 	 * @param size Size of Cache
 	 */
+	@SuppressWarnings("unchecked")
 	public LRUCache(int size) {
-
-		fTimestampCounter = fCurrentSpace = 0;
-		fEntryQueue = fEntryQueueTail = null;
-		fEntryTable = new Hashtable<>(size);
-		fSpaceLimit = size;
-	}
-	/**
-	 * Returns a new cache containing the same contents.
-	 *
-	 * @return New copy of object.
-	 */
-	@Override
-	public Object clone() {
-
-		LRUCache newCache = newInstance(fSpaceLimit);
-		LRUCacheEntry qEntry;
-
-		/* Preserve order of entries by copying from oldest to newest */
-		qEntry = this.fEntryQueueTail;
-		while (qEntry != null) {
-			newCache.privateAdd (qEntry._fKey, qEntry._fValue, qEntry._fSpace);
-			qEntry = qEntry._fPrevious;
-		}
-		return newCache;
-	}
-	public double fillingRatio() {
-		return (fCurrentSpace) * 100.0 / fSpaceLimit;
-	}
-	/**
-	 * Flushes all entries from the cache.
-	 */
-	public void flush() {
-
-		fCurrentSpace = 0;
-		LRUCacheEntry entry = fEntryQueueTail; // Remember last entry
-		fEntryTable = new Hashtable<>();  // Clear it out
-		fEntryQueue = fEntryQueueTail = null;
-		while (entry != null) {  // send deletion notifications in LRU order
-			privateNotifyDeletionFromCache(entry);
-			entry = entry._fPrevious;
+		if (size <= 0)
+			throw new IllegalArgumentException("size must be positive: " + size); //$NON-NLS-1$
+		int segments= Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, size / MIN_SEGMENT_SPACE)));
+		fSegments= new Segment[segments];
+		for (int i= 0; i < segments; i++) {
+			fSegments[i]= new Segment<>();
 		}
+		fSpaceLimit= size;
 	}
-	/**
-	 * Flushes the given entry from the cache.  Does nothing if entry does not
-	 * exist in cache.
-	 *
-	 * @param key Key of object to flush
-	 */
-	public void flush (Object key) {
-
-		LRUCacheEntry entry;
 
-		entry = fEntryTable.get(key);
-
-		/* If entry does not exist, return */
-		if (entry == null) return;
-
-		this.privateRemoveEntry (entry, false);
-	}
 	/**
 	 * Answers the value in the cache at the given key.
 	 * If the value is not in the cache, returns null
@@ -199,247 +135,214 @@ public class LRUCache implements Cloneable {
 	 * @param key Hash table key of object to retrieve
 	 * @return Retrieved object, or null if object does not exist
 	 */
-	public Object get(Object key) {
-
-		LRUCacheEntry entry = fEntryTable.get(key);
-		if (entry == null) {
+	public V get(K key) {
+		Segment<K, V> segment= segmentFor(key);
+		V value= segment.fEntries.get(key);
+		if (value == null) {
+			fMisses.increment();
 			return null;
 		}
-
-		this.updateTimestamp (entry);
-		return entry._fValue;
-	}
-	/**
-	 * Returns the amount of space that is current used in the cache.
-	 * @return an int
-	 */
-	public int getCurrentSpace() {
-		return fCurrentSpace;
-	}
-	/**
-	 * Returns the maximum amount of space available in the cache.
-	 * @return an int
-	 */
-	public int getSpaceLimit() {
-		return fSpaceLimit;
+		fHits.increment();
+		// don't wait for writers, a lost access only makes the queue order less exact
+		if (segment.fLock.tryLock()) {
+			try {
+				segment.fQueue.get(key);
+			} finally {
+				segment.fLock.unlock();
+			}
+		}
+		return value;
 	}
+
 	/**
-	 * Returns an Enumeration of the keys currently in the cache.
-	 * @return an enumeration
+	 * Answers the value in the cache at the given key.
+	 * If the value is not in the cache, returns null
+	 *
+	 * This function neither modifies the queue order nor the statistics.
+	 * @param key the key
+	 * @return the object
 	 */
-	public Enumeration<Object> keys() {
-		return fEntryTable.keys();
+	public V peek(K key) {
+		return segmentFor(key).fEntries.get(key);
 	}
+
 	/**
-	 * Ensures there is the specified amount of free space in the receiver,
-	 * by removing old entries if necessary.  Returns true if the requested space was
-	 * made available, false otherwise.
+	 * Sets the value in the cache at the given key. Returns the value.
 	 *
-	 * @param space Amount of space to free up
-	 * @return a boolean
+	 * @param key Key of object to add.
+	 * @param value Value of object to add.
+	 * @return added value.
 	 */
-	protected boolean makeSpace (int space) {
-
-		int limit;
-
-		limit = this.getSpaceLimit();
-
-		/* if space is already available */
-		if (fCurrentSpace + space <= limit) {
-			return true;
+	public V put(K key, V value) {
+		Segment<K, V> segment= segmentFor(key);
+		List<Map.Entry<K, V>> evicted= null;
+		segment.fLock.lock();
+		try {
+			if (segment.fQueue.put(key, value) == null)
+				fSize.incrementAndGet();
+			segment.fEntries.put(key, value);
+			// keep the new entry, it is the most recently used one
+			while (fSize.get() > fSpaceLimit && segment.fQueue.size() > 1) {
+				if (evicted == null)
+					evicted= new ArrayList<>(1);
+				evicted.add(evictEldest(segment));
+			}
+		} finally {
+			segment.fLock.unlock();
 		}
-
-		/* if entry is too big for cache */
-		if (space > limit) {
-			return false;
+		// the own segment only holds the new entry, so make space in the others
+		for (int i= 0; fSize.get() > fSpaceLimit && i < fSegments.length; i++) {
+			Segment<K, V> other= fSegments[fNextVictim.getAndIncrement() & (fSegments.length - 1)];
+			if (other == segment)
+				continue;
+			other.fLock.lock();
+			try {
+				if (!other.fQueue.isEmpty()) {
+					if (evicted == null)
+						evicted= new ArrayList<>(1);
+					evicted.add(evictEldest(other));
+				}
+			} finally {
+				other.fLock.unlock();
+			}
 		}
-
-		/* Free up space by removing oldest entries */
-		while (fCurrentSpace + space > limit && fEntryQueueTail != null) {
-			this.privateRemoveEntry (fEntryQueueTail, false);
+		if (evicted != null) {
+			fEvictions.add(evicted.size());
+			for (Map.Entry<K, V> entry : evicted) {
+				entryRemoved(entry.getKey(), entry.getValue());
+			}
 		}
-		return true;
+		return value;
 	}
+
 	/**
-	 * Returns a new LRUCache instance
-	 * @param size the size
-	 * @return a cache
+	 * Removes and returns the least recently used entry of the given segment,
+	 * which must not be empty. The caller must hold the lock of the segment.
 	 */
-	protected LRUCache newInstance(int size) {
-		return new LRUCache(size);
+	private Map.Entry<K, V> evictEldest(Segment<K, V> segment) {
+		Iterator<Map.Entry<K, V>> eldest= segment.fQueue.entrySet().iterator();
+		Map.Entry<K, V> entry= eldest.next();
+		eldest.remove();
+		segment.fEntries.remove(entry.getKey());
+		fSize.decrementAndGet();
+		return entry;
 	}
+
 	/**
-	 * Answers the value in the cache at the given key.
-	 * If the value is not in the cache, returns null
+	 * Removes and returns the value in the cache for the given key.
+	 * If the key is not in the cache, returns null.
 	 *
-	 * This function does not modify timestamps.
-	 * @param key the key
-	 * @return the object
+	 * @param key Key of object to remove from cache.
+	 * @return Value removed from cache.
 	 */
-	public Object peek(Object key) {
-
-		LRUCacheEntry entry = fEntryTable.get(key);
-		if (entry == null) {
-			return null;
+	public V removeKey(K key) {
+		Segment<K, V> segment= segmentFor(key);
+		V value;
+		segment.fLock.lock();
+		try {
+			value= segment.fQueue.remove(key);
+			if (value != null) {
+				segment.fEntries.remove(key);
+				fSize.decrementAndGet();
+			}
+		} finally {
+			segment.fLock.unlock();
 		}
-		return entry._fValue;
+		if (value != null)
+			entryRemoved(key, value);
+		return value;
 	}
-	/**
-	 * Adds an entry for the given key/value/space.
-	 * @param key key
-	 * @param value value
-	 * @param space space
-	 */
-	protected void privateAdd (Object key, Object value, int space) {
 
-		LRUCacheEntry entry;
-
-		entry = new LRUCacheEntry(key, value, space);
-		this.privateAddEntry (entry, false);
-	}
 	/**
-	 * Adds the given entry from the receiver.
-	 * @param entry the entry to add
-	 * @param shuffle Indicates whether we are just shuffling the queue
-	 * (in which case, the entry table is not modified).
+	 * Flushes all entries from the cache.
 	 */
-	protected void privateAddEntry (LRUCacheEntry entry, boolean shuffle) {
-
-		if (!shuffle) {
-			fEntryTable.put (entry._fKey, entry);
-			fCurrentSpace += entry._fSpace;
-		}
-
-		entry._fTimestamp = fTimestampCounter++;
-		entry._fNext = this.fEntryQueue;
-		entry._fPrevious = null;
-
-		if (fEntryQueue == null) {
-			/* this is the first and last entry */
-			fEntryQueueTail = entry;
-		} else {
-			fEntryQueue._fPrevious = entry;
+	public void flush() {
+		for (Segment<K, V> segment : fSegments) {
+			List<Map.Entry<K, V>> removed;
+			segment.fLock.lock();
+			try {
+				removed= new ArrayList<>(segment.fQueue.entrySet());
+				segment.fQueue.clear();
+				segment.fEntries.clear();
+				fSize.addAndGet(-removed.size());
+			} finally {
+				segment.fLock.unlock();
+			}
+			// send deletion notifications in LRU order
+			for (Map.Entry<K, V> entry : removed) {
+				entryRemoved(entry.getKey(), entry.getValue());
+			}
 		}
-
-		fEntryQueue = entry;
 	}
+
 	/**
 	 * An entry has been removed from the cache, for example because it has
-	 * fallen off the bottom of the LRU queue.
+	 * fallen off the bottom of the LRU queue. Called without holding any lock
+	 * of the cache, so the key may have been added again meanwhile.
 	 * Subclasses could over-ride this to implement a persistent cache below the LRU cache.
-	 * @param entry the entry
+	 * @param key the key of the entry
+	 * @param value the value of the entry
 	 */
-	protected void privateNotifyDeletionFromCache(LRUCacheEntry entry) {
+	protected void entryRemoved(K key, V value) {
 		// Default is NOP.
 	}
+
 	/**
-	 * Removes the entry from the entry queue.
-	 * @param entry the entry to remove
-	 * @param shuffle indicates whether we are just shuffling the queue
-	 * (in which case, the entry table is not modified).
+	 * Counts a miss of a lookup that didn't go through {@link #get(Object)},
+	 * for example because the caller keeps its own index of the entries.
 	 */
-	protected void privateRemoveEntry (LRUCacheEntry entry, boolean shuffle) {
-
-		LRUCacheEntry previous, next;
-
-		previous = entry._fPrevious;
-		next = entry._fNext;
-
-		if (!shuffle) {
-			fEntryTable.remove(entry._fKey);
-			fCurrentSpace -= entry._fSpace;
-			privateNotifyDeletionFromCache(entry);
-		}
-
-		/* if this was the first entry */
-		if (previous == null) {
-			fEntryQueue = next;
-		} else {
-			previous._fNext = next;
-		}
-
-		/* if this was the last entry */
-		if (next == null) {
-			fEntryQueueTail = previous;
-		} else {
-			next._fPrevious = previous;
-		}
+	public void recordMiss() {
+		fMisses.increment();
 	}
+
 	/**
-	 * Sets the value in the cache at the given key. Returns the value.
-	 *
-	 * @param key Key of object to add.
-	 * @param value Value of object to add.
-	 * @return added value.
+	 * Returns the number of entries in the cache.
+	 * @return an int
 	 */
-	public Object put(Object key, Object value) {
-
-		int newSpace, oldSpace, newTotal;
-		LRUCacheEntry entry;
-
-		/* Check whether there's an entry in the cache */
-		newSpace = spaceFor(value);
-		entry = fEntryTable.get(key);
-
-		if (entry != null) {
-
-			/**
-			 * Replace the entry in the cache if it would not overflow
-			 * the cache.  Otherwise flush the entry and re-add it so as
-			 * to keep cache within budget
-			 */
-			oldSpace = entry._fSpace;
-			newTotal = getCurrentSpace() - oldSpace + newSpace;
-			if (newTotal <= getSpaceLimit()) {
-				updateTimestamp (entry);
-				entry._fValue = value;
-				entry._fSpace = newSpace;
-				this.fCurrentSpace = newTotal;
-				return value;
-			} else {
-				privateRemoveEntry (entry, false);
-			}
-		}
-		if (makeSpace(newSpace)) {
-			privateAdd (key, value, newSpace);
-		}
-		return value;
+	public int getCurrentSpace() {
+		return fSize.get();
 	}
+
 	/**
-	 * Removes and returns the value in the cache for the given key.
-	 * If the key is not in the cache, returns null.
-	 *
-	 * @param key Key of object to remove from cache.
-	 * @return Value removed from cache.
+	 * Returns the maximum amount of space available in the cache.
+	 * @return an int
 	 */
-	public Object removeKey (Object key) {
+	public int getSpaceLimit() {
+		return fSpaceLimit;
+	}
 
-		LRUCacheEntry entry = fEntryTable.get(key);
-		if (entry == null) {
-			return null;
-		}
-		Object value = entry._fValue;
-		this.privateRemoveEntry (entry, false);
-		return value;
+	/**
+	 * Returns the number of lookups that found a value.
+	 * @return a long
+	 */
+	public long getHitCount() {
+		return fHits.sum();
 	}
+
 	/**
-	 * Sets the maximum amount of space that the cache can store
-	 *
-	 * @param limit Number of units of cache space
+	 * Returns the number of lookups that didn't find a value.
+	 * @return a long
 	 */
-	public void setSpaceLimit(int limit) {
-		if (limit < fSpaceLimit) {
-			makeSpace(fSpaceLimit - limit);
-		}
-		fSpaceLimit = limit;
+	public long getMissCount() {
+		return fMisses.sum();
 	}
+
 	/**
-	 * Returns the space taken by the given value.
-	 * @param value the value
-	 * @return an int
+	 * Returns the number of entries that were dropped to make space for
+	 * other entries.
+	 * @return a long
 	 */
-	protected int spaceFor (Object value) {
-			return 1;
+	public long getEvictionCount() {
+		return fEvictions.sum();
+	}
+
+	public double fillingRatio() {
+		return getCurrentSpace() * 100.0 / fSpaceLimit;
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		int hash= key.hashCode();
+		return fSegments[(hash ^ (hash >>> 16)) & (fSegments.length - 1)];
 	}
 
 	/**
@@ -451,6 +354,7 @@ public class LRUCache implements Cloneable {
 	public String toString() {
 		return
 			toStringFillingRation("LRUCache") + //$NON-NLS-1$
+			toStringStatistics() +
 			toStringContents();
 	}
 
@@ -460,21 +364,22 @@ public class LRUCache implements Cloneable {
 	 * @return a string
 	 */
 	protected String toStringContents() {
-		StringBuilder result = new StringBuilder();
-		int length = fEntryTable.size();
-		Object[] unsortedKeys = new Object[length];
+		List<Object> keys= new ArrayList<>();
+		for (Segment<K, V> segment : fSegments) {
+			keys.addAll(segment.fEntries.keySet());
+		}
+		int length = keys.size();
+		Object[] unsortedKeys = keys.toArray();
 		String[] unsortedToStrings = new String[length];
-		Enumeration<Object> e = this.keys();
 		for (int i = 0; i < length; i++) {
-			Object key = e.nextElement();
-			unsortedKeys[i] = key;
-			unsortedToStrings[i] = key.toString();
+			unsortedToStrings[i] = unsortedKeys[i].toString();
 		}
 		ToStringSorter sorter = new ToStringSorter();
 		sorter.sort(unsortedKeys, unsortedToStrings);
+		StringBuilder result = new StringBuilder();
 		for (int i = 0; i < length; i++) {
 			String toString = sorter.sortedStrings[i];
-			Object value = this.get(sorter.sortedObjects[i]);
+			Object value = segmentFor(sorter.sortedObjects[i]).fEntries.get(sorter.sortedObjects[i]);
 			result.append(toString);
 			result.append(" -> "); //$NON-NLS-1$
 			result.append(value);
@@ -493,18 +398,15 @@ public class LRUCache implements Cloneable {
 		return buffer.toString();
 	}
 
-	/**
-	 * Updates the timestamp for the given entry, ensuring that the queue is
-	 * kept in correct order.  The entry must exist
-	 * @param entry the entry
-	 */
-	protected void updateTimestamp (LRUCacheEntry entry) {
-
-		entry._fTimestamp = fTimestampCounter++;
-		if (fEntryQueue != entry) {
-			this.privateRemoveEntry (entry, true);
-			this.privateAddEntry (entry, true);
-		}
-		return;
+	private String toStringStatistics() {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append(", hits: "); //$NON-NLS-1$
+		buffer.append(getHitCount());
+		buffer.append(", misses: "); //$NON-NLS-1$
+		buffer.append(getMissCount());
+		buffer.append(", evictions: "); //$NON-NLS-1$
+		buffer.append(getEvictionCount());
+		buffer.append('\n');
+		return buffer.toString();
 	}
 }
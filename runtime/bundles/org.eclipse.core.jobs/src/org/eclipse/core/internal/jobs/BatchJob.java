@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.jobs;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * A job that runs many small tasks in parallel, see
+ * {@link JobGroup#createBatchJob(String, Collection)}.
+ * <p>
+ * When the batch job runs, it schedules helper jobs in the same job group, so
+ * that at most as many tasks run at once as the group allows threads. The batch
+ * job and its helpers claim chunks of tasks from a shared index until all tasks
+ * are claimed, so a runner that finishes early takes over the remaining work of
+ * the others. Only the batch job reports progress, and canceling it stops all
+ * runners. Helpers that start after all tasks were claimed end right away, and
+ * the batch job only waits for helpers that are running tasks. Since the
+ * helpers run without a scheduling rule, the batch job must not have one either.
+ * </p>
+ */
+public class BatchJob extends Job {
+	/**
+	 * The number of chunks per runner that the tasks are split into, so that
+	 * runners balance their load.
+	 */
+	private static final int CHUNKS_PER_RUNNER = 4;
+
+	private final ICoreRunnable[] tasks;
+
+	/**
+	 * The index of the next task to claim.
+	 */
+	private final AtomicInteger next = new AtomicInteger();
+
+	/**
+	 * The number of tasks that have finished.
+	 */
+	private final AtomicInteger completed = new AtomicInteger();
+
+	/**
+	 * The statuses of the tasks that failed.
+	 */
+	private final Queue<IStatus> failures = new ConcurrentLinkedQueue<>();
+
+	private volatile boolean canceled;
+
+	private volatile int chunkSize = 1;
+
+	private final Object lock = new Object();
+
+	/**
+	 * Whether the batch job has finished running tasks. No helper starts to run
+	 * tasks afterwards.
+	 * @GuardedBy("lock")
+	 */
+	private boolean closed;
+
+	/**
+	 * The number of helpers that are running tasks.
+	 * @GuardedBy("lock")
+	 */
+	private int activeHelpers;
+
+	/**
+	 * A job that helps the batch job to run its tasks.
+	 */
+	private class Helper extends Job {
+		Helper() {
+			super(BatchJob.this.getName());
+			setSystem(true);
+			setPriority(BatchJob.this.getPriority());
+			setJobGroup(BatchJob.this.getJobGroup());
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			synchronized (lock) {
+				if (closed)
+					return Status.OK_STATUS;
+				activeHelpers++;
+			}
+			try {
+				runTasks(monitor, false);
+			} finally {
+				synchronized (lock) {
+					activeHelpers--;
+					lock.notifyAll();
+				}
+			}
+			return Status.OK_STATUS;
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == BatchJob.this;
+		}
+	}
+
+	/**
+	 * The monitor passed to the tasks. It is canceled when the batch is canceled
+	 * or the runner of the task is canceled.
+	 */
+	private class TaskMonitor extends NullProgressMonitor {
+		private final IProgressMonitor runnerMonitor;
+
+		TaskMonitor(IProgressMonitor runnerMonitor) {
+			this.runnerMonitor = runnerMonitor;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return canceled || runnerMonitor.isCanceled();
+		}
+
+		@Override
+		public void setCanceled(boolean value) {
+			if (value)
+				canceled = true;
+		}
+	}
+
+	public BatchJob(String name, JobGroup group, Collection<? extends ICoreRunnable> tasks) {
+		super(name);
+		Assert.isNotNull(group);
+		this.tasks = tasks.toArray(new ICoreRunnable[tasks.size()]);
+		for (ICoreRunnable task : this.tasks)
+			Assert.isNotNull(task);
+		setJobGroup(group);
+	}
+
+	/**
+	 * Batch jobs cannot have a scheduling rule, because their helpers run tasks
+	 * in other threads that don't own the rule.
+	 */
+	@Override
+	public boolean shouldSchedule() {
+		Assert.isLegal(getRule() == null, "Batch jobs cannot have a scheduling rule"); //$NON-NLS-1$
+		return super.shouldSchedule();
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		int taskCount = tasks.length;
+		monitor.beginTask(getName(), taskCount);
+		next.set(0);
+		completed.set(0);
+		failures.clear();
+		canceled = false;
+		int maxThreads = getJobGroup().getMaxThreads();
+		int runners = Math.min(maxThreads == 0 ? Runtime.getRuntime().availableProcessors() : maxThreads, taskCount);
+		chunkSize = Math.max(1, taskCount / (Math.max(runners, 1) * CHUNKS_PER_RUNNER));
+		synchronized (lock) {
+			closed = false;
+		}
+		for (int i = 1; i < runners; i++)
+			new Helper().schedule();
+		int reported = runTasks(monitor, true);
+		//wait for the helpers that are still running tasks
+		while (true) {
+			synchronized (lock) {
+				closed = true;
+				if (activeHelpers == 0)
+					break;
+				try {
+					lock.wait(100);
+				} catch (InterruptedException e) {
+					canceled = true;
+				}
+			}
+			if (monitor.isCanceled())
+				canceled = true;
+			reported = reportProgress(monitor, reported);
+		}
+		reportProgress(monitor, reported);
+		monitor.done();
+		if (canceled || monitor.isCanceled())
+			return Status.CANCEL_STATUS;
+		if (failures.isEmpty())
+			return Status.OK_STATUS;
+		String message = NLS.bind(JobMessages.jobs_internalError, getName());
+		return new MultiStatus(JobManager.PI_JOBS, JobManager.PLUGIN_ERROR, failures.toArray(new IStatus[0]), message, null);
+	}
+
+	/**
+	 * Runs chunks of tasks until all tasks are claimed or the batch is canceled.
+	 * Progress is only reported by the batch job itself. Returns the amount of
+	 * work reported.
+	 */
+	private int runTasks(IProgressMonitor monitor, boolean reporting) {
+		int reported = 0;
+		TaskMonitor taskMonitor = new TaskMonitor(monitor);
+		while (!taskMonitor.isCanceled()) {
+			int start = next.getAndAdd(chunkSize);
+			if (start >= tasks.length)
+				break;
+			int end = Math.min(start + chunkSize, tasks.length);
+			for (int i = start; i < end && !taskMonitor.isCanceled(); i++) {
+				runTask(tasks[i], taskMonitor);
+				completed.incrementAndGet();
+			}
+			if (reporting)
+				reported = reportProgress(monitor, reported);
+		}
+		//stop the helpers if the batch job was canceled
+		if (reporting && monitor.isCanceled())
+			canceled = true;
+		return reported;
+	}
+
+	private void runTask(ICoreRunnable task, IProgressMonitor taskMonitor) {
+		try {
+			task.run(taskMonitor);
+		} catch (CoreException e) {
+			failures.add(e.getStatus());
+		} catch (OperationCanceledException e) {
+			canceled = true;
+		} catch (ThreadDeath e) {
+			throw e;
+		} catch (Exception | Error e) {
+			String message = NLS.bind(JobMessages.jobs_internalError, getName());
+			failures.add(new Status(IStatus.ERROR, JobManager.PI_JOBS, JobManager.PLUGIN_ERROR, message, e));
+		}
+	}
+
+	private int reportProgress(IProgressMonitor monitor, int reported) {
+		int done = completed.get();
+		if (done > reported)
+			monitor.worked(done - reported);
+		return done;
+	}
+}
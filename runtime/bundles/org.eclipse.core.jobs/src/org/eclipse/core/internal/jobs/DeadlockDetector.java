@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2012 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,7 +15,7 @@ package org.eclipse.core.internal.jobs;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.ArrayList;
+import java.util.*;
 import org.eclipse.core.internal.runtime.RuntimeLog;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.ILock;
@@ -23,11 +23,11 @@ import org.eclipse.core.runtime.jobs.ISchedulingRule;
 
 /**
  * Stores all the relationships between locks (rules are also considered locks),
- * and the threads that own them. All the relationships are stored in a 2D integer array.
- * The rows in the array are threads, while the columns are locks.
- * Two corresponding arrayLists store the actual threads and locks.
- * The index of a thread in the first arrayList is the index of the row in the graph.
- * The index of a lock in the second arrayList is the index of the column in the graph.
+ * and the threads that own them. The relationships form a sparse matrix whose
+ * rows are threads and whose columns are locks. Only the non-zero entries are
+ * stored, both by row and by column, so that the entries of a thread or of a
+ * lock are found without scanning the whole matrix. A thread or a lock is part
+ * of the graph for as long as it has at least one entry.
  * An entry greater than 0 in the graph is the number of times a thread in the entry's row
  * acquired the lock in the entry's column.
  * An entry of -1 means that the thread is waiting to acquire the lock.
@@ -72,16 +72,10 @@ class DeadlockDetector {
 	private static int NO_STATE = 0;
 	//state variables in the graph
 	private static int WAITING_FOR_LOCK = -1;
-	//empty matrix
-	private static final int[][] EMPTY_MATRIX = new int[0][0];
-	//matrix of relationships between threads and locks
-	private int[][] graph = EMPTY_MATRIX;
-	//index is column in adjacency matrix for the lock
-	private final ArrayList<ISchedulingRule> locks = new ArrayList<>();
-	//index is row in adjacency matrix for the thread
-	private final ArrayList<Thread> lockThreads = new ArrayList<>();
-	//whether the graph needs to be resized
-	private boolean resize = false;
+	//the non-zero entries of the graph by lock (the columns), in the order the locks were added
+	private final Map<ISchedulingRule, Map<Thread, Integer>> locks = new LinkedHashMap<>();
+	//the non-zero entries of the graph by thread (the rows), in the order the threads were added
+	private final Map<Thread, Map<ISchedulingRule, Integer>> lockThreads = new LinkedHashMap<>();
 
 	/**
 	 * Recursively check if any of the threads that prevent the current thread from running
@@ -125,26 +119,27 @@ class DeadlockDetector {
 	 * Check that the addition of a waiting thread did not produce deadlock.
 	 * If deadlock is detected return true, else return false.
 	 */
-	private boolean checkWaitCycles(int[] waitingThreads, int lockIndex) {
+	private boolean checkWaitCycles(Set<Thread> waitingThreads, ISchedulingRule lock) {
 		/**
 		 * find the lock that this thread is waiting for
 		 * recursively check if this is a cycle (i.e. a thread waiting on itself)
 		 */
-		for (int i = 0; i < graph.length; i++) {
-			if (graph[i][lockIndex] > NO_STATE) {
-				if (waitingThreads[i] > NO_STATE) {
-					return true;
-				}
+		Map<Thread, Integer> owners = locks.get(lock);
+		if (owners == null)
+			return false;
+		for (Map.Entry<Thread, Integer> owner : owners.entrySet()) {
+			if (owner.getValue() > NO_STATE) {
 				//keep track that we already visited this thread
-				waitingThreads[i]++;
-				for (int j = 0; j < graph[i].length; j++) {
-					if (graph[i][j] == WAITING_FOR_LOCK) {
-						if (checkWaitCycles(waitingThreads, j))
+				if (!waitingThreads.add(owner.getKey()))
+					return true;
+				for (Map.Entry<ISchedulingRule, Integer> entry : lockThreads.get(owner.getKey()).entrySet()) {
+					if (entry.getValue() == WAITING_FOR_LOCK) {
+						if (checkWaitCycles(waitingThreads, entry.getKey()))
 							return true;
 					}
 				}
 				//this thread is not involved in a cycle yet, so remove the visited flag
-				waitingThreads[i]--;
+				waitingThreads.remove(owner.getKey());
 			}
 		}
 		return false;
@@ -155,7 +150,7 @@ class DeadlockDetector {
 	 * (meaning the given thread either owns locks or is waiting for locks)
 	 */
 	boolean contains(Thread t) {
-		return lockThreads.contains(t);
+		return lockThreads.containsKey(t);
 	}
 
 	/**
@@ -163,25 +158,25 @@ class DeadlockDetector {
 	 * Find a rule it conflicts with and update the new rule with the number of times
 	 * it was acquired implicitly when threads acquired conflicting rule.
 	 */
-	private void fillPresentEntries(ISchedulingRule newLock, int lockIndex) {
+	private void fillPresentEntries(ISchedulingRule newLock) {
+		List<ISchedulingRule> conflicting = new ArrayList<>();
+		for (ISchedulingRule lock : locks.keySet()) {
+			if ((lock != newLock) && (newLock.isConflicting(lock)))
+				conflicting.add(lock);
+		}
 		//fill in the entries for the new rule from rules it conflicts with
-		for (int j = 0; j < locks.size(); j++) {
-			if ((j != lockIndex) && (newLock.isConflicting(locks.get(j)))) {
-				for (int[] g : graph) {
-					if ((g[j] > NO_STATE) && (g[lockIndex] == NO_STATE)) {
-						g[lockIndex] = g[j];
-					}
-				}
+		for (ISchedulingRule lock : conflicting) {
+			for (Map.Entry<Thread, Integer> entry : new ArrayList<>(locks.get(lock).entrySet())) {
+				if ((entry.getValue() > NO_STATE) && (getState(entry.getKey(), newLock) == NO_STATE))
+					setState(entry.getKey(), newLock, entry.getValue());
 			}
 		}
 		//now back fill the entries for rules the current rule conflicts with
-		for (int j = 0; j < locks.size(); j++) {
-			if ((j != lockIndex) && (newLock.isConflicting(locks.get(j)))) {
-				for (int[] g : graph) {
-					if ((g[lockIndex] > NO_STATE) && (g[j] == NO_STATE)) {
-						g[j] = g[lockIndex];
-					}
-				}
+		Map<Thread, Integer> column = locks.get(newLock);
+		for (ISchedulingRule lock : conflicting) {
+			for (Map.Entry<Thread, Integer> entry : new ArrayList<>(column.entrySet())) {
+				if ((entry.getValue() > NO_STATE) && (getState(entry.getKey(), lock) == NO_STATE))
+					setState(entry.getKey(), lock, entry.getValue());
 			}
 		}
 	}
@@ -191,17 +186,27 @@ class DeadlockDetector {
 	 */
 	private Object[] getOwnedLocks(Thread current) {
 		ArrayList<ISchedulingRule> ownedLocks = new ArrayList<>(1);
-		int index = indexOf(current, false);
-
-		for (int j = 0; j < graph[index].length; j++) {
-			if (graph[index][j] > NO_STATE)
-				ownedLocks.add(locks.get(j));
+		//keep the order in which the locks were added to the graph
+		for (ISchedulingRule lock : locks.keySet()) {
+			if (getState(current, lock) > NO_STATE)
+				ownedLocks.add(lock);
 		}
 		if (ownedLocks.isEmpty())
 			Assert.isLegal(false, "A thread with no locks is part of a deadlock."); //$NON-NLS-1$
 		return ownedLocks.toArray();
 	}
 
+	/**
+	 * Returns the state of the entry for the given thread and lock.
+	 */
+	private int getState(Thread thread, ISchedulingRule lock) {
+		Map<ISchedulingRule, Integer> row = lockThreads.get(thread);
+		if (row == null)
+			return NO_STATE;
+		Integer state = row.get(lock);
+		return state == null ? NO_STATE : state;
+	}
+
 	/**
 	 * Returns an array of threads that form the deadlock (usually 2).
 	 */
@@ -223,11 +228,11 @@ class DeadlockDetector {
 	private Thread[] getThreadsOwningLock(ISchedulingRule rule) {
 		if (rule == null)
 			return new Thread[0];
-		int lockIndex = indexOf(rule, false);
 		ArrayList<Thread> blocking = new ArrayList<>(1);
-		for (int i = 0; i < graph.length; i++) {
-			if (graph[i][lockIndex] > NO_STATE)
-				blocking.add(lockThreads.get(i));
+		//keep the order in which the threads were added to the graph
+		for (Thread thread : lockThreads.keySet()) {
+			if (getState(thread, rule) > NO_STATE)
+				blocking.add(thread);
 		}
 		if ((blocking.isEmpty()) && (JobManager.DEBUG_LOCKS))
 			System.out.println("Lock " + rule + " is involved in deadlock but is not owned by any thread."); //$NON-NLS-1$ //$NON-NLS-2$
@@ -240,61 +245,33 @@ class DeadlockDetector {
 	 * Returns the lock the given thread is waiting for.
 	 */
 	private Object getWaitingLock(Thread current) {
-		int index = indexOf(current, false);
-		//find the lock that this thread is waiting for
-		for (int j = 0; j < graph[index].length; j++) {
-			if (graph[index][j] == WAITING_FOR_LOCK)
-				return locks.get(j);
+		//find the lock that this thread is waiting for, in the order the locks were added
+		for (ISchedulingRule lock : locks.keySet()) {
+			if (getState(current, lock) == WAITING_FOR_LOCK)
+				return lock;
 		}
 		//it can happen that a thread is not waiting for any lock (it is not really part of the deadlock)
 		return null;
 	}
 
-	/**
-	 * Returns the index of the given lock in the lock array. If the lock is
-	 * not present in the array, it is added to the end.
-	 */
-	private int indexOf(ISchedulingRule lock, boolean add) {
-		int index = locks.indexOf(lock);
-		if ((index < 0) && add) {
-			locks.add(lock);
-			resize = true;
-			index = locks.size() - 1;
-		}
-		return index;
-	}
-
-	/**
-	 * Returns the index of the given thread in the thread array. If the thread
-	 * is not present in the array, it is added to the end.
-	 */
-	private int indexOf(Thread owner, boolean add) {
-		int index = lockThreads.indexOf(owner);
-		if ((index < 0) && add) {
-			lockThreads.add(owner);
-			resize = true;
-			index = lockThreads.size() - 1;
-		}
-		return index;
-	}
-
 	/**
 	 * Returns true IFF the adjacency matrix is empty.
 	 */
 	boolean isEmpty() {
-		return (locks.isEmpty()) && (lockThreads.isEmpty()) && (graph.length == 0);
+		return (locks.isEmpty()) && (lockThreads.isEmpty());
 	}
 
 	/**
 	 * The given lock was acquired by the given thread.
 	 */
 	void lockAcquired(Thread owner, ISchedulingRule lock) {
-		int lockIndex = indexOf(lock, true);
-		int threadIndex = indexOf(owner, true);
-		if (resize)
-			resizeGraph();
-		if (graph[threadIndex][lockIndex] == WAITING_FOR_LOCK)
-			graph[threadIndex][lockIndex] = NO_STATE;
+		int state = getState(owner, lock);
+		if (state == WAITING_FOR_LOCK)
+			state = NO_STATE;
+		setState(owner, lock, state + 1);
+		//an ordered lock only conflicts with itself, so it does not acquire other locks implicitly
+		if (lock instanceof OrderedLock)
+			return;
 		/**
 		 * acquire all locks that conflict with the given lock
 		 * or conflict with a lock the given lock will acquire implicitly
@@ -304,58 +281,51 @@ class DeadlockDetector {
 		//only need two passes through all the locks to pick up all conflicting rules
 		int NUM_PASSES = 2;
 		conflicting.add(lock);
-		graph[threadIndex][lockIndex]++;
 		for (int i = 0; i < NUM_PASSES; i++) {
 			for (int k = 0; k < conflicting.size(); k++) {
 				ISchedulingRule current = conflicting.get(k);
-				for (int j = 0; j < locks.size(); j++) {
-					ISchedulingRule possible = locks.get(j);
-					if (current.isConflicting(possible) && !conflicting.contains(possible)) {
+				for (ISchedulingRule possible : locks.keySet()) {
+					if (current.isConflicting(possible) && !conflicting.contains(possible))
 						conflicting.add(possible);
-						graph[threadIndex][j]++;
-					}
 				}
 			}
 		}
+		for (int k = 1; k < conflicting.size(); k++) {
+			ISchedulingRule possible = conflicting.get(k);
+			setState(owner, possible, getState(owner, possible) + 1);
+		}
 	}
 
 	/**
 	 * The given lock was released by the given thread. Update the graph.
 	 */
 	void lockReleased(Thread owner, ISchedulingRule lock) {
-		int lockIndex = indexOf(lock, false);
-		int threadIndex = indexOf(owner, false);
+		Map<ISchedulingRule, Integer> row = lockThreads.get(owner);
 		//make sure the lock and thread exist in the graph
-		if (threadIndex < 0) {
+		if (row == null) {
 			if (JobManager.DEBUG_LOCKS)
 				System.out.println("[lockReleased] Lock " + lock + " was already released by thread " + owner.getName()); //$NON-NLS-1$ //$NON-NLS-2$
 			return;
 		}
-		if (lockIndex < 0) {
+		if (!locks.containsKey(lock)) {
 			if (JobManager.DEBUG_LOCKS)
 				System.out.println("[lockReleased] Thread " + owner.getName() + " already released lock " + lock); //$NON-NLS-1$ //$NON-NLS-2$
 			return;
 		}
 		//if this lock was suspended, set it to NO_STATE
-		if ((lock instanceof ILock) && (graph[threadIndex][lockIndex] == WAITING_FOR_LOCK)) {
-			graph[threadIndex][lockIndex] = NO_STATE;
+		if ((lock instanceof ILock) && (getState(owner, lock) == WAITING_FOR_LOCK)) {
+			setState(owner, lock, NO_STATE);
 			return;
 		}
+		if ((getState(owner, lock) == NO_STATE) && (JobManager.DEBUG_LOCKS))
+			System.out.println("[lockReleased] More releases than acquires for thread " + owner.getName() + " and lock " + lock); //$NON-NLS-1$ //$NON-NLS-2$
 		//release all locks that conflict with the given lock
 		//or release all rules that are owned by the given thread, if we are releasing a rule
-		for (int j = 0; j < graph[threadIndex].length; j++) {
-			if ((lock.isConflicting(locks.get(j))) || (!(lock instanceof ILock) && !(locks.get(j) instanceof ILock) && (graph[threadIndex][j] > NO_STATE))) {
-				if (graph[threadIndex][j] == NO_STATE) {
-					if (JobManager.DEBUG_LOCKS)
-						System.out.println("[lockReleased] More releases than acquires for thread " + owner.getName() + " and lock " + lock); //$NON-NLS-1$ //$NON-NLS-2$
-				} else {
-					graph[threadIndex][j]--;
-				}
-			}
+		for (Map.Entry<ISchedulingRule, Integer> entry : new ArrayList<>(row.entrySet())) {
+			ISchedulingRule current = entry.getKey();
+			if ((lock.isConflicting(current)) || (!(lock instanceof ILock) && !(current instanceof ILock) && (entry.getValue() > NO_STATE)))
+				setState(owner, current, entry.getValue() - 1);
 		}
-		//if this thread just released the given lock, try to simplify the graph
-		if (graph[threadIndex][lockIndex] == NO_STATE)
-			reduceGraph(threadIndex, lock);
 	}
 
 	/**
@@ -363,15 +333,14 @@ class DeadlockDetector {
 	 * Release this rule regardless of how many times it was acquired.
 	 */
 	void lockReleasedCompletely(Thread owner, ISchedulingRule rule) {
-		int ruleIndex = indexOf(rule, false);
-		int threadIndex = indexOf(owner, false);
+		Map<ISchedulingRule, Integer> row = lockThreads.get(owner);
 		//need to make sure that the given thread and rule were not already removed from the graph
-		if (threadIndex < 0) {
+		if (row == null) {
 			if (JobManager.DEBUG_LOCKS)
 				System.out.println("[lockReleasedCompletely] Lock " + rule + " was already released by thread " + owner.getName()); //$NON-NLS-1$ //$NON-NLS-2$
 			return;
 		}
-		if (ruleIndex < 0) {
+		if (!locks.containsKey(rule)) {
 			if (JobManager.DEBUG_LOCKS)
 				System.out.println("[lockReleasedCompletely] Thread " + owner.getName() + " already released lock " + rule); //$NON-NLS-1$ //$NON-NLS-2$
 			return;
@@ -381,11 +350,10 @@ class DeadlockDetector {
 		 * (not just rules that conflict with the rule we are releasing)
 		 * if we are releasing a lock, then only update the one entry for the lock
 		 */
-		for (int j = 0; j < graph[threadIndex].length; j++) {
-			if (!(locks.get(j) instanceof ILock) && (graph[threadIndex][j] > NO_STATE))
-				graph[threadIndex][j] = NO_STATE;
+		for (Map.Entry<ISchedulingRule, Integer> entry : new ArrayList<>(row.entrySet())) {
+			if (!(entry.getKey() instanceof ILock) && (entry.getValue() > NO_STATE))
+				setState(owner, entry.getKey(), NO_STATE);
 		}
-		reduceGraph(threadIndex, rule);
 	}
 
 	/**
@@ -394,10 +362,8 @@ class DeadlockDetector {
 	 */
 	Deadlock lockWaitStart(Thread client, ISchedulingRule lock) {
 		setToWait(client, lock, false);
-		int lockIndex = indexOf(lock, false);
-		int[] temp = new int[lockThreads.size()];
 		//check if the addition of the waiting thread caused deadlock
-		if (!checkWaitCycles(temp, lockIndex))
+		if (!checkWaitCycles(new HashSet<>(), lock))
 			return null;
 		//there is a deadlock in the graph
 		Thread[] threads = getThreadsInDeadlock(client);
@@ -422,36 +388,33 @@ class DeadlockDetector {
 	 * If the lock has already been granted, then it isn't removed.
 	 */
 	void lockWaitStop(Thread owner, ISchedulingRule lock) {
-		int lockIndex = indexOf(lock, false);
-		int threadIndex = indexOf(owner, false);
 		//make sure the thread and lock exist in the graph
-		if (threadIndex < 0) {
+		if (!lockThreads.containsKey(owner)) {
 			if (JobManager.DEBUG_LOCKS)
 				System.out.println("Thread " + owner.getName() + " was already removed."); //$NON-NLS-1$ //$NON-NLS-2$
 			return;
 		}
-		if (lockIndex < 0) {
+		if (!locks.containsKey(lock)) {
 			if (JobManager.DEBUG_LOCKS)
 				System.out.println("Lock " + lock + " was already removed."); //$NON-NLS-1$ //$NON-NLS-2$
 			return;
 		}
-		if (graph[threadIndex][lockIndex] != WAITING_FOR_LOCK) {
+		int state = getState(owner, lock);
+		if (state != WAITING_FOR_LOCK) {
 			// Lock has already been granted, nothing to do...
 			if (JobManager.DEBUG_LOCKS)
-				System.out.println("Lock " + lock + " already granted to depth: " + graph[threadIndex][lockIndex]); //$NON-NLS-1$ //$NON-NLS-2$
+				System.out.println("Lock " + lock + " already granted to depth: " + state); //$NON-NLS-1$ //$NON-NLS-2$
 			return;
 		}
-		graph[threadIndex][lockIndex] = NO_STATE;
-		reduceGraph(threadIndex, lock);
+		setState(owner, lock, NO_STATE);
 	}
 
 	/**
 	 * Returns true IFF the given thread owns a single lock
 	 */
 	private boolean ownsLocks(Thread cause) {
-		int threadIndex = indexOf(cause, false);
-		for (int j = 0; j < graph[threadIndex].length; j++) {
-			if (graph[threadIndex][j] > NO_STATE)
+		for (int state : lockThreads.get(cause).values()) {
+			if (state > NO_STATE)
 				return true;
 		}
 		return false;
@@ -462,13 +425,9 @@ class DeadlockDetector {
 	 * A real lock is a lock that can be suspended.
 	 */
 	private boolean ownsRealLocks(Thread owner) {
-		int threadIndex = indexOf(owner, false);
-		for (int j = 0; j < graph[threadIndex].length; j++) {
-			if (graph[threadIndex][j] > NO_STATE) {
-				Object lock = locks.get(j);
-				if (lock instanceof ILock)
-					return true;
-			}
+		for (Map.Entry<ISchedulingRule, Integer> entry : lockThreads.get(owner).entrySet()) {
+			if ((entry.getValue() > NO_STATE) && (entry.getKey() instanceof ILock))
+				return true;
 		}
 		return false;
 	}
@@ -478,13 +437,9 @@ class DeadlockDetector {
 	 * cannot be suspended)
 	 */
 	private boolean ownsRuleLocks(Thread owner) {
-		int threadIndex = indexOf(owner, false);
-		for (int j = 0; j < graph[threadIndex].length; j++) {
-			if (graph[threadIndex][j] > NO_STATE) {
-				Object lock = locks.get(j);
-				if (!(lock instanceof ILock))
-					return true;
-			}
+		for (Map.Entry<ISchedulingRule, Integer> entry : lockThreads.get(owner).entrySet()) {
+			if ((entry.getValue() > NO_STATE) && !(entry.getKey() instanceof ILock))
+				return true;
 		}
 		return false;
 	}
@@ -494,108 +449,17 @@ class DeadlockDetector {
 	 * Real locks are locks that implement the ILock interface and can be suspended.
 	 */
 	private ISchedulingRule[] realLocksForThread(Thread owner) {
-		int threadIndex = indexOf(owner, false);
 		ArrayList<ISchedulingRule> ownedLocks = new ArrayList<>(1);
-		for (int j = 0; j < graph[threadIndex].length; j++) {
-			if ((graph[threadIndex][j] > NO_STATE) && (locks.get(j) instanceof ILock))
-				ownedLocks.add(locks.get(j));
+		//keep the order in which the locks were added to the graph
+		for (ISchedulingRule lock : locks.keySet()) {
+			if ((lock instanceof ILock) && (getState(owner, lock) > NO_STATE))
+				ownedLocks.add(lock);
 		}
 		if (ownedLocks.isEmpty())
 			Assert.isLegal(false, "A thread with no real locks was chosen to resolve deadlock."); //$NON-NLS-1$
 		return ownedLocks.toArray(new ISchedulingRule[ownedLocks.size()]);
 	}
 
-	/**
-	 * The matrix has been simplified. Check if any unnecessary rows or columns
-	 * can be removed.
-	 */
-	private void reduceGraph(int row, ISchedulingRule lock) {
-		int numLocks = locks.size();
-		boolean[] emptyColumns = new boolean[numLocks];
-
-		/**
-		 * find all columns that could possibly be empty
-		 * (consist of locks which conflict with the given lock, or of locks which are rules)
-		 */
-		for (int j = 0; j < numLocks; j++) {
-			if ((lock.isConflicting(locks.get(j))) || !(locks.get(j) instanceof ILock))
-				emptyColumns[j] = true;
-		}
-
-		boolean rowEmpty = true;
-		int numEmpty = 0;
-		//check if the given row is empty
-		for (int j = 0; j < graph[row].length; j++) {
-			if (graph[row][j] != NO_STATE) {
-				rowEmpty = false;
-				break;
-			}
-		}
-		/**
-		 * Check if the possibly empty columns are actually empty.
-		 * If a column is actually empty, remove the corresponding lock from the list of locks
-		 * Start at the last column so that when locks are removed from the list,
-		 * the index of the remaining locks is unchanged. Store the number of empty columns.
-		 */
-		for (int j = emptyColumns.length - 1; j >= 0; j--) {
-			for (int[] element : graph) {
-				if (emptyColumns[j] && (element[j] != NO_STATE)) {
-					emptyColumns[j] = false;
-					break;
-				}
-			}
-			if (emptyColumns[j]) {
-				locks.remove(j);
-				numEmpty++;
-			}
-		}
-		//if no columns or rows are empty, return right away
-		if ((numEmpty == 0) && (!rowEmpty))
-			return;
-
-		if (rowEmpty)
-			lockThreads.remove(row);
-
-		//new graph (the list of locks and the list of threads are already updated)
-		final int numThreads = lockThreads.size();
-		numLocks = locks.size();
-		//optimize empty graph case
-		if (numThreads == 0 && numLocks == 0) {
-			graph = EMPTY_MATRIX;
-			return;
-		}
-		int[][] tempGraph = new int[numThreads][numLocks];
-
-		//the number of rows we need to skip to get the correct entry from the old graph
-		int numRowsSkipped = 0;
-		for (int i = 0; i < graph.length - numRowsSkipped; i++) {
-			if ((i == row) && rowEmpty) {
-				numRowsSkipped++;
-				//check if we need to skip the last row
-				if (i >= graph.length - numRowsSkipped)
-					break;
-			}
-			//the number of columns we need to skip to get the correct entry from the old graph
-			//needs to be reset for every new row
-			int numColsSkipped = 0;
-			for (int j = 0; j < graph[i].length - numColsSkipped; j++) {
-				while (emptyColumns[j + numColsSkipped]) {
-					numColsSkipped++;
-					//check if we need to skip the last column
-					if (j >= graph[i].length - numColsSkipped)
-						break;
-				}
-				//need to break out of the outer loop
-				if (j >= graph[i].length - numColsSkipped)
-					break;
-				tempGraph[i][j] = graph[i + numRowsSkipped][j + numColsSkipped];
-			}
-		}
-		graph = tempGraph;
-		Assert.isTrue(numThreads == graph.length, "Rows and threads don't match."); //$NON-NLS-1$
-		Assert.isTrue(numLocks == ((graph.length > 0) ? graph[0].length : 0), "Columns and locks don't match."); //$NON-NLS-1$
-	}
-
 	/**
 	 * Adds a 'deadlock detected' message to the log with a stack trace.
 	 */
@@ -631,28 +495,6 @@ class DeadlockDetector {
 		RuntimeLog.log(main);
 	}
 
-	/**
-	 * The number of threads/locks in the graph has changed. Update the
-	 * underlying matrix.
-	 */
-	private void resizeGraph() {
-		// a new row and/or a new column was added to the graph.
-		// since new rows/columns are always added to the end, just transfer
-		// old entries to the new graph, with the same indices.
-		final int newRows = lockThreads.size();
-		final int newCols = locks.size();
-		//optimize 0x0 and 1x1 matrices
-		if (newRows == 0 && newCols == 0) {
-			graph = EMPTY_MATRIX;
-			return;
-		}
-		int[][] tempGraph = new int[newRows][newCols];
-		for (int i = 0; i < graph.length; i++)
-			System.arraycopy(graph[i], 0, tempGraph[i], 0, graph[i].length);
-		graph = tempGraph;
-		resize = false;
-	}
-
 	/**
 	 * Get the thread whose locks can be suspended. (i.e. all locks it owns are
 	 * actual locks and not rules). Return the first thread in the array by default.
@@ -673,6 +515,28 @@ class DeadlockDetector {
 		return candidates[0];
 	}
 
+	/**
+	 * Sets the entry for the given thread and lock to the given state. Threads
+	 * and locks are added to the graph with their first entry, and removed from
+	 * the graph with their last one.
+	 */
+	private void setState(Thread thread, ISchedulingRule lock, int state) {
+		if (state == NO_STATE) {
+			Map<ISchedulingRule, Integer> row = lockThreads.get(thread);
+			if (row == null || row.remove(lock) == null)
+				return;
+			if (row.isEmpty())
+				lockThreads.remove(thread);
+			Map<Thread, Integer> column = locks.get(lock);
+			column.remove(thread);
+			if (column.isEmpty())
+				locks.remove(lock);
+			return;
+		}
+		lockThreads.computeIfAbsent(thread, t -> new LinkedHashMap<>(4)).put(lock, state);
+		locks.computeIfAbsent(lock, l -> new LinkedHashMap<>(4)).put(thread, state);
+	}
+
 	/**
 	 * The given thread is waiting for the given lock. Update the graph.
 	 */
@@ -685,14 +549,9 @@ class DeadlockDetector {
 		 */
 		if (!suspend && !(lock instanceof ILock))
 			needTransfer = true;
-		int lockIndex = indexOf(lock, !suspend);
-		int threadIndex = indexOf(owner, !suspend);
-		if (resize)
-			resizeGraph();
-
-		graph[threadIndex][lockIndex] = WAITING_FOR_LOCK;
+		setState(owner, lock, WAITING_FOR_LOCK);
 		if (needTransfer)
-			fillPresentEntries(lock, lockIndex);
+			fillPresentEntries(lock);
 	}
 
 	/**
@@ -703,14 +562,14 @@ class DeadlockDetector {
 		StringWriter sWriter = new StringWriter();
 		PrintWriter out = new PrintWriter(sWriter, true);
 		out.println(" :: "); //$NON-NLS-1$
-		for (ISchedulingRule lock : locks) {
+		for (ISchedulingRule lock : locks.keySet()) {
 			out.print(" " + lock + ','); //$NON-NLS-1$
 		}
 		out.println();
-		for (int i = 0; i < graph.length; i++) {
-			out.print(" " + lockThreads.get(i).getName() + " : "); //$NON-NLS-1$ //$NON-NLS-2$
-			for (int j = 0; j < graph[i].length; j++) {
-				out.print(" " + graph[i][j] + ','); //$NON-NLS-1$
+		for (Thread thread : lockThreads.keySet()) {
+			out.print(" " + thread.getName() + " : "); //$NON-NLS-1$ //$NON-NLS-2$
+			for (ISchedulingRule lock : locks.keySet()) {
+				out.print(" " + getState(thread, lock) + ','); //$NON-NLS-1$
 			}
 			out.println();
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2014 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -101,6 +101,26 @@ public abstract class InternalJob extends PlatformObject implements Comparable<I
 	 * @GuardedBy("manager.lock")
 	 */
 	private InternalJob previous;
+	/**
+	 * The node of this job in the index of a {@link JobQueue}.
+	 * @GuardedBy("manager.lock")
+	 */
+	JobQueue.Node queueNode;
+
+	/**
+	 * The timestamps recorded for this job while job statistics are enabled,
+	 * or null if they have never been enabled.
+	 * @GuardedBy("manager.lock")
+	 */
+	JobStats.Timing timing;
+
+	/**
+	 * The flight recorder events of this job that are in progress, or null. They
+	 * are typed as Object as the jdk.jfr package may not be available.
+	 * @GuardedBy("manager.lock")
+	 */
+	Object waitEvent, blockedEvent;
+
 	private int priority = Job.LONG;
 	/**
 	 * Arbitrary properties (key,value) pairs, attached
@@ -117,6 +137,11 @@ public abstract class InternalJob extends PlatformObject implements Comparable<I
 	 * @GuardedBy("manager.lock")
 	 */
 	private ISchedulingRule schedulingRule;
+	/**
+	 * The families this job declared, or null if it did not declare any.
+	 * @GuardedBy("manager.lock")
+	 */
+	private Object[] families;
 	/**
 	 * If the job is waiting, this represents the time the job should start by.
 	 * If this job is sleeping, this represents the time the job should wake up.
@@ -181,6 +206,11 @@ public abstract class InternalJob extends PlatformObject implements Comparable<I
 	}
 
 	protected boolean belongsTo(Object family) {
+		Object[] declared = families;
+		if (declared != null)
+			for (Object element : declared)
+				if (element.equals(family))
+					return true;
 		return false;
 	}
 
@@ -287,6 +317,21 @@ public abstract class InternalJob extends PlatformObject implements Comparable<I
 		this.priority = newPriority;
 	}
 
+	/**
+	 * Must be called from JobManager#setFamilies
+	 */
+	final void internalSetFamilies(Object[] families) {
+		this.families = families;
+	}
+
+	/**
+	 * Returns the declared families of this job, or null if the job did not
+	 * declare any. The returned array must not be modified.
+	 */
+	final Object[] internalGetFamilies() {
+		return families;
+	}
+
 	/**
 	 * Must be called from JobManager#setRule
 	 */
@@ -486,6 +531,15 @@ public abstract class InternalJob extends PlatformObject implements Comparable<I
 		manager.setRule(this, rule);
 	}
 
+	protected void setFamilies(Object... newFamilies) {
+		manager.setFamilies(this, newFamilies);
+	}
+
+	protected Object[] getFamilies() {
+		Object[] declared = families;
+		return declared == null ? null : declared.clone();
+	}
+
 	/**
 	 * Sets a time to start, wake up, or schedule this job,
 	 * depending on the current state
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.jobs;
+
+import jdk.jfr.*;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Java Flight Recorder events of the job manager: a job running, a job waiting
+ * to run, and a job blocked by a job with a conflicting scheduling rule.
+ * <p>
+ * The <code>jdk.jfr</code> package is imported optionally. Callers must check
+ * {@link JobEventsSupport#AVAILABLE} before using this class. The events are
+ * only created while a recording that enables them is in progress.
+ * </p>
+ */
+final class JobEvents {
+	private static final String CATEGORY = "Eclipse"; //$NON-NLS-1$
+	private static final String SUB_CATEGORY = "Jobs"; //$NON-NLS-1$
+
+	@Name("org.eclipse.core.jobs.JobRun")
+	@Label("Job Run")
+	@Description("A job running in a worker thread")
+	@Category({CATEGORY, SUB_CATEGORY})
+	static final class RunEvent extends Event {
+		@Label("Job Name")
+		String jobName;
+		@Label("Job Class")
+		Class<?> jobClass;
+		@Label("Result Severity")
+		int severity;
+	}
+
+	@Name("org.eclipse.core.jobs.JobWait")
+	@Label("Job Wait")
+	@Description("A job waiting to run after it was scheduled, including the time it was blocked")
+	@Category({CATEGORY, SUB_CATEGORY})
+	static final class WaitEvent extends Event {
+		@Label("Job Name")
+		String jobName;
+		@Label("Job Class")
+		Class<?> jobClass;
+	}
+
+	@Name("org.eclipse.core.jobs.JobBlocked")
+	@Label("Job Blocked")
+	@Description("A job blocked by a running job with a conflicting scheduling rule")
+	@Category({CATEGORY, SUB_CATEGORY})
+	static final class BlockedEvent extends Event {
+		@Label("Job Name")
+		String jobName;
+		@Label("Job Class")
+		Class<?> jobClass;
+		@Label("Blocking Job Name")
+		String blockingJobName;
+		@Label("Blocking Job Class")
+		Class<?> blockingJobClass;
+	}
+
+	/**
+	 * The types of the events. They are looked up once the flight recorder is
+	 * initialized, so that checking whether an event is enabled neither creates
+	 * the event nor initializes the recorder.
+	 */
+	private static final class Types {
+		static final EventType RUN = EventType.getEventType(RunEvent.class);
+		static final EventType WAIT = EventType.getEventType(WaitEvent.class);
+		static final EventType BLOCKED = EventType.getEventType(BlockedEvent.class);
+	}
+
+	private JobEvents() {
+		// not instantiated
+	}
+
+
+	/**
+	 * Starts the run event of the given job. Returns the event to pass to
+	 * {@link #endRun(Object, IStatus)}, or null if the event is not recorded.
+	 */
+	static Object beginRun(InternalJob job) {
+		if (!FlightRecorder.isInitialized() || !Types.RUN.isEnabled())
+			return null;
+		RunEvent event = new RunEvent();
+		event.jobName = job.getName();
+		event.jobClass = job.getClass();
+		event.begin();
+		return event;
+	}
+
+	static void endRun(Object runEvent, IStatus result) {
+		RunEvent event = (RunEvent) runEvent;
+		event.end();
+		if (event.shouldCommit()) {
+			event.severity = result.getSeverity();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Starts the blocked event of the given job, which was just blocked by the
+	 * given job.
+	 * @GuardedBy("JobManager.lock")
+	 */
+	static void blocked(InternalJob job, InternalJob blocker) {
+		if (!FlightRecorder.isInitialized() || !Types.BLOCKED.isEnabled())
+			return;
+		BlockedEvent event = new BlockedEvent();
+		event.jobName = job.getName();
+		event.jobClass = job.getClass();
+		event.blockingJobName = blocker.getName();
+		event.blockingJobClass = blocker.getClass();
+		event.begin();
+		job.blockedEvent = event;
+	}
+
+	/**
+	 * Starts and ends the wait and blocked events of the given job when it
+	 * changes from the old to the new state.
+	 * @GuardedBy("JobManager.lock")
+	 */
+	static void changeState(InternalJob job, int oldState, int newState) {
+		if (oldState == InternalJob.BLOCKED && job.blockedEvent != null) {
+			commit((Event) job.blockedEvent);
+			job.blockedEvent = null;
+		}
+		switch (newState) {
+			case Job.WAITING :
+				if (job.waitEvent == null && FlightRecorder.isInitialized() && Types.WAIT.isEnabled()) {
+					WaitEvent event = new WaitEvent();
+					event.jobName = job.getName();
+					event.jobClass = job.getClass();
+					event.begin();
+					job.waitEvent = event;
+				}
+				break;
+			case InternalJob.BLOCKED :
+				break;
+			default :
+				//the job stopped waiting, because it runs or was canceled
+				if (job.waitEvent != null) {
+					commit((Event) job.waitEvent);
+					job.waitEvent = null;
+				}
+		}
+	}
+
+	private static void commit(Event event) {
+		event.end();
+		if (event.shouldCommit())
+			event.commit();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2014 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,12 +21,58 @@ import org.eclipse.osgi.util.NLS;
 /**
  * Responsible for notifying all job listeners about job lifecycle events.  Uses a
  * specialized iterator to ensure the complex iteration logic is contained in one place.
+ * <p>
+ * Listeners that extend {@link JobChangeAdapter} are only notified about the
+ * events whose methods they override. If no listener is interested in an event,
+ * no event object is created at all.
+ * </p>
  */
 class JobListeners {
 	interface IListenerDoit {
 		void notify(IJobChangeListener listener, IJobChangeEvent event);
 	}
 
+	/**
+	 * Bits of the event mask of a listener, one for each event type
+	 */
+	static final int ABOUT_TO_RUN = 0x01;
+	static final int AWAKE = 0x02;
+	static final int DONE = 0x04;
+	static final int RUNNING = 0x08;
+	static final int SCHEDULED = 0x10;
+	static final int SLEEPING = 0x20;
+	static final int ALL = ABOUT_TO_RUN | AWAKE | DONE | RUNNING | SCHEDULED | SLEEPING;
+
+	/**
+	 * The event masks of listener classes. A listener that implements
+	 * {@link IJobChangeListener} directly is interested in all events. A listener
+	 * that extends {@link JobChangeAdapter} is only interested in the events whose
+	 * methods it overrides.
+	 */
+	private static final ClassValue<Integer> eventMasks = new ClassValue<Integer>() {
+		@Override
+		protected Integer computeValue(Class<?> type) {
+			if (!JobChangeAdapter.class.isAssignableFrom(type))
+				return ALL;
+			int mask = 0;
+			mask |= overrides(type, "aboutToRun", ABOUT_TO_RUN); //$NON-NLS-1$
+			mask |= overrides(type, "awake", AWAKE); //$NON-NLS-1$
+			mask |= overrides(type, "done", DONE); //$NON-NLS-1$
+			mask |= overrides(type, "running", RUNNING); //$NON-NLS-1$
+			mask |= overrides(type, "scheduled", SCHEDULED); //$NON-NLS-1$
+			mask |= overrides(type, "sleeping", SLEEPING); //$NON-NLS-1$
+			return mask;
+		}
+
+		private int overrides(Class<?> type, String method, int bit) {
+			try {
+				return type.getMethod(method, IJobChangeEvent.class).getDeclaringClass() == JobChangeAdapter.class ? 0 : bit;
+			} catch (NoSuchMethodException | SecurityException e) {
+				return bit;
+			}
+		}
+	};
+
 	private final IListenerDoit aboutToRun = IJobChangeListener::aboutToRun;
 	private final IListenerDoit awake = IJobChangeListener::awake;
 	private final IListenerDoit done = IJobChangeListener::done;
@@ -40,7 +86,14 @@ class JobListeners {
 	protected final ListenerList<IJobChangeListener> global = new ListenerList<>(ListenerList.IDENTITY);
 
 	/**
-	 * TODO Could use an instance pool to re-use old event objects
+	 * The union of the event masks of all global listeners.
+	 * @GuardedBy("this") for writing
+	 */
+	private volatile int globalMask;
+
+	/**
+	 * Events are not reused, because listeners may retain them and query them
+	 * after they were notified, for example in asynchronous UI updates.
 	 */
 	static JobChangeEvent newEvent(Job job) {
 		JobChangeEvent instance = new JobChangeEvent();
@@ -62,13 +115,36 @@ class JobListeners {
 		return instance;
 	}
 
+	/**
+	 * Returns the event mask of the given listener.
+	 */
+	static int getEventMask(IJobChangeListener listener) {
+		return eventMasks.get(listener.getClass());
+	}
+
+	/**
+	 * Returns whether any global listener, or any local listener of the given job,
+	 * is interested in events of the given type.
+	 */
+	private boolean isInterested(Job job, int type) {
+		if ((globalMask & type) != 0)
+			return true;
+		for (IJobChangeListener listener : ((InternalJob) job).getListeners()) {
+			if ((getEventMask(listener) & type) != 0)
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Process the given doit for all global listeners and all local listeners
-	 * on the given job.
+	 * on the given job that are interested in events of the given type.
 	 */
-	private void doNotify(final IListenerDoit doit, final IJobChangeEvent event) {
+	private void doNotify(final IListenerDoit doit, final int type, final IJobChangeEvent event) {
 		//notify all global listeners
 		for (IJobChangeListener listener : global) {
+			if ((getEventMask(listener) & type) == 0)
+				continue;
 			try {
 				doit.notify(listener, event);
 			} catch (Throwable e) {
@@ -76,6 +152,8 @@ class JobListeners {
 			}
 		}
 		for (IJobChangeListener listener : ((InternalJob) event.getJob()).getListeners()) {
+			if ((getEventMask(listener) & type) == 0)
+				continue;
 			try {
 				doit.notify(listener, event);
 			} catch (Throwable e) {
@@ -96,39 +174,52 @@ class JobListeners {
 		RuntimeLog.log(new Status(IStatus.ERROR, pluginId, JobManager.PLUGIN_ERROR, message, e));
 	}
 
-	public void add(IJobChangeListener listener) {
+	public synchronized void add(IJobChangeListener listener) {
 		global.add(listener);
+		globalMask |= getEventMask(listener);
 	}
 
-	public void remove(IJobChangeListener listener) {
+	public synchronized void remove(IJobChangeListener listener) {
 		global.remove(listener);
+		int mask = 0;
+		for (IJobChangeListener remaining : global)
+			mask |= getEventMask(remaining);
+		globalMask = mask;
 	}
 
 	public void aboutToRun(Job job) {
-		doNotify(aboutToRun, newEvent(job));
+		if (isInterested(job, ABOUT_TO_RUN))
+			doNotify(aboutToRun, ABOUT_TO_RUN, newEvent(job));
 	}
 
 	public void awake(Job job) {
-		doNotify(awake, newEvent(job));
+		if (isInterested(job, AWAKE))
+			doNotify(awake, AWAKE, newEvent(job));
 	}
 
 	public void done(Job job, IStatus result, boolean reschedule) {
+		if (!isInterested(job, DONE))
+			return;
 		JobChangeEvent event = newEvent(job, result);
 		event.reschedule = reschedule;
-		doNotify(done, event);
+		doNotify(done, DONE, event);
 	}
 
 	public void running(Job job) {
-		doNotify(running, newEvent(job));
+		if (isInterested(job, RUNNING))
+			doNotify(running, RUNNING, newEvent(job));
 	}
 
 	public void scheduled(Job job, long delay, boolean reschedule) {
+		if (!isInterested(job, SCHEDULED))
+			return;
 		JobChangeEvent event = newEvent(job, delay);
 		event.reschedule = reschedule;
-		doNotify(scheduled, event);
+		doNotify(scheduled, SCHEDULED, event);
 	}
 
 	public void sleeping(Job job) {
-		doNotify(sleeping, newEvent(job));
+		if (isInterested(job, SLEEPING))
+			doNotify(sleeping, SLEEPING, newEvent(job));
 	}
 }
@@ -25,6 +25,7 @@
 package org.eclipse.core.internal.jobs;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.eclipse.core.internal.runtime.RuntimeLog;
 import org.eclipse.core.runtime.*;
@@ -158,10 +159,33 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 */
 	private ProgressProvider progressProvider = null;
 	/**
-	 * Jobs that are currently running. Should only be modified from changeState
+	 * Jobs that are currently running. Should only be modified from changeState.
+	 * The set is concurrent so that it can be read without holding the lock, see
+	 * {@link #currentJob()}.
+	 * @GuardedBy("lock") for modifications
+	 */
+	private final Set<InternalJob> running;
+
+	/**
+	 * The number of jobs that are running or waiting to run. Should only be
+	 * modified from changeState. Allows {@link #isIdle()} without the lock.
+	 * @GuardedBy("lock") for modifications
+	 */
+	private volatile int activeJobCount;
+
+	/**
+	 * The scheduled jobs that declared their families, by family. Should only be
+	 * modified from changeState
+	 * @GuardedBy("lock")
+	 */
+	private final Map<Object, Set<InternalJob>> familyIndex = new HashMap<>();
+
+	/**
+	 * The number of scheduled jobs that did not declare their families. If it
+	 * is zero, family queries are answered from the family index alone.
 	 * @GuardedBy("lock")
 	 */
-	private final HashSet<InternalJob> running;
+	private int undeclaredFamilyJobCount;
 
 	/**
 	 * Jobs that are currently yielding. Should only be modified from changeState
@@ -181,9 +205,9 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 * starts out not suspended, and becomes suspended when <code>suspend</code>
 	 * is invoked. Once suspended, no jobs will start running until <code>resume</code>
 	 * is called.
-	 * @GuardedBy("lock")
+	 * @GuardedBy("lock") for modifications
 	 */
-	private boolean suspended = false;
+	private volatile boolean suspended = false;
 
 	/**
 	 * jobs that are waiting to be run. Should only be modified from changeState
@@ -191,12 +215,44 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 */
 	private final JobQueue waiting;
 
+	/**
+	 * True if the waiting queue is not empty. Published by changeState, so
+	 * that idle workers can poll without the lock, see {@link #sleepHint()}.
+	 * @GuardedBy("lock") for modifications
+	 */
+	private volatile boolean hasWaitingJobs;
+
+	/**
+	 * The start time of the first sleeping job, or InternalJob.T_INFINITE if
+	 * there is none. Published by changeState like {@link #hasWaitingJobs}.
+	 * @GuardedBy("lock") for modifications
+	 */
+	private volatile long nextWakeTime = InternalJob.T_INFINITE;
+
 	/**
 	 * ThreadJobs that are waiting to be run. Should only be modified from changeState
 	 * @GuardedBy("lock")
 	 */
 	final JobQueue waitingThreadJobs;
 
+	/**
+	 * Index of the rules of the running jobs
+	 * @GuardedBy("lock")
+	 */
+	private final RuleIndex runningRules;
+
+	/**
+	 * Index of the rules of the jobs blocked by running jobs
+	 * @GuardedBy("lock")
+	 */
+	private final RuleIndex blockedRules;
+
+	/**
+	 * Index of the rules of the waiting ThreadJobs
+	 * @GuardedBy("lock")
+	 */
+	private final RuleIndex waitingThreadRules;
+
 	/**
 	 * Counter to record wait queue insertion order.
 	 * @GuardedBy("lock")
@@ -293,11 +349,15 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 			waiting = new JobQueue(false);
 			waitingThreadJobs = new JobQueue(false, false);
 			sleeping = new JobQueue(true);
-			running = new HashSet<>(10);
+			running = ConcurrentHashMap.newKeySet(10);
 			yielding = new HashSet<>(10);
+			runningRules = new RuleIndex(false);
+			blockedRules = new RuleIndex(false);
+			waitingThreadRules = new RuleIndex(true);
 			pool = new WorkerPool(this);
 		}
 		pool.setDaemon(JobOSGiUtils.getDefault().useDaemonThreads());
+		pool.setVirtual(JobOSGiUtils.getDefault().useVirtualThreads());
 		internalWorker = new InternalWorker(this);
 		internalWorker.setDaemon(JobOSGiUtils.getDefault().useDaemonThreads());
 		internalWorker.start();
@@ -405,6 +465,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 					case InternalJob.BLOCKED :
 						//remove this job from the linked list of blocked jobs
 						job.remove();
+						blockedRules.remove(job);
 						break;
 					case Job.WAITING :
 						try {
@@ -423,6 +484,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 					case Job.RUNNING :
 					case InternalJob.ABOUT_TO_RUN :
 						running.remove(job);
+						runningRules.remove(job);
 						//add any blocked jobs back to the wait queue
 						InternalJob blocked = job.previous();
 						job.remove();
@@ -437,12 +499,21 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 						Assert.isLegal(false, "Invalid job state: " + job + ", state: " + oldState); //$NON-NLS-1$ //$NON-NLS-2$
 				}
 				job.internalSetState(newState);
+				boolean wasListed = isListedState(oldState), isListed = isListedState(newState);
+				if (wasListed != isListed)
+					updateFamilyIndex(job, isListed);
+				//write the count once, so that readers never see a transient idle state
+				int activeDelta = (isActiveState(newState) ? 1 : 0) - (isActiveState(oldState) ? 1 : 0);
+				if (activeDelta != 0)
+					activeJobCount += activeDelta;
 				switch (newState) {
 					case Job.NONE :
 						job.setStartTime(InternalJob.T_NONE);
 						job.setWaitQueueStamp(InternalJob.T_NONE);
 						job.setRunCanceled(false);
+						break;
 					case InternalJob.BLOCKED :
+						blockedRules.add(job);
 						break;
 					case Job.WAITING :
 						waiting.enqueue(job);
@@ -460,6 +531,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 						job.setStartTime(InternalJob.T_NONE);
 						job.setWaitQueueStamp(InternalJob.T_NONE);
 						running.add(job);
+						runningRules.add(job);
 						break;
 					case InternalJob.YIELDING :
 						yielding.add(job);
@@ -468,8 +540,13 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 					default :
 						Assert.isLegal(false, "Invalid job state: " + job + ", state: " + newState); //$NON-NLS-1$ //$NON-NLS-2$
 				}
+				if (JobStats.isEnabled())
+					JobStats.changeState(job, oldState, newState, waiting);
+				if (JobEventsSupport.AVAILABLE)
+					JobEvents.changeState(job, oldState, newState);
 			}
 
+			publishQueueState();
 			InternalJobGroup jobGroup = job.getJobGroup();
 			if (jobGroup != null) {
 				jobGroup.jobStateChanged(job, oldJobState, job.getState());
@@ -481,6 +558,57 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 			pool.jobQueued();
 	}
 
+	/**
+	 * Returns whether a job in the given internal state is found by
+	 * {@link #select(Object, int)}.
+	 */
+	private static boolean isListedState(int state) {
+		return state != Job.NONE && state != InternalJob.ABOUT_TO_SCHEDULE;
+	}
+
+	/**
+	 * Adds the given job to, or removes it from, the family index.
+	 * @GuardedBy("lock")
+	 */
+	private void updateFamilyIndex(InternalJob job, boolean add) {
+		Object[] families = job.internalGetFamilies();
+		if (families == null) {
+			undeclaredFamilyJobCount += add ? 1 : -1;
+			return;
+		}
+		for (Object family : families) {
+			if (add) {
+				familyIndex.computeIfAbsent(family, f -> new LinkedHashSet<>(4)).add(job);
+			} else {
+				Set<InternalJob> members = familyIndex.get(family);
+				if (members != null && members.remove(job) && members.isEmpty())
+					familyIndex.remove(family);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the given job belongs to the given family. The declared
+	 * families of the job are used if there are any.
+	 */
+	private static boolean isMember(InternalJob job, Object family) {
+		Object[] families = job.internalGetFamilies();
+		if (families == null)
+			return job.belongsTo(family);
+		for (Object declared : families)
+			if (declared.equals(family))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns whether a job in the given internal state is counted in
+	 * {@link #activeJobCount}.
+	 */
+	private static boolean isActiveState(int state) {
+		return state == Job.WAITING || state == Job.RUNNING || state == InternalJob.ABOUT_TO_RUN;
+	}
+
 	/**
 	 * Returns a new progress monitor for this job, belonging to the given
 	 * progress group.  Returns null if it is not a valid time to set the job's group.
@@ -523,15 +651,16 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 
 	@Override
 	public Job currentJob() {
+		Worker worker = Worker.getCurrentWorker();
+		if (worker != null)
+			return worker.currentJob();
 		Thread current = Thread.currentThread();
-		if (current instanceof Worker)
-			return ((Worker) current).currentJob();
-		synchronized (lock) {
-			for (InternalJob internalJob : running) {
-				Job job = (Job) internalJob;
-				if (job.getThread() == current)
-					return job;
-			}
+		// no lock needed: a job running in this thread was added to the running
+		// set before, and is removed after, it ran in this thread
+		for (InternalJob internalJob : running) {
+			Job job = (Job) internalJob;
+			if (job.getThread() == current)
+				return job;
 		}
 		return null;
 	}
@@ -629,6 +758,8 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 			//discard any jobs that have not yet started running
 			sleeping.clear();
 			waiting.clear();
+			publishQueueState();
+			activeJobCount = running.size();
 		}
 
 		// Give running jobs a chance to finish. Wait 0.1 seconds for up to 3 times.
@@ -684,6 +815,9 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 		synchronized (lock) {
 			//discard reference to any jobs still running at this point
 			running.clear();
+			activeJobCount = 0;
+			runningRules.clear();
+			blockedRules.clear();
 		}
 
 		pool.shutdown();
@@ -755,6 +889,10 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 		synchronized (lock) {
 			if (running.isEmpty())
 				return null;
+			if (RuleIndex.isIndexable(waitingJob.getRule())) {
+				InternalJob blocking = runningRules.findConflicting(waitingJob);
+				return blocking != null ? blocking : blockedRules.findConflicting(waitingJob);
+			}
 			//check the running jobs
 			boolean hasBlockedJobs = false;
 			for (InternalJob job : running) {
@@ -787,6 +925,8 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 */
 	private InternalJob findBlockedJob(InternalJob job) {
 		synchronized (lock) {
+			if (RuleIndex.isIndexable(job.getRule()))
+				return waitingThreadRules.findConflicting(job);
 			for (InternalJob waitingJob : waitingThreadJobs) {
 				if (waitingJob.isConflicting(job)) {
 					return waitingJob;
@@ -799,12 +939,16 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	void dequeue(JobQueue queue, InternalJob job) {
 		synchronized (lock) {
 			queue.remove(job);
+			if (queue == waitingThreadJobs)
+				waitingThreadRules.remove(job);
 		}
 	}
 
 	void enqueue(JobQueue queue, InternalJob job) {
 		synchronized (lock) {
 			queue.enqueue(job);
+			if (queue == waitingThreadJobs)
+				waitingThreadRules.add(job);
 		}
 	}
 
@@ -863,16 +1007,12 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 
 	@Override
 	public boolean isIdle() {
-		synchronized (lock) {
-			return running.isEmpty() && waiting.isEmpty();
-		}
+		return activeJobCount == 0;
 	}
 
 	@Override
 	public boolean isSuspended() {
-		synchronized (lock) {
-			return suspended;
-		}
+		return suspended;
 	}
 
 	protected boolean join(InternalJob job, long timeout, IProgressMonitor monitor) throws InterruptedException {
@@ -974,7 +1114,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 					@Override
 					public void running(IJobChangeEvent event) {
 						Job job = event.getJob();
-						if (family == null || job.belongsTo(family)) {
+						if (family == null || isMember(job, family)) {
 							jobs.add(job);
 							// no notification upon increased size
 						}
@@ -990,7 +1130,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 						if (isSuspended())
 							return;
 						Job job = event.getJob();
-						if (family == null || job.belongsTo(family)) {
+						if (family == null || isMember(job, family)) {
 							jobs.add(job);
 							// no notification upon increased size
 						}
@@ -1140,6 +1280,11 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 * removed from the queue, it is moved to the running jobs list.
 	 */
 	private Job nextJob() {
+		// idle workers poll here, don't take the lock if there is nothing to do.
+		// A job that is queued concurrently may be missed, but the pool is
+		// notified after the job was queued.
+		if (suspended || (!hasWaitingJobs && nextWakeTime >= now()))
+			return null;
 		synchronized (lock) {
 			// do nothing if the job manager is suspended
 			if (suspended)
@@ -1168,6 +1313,8 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 					Assert.isTrue(job.next() == null);
 					Assert.isTrue(job.previous() == null);
 					blocker.addLast(job);
+					if (JobEventsSupport.AVAILABLE)
+						JobEvents.blocked(job, blocker);
 
 				} else if (jobGroup == null || jobGroup.getMaxThreads() == 0 || (jobGroup.getState() != JobGroup.CANCELING && jobGroup.getRunningJobsCount() < jobGroup.getMaxThreads())) {
 					break;
@@ -1224,6 +1371,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 		DEBUG_DEADLOCK = options.getBooleanOption(OPTION_DEADLOCK_ERROR, false);
 		DEBUG_LOCKS = options.getBooleanOption(OPTION_LOCKS, false);
 		DEBUG_SHUTDOWN = options.getBooleanOption(OPTION_SHUTDOWN, false);
+		JobStats.setEnabled(options.getBooleanOption(JobStats.OPTION_STATS, false));
 	}
 
 	@Override
@@ -1352,7 +1500,8 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 		InternalJob job = firstJob;
 		do {
 			//note that job state cannot be NONE at this point
-			if ((family == null || job.belongsTo(family)) && ((job.getState() & stateMask) != 0))
+			//jobs that declared their families are taken from the family index
+			if ((family == null || (job.internalGetFamilies() == null && job.belongsTo(family))) && ((job.getState() & stateMask) != 0))
 				members.add(job);
 			job = job.previous();
 		} while (job != null && job != firstJob);
@@ -1372,6 +1521,18 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	private List<InternalJob> select(Object family, int stateMask) {
 		List<InternalJob> members = new ArrayList<>();
 		synchronized (lock) {
+			if (family != null) {
+				Set<InternalJob> declared = familyIndex.get(family);
+				if (declared != null) {
+					for (InternalJob job : declared) {
+						if ((job.getState() & stateMask) != 0)
+							members.add(job);
+					}
+				}
+				//all scheduled jobs declared their families
+				if (undeclaredFamilyJobCount == 0)
+					return members;
+			}
 			if ((stateMask & Job.RUNNING) != 0) {
 				for (InternalJob internalJob : running) {
 					select(members, family, internalJob, stateMask);
@@ -1417,6 +1578,19 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 		progressProvider = provider;
 	}
 
+	public void setFamilies(InternalJob job, Object[] families) {
+		synchronized (lock) {
+			//the family index is only updated when the job is scheduled
+			Assert.isLegal(job.getState() == Job.NONE);
+			if (families != null) {
+				families = families.clone();
+				for (Object family : families)
+					Assert.isLegal(family != null, "family must not be null"); //$NON-NLS-1$
+			}
+			job.internalSetFamilies(families);
+		}
+	}
+
 	public void setRule(InternalJob job, ISchedulingRule rule) {
 		synchronized (lock) {
 			//cannot change the rule of a job that is already running
@@ -1471,18 +1645,26 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 * there are no sleeping or waiting jobs.
 	 */
 	protected long sleepHint() {
-		synchronized (lock) {
-			//wait forever if job manager is suspended
-			if (suspended)
-				return InternalJob.T_INFINITE;
-			if (!waiting.isEmpty())
-				return 0L;
-			//return the anticipated time that the next sleeping job will wake
-			InternalJob next = sleeping.peek();
-			if (next == null)
-				return InternalJob.T_INFINITE;
-			return next.getStartTime() - now();
-		}
+		//wait forever if job manager is suspended
+		if (suspended)
+			return InternalJob.T_INFINITE;
+		if (hasWaitingJobs)
+			return 0L;
+		//return the anticipated time that the next sleeping job will wake
+		long wakeTime = nextWakeTime;
+		if (wakeTime == InternalJob.T_INFINITE)
+			return InternalJob.T_INFINITE;
+		return wakeTime - now();
+	}
+
+	/**
+	 * Publishes the state of the waiting and sleeping queues for
+	 * {@link #sleepHint()} and {@link #nextJob()}.
+	 */
+	private void publishQueueState() {
+		hasWaitingJobs = !waiting.isEmpty();
+		InternalJob next = sleeping.peek();
+		nextWakeTime = next == null ? InternalJob.T_INFINITE : next.getStartTime();
 	}
 
 	/**
@@ -1673,7 +1855,9 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 
 	/**
 	 * Returns the next job to be run, or null if no jobs are waiting to run.
-	 * The worker must call endJob when the job is finished running.
+	 * The worker must call endJob when the job is finished running. This method
+	 * is called in the thread that runs the worker, which is the worker itself
+	 * unless the pool uses virtual threads.
 	 */
 	protected Job startJob(Worker worker) {
 		Job job = null;
@@ -1698,7 +1882,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 						if (shouldRun && !internal.isAboutToRunCanceled()) {
 							internal.setProgressMonitor(createMonitor(job));
 							//change from ABOUT_TO_RUN to RUNNING
-							internal.setThread(worker);
+							internal.setThread(Thread.currentThread());
 							internal.internalSetState(Job.RUNNING);
 							internal.jobStateLock.notifyAll();
 							break;
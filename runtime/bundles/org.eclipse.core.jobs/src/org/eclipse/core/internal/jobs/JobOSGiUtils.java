@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2017 IBM Corporation and others.
+ * Copyright (c) 2005, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -32,6 +32,12 @@ import org.osgi.framework.*;
 class JobOSGiUtils {
 	private ServiceRegistration<DebugOptionsListener> debugRegistration = null;
 
+	/**
+	 * A system property key indicating whether the job manager should run jobs
+	 * in virtual threads instead of platform worker threads.
+	 */
+	static final String PROP_USE_VIRTUAL_THREADS = "eclipse.jobs.virtualThreads"; //$NON-NLS-1$
+
 	private static final JobOSGiUtils singleton = new JobOSGiUtils();
 
 	/**
@@ -108,4 +114,18 @@ class JobOSGiUtils {
 			return false;
 		return "true".equalsIgnoreCase(value); //$NON-NLS-1$
 	}
+
+	/**
+	 * Calculates whether the job plugin should run jobs in virtual threads. This
+	 * is only enabled if the {@link #PROP_USE_VIRTUAL_THREADS} property is set to
+	 * <code>true</code>, and has no effect if the Java runtime does not support
+	 * virtual threads.
+	 * @return <code>true</code> if workers should be virtual threads, and
+	 * <code>false</code> otherwise.
+	 */
+	boolean useVirtualThreads() {
+		BundleContext context = JobActivator.getContext();
+		String value = context == null ? System.getProperty(PROP_USE_VIRTUAL_THREADS) : context.getProperty(PROP_USE_VIRTUAL_THREADS);
+		return "true".equalsIgnoreCase(value); //$NON-NLS-1$
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2003, 2012 IBM Corporation and others.
+ *  Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,14 @@ import org.eclipse.core.runtime.*;
 
 /**
  * A linked list based priority queue.
+ * <p>
+ * The linked list defines the order of the queue. In addition the entries are
+ * kept in a randomized balanced tree over the same sequence whose nodes know the
+ * smallest start time, the smallest wait queue stamp and the number of rules in
+ * their subtree. This allows {@link #enqueue(InternalJob)} to skip whole runs of
+ * entries that the new entry overtakes, instead of walking the list entry by
+ * entry, while keeping exactly the order of the plain linked list.
+ * </p>
  */
 public final class JobQueue implements Iterable<InternalJob> {
 	/**
@@ -35,6 +43,36 @@ public final class JobQueue implements Iterable<InternalJob> {
 
 	private final boolean allowPriorityOvertaking;
 
+	/**
+	 * The root of the tree over the entries of this queue, in list order from
+	 * head to tail.
+	 */
+	private Node root;
+
+	/**
+	 * State of the pseudo random generator for the tree priorities.
+	 */
+	private int seed = 0x2545F491;
+
+	/**
+	 * The tree node of a queued job. A job keeps its node when it leaves the
+	 * queue, so that re-queueing it does not allocate.
+	 */
+	static final class Node {
+		final InternalJob job;
+		JobQueue queue;
+		Node left, right, parent;
+		int priority;
+		// the values of the job when it was enqueued, and the aggregates of the subtree
+		long start, stamp, minStart, minStamp;
+		boolean hasRule;
+		int size, ruleCount;
+
+		Node(InternalJob job) {
+			this.job = job;
+		}
+	}
+
 	/**
 	 * Create a new job queue.
 	 */
@@ -63,6 +101,12 @@ public final class JobQueue implements Iterable<InternalJob> {
 	 * remove all elements
 	 */
 	public void clear() {
+		for (InternalJob entry = dummy.previous(); entry != dummy; entry = entry.previous()) {
+			Node node = entry.queueNode;
+			if (node != null && node.queue == this)
+				node.queue = null;
+		}
+		root = null;
 		dummy.setNext(dummy);
 		dummy.setPrevious(dummy);
 	}
@@ -74,6 +118,7 @@ public final class JobQueue implements Iterable<InternalJob> {
 		InternalJob toRemove = dummy.previous();
 		if (toRemove == dummy)
 			return null;
+		removeNode(toRemove);
 		return toRemove.remove();
 	}
 
@@ -84,10 +129,11 @@ public final class JobQueue implements Iterable<InternalJob> {
 		//assert new entry is does not already belong to some other data structure
 		Assert.isTrue(newEntry.next() == null);
 		Assert.isTrue(newEntry.previous() == null);
-		InternalJob tail = dummy.next();
-		//overtake lower priority jobs. Only overtake conflicting jobs if allowed to
-		while (canOvertake(newEntry, tail))
-			tail = tail.next();
+		//overtake lower priority jobs. Only overtake conflicting jobs if allowed to.
+		//The entry is inserted behind the last entry, counted from the head, it cannot overtake
+		Node last = lastNotOvertaken(root, newEntry);
+		InternalJob tail = last == null ? dummy : last.job;
+		insertNode(newEntry, last == null ? 0 : rank(last) + 1);
 		//new entry is smaller than tail
 		final InternalJob tailPrevious = tail.previous();
 		newEntry.setNext(tail);
@@ -115,10 +161,162 @@ public final class JobQueue implements Iterable<InternalJob> {
 		return allowConflictOvertaking || !newEntry.isConflicting(queueEntry);
 	}
 
+	/**
+	 * Returns whether the new entry can overtake all entries in the given
+	 * subtree, based on the aggregates of the subtree. A <code>false</code>
+	 * result means that the entries have to be looked at one by one.
+	 */
+	private boolean canOvertakeAll(InternalJob newEntry, Node subtree) {
+		long newStamp = newEntry.getWaitQueueStamp();
+		if (newStamp > 0 && newStamp < subtree.minStamp)
+			return true;
+		if (allowPriorityOvertaking && subtree.minStart <= newEntry.getStartTime())
+			return false;
+		return allowConflictOvertaking || subtree.ruleCount == 0 || newEntry.getRule() == null;
+	}
+
+	/**
+	 * Returns the node of the last entry in the given subtree, counted from the
+	 * head of the queue, that the new entry cannot overtake, or <code>null</code>
+	 * if it can overtake all of them.
+	 */
+	private Node lastNotOvertaken(Node subtree, InternalJob newEntry) {
+		if (subtree == null || canOvertakeAll(newEntry, subtree))
+			return null;
+		Node result = lastNotOvertaken(subtree.right, newEntry);
+		if (result != null)
+			return result;
+		if (!canOvertake(newEntry, subtree.job))
+			return subtree;
+		return lastNotOvertaken(subtree.left, newEntry);
+	}
+
+	/**
+	 * Inserts the given entry into the tree at the given position, counted from
+	 * the head of the queue.
+	 */
+	private void insertNode(InternalJob entry, int index) {
+		Node node = entry.queueNode;
+		if (node == null)
+			node = entry.queueNode = new Node(entry);
+		node.queue = this;
+		node.left = node.right = node.parent = null;
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		node.priority = seed;
+		node.start = entry.getStartTime();
+		node.stamp = entry.getWaitQueueStamp();
+		node.hasRule = entry.getRule() != null;
+		update(node);
+		Node[] parts = split(root, index);
+		setRoot(merge(merge(parts[0], node), parts[1]));
+	}
+
+	/**
+	 * Removes the given entry from the tree, if it belongs to this queue.
+	 */
+	private void removeNode(InternalJob entry) {
+		Node node = entry.queueNode;
+		if (node == null || node.queue != this)
+			return;
+		Node[] parts = split(root, rank(node));
+		Node[] rest = split(parts[1], 1);
+		setRoot(merge(parts[0], rest[1]));
+		node.queue = null;
+		node.left = node.right = node.parent = null;
+	}
+
+	/**
+	 * Returns the position of the given node, counted from the head of the queue.
+	 */
+	private static int rank(Node node) {
+		int rank = size(node.left);
+		for (Node parent = node.parent; parent != null; node = parent, parent = parent.parent) {
+			if (node == parent.right)
+				rank += size(parent.left) + 1;
+		}
+		return rank;
+	}
+
+	private static int size(Node node) {
+		return node == null ? 0 : node.size;
+	}
+
+	/**
+	 * Recomputes the aggregates of the given node from its children.
+	 */
+	private static void update(Node node) {
+		Node left = node.left, right = node.right;
+		node.size = 1;
+		node.minStart = node.start;
+		node.minStamp = node.stamp;
+		node.ruleCount = node.hasRule ? 1 : 0;
+		if (left != null) {
+			left.parent = node;
+			node.size += left.size;
+			node.minStart = Math.min(node.minStart, left.minStart);
+			node.minStamp = Math.min(node.minStamp, left.minStamp);
+			node.ruleCount += left.ruleCount;
+		}
+		if (right != null) {
+			right.parent = node;
+			node.size += right.size;
+			node.minStart = Math.min(node.minStart, right.minStart);
+			node.minStamp = Math.min(node.minStamp, right.minStamp);
+			node.ruleCount += right.ruleCount;
+		}
+	}
+
+	private void setRoot(Node node) {
+		root = node;
+		if (node != null)
+			node.parent = null;
+	}
+
+	/**
+	 * Splits the given tree into the first <code>count</code> nodes and the rest.
+	 */
+	private static Node[] split(Node tree, int count) {
+		if (tree == null)
+			return new Node[2];
+		Node[] result;
+		if (size(tree.left) < count) {
+			result = split(tree.right, count - size(tree.left) - 1);
+			tree.right = result[0];
+			result[0] = tree;
+		} else {
+			result = split(tree.left, count);
+			tree.left = result[1];
+			result[1] = tree;
+		}
+		update(tree);
+		return result;
+	}
+
+	/**
+	 * Concatenates the given trees.
+	 */
+	private static Node merge(Node first, Node second) {
+		if (first == null)
+			return second;
+		if (second == null)
+			return first;
+		if (first.priority > second.priority) {
+			first.right = merge(first.right, second);
+			update(first);
+			return first;
+		}
+		second.left = merge(first, second.left);
+		update(second);
+		return second;
+	}
+
 	/**
 	 * Removes the given element from the queue.
 	 */
 	public void remove(InternalJob toRemove) {
+		removeNode(toRemove);
 		toRemove.remove();
 		//previous of toRemove might now bubble up
 	}
@@ -139,6 +337,13 @@ public final class JobQueue implements Iterable<InternalJob> {
 		return dummy.next() == dummy;
 	}
 
+	/**
+	 * Returns the number of entries in the queue.
+	 */
+	public int size() {
+		return size(root);
+	}
+
 	/**
 	 * Return greatest element without removing it, or null if empty
 	 */
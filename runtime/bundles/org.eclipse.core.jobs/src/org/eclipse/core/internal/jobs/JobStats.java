@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.jobs;
+
+import java.io.PrintWriter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Collects scheduling statistics of the jobs of one class: how long the jobs
+ * waited between being scheduled and starting to run, how long of that time
+ * they were blocked by jobs with conflicting scheduling rules, how often they
+ * were blocked, and how long they ran. In addition, the depth of the wait queue
+ * is sampled whenever a job starts waiting.
+ * <p>
+ * Statistics are only collected while enabled, either through the
+ * {@link #OPTION_STATS} debug option or through {@link #setEnabled(boolean)}.
+ * When disabled, the job manager only checks a static flag.
+ * </p>
+ */
+public class JobStats {
+	/**
+	 * The debug option that enables collecting job statistics.
+	 */
+	public static final String OPTION_STATS = JobManager.PI_JOBS + "/perf/stats"; //$NON-NLS-1$
+
+	/**
+	 * A histogram of values with buckets for powers of two. Bucket <code>i</code>
+	 * counts the values <code>v</code> with <code>2^(i-1) &lt;= v &lt; 2^i</code>,
+	 * bucket 0 counts the values less than 1.
+	 */
+	public static final class Histogram {
+		private final long[] buckets = new long[Long.SIZE + 1];
+		private long count;
+		private long total;
+		private long max;
+
+		synchronized void add(long value) {
+			value = Math.max(value, 0);
+			buckets[Long.SIZE - Long.numberOfLeadingZeros(value)]++;
+			count++;
+			total += value;
+			max = Math.max(max, value);
+		}
+
+		/**
+		 * Returns the number of recorded values.
+		 */
+		public synchronized long getCount() {
+			return count;
+		}
+
+		/**
+		 * Returns the sum of the recorded values.
+		 */
+		public synchronized long getTotal() {
+			return total;
+		}
+
+		/**
+		 * Returns the largest recorded value, or 0 if there are none.
+		 */
+		public synchronized long getMax() {
+			return max;
+		}
+
+		/**
+		 * Returns the number of recorded values in the given bucket.
+		 */
+		public synchronized long getBucketCount(int bucket) {
+			return buckets[bucket];
+		}
+
+		/**
+		 * Returns an upper bound of the given quantile of the recorded values,
+		 * that is the upper end of the bucket the quantile falls into.
+		 */
+		public synchronized long getQuantile(double quantile) {
+			long rank = (long) Math.ceil(quantile * count);
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= rank && seen > 0)
+					return Math.min(i == Long.SIZE ? Long.MAX_VALUE : 1L << i, max);
+			}
+			return 0;
+		}
+
+		@Override
+		public synchronized String toString() {
+			if (count == 0)
+				return "count=0"; //$NON-NLS-1$
+			return "count=" + count + " avg=" + (total / count) + " p50<=" + getQuantile(0.5) + " p90<=" + getQuantile(0.9) + " p99<=" + getQuantile(0.99) + " max=" + max; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		}
+	}
+
+	/**
+	 * The timestamps of a job while it moves through the job manager, in
+	 * nanoseconds.
+	 * @GuardedBy("JobManager.lock")
+	 */
+	static final class Timing {
+		long waitStart;
+		long blockStart;
+		long blocked;
+		long runStart;
+		int conflicts;
+	}
+
+	private static volatile boolean enabled;
+
+	private static final Map<String, JobStats> stats = new ConcurrentHashMap<>();
+
+	/**
+	 * The depth of the wait queue, sampled when a job starts waiting.
+	 */
+	private static final Histogram queueDepth = new Histogram();
+
+	private final String jobClass;
+	private final Histogram queueWait = new Histogram();
+	private final Histogram blockedTime = new Histogram();
+	private final Histogram runTime = new Histogram();
+	private final Histogram conflicts = new Histogram();
+
+	private JobStats(String jobClass) {
+		this.jobClass = jobClass;
+	}
+
+	/**
+	 * Returns whether job statistics are collected.
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Starts or stops collecting job statistics. Statistics collected so far are
+	 * kept until {@link #clear()} is called.
+	 */
+	public static void setEnabled(boolean value) {
+		enabled = value;
+	}
+
+	/**
+	 * Discards all statistics collected so far.
+	 */
+	public static void clear() {
+		stats.clear();
+		synchronized (queueDepth) {
+			Arrays.fill(queueDepth.buckets, 0);
+			queueDepth.count = queueDepth.total = queueDepth.max = 0;
+		}
+	}
+
+	/**
+	 * Returns the statistics of all job classes, sorted by class name.
+	 */
+	public static JobStats[] getAllStats() {
+		JobStats[] result = stats.values().toArray(new JobStats[0]);
+		Arrays.sort(result, Comparator.comparing(JobStats::getJobClass));
+		return result;
+	}
+
+	/**
+	 * Returns the statistics of the jobs of the given class, or <code>null</code>
+	 * if no such job was recorded.
+	 */
+	public static JobStats getStats(Class<? extends Job> jobClass) {
+		return stats.get(jobClass.getName());
+	}
+
+	/**
+	 * Returns the sampled depths of the wait queue.
+	 */
+	public static Histogram getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * Prints the statistics of all job classes to the given writer. Times are
+	 * printed in microseconds.
+	 */
+	public static void printStats(PrintWriter out) {
+		out.println("Wait queue depth: " + queueDepth); //$NON-NLS-1$
+		for (JobStats jobStats : getAllStats()) {
+			out.println(jobStats.jobClass);
+			out.println("\tqueue wait (us): " + jobStats.queueWait); //$NON-NLS-1$
+			out.println("\tblocked (us): " + jobStats.blockedTime); //$NON-NLS-1$
+			out.println("\tconflicts per run: " + jobStats.conflicts); //$NON-NLS-1$
+			out.println("\trun (us): " + jobStats.runTime); //$NON-NLS-1$
+		}
+		out.flush();
+	}
+
+	/**
+	 * Records that the given job changed from the old to the new state. Called
+	 * by the job manager after the job was moved to the queue of the new state.
+	 * @GuardedBy("JobManager.lock")
+	 */
+	static void changeState(InternalJob job, int oldState, int newState, JobQueue waiting) {
+		Timing timing = job.timing;
+		if (timing == null)
+			timing = job.timing = new Timing();
+		long now = System.nanoTime();
+		if (oldState == InternalJob.BLOCKED && newState != InternalJob.BLOCKED)
+			timing.blocked += now - timing.blockStart;
+		switch (newState) {
+			case Job.WAITING :
+				if (timing.waitStart == 0)
+					timing.waitStart = now;
+				queueDepth.add(waiting.size());
+				break;
+			case InternalJob.BLOCKED :
+				timing.blockStart = now;
+				timing.conflicts++;
+				break;
+			case Job.RUNNING :
+			case InternalJob.ABOUT_TO_RUN :
+				if (timing.waitStart != 0) {
+					JobStats jobStats = get(job);
+					jobStats.queueWait.add((now - timing.waitStart) / 1000);
+					jobStats.blockedTime.add(timing.blocked / 1000);
+					jobStats.conflicts.add(timing.conflicts);
+				}
+				if (timing.runStart == 0)
+					timing.runStart = now;
+				timing.waitStart = timing.blocked = 0;
+				timing.conflicts = 0;
+				break;
+			case Job.NONE :
+				if (timing.runStart != 0)
+					get(job).runTime.add((now - timing.runStart) / 1000);
+				timing.waitStart = timing.blocked = timing.runStart = 0;
+				timing.conflicts = 0;
+				break;
+			default :
+				break;
+		}
+	}
+
+	private static JobStats get(InternalJob job) {
+		return stats.computeIfAbsent(job.getClass().getName(), JobStats::new);
+	}
+
+	/**
+	 * Returns the name of the class of the jobs of these statistics.
+	 */
+	public String getJobClass() {
+		return jobClass;
+	}
+
+	/**
+	 * Returns the times in microseconds the jobs waited between being scheduled
+	 * and starting to run, including the time they were blocked.
+	 */
+	public Histogram getQueueWait() {
+		return queueWait;
+	}
+
+	/**
+	 * Returns the times in microseconds the jobs were blocked by jobs with
+	 * conflicting scheduling rules before they could run.
+	 */
+	public Histogram getBlockedTime() {
+		return blockedTime;
+	}
+
+	/**
+	 * Returns how often the jobs were blocked by a job with a conflicting
+	 * scheduling rule before they could run.
+	 */
+	public Histogram getConflicts() {
+		return conflicts;
+	}
+
+	/**
+	 * Returns the times in microseconds the jobs ran.
+	 */
+	public Histogram getRunTime() {
+		return runTime;
+	}
+
+	@Override
+	public String toString() {
+		return "JobStats(" + jobClass + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2003, 2014 IBM Corporation and others.
+ *  Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,7 @@
 package org.eclipse.core.internal.jobs;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.core.internal.runtime.RuntimeLog;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
@@ -23,6 +24,8 @@ import org.eclipse.core.runtime.jobs.LockListener;
  * Stores the only reference to the graph that contains all the known
  * relationships between locks, rules, and the threads that own them.
  * Synchronizes all access to the graph on the only instance that exists in this class.
+ * Ordered locks only report to the graph once a thread has to wait for them, so
+ * acquiring and releasing a lock without contention does not touch the graph.
  *
  * Also stores the state of suspended locks so that they can be re-acquired with
  * the proper lock depth.
@@ -79,6 +82,13 @@ public class LockManager {
 	 * it can cause deadlock, and some locks it owns can be suspended again)
 	 */
 	private final Map<Thread, Deque<LockState[]>> suspendedLocks = new HashMap<>();
+	/*
+	 * The ordered locks owned by each thread. Ordered locks that are acquired
+	 * without contention are not recorded in the graph until a thread waits for
+	 * them or for a lock or rule while owning them. The sets are updated by
+	 * other threads when locks are suspended.
+	 */
+	private final ThreadLocal<Set<OrderedLock>> ownedLocks = ThreadLocal.withInitial(() -> ConcurrentHashMap.newKeySet(4));
 
 	public void aboutToRelease() {
 		if (lockListener == null)
@@ -134,11 +144,15 @@ public class LockManager {
 
 	/**
 	 * This thread has just been refused a lock.  Update graph and check for deadlock.
+	 * The given thread must be the current thread.
 	 */
 	void addLockWaitThread(Thread thread, ISchedulingRule lock) {
 		DeadlockDetector tempLocks = locks;
 		if (tempLocks == null)
 			return;
+		//all locks of a waiting thread have to be in the graph to find and resolve deadlocks
+		for (OrderedLock owned : ownedLocks.get())
+			owned.track();
 		try {
 			Deadlock found = null;
 			synchronized (tempLocks) {
@@ -174,6 +188,13 @@ public class LockManager {
 		return new Exception(debugString, rootException);
 	}
 
+	/**
+	 * Returns the ordered locks owned by the current thread.
+	 */
+	Set<OrderedLock> getOwnedLocks() {
+		return ownedLocks.get();
+	}
+
 	/**
 	 * Handles exceptions that occur while calling third party code from within the
 	 * LockManager. This is essentially an in-lined version of Platform.run(ISafeRunnable)
@@ -219,8 +240,9 @@ public class LockManager {
 	public boolean isLockOwner() {
 		//all job threads have to be treated as lock owners because UI thread
 		//may try to join a job
-		Thread current = Thread.currentThread();
-		if (current instanceof Worker)
+		if (Worker.getCurrentWorker() != null)
+			return true;
+		if (!ownedLocks.get().isEmpty())
 			return true;
 		DeadlockDetector tempLocks = locks;
 		if (tempLocks == null)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2012 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,8 +14,7 @@
  *******************************************************************************/
 package org.eclipse.core.internal.jobs;
 
-import java.util.ArrayDeque;
-import java.util.Queue;
+import java.util.*;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.jobs.ILock;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
@@ -37,6 +36,24 @@ import org.eclipse.core.runtime.jobs.ISchedulingRule;
  * lock in the same order in which acquire() requests arrive. In
  * this scheme, starvation is only possible if a thread retains
  * a lock indefinitely.
+ *
+ * If jobs run in virtual threads, the following paths pin the virtual thread
+ * to its carrier thread, because they block in an object monitor:
+ * <ul>
+ * <li>waiting in {@link #acquire(long)} for a lock owned by another thread,
+ * which waits in {@link Semaphore#acquire(long)}, including waiting for the
+ * locks to be given back after a deadlock was resolved,</li>
+ * <li>waiting in {@link ThreadJob} for a conflicting job to release a
+ * scheduling rule, and joining a job or job family, which wait on the state
+ * locks of the job manager.</li>
+ * </ul>
+ * The synchronized methods of this class and of the {@link LockManager} only
+ * guard short updates of the lock state and do not block.
+ *
+ * The deadlock detector of the {@link LockManager} only learns about a lock
+ * once a thread has to wait for it, or the thread that owns it has to wait for
+ * another lock. Until then, acquiring and releasing the lock only updates the
+ * state of the lock itself and the set of locks owned by the thread.
  */
 public class OrderedLock implements ILock, ISchedulingRule {
 
@@ -60,6 +77,19 @@ public class OrderedLock implements ILock, ISchedulingRule {
 	 */
 	private final LockManager manager;
 	private final int number;
+	/**
+	 * Whether the acquires of this lock are recorded in the deadlock detector.
+	 * A lock is tracked from the time a thread has to wait for it until it is
+	 * released while no other thread is waiting for it.
+	 * @GuardedBy("this")
+	 */
+	private boolean tracked;
+	/**
+	 * The owned locks of the thread that owns this lock, or <code>null</code> if
+	 * the lock is not owned.
+	 * @GuardedBy("this")
+	 */
+	private Set<OrderedLock> ownerLocks;
 
 	/**
 	 * Queue of semaphores for threads currently waiting
@@ -122,11 +152,18 @@ public class OrderedLock implements ILock, ISchedulingRule {
 	 * true if the lock has been successfully acquired.
 	 */
 	private synchronized boolean attempt() {
+		final Thread currentThread = Thread.currentThread();
 		//return true if we already own the lock
+		if (currentOperationThread == currentThread) {
+			depth++;
+			if (tracked)
+				manager.addLockThread(currentThread, this);
+			return true;
+		}
 		//also, if nobody is waiting, grant the lock immediately
-		if ((currentOperationThread == Thread.currentThread()) || (currentOperationThread == null && operations.isEmpty())) {
+		if (currentOperationThread == null && operations.isEmpty()) {
 			depth++;
-			setCurrentOperationThread(Thread.currentThread());
+			setCurrentOperationThread(currentThread);
 			return true;
 		}
 		return false;
@@ -143,7 +180,10 @@ public class OrderedLock implements ILock, ISchedulingRule {
 	 * otherwise a new semaphore will be created, enqueued, and returned.
 	 */
 	private synchronized Semaphore createSemaphore() {
-		return attempt() ? null : enqueue(new Semaphore(Thread.currentThread()));
+		if (attempt())
+			return null;
+		track();
+		return enqueue(new Semaphore(Thread.currentThread()));
 	}
 
 	/**
@@ -155,11 +195,7 @@ public class OrderedLock implements ILock, ISchedulingRule {
 		//notify hook to service pending syncExecs before falling asleep
 		if (manager.aboutToWait(this.currentOperationThread)) {
 			//hook granted immediate access
-			//remove semaphore for the lock request from the queue
-			//do not log in graph because this thread did not really get the lock
-			removeFromQueue(semaphore);
-			depth++;
-			manager.addLockThread(currentOperationThread, this);
+			grantToOwner(semaphore);
 			return true;
 		}
 		//Make sure the semaphore is in the queue before we start waiting
@@ -193,6 +229,9 @@ public class OrderedLock implements ILock, ISchedulingRule {
 		setCurrentOperationThread(null);
 		if (next != null)
 			next.release();
+		else
+			//nobody is waiting, so the detector does not need to know about this lock
+			tracked = false;
 	}
 
 	/**
@@ -228,15 +267,28 @@ public class OrderedLock implements ILock, ISchedulingRule {
 		return rule == this;
 	}
 
+	/**
+	 * The hook granted the lock to the thread that owns it, while the given
+	 * semaphore was waiting for it. Remove the semaphore for the lock request
+	 * from the queue.
+	 */
+	private synchronized void grantToOwner(Semaphore semaphore) {
+		//do not log in graph because this thread did not really get the lock
+		removeFromQueue(semaphore);
+		depth++;
+		if (tracked)
+			manager.addLockThread(currentOperationThread, this);
+	}
+
 	@Override
-	public void release() {
+	public synchronized void release() {
 		if (depth == 0)
 			return;
 		//only release the lock when the depth reaches zero
 		Assert.isTrue(depth >= 0, "Lock released too many times"); //$NON-NLS-1$
 		if (--depth == 0)
 			doRelease();
-		else
+		else if (tracked)
 			manager.removeLockThread(currentOperationThread, this);
 	}
 
@@ -254,24 +306,51 @@ public class OrderedLock implements ILock, ISchedulingRule {
 	 * If newThread is not null, grant this lock to newThread.
 	 */
 	private void setCurrentOperationThread(Thread newThread) {
-		if ((currentOperationThread != null) && (newThread == null))
-			manager.removeLockThread(currentOperationThread, this);
+		if ((currentOperationThread != null) && (newThread == null)) {
+			if (tracked)
+				manager.removeLockThread(currentOperationThread, this);
+			ownerLocks.remove(this);
+			ownerLocks = null;
+		}
 		this.currentOperationThread = newThread;
-		if (currentOperationThread != null)
-			manager.addLockThread(currentOperationThread, this);
+		if (currentOperationThread != null) {
+			if (tracked)
+				manager.addLockThread(currentOperationThread, this);
+			//the new owner is always the current thread
+			ownerLocks = manager.getOwnedLocks();
+			ownerLocks.add(this);
+		}
 	}
 
 	/**
 	 * Forces the lock to be at the given depth.
 	 * Used when re-acquiring a suspended lock.
 	 */
-	protected void setDepth(int newDepth) {
-		for (int i = depth; i < newDepth; i++) {
-			manager.addLockThread(currentOperationThread, this);
+	protected synchronized void setDepth(int newDepth) {
+		if (tracked) {
+			for (int i = depth; i < newDepth; i++) {
+				manager.addLockThread(currentOperationThread, this);
+			}
 		}
 		this.depth = newDepth;
 	}
 
+	/**
+	 * A thread is about to wait for this lock, or the thread that owns this lock
+	 * is about to wait for another lock or rule. Records the acquires of the
+	 * thread that owns this lock in the deadlock detector, if they are not
+	 * recorded yet.
+	 */
+	synchronized void track() {
+		if (tracked)
+			return;
+		tracked = true;
+		if (currentOperationThread != null) {
+			for (int i = 0; i < depth; i++)
+				manager.addLockThread(currentOperationThread, this);
+		}
+	}
+
 	/**
 	 * For debugging purposes only.
 	 */
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.jobs;
+
+import java.util.*;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.jobs.*;
+
+/**
+ * An index of the scheduling rules of a set of jobs. Jobs whose rules are
+ * {@link IHierarchicalRule}s, or multi rules consisting of those only, are kept
+ * in a trie per hierarchy, so that a conflicting job is found in time
+ * proportional to the depth of the rule. All other jobs are compared one by one.
+ * @GuardedBy("JobManager.lock")
+ */
+final class RuleIndex {
+	/**
+	 * A node of the trie of one hierarchy.
+	 */
+	private static final class Node {
+		final Node parent;
+		final String segment;
+		Map<String, Node> children;
+		/**
+		 * The jobs that hold a rule with exactly the path of this node
+		 */
+		List<InternalJob> jobs;
+		/**
+		 * The number of rules in the subtree of this node
+		 */
+		int count;
+
+		Node(Node parent, String segment) {
+			this.parent = parent;
+			this.segment = segment;
+		}
+	}
+
+	/**
+	 * If true, this is an index of waiting jobs. The conflicting job that waits
+	 * longest, i.e. the one with the smallest wait queue stamp, is returned instead
+	 * of any conflicting job.
+	 */
+	private final boolean waitingJobs;
+
+	private final Map<Object, Node> roots = new HashMap<>();
+
+	/**
+	 * The rules the indexed jobs had when they were added
+	 */
+	private final Map<InternalJob, ISchedulingRule> indexed = new HashMap<>();
+
+	/**
+	 * The jobs whose rules cannot be indexed
+	 */
+	private final Set<InternalJob> unindexed = new LinkedHashSet<>();
+
+	RuleIndex(boolean waitingJobs) {
+		this.waitingJobs = waitingJobs;
+	}
+
+	/**
+	 * Returns whether conflicts of the given rule can be looked up in the index.
+	 */
+	static boolean isIndexable(ISchedulingRule rule) {
+		if (rule instanceof IHierarchicalRule)
+			return true;
+		if (rule == null || rule.getClass() != MultiRule.class)
+			return false;
+		for (ISchedulingRule child : ((MultiRule) rule).getChildren())
+			if (!(child instanceof IHierarchicalRule))
+				return false;
+		return true;
+	}
+
+	private static ISchedulingRule[] getChildren(ISchedulingRule rule) {
+		if (rule instanceof MultiRule)
+			return ((MultiRule) rule).getChildren();
+		return new ISchedulingRule[] {rule};
+	}
+
+	/**
+	 * Adds the given job to the index. Jobs without a rule are ignored.
+	 */
+	void add(InternalJob job) {
+		ISchedulingRule rule = job.getRule();
+		if (rule == null)
+			return;
+		if (!isIndexable(rule)) {
+			unindexed.add(job);
+			return;
+		}
+		if (indexed.putIfAbsent(job, rule) != null)
+			return;
+		for (ISchedulingRule child : getChildren(rule)) {
+			IHierarchicalRule hierarchical = (IHierarchicalRule) child;
+			Node node = roots.computeIfAbsent(hierarchical.getHierarchy(), h -> new Node(null, null));
+			node.count++;
+			IPath path = hierarchical.getHierarchyPath();
+			for (int i = 0, segmentCount = path.segmentCount(); i < segmentCount; i++) {
+				if (node.children == null)
+					node.children = new HashMap<>(4);
+				Node parent = node;
+				node = node.children.computeIfAbsent(path.segment(i), s -> new Node(parent, s));
+				node.count++;
+			}
+			if (node.jobs == null)
+				node.jobs = new ArrayList<>(2);
+			node.jobs.add(job);
+		}
+	}
+
+	/**
+	 * Removes the given job from the index, if it was added before.
+	 */
+	void remove(InternalJob job) {
+		if (unindexed.remove(job))
+			return;
+		ISchedulingRule rule = indexed.remove(job);
+		if (rule == null)
+			return;
+		for (ISchedulingRule child : getChildren(rule)) {
+			IHierarchicalRule hierarchical = (IHierarchicalRule) child;
+			Object hierarchy = hierarchical.getHierarchy();
+			Node node = find(roots.get(hierarchy), hierarchical.getHierarchyPath());
+			node.jobs.remove(job);
+			//decrement the counts up to the root and prune empty subtrees
+			for (; node != null; node = node.parent) {
+				if (--node.count > 0)
+					continue;
+				if (node.parent == null)
+					roots.remove(hierarchy);
+				else
+					node.parent.children.remove(node.segment);
+			}
+		}
+	}
+
+	void clear() {
+		roots.clear();
+		indexed.clear();
+		unindexed.clear();
+	}
+
+	/**
+	 * Returns the node with the given path below the given node, or null.
+	 */
+	private static Node find(Node node, IPath path) {
+		for (int i = 0, segmentCount = path.segmentCount(); node != null && i < segmentCount; i++)
+			node = node.children == null ? null : node.children.get(path.segment(i));
+		return node;
+	}
+
+	/**
+	 * Returns a job of this index whose rule conflicts with the rule of the given
+	 * job, or <code>null</code> if there is none. The rule of the given job must
+	 * be indexable.
+	 */
+	InternalJob findConflicting(InternalJob job) {
+		InternalJob result = null;
+		for (ISchedulingRule child : getChildren(job.getRule())) {
+			result = findConflicting((IHierarchicalRule) child, result);
+			if (result != null && !waitingJobs)
+				return result;
+		}
+		for (InternalJob candidate : unindexed) {
+			//ask the same rule as a linear search over the jobs would
+			if (waitingJobs ? candidate.isConflicting(job) : job.isConflicting(candidate)) {
+				if (!waitingJobs)
+					return candidate;
+				result = older(result, candidate);
+			}
+		}
+		return result;
+	}
+
+	private InternalJob findConflicting(IHierarchicalRule rule, InternalJob result) {
+		Node node = roots.get(rule.getHierarchy());
+		IPath path = rule.getHierarchyPath();
+		//rules of the ancestors and of the node itself
+		for (int i = 0, segmentCount = path.segmentCount(); node != null; i++) {
+			result = select(node.jobs, result);
+			if (result != null && !waitingJobs)
+				return result;
+			if (i == segmentCount)
+				break;
+			node = node.children == null ? null : node.children.get(path.segment(i));
+		}
+		if (node == null || node.children == null)
+			return result;
+		//rules of the descendants
+		Deque<Node> pending = new ArrayDeque<>(node.children.values());
+		while (!pending.isEmpty()) {
+			Node descendant = pending.pop();
+			result = select(descendant.jobs, result);
+			if (result != null && !waitingJobs)
+				return result;
+			if (descendant.children != null)
+				pending.addAll(descendant.children.values());
+		}
+		return result;
+	}
+
+	private InternalJob select(List<InternalJob> jobs, InternalJob result) {
+		if (jobs == null)
+			return result;
+		for (InternalJob candidate : jobs) {
+			if (!waitingJobs)
+				return candidate;
+			result = older(result, candidate);
+		}
+		return result;
+	}
+
+	private static InternalJob older(InternalJob job, InternalJob other) {
+		if (job == null || other.getWaitQueueStamp() < job.getWaitQueueStamp())
+			return other;
+		return job;
+	}
+}
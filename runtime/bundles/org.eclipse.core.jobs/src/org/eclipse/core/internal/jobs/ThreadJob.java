@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2012 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -85,6 +85,8 @@ class ThreadJob extends Job {
 		ruleStack = new ISchedulingRule[2];
 		top = -1;
 		((InternalJob) this).internalSetRule(rule);
+		// implicit jobs belong to no family, declaring this keeps them out of family scans
+		((InternalJob) this).internalSetFamilies(new Object[0]);
 	}
 
 	boolean isResumingAfterYield() {
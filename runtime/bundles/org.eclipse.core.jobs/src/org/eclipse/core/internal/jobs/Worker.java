@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2003, 2014 IBM Corporation and others.
+ *  Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -22,10 +22,18 @@ import org.eclipse.osgi.util.NLS;
 /**
  * A worker thread processes jobs supplied to it by the worker pool.  When
  * the worker pool gives it a null job, the worker dies.
+ * <p>
+ * If the pool uses virtual threads, the worker itself is never started. It is
+ * run by a virtual thread instead, see {@link #getCurrentWorker()}.
+ * </p>
  */
 public class Worker extends Thread {
 	// worker number used for debugging purposes only
 	private static int nextWorkerNumber = 0;
+	/**
+	 * The worker run by the current virtual thread, if any.
+	 */
+	private static final ThreadLocal<Worker> virtualWorker = new ThreadLocal<>();
 	private volatile InternalJob currentJob;
 	private final WorkerPool pool;
 	private final String generalName;
@@ -39,6 +47,17 @@ public class Worker extends Thread {
 		setContextClassLoader(pool.defaultContextLoader);
 	}
 
+	/**
+	 * Returns the worker that runs in the current thread, or null if the current
+	 * thread is not a worker thread.
+	 */
+	static Worker getCurrentWorker() {
+		Thread current = Thread.currentThread();
+		if (current instanceof Worker)
+			return (Worker) current;
+		return virtualWorker.get();
+	}
+
 	/**
 	 * Returns the currently running job, or null if none.
 	 */
@@ -53,13 +72,18 @@ public class Worker extends Thread {
 
 	@Override
 	public void run() {
-		setNormPriority();
+		// this is not the current thread if run by a virtual thread
+		Thread thread = Thread.currentThread();
+		if (thread != this)
+			virtualWorker.set(this);
+		setNormPriority(thread);
 		try {
 			while ((currentJob = pool.startJob(this)) != null) {
 				IStatus result = Status.OK_STATUS;
 				IProgressMonitor monitor = currentJob.getProgressMonitor();
+				Object runEvent = JobEventsSupport.AVAILABLE ? JobEvents.beginRun(currentJob) : null;
 				try {
-					setName(getJobName());
+					thread.setName(getJobName());
 					result = currentJob.run(monitor);
 				} catch (OperationCanceledException e) {
 					result = Status.CANCEL_STATUS;
@@ -80,11 +104,13 @@ public class Worker extends Thread {
 						String message = NLS.bind(JobMessages.jobs_returnNoStatus, currentJob.getClass().getName());
 						result = handleException(currentJob, new NullPointerException(message));
 					}
+					if (runEvent != null)
+						JobEvents.endRun(runEvent, result);
 					pool.endJob(currentJob, result);
 					currentJob = null;
-					setName(generalName);
+					thread.setName(generalName);
 					// reset thread priority in case job changed it
-					setNormPriority();
+					setNormPriority(thread);
 				}
 			}
 		} catch (Throwable t) {
@@ -92,13 +118,14 @@ public class Worker extends Thread {
 		} finally {
 			currentJob = null;
 			pool.endWorker(this);
+			virtualWorker.remove();
 		}
 	}
 
-	private void setNormPriority() {
-		if (getPriority() != Thread.NORM_PRIORITY) {
+	private static void setNormPriority(Thread thread) {
+		if (thread.getPriority() != Thread.NORM_PRIORITY) {
 			// Setting priority on some platforms may cause high overhead
-			setPriority(Thread.NORM_PRIORITY);
+			thread.setPriority(Thread.NORM_PRIORITY);
 		}
 	}
 
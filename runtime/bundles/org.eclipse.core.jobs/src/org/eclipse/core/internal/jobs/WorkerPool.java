@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2003, 2012 IBM Corporation and others.
+ *  Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -14,8 +14,9 @@
  *******************************************************************************/
 package org.eclipse.core.internal.jobs;
 
-import org.eclipse.core.runtime.Assert;
-import org.eclipse.core.runtime.IStatus;
+import java.util.concurrent.ThreadFactory;
+import org.eclipse.core.internal.runtime.RuntimeLog;
+import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.Job;
 
 /**
@@ -27,6 +28,13 @@ import org.eclipse.core.runtime.jobs.Job;
  * by the instance's object monitor.  To avoid deadlock with third party code,
  * this lock is never held when calling methods outside this class that may in
  * turn use locks.
+ *
+ * If virtual threads are enabled (see {@link JobOSGiUtils#useVirtualThreads()}),
+ * workers are run by virtual threads. As these are cheap to create, an idle
+ * worker is discarded right away unless it is the only idle worker, which
+ * stays to run sleeping jobs when they wake up. The number of concurrently
+ * running jobs is then only limited by the maximum number of threads of their
+ * job groups.
  */
 class WorkerPool {
 	/**
@@ -61,6 +69,12 @@ class WorkerPool {
 	 */
 	private boolean isDaemon = false;
 
+	/**
+	 * The factory of virtual threads if workers are run by virtual threads, and
+	 * null otherwise.
+	 */
+	private ThreadFactory virtualThreadFactory;
+
 	private final JobManager manager;
 	/**
 	 * The number of workers in the threads array
@@ -153,12 +167,19 @@ class WorkerPool {
 		//create a thread if all threads are busy
 		if (busyThreads >= numThreads) {
 			Worker worker = new Worker(this);
-			worker.setDaemon(isDaemon);
 			add(worker);
 			if (JobManager.DEBUG)
 				JobManager.debug("worker added to pool: " + worker); //$NON-NLS-1$
-			worker.start();
-			return;
+			if (virtualThreadFactory == null) {
+				worker.setDaemon(isDaemon);
+				worker.start();
+				return;
+			}
+			// virtual threads are always daemon threads
+			Thread thread = virtualThreadFactory.newThread(worker);
+			thread.setName(worker.getName());
+			thread.setContextClassLoader(defaultContextLoader);
+			thread.start();
 		}
 	}
 
@@ -184,6 +205,29 @@ class WorkerPool {
 		this.isDaemon = value;
 	}
 
+	/**
+	 * Sets whether workers created in the worker pool should be run by virtual
+	 * threads. Has no effect if the Java runtime does not provide virtual threads.
+	 */
+	synchronized void setVirtual(boolean value) {
+		virtualThreadFactory = value ? createVirtualThreadFactory() : null;
+	}
+
+	/**
+	 * Returns a factory of virtual threads, or null if the Java runtime does not
+	 * provide virtual threads. They are looked up reflectively as they require
+	 * Java 21, while this bundle runs on Java 11.
+	 */
+	private static ThreadFactory createVirtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null); //$NON-NLS-1$
+			return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			RuntimeLog.log(new Status(IStatus.WARNING, JobManager.PI_JOBS, JobManager.PLUGIN_ERROR, "Virtual threads are not available, using platform threads for jobs", e)); //$NON-NLS-1$
+			return null;
+		}
+	}
+
 	protected synchronized void shutdown() {
 		notifyAll();
 	}
@@ -232,7 +276,8 @@ class WorkerPool {
 				long hint = manager.sleepHint();
 				if (hint > 0) {
 					synchronized (this) {
-						if (numThreads > MAX_THREADS) {
+						//an idle virtual worker is only kept if no other worker is idle
+						if (numThreads > MAX_THREADS || (virtualThreadFactory != null && numThreads - busyThreads >= MIN_THREADS)) {
 							endWorker(worker);
 							decrementBusyThreads();
 							busy = false;
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.runtime.jobs;
+
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * A scheduling rule that describes a node in a hierarchy, such as a resource in
+ * a workspace. The job manager uses this description to find conflicting rules
+ * without comparing a rule with every rule currently held.
+ * <p>
+ * Two hierarchical rules <code>a</code> and <code>b</code> must conflict, as
+ * defined by {@link ISchedulingRule#isConflicting(ISchedulingRule)}, if and
+ * only if their hierarchies are equal and the path of one rule is a prefix of
+ * the path of the other. Only the segments of the paths are compared. Conflicts
+ * with rules that are not hierarchical are still determined by calling
+ * <code>isConflicting</code>.
+ * </p>
+ * <p>
+ * Clients may implement this interface.
+ * </p>
+ *
+ * @since 3.14
+ */
+public interface IHierarchicalRule extends ISchedulingRule {
+	/**
+	 * Returns the hierarchy this rule belongs to. Rules of different hierarchies
+	 * never conflict with each other.
+	 *
+	 * @return the hierarchy of this rule, never <code>null</code>
+	 */
+	Object getHierarchy();
+
+	/**
+	 * Returns the path of this rule in its hierarchy. The empty path denotes the
+	 * root of the hierarchy, which conflicts with every rule of the hierarchy.
+	 *
+	 * @return the path of this rule, never <code>null</code>
+	 */
+	IPath getHierarchyPath();
+}
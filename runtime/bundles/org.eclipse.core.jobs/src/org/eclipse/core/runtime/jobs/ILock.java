@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2012 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -48,6 +48,10 @@ package org.eclipse.core.runtime.jobs;
  * Note: although <code>lock.acquire</code> should never fail, it is good practice to place
  * it inside the try block anyway.  Releasing without acquiring is far less catastrophic
  * than acquiring without releasing.
+ * </p><p>
+ * A thread waiting in <code>acquire</code> waits on an object monitor. If jobs
+ * run in virtual threads, a virtual thread waiting for a lock therefore stays
+ * pinned to its carrier thread until it gets the lock or the delay expires.
  * </p>
  *
  * @see IJobManager#newLock()
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2018 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -261,18 +261,25 @@ public abstract class Job extends InternalJob {
 	 * by the job manager.  Thus, a job can choose to belong to any number of
 	 * families.
 	 * <p>
-	 * Clients may override this method.  This default implementation always returns
-	 * <code>false</code>.  Overriding implementations must return <code>false</code>
+	 * Clients may override this method.  This default implementation returns
+	 * <code>true</code> if the family is one of the families declared with
+	 * {@link #setFamilies(Object...)}, and <code>false</code> otherwise.
+	 * Overriding implementations must return <code>false</code>
 	 * for families they do not recognize.
 	 * </p>
+	 * <p>
+	 * The job manager does not call this method for jobs that declared their
+	 * families.
+	 * </p>
 	 *
 	 * @param family the job family identifier
 	 * @return <code>true</code> if this job belongs to the given family, and
 	 * <code>false</code> otherwise.
+	 * @see #setFamilies(Object...)
 	 */
 	@Override
 	public boolean belongsTo(Object family) {
-		return false;
+		return super.belongsTo(family);
 	}
 
 	/**
@@ -323,6 +330,19 @@ public abstract class Job extends InternalJob {
 		super.done(result);
 	}
 
+	/**
+	 * Returns the families declared for this job, or <code>null</code> if this
+	 * job did not declare its families.
+	 *
+	 * @return a copy of the declared families, or <code>null</code>
+	 * @see #setFamilies(Object...)
+	 * @since 3.14
+	 */
+	@Override
+	public final Object[] getFamilies() {
+		return super.getFamilies();
+	}
+
 	/**
 	 * Returns the human readable name of this job.  The name is never
 	 * <code>null</code>.
@@ -684,6 +704,29 @@ public abstract class Job extends InternalJob {
 		super.schedule(delay);
 	}
 
+	/**
+	 * Declares the families this job belongs to. Families are compared using
+	 * <code>equals</code>. This method must be called before the job is scheduled.
+	 * <p>
+	 * The job manager keeps an index of the jobs that declared their families,
+	 * so that family based methods like {@link IJobManager#find(Object)} and
+	 * {@link IJobManager#join(Object, IProgressMonitor)} find these jobs without
+	 * asking every job whether it belongs to the family. For a job that declared
+	 * its families, {@link #belongsTo(Object)} is not called by the job manager,
+	 * the declared families are used instead. Declaring no families at all
+	 * means that the job belongs to no family.
+	 * </p>
+	 *
+	 * @param families the families of this job, or <code>null</code> to use
+	 *            {@link #belongsTo(Object)} again
+	 * @see #getFamilies()
+	 * @since 3.14
+	 */
+	@Override
+	public final void setFamilies(Object... families) {
+		super.setFamilies(families);
+	}
+
 	/**
 	 * Changes the name of this job.  If the job is currently running, waiting,
 	 * or sleeping, the new job name may not take effect until the next time the
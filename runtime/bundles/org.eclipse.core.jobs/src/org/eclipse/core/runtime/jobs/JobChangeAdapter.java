@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2012 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,7 +19,9 @@ package org.eclipse.core.runtime.jobs;
  * <p>
  * Classes that wish to listen to the progress of scheduled jobs can
  * extend this class and override only the methods which they are
- * interested in.
+ * interested in. The job manager only notifies such listeners about the
+ * events whose methods they override, and does not create events nobody
+ * is interested in.
  * </p>
  *
  * @see IJobChangeListener
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Google Inc and others.
+ * Copyright (c) 2014, 2022 Google Inc and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,7 +14,9 @@
 
 package org.eclipse.core.runtime.jobs;
 
+import java.util.Collection;
 import java.util.List;
+import org.eclipse.core.internal.jobs.BatchJob;
 import org.eclipse.core.internal.jobs.InternalJobGroup;
 import org.eclipse.core.runtime.*;
 
@@ -254,6 +256,41 @@ public class JobGroup extends InternalJobGroup {
 		return super.join(timeoutMillis, monitor);
 	}
 
+	/**
+	 * Creates a job that runs the given tasks in parallel as part of this job
+	 * group. The job is not scheduled yet.
+	 * <p>
+	 * The batch job is meant for many small, independent tasks that would be too
+	 * costly to run as one job each. When it runs, it starts helper jobs in this
+	 * group, so that no more than {@link #getMaxThreads()} tasks run at the same
+	 * time, or as many as there are processors if this group does not limit the
+	 * number of threads. The batch job and its helpers take the tasks in chunks
+	 * from a shared queue until all tasks have been run, so that a thread which
+	 * runs out of work takes over tasks that other threads have not started yet.
+	 * </p><p>
+	 * Progress is reported as one job with one unit of work per task. Canceling
+	 * the batch job, or this group, stops the remaining tasks from being run.
+	 * The progress monitor passed to the tasks only reports cancellation. The
+	 * result of the batch job is a <code>MultiStatus</code> with the statuses of
+	 * the tasks that failed, or <code>Status.OK_STATUS</code> if none failed.
+	 * </p><p>
+	 * The tasks must not depend on each other, as they may run in any order. The
+	 * batch job cannot have a scheduling rule, because the tasks may run in
+	 * other threads that don't own it: scheduling a batch job with a rule fails
+	 * with an <code>IllegalArgumentException</code>. Tasks that need a rule must
+	 * acquire it themselves, for example with
+	 * {@link IJobManager#beginRule(ISchedulingRule, IProgressMonitor)}.
+	 * </p>
+	 *
+	 * @param name the name of the batch job
+	 * @param tasks the tasks to run
+	 * @return the batch job
+	 * @since 3.14
+	 */
+	public final Job createBatchJob(String name, Collection<? extends ICoreRunnable> tasks) {
+		return new BatchJob(name, this, tasks);
+	}
+
 	/**
 	 * This method is called by the JobManager after the completion of every job belonging
 	 * to this group, and is used to control the job group's cancellation policy. Returning
@@ -91,6 +91,23 @@ public class DeepSize {
 		ignoreSet.clear();
 	}
 
+	/**
+	 * Returns the size of an instance of the given class, not including the
+	 * objects referenced by its fields.
+	 */
+	public static int shallowSizeOf(Class<?> type) {
+		int shallowSize = OBJECT_HEADER_SIZE;
+		for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+			for (Field field : clazz.getDeclaredFields()) {
+				if ((Modifier.STATIC & field.getModifiers()) != 0)
+					continue;
+				Class<?> fieldType = field.getType();
+				shallowSize += fieldType.isPrimitive() ? sizeOfPrimitiveField(fieldType) : POINTER_SIZE;
+			}
+		}
+		return shallowSize;
+	}
+
 	private void count(Class<?> c, int size) {
 		Object accumulatedSizes = sizes.get(c);
 		int existingSize = (accumulatedSizes == null) ? 0 : ((Integer) accumulatedSizes).intValue();
@@ -240,7 +257,7 @@ public class DeepSize {
 
 	}
 
-	private int sizeOfPrimitiveField(Class<?> type) {
+	private static int sizeOfPrimitiveField(Class<?> type) {
 		if (type == long.class || type == double.class)
 			return 8;
 		return 4;
@@ -253,6 +253,44 @@ public interface IEclipseContext {
 	 */
 	void processWaiting();
 
+	/**
+	 * Starts a batch of modifications in the current thread. Until the batch is
+	 * committed, {@link RunAndTrack}s and injected objects affected by changes
+	 * made in this thread to this or any other context are not updated. Batches
+	 * may be nested; only committing the outermost batch updates them.
+	 * <p>
+	 * Every call to this method must be followed by a call to
+	 * {@link #commitBatch()}, typically in a <code>finally</code> block:
+	 * </p>
+	 *
+	 * <pre>
+	 * context.beginBatch();
+	 * try {
+	 * 	context.set("a", a);
+	 * 	context.set("b", b);
+	 * } finally {
+	 * 	context.commitBatch();
+	 * }
+	 * </pre>
+	 *
+	 * @see #commitBatch()
+	 * @since 1.12
+	 */
+	void beginBatch();
+
+	/**
+	 * Commits the batch of modifications started by {@link #beginBatch()} in the
+	 * current thread. If this ends the outermost batch, each {@link RunAndTrack}
+	 * and injected object affected by the modifications of the batch is updated
+	 * once, no matter how many of the values it depends on have changed.
+	 *
+	 * @throws IllegalStateException if no batch has been started in the current
+	 *                               thread
+	 * @see #beginBatch()
+	 * @since 1.12
+	 */
+	void commitBatch();
+
 	/**
 	 * Creates a new context using this context as a parent.
 	 * @return a new child context
@@ -24,6 +24,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +33,7 @@ import java.util.Set;
 import java.util.Stack;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
 import org.eclipse.e4.core.contexts.IContextFunction;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.contexts.RunAndTrack;
@@ -92,12 +94,45 @@ public class EclipseContext implements IEclipseContext {
 		}
 	}
 
+	/**
+	 * The computations scheduled while a batch is open, each with the first event
+	 * it was scheduled for.
+	 */
+	static class Batch {
+		int depth;
+		final Map<TrackableComputationExt, ContextChangeEvent> scheduled = new LinkedHashMap<>();
+	}
+
 	private WeakGroupedListenerList weakListeners = new WeakGroupedListenerList();
 	private Map<String, ValueComputation> localValueComputations = new ConcurrentHashMap<>();
 
 	final protected ConcurrentNeutralValueMap<String, Object> localValues = // null values allowed
 			new ConcurrentNeutralValueMap<>();
 
+	/**
+	 * The names that computations or listeners of this context or of any of its
+	 * descendants depend on. Changes of other names need not be propagated into
+	 * this branch of the hierarchy. The names of a context are always included
+	 * in the names of its parent; names no longer used are removed in
+	 * {@link #cleanup()}.
+	 */
+	private final Set<String> dependentNames = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The values this context resolved from plain values of its ancestors, so
+	 * that repeated lookups do not walk the parent chain. An entry is removed
+	 * when its name is invalidated in this context; values computed by context
+	 * functions are not cached here.
+	 */
+	private final Map<String, Object> resolvedValues = new ConcurrentHashMap<>();
+
+	/**
+	 * Incremented whenever resolved values are invalidated anywhere. A value is
+	 * only kept in {@link #resolvedValues} if no invalidation happened while it
+	 * was resolved.
+	 */
+	private static final AtomicLong invalidations = new AtomicLong();
+
 	private Set<String> modifiable;
 
 	private List<Computation> waiting; // list of Computations; null for all non-root entries
@@ -112,6 +147,8 @@ public class EclipseContext implements IEclipseContext {
 
 	static private ThreadLocal<Stack<Computation>> currentComputation = new ThreadLocal<>();
 
+	static private ThreadLocal<Batch> currentBatch = new ThreadLocal<>();
+
 	// I don't think we need to sync referenceQueue access
 	private ReferenceQueue<Object> referenceQueue = new ReferenceQueue<>();
 
@@ -178,6 +215,10 @@ public class EclipseContext implements IEclipseContext {
 		for (Computation computation : allComputations) {
 			computation.handleInvalid(event, scheduled);
 		}
+		// computations of this context must not run when an open batch is committed
+		Batch batch = currentBatch.get();
+		if (batch != null)
+			batch.scheduled.keySet().removeAll(allComputations);
 		processScheduled(scheduled);
 
 		synchronized (notifyOnDisposal) {
@@ -190,6 +231,7 @@ public class EclipseContext implements IEclipseContext {
 			computation.dispose();
 			return true;
 		});
+		resolvedValues.clear();
 
 		// if this was the parent's active child, deactivate it
 		EclipseContext parent = getParent();
@@ -238,6 +280,11 @@ public class EclipseContext implements IEclipseContext {
 
 	public Object internalGet(EclipseContext originatingContext, String name, boolean local) {
 		if (this == originatingContext) {
+			if (!local) {
+				Object resolved = resolvedValues.get(name);
+				if (resolved != null)
+					return resolved;
+			}
 			ValueComputation valueComputation = localValueComputations.get(name);
 			if (valueComputation != null) {
 				Object result = valueComputation.get();
@@ -264,6 +311,7 @@ public class EclipseContext implements IEclipseContext {
 				// do calculations before adding listeners
 				result = valueComputation.get();
 				originatingContext.localValueComputations.put(name, valueComputation);
+				originatingContext.addDependentName(name);
 			}
 			if (result != IInjector.NOT_A_VALUE) {
 				return result;
@@ -273,17 +321,39 @@ public class EclipseContext implements IEclipseContext {
 		if (!local) {
 			IEclipseContext parent = (IEclipseContext) localValues.get(PARENT);
 			if (parent != null) {
-				return ((EclipseContext) parent).internalGet(originatingContext, name, local);
+				if (this != originatingContext)
+					return ((EclipseContext) parent).internalGet(originatingContext, name, local);
+				return getFromParent((EclipseContext) parent, name);
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Resolves the given name in the parent chain and remembers plain values in
+	 * the cache of resolved values of this context.
+	 */
+	private Object getFromParent(EclipseContext parent, String name) {
+		long stamp = invalidations.get();
+		Object result = parent.internalGet(this, name, false);
+		// values of context functions are tracked by their value computations
+		if (result == null || localValueComputations.containsKey(name))
+			return result;
+		addDependentName(name);
+		resolvedValues.put(name, result);
+		// forget the value if it might have been invalidated while it was resolved
+		if (invalidations.get() != stamp)
+			resolvedValues.remove(name, result);
+		return result;
+	}
+
 	/**
 	 * The given name has been modified or removed in this context. Invalidate all local value
 	 * computations and listeners that depend on this name.
 	 */
 	public void invalidate(String name, int eventType, Object oldValue, Object newValue, Set<Scheduled> scheduled) {
+		invalidations.incrementAndGet();
+		resolvedValues.remove(name);
 		ContextChangeEvent event = new ContextChangeEvent(this, eventType, null, name, oldValue);
 
 		ValueComputation newComputation = localValueComputations.computeIfPresent(name, (k, computation) -> {
@@ -305,7 +375,10 @@ public class EclipseContext implements IEclipseContext {
 		boolean addedOrRemoved = eventType == ContextChangeEvent.ADDED || eventType == ContextChangeEvent.REMOVED;
 		// invalidate this name in child contexts
 		for (EclipseContext childContext : getChildren()) {
-			// unless it is already set in this context (and thus hides the change)
+			// unless nothing in the child's branch depends on it
+			if (!childContext.dependentNames.contains(name))
+				continue;
+			// or it is already set in this context (and thus hides the change)
 			if (!(addedOrRemoved && childContext.isSetLocally(name))) {
 				childContext.invalidate(name, eventType, oldValue, newValue, scheduled);
 			}
@@ -354,6 +427,13 @@ public class EclipseContext implements IEclipseContext {
 	}
 
 	protected void processScheduled(Set<Scheduled> scheduledList) {
+		Batch batch = currentBatch.get();
+		if (batch != null) {
+			for (Scheduled scheduled : scheduledList) {
+				batch.scheduled.putIfAbsent(scheduled.runnable, scheduled.event);
+			}
+			return;
+		}
 		for (Scheduled scheduled : scheduledList) {
 			scheduled.runnable.update(scheduled.event);
 		}
@@ -431,6 +511,9 @@ public class EclipseContext implements IEclipseContext {
 		handleReparent(newParent, scheduled);
 		localValues.put(PARENT, parent);
 		if (parent != null) {
+			// the new parent has to know the names before it can reach this context
+			for (String name : dependentNames)
+				newParent.addDependentName(name);
 			selfRef = new WeakReference<>(this);
 			newParent.addChild(selfRef);
 		}
@@ -459,6 +542,33 @@ public class EclipseContext implements IEclipseContext {
 
 	public void addDependency(String name, Computation computation) {
 		weakListeners.add(name, computation);
+		addDependentName(name);
+	}
+
+	/**
+	 * Records that something in this context depends on the given name, in this
+	 * context and all its ancestors.
+	 */
+	private void addDependentName(String name) {
+		for (EclipseContext context = this; context != null; context = context.getParent()) {
+			if (!context.dependentNames.add(name))
+				return; // the ancestors already know the name
+		}
+	}
+
+	/**
+	 * Returns whether a computation or listener of this context or of one of its
+	 * children depends on the given name.
+	 */
+	private boolean hasDependents(String name) {
+		if (weakListeners.hasListeners(name) || localValueComputations.containsKey(name)
+				|| resolvedValues.containsKey(name))
+			return true;
+		for (EclipseContext childContext : getChildren()) {
+			if (childContext.dependentNames.contains(name))
+				return true;
+		}
+		return false;
 	}
 
 	@Override
@@ -469,6 +579,20 @@ public class EclipseContext implements IEclipseContext {
 			modifiable = new HashSet<>(3);
 		modifiable.add(name);
 		localValues.putIfAbsent(name, null);
+		forgetResolvedValue(name);
+	}
+
+	/**
+	 * Removes the value resolved for the given name from this context and its
+	 * descendants, as the name now resolves to a value of this context.
+	 */
+	private void forgetResolvedValue(String name) {
+		invalidations.incrementAndGet();
+		resolvedValues.remove(name);
+		for (EclipseContext childContext : getChildren()) {
+			if (childContext.dependentNames.contains(name))
+				childContext.forgetResolvedValue(name);
+		}
 	}
 
 	private boolean checkModifiable(String name) {
@@ -514,6 +638,9 @@ public class EclipseContext implements IEclipseContext {
 	}
 
 	protected void invalidateLocalComputations(Set<Scheduled> scheduled) {
+		// the values of the new parent chain may differ
+		invalidations.incrementAndGet();
+		resolvedValues.clear();
 		ContextChangeEvent event = new ContextChangeEvent(this, ContextChangeEvent.ADDED, null, null, null);
 		localValueComputations.values().removeIf(computation -> {
 			weakListeners.remove(computation);
@@ -535,6 +662,31 @@ public class EclipseContext implements IEclipseContext {
 		}
 	}
 
+	@Override
+	public void beginBatch() {
+		Batch batch = currentBatch.get();
+		if (batch == null) {
+			batch = new Batch();
+			currentBatch.set(batch);
+		}
+		batch.depth++;
+	}
+
+	@Override
+	public void commitBatch() {
+		Batch batch = currentBatch.get();
+		if (batch == null)
+			throw new IllegalStateException("No batch has been started in the current thread"); //$NON-NLS-1$
+		if (--batch.depth > 0)
+			return;
+		// computations updated below see the changes of the batch and run
+		// outside of it
+		currentBatch.remove();
+		for (Map.Entry<TrackableComputationExt, ContextChangeEvent> entry : batch.scheduled.entrySet()) {
+			entry.getKey().update(entry.getValue());
+		}
+	}
+
 	@Override
 	public void processWaiting() {
 		// traverse to the root node
@@ -784,5 +936,14 @@ public class EclipseContext implements IEclipseContext {
 			childContext.cleanup();
 		}
 		weakListeners.cleanup();
+		// the children are cleaned up first, so their names are current here
+		for (String name : dependentNames) {
+			if (hasDependents(name))
+				continue;
+			dependentNames.remove(name);
+			// check again in case a dependency was added meanwhile
+			if (hasDependents(name))
+				dependentNames.add(name);
+		}
 	}
 }
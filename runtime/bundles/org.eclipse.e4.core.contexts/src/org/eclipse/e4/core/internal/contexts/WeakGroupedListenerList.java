@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012, 2015 IBM Corporation and others.
+ * Copyright (c) 2012, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -86,6 +86,15 @@ public class WeakGroupedListenerList {
 		return usedNames;
 	}
 
+	/**
+	 * Returns whether listeners were added to the given group. Listeners that
+	 * were garbage collected but not cleaned up yet are included.
+	 */
+	synchronized public boolean hasListeners(String groupName) {
+		HashSet<WeakComputationReference> tmp = listeners.get(groupName);
+		return tmp != null && !tmp.isEmpty();
+	}
+
 	synchronized public void clear() {
 		listeners.clear();
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2016 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,7 @@
 package org.eclipse.e4.core.internal.di;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
@@ -24,14 +25,24 @@ import org.eclipse.e4.core.di.suppliers.PrimaryObjectSupplier;
 
 public class ConstructorRequestor extends Requestor<Constructor<?>> {
 
+	/** The site of the constructor in an injection plan; may be null */
+	final private InjectionPlan.Site<Constructor<?>> site;
+
 	public ConstructorRequestor(Constructor<?> constructor, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier) {
 		super(constructor, injector, primarySupplier, tempSupplier, null, false /* do not track */);
+		site = null;
+	}
+
+	ConstructorRequestor(InjectionPlan.Site<Constructor<?>> site, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier) {
+		super(site, injector, primarySupplier, tempSupplier, null, false /* do not track */);
+		this.site = site;
 	}
 
 	@Override
 	public Object execute() throws InjectionException {
 		Object result = null;
-		if (!location.isAccessible()) {
+		MethodHandle handle = (site == null) ? null : site.handle;
+		if (handle == null && !location.isAccessible()) {
 			location.setAccessible(true);
 		}
 		boolean pausedRecording = false;
@@ -40,7 +51,10 @@ public class ConstructorRequestor extends Requestor<Constructor<?>> {
 			pausedRecording = true;
 		}
 		try {
-			result = location.newInstance(actualArgs);
+			if (handle != null)
+				result = site.invoke(null, actualArgs);
+			else
+				result = location.newInstance(actualArgs);
 		} catch (IllegalArgumentException | IllegalAccessException e) {
 			throw new InjectionException(e);
 		} catch (InstantiationException e) {
@@ -63,11 +77,15 @@ public class ConstructorRequestor extends Requestor<Constructor<?>> {
 
 	@Override
 	public IObjectDescriptor[] calcDependentObjects() {
-		Annotation[][] annotations = location.getParameterAnnotations();
-		Type[] logicalParams = location.getGenericParameterTypes();
+		return getDescriptors(location);
+	}
+
+	static IObjectDescriptor[] getDescriptors(Constructor<?> constructor) {
+		Annotation[][] annotations = constructor.getParameterAnnotations();
+		Type[] logicalParams = constructor.getGenericParameterTypes();
 		// JDK bug: different methods see / don't see generated args for nested classes
 		// http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=5087240
-		Class<?>[] compilerParams = location.getParameterTypes();
+		Class<?>[] compilerParams = constructor.getParameterTypes();
 		if (compilerParams.length > logicalParams.length) {
 			Type[] tmp = new Type[compilerParams.length];
 			System.arraycopy(compilerParams, 0, tmp, 0, compilerParams.length - logicalParams.length);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2016 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,22 +21,40 @@ import org.eclipse.e4.core.di.suppliers.PrimaryObjectSupplier;
 
 public class FieldRequestor extends Requestor<Field> {
 
+	/** The site of the field in an injection plan; may be null */
+	final private InjectionPlan.Site<Field> site;
+
 	public FieldRequestor(Field field, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier, Object requestingObject, boolean track) {
 		super(field, injector, primarySupplier, tempSupplier, requestingObject, track);
+		site = null;
+	}
+
+	FieldRequestor(InjectionPlan.Site<Field> site, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier, Object requestingObject, boolean track) {
+		super(site, injector, primarySupplier, tempSupplier, requestingObject, track);
+		this.site = site;
 	}
 
 	@Override
 	public Object execute() throws InjectionException {
 		if (actualArgs == null)
 			return null; // optional field
-		setField(location, actualArgs[0]);
+		if (site != null && site.handle != null) {
+			Object userObject = getRequestingObject();
+			if (userObject != null)
+				site.invoke(userObject, actualArgs);
+		} else
+			setField(location, actualArgs[0]);
 		clearResolvedArgs();
 		return null;
 	}
 
 	@Override
 	protected IObjectDescriptor[] calcDependentObjects() {
-		IObjectDescriptor objectDescriptor = new ObjectDescriptor(location.getGenericType(), location.getAnnotations());
+		return getDescriptors(location);
+	}
+
+	static IObjectDescriptor[] getDescriptors(Field field) {
+		IObjectDescriptor objectDescriptor = new ObjectDescriptor(field.getGenericType(), field.getAnnotations());
 		return new IObjectDescriptor[] {objectDescriptor};
 	}
 
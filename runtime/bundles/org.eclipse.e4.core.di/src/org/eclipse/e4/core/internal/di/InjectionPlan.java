@@ -0,0 +1,368 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.di;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.eclipse.e4.core.di.InjectionException;
+import org.eclipse.e4.core.di.annotations.GroupUpdates;
+import org.eclipse.e4.core.di.annotations.Optional;
+import org.eclipse.e4.core.di.suppliers.IObjectDescriptor;
+import org.eclipse.e4.core.internal.di.osgi.LogHelper;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+/**
+ * The injection points of a class: its injectable constructors, the injected
+ * fields and methods of the class and its superclasses, and its life cycle
+ * methods. The plan only depends on the class, so it is computed once per class
+ * and shared by all injectors; repeated injections of the same class do not
+ * scan the class with reflection again.
+ * <p>
+ * Plans are held by a {@link ClassValue}, which does not prevent the classes
+ * from being unloaded.
+ * </p>
+ */
+final class InjectionPlan {
+
+	final static private String JAVA_OBJECT = "java.lang.Object"; //$NON-NLS-1$
+
+	private static final ClassValue<InjectionPlan> plans = new ClassValue<InjectionPlan>() {
+		@Override
+		protected InjectionPlan computeValue(Class<?> type) {
+			return new InjectionPlan(type);
+		}
+	};
+
+	/**
+	 * A member to be injected or invoked, with everything the requestors need
+	 * to know about it.
+	 */
+	static final class Site<L extends AnnotatedElement> {
+		final L member;
+		final boolean isStatic;
+		final boolean groupUpdates;
+		final boolean isOptional;
+		final IObjectDescriptor[] descriptors;
+		/**
+		 * A handle taking the target object (ignored for static members and
+		 * constructors) and the argument array; <code>null</code> if the member
+		 * has to be accessed with reflection
+		 */
+		final MethodHandle handle;
+
+		Site(L member, int modifiers, IObjectDescriptor[] descriptors, MethodHandle handle) {
+			this.member = member;
+			this.isStatic = Modifier.isStatic(modifiers);
+			this.groupUpdates = member.isAnnotationPresent(GroupUpdates.class);
+			this.isOptional = member.isAnnotationPresent(Optional.class);
+			this.descriptors = descriptors;
+			this.handle = handle;
+		}
+
+		/**
+		 * Invokes the handle of this site, mapping exceptions the same way as the
+		 * reflective access does.
+		 */
+		Object invoke(Object target, Object[] args) throws InjectionException {
+			try {
+				return handle.invokeExact(target, args);
+			} catch (Error e) {
+				// Errors such as ThreadDeath or OutOfMemoryError should not be trapped
+				// http://bugs.eclipse.org/bugs/show_bug.cgi?id=457687
+				throw e;
+			} catch (Throwable e) {
+				throw new InjectionException(e);
+			}
+		}
+	}
+
+	/**
+	 * The injected members declared by one class of the hierarchy.
+	 */
+	static final class Level {
+		final Class<?> type;
+		/**
+		 * Whether the class declares static fields or methods
+		 */
+		final boolean hasStatic;
+		final List<Site<Field>> fields;
+		final List<Site<Method>> methods;
+
+		Level(Class<?> type, boolean hasStatic, List<Site<Field>> fields, List<Site<Method>> methods) {
+			this.type = type;
+			this.hasStatic = hasStatic;
+			this.fields = fields;
+			this.methods = methods;
+		}
+	}
+
+	private static final ClassValue<Method[]> declaredMethods = new ClassValue<Method[]>() {
+		@Override
+		protected Method[] computeValue(Class<?> type) {
+			// filter out all bridge methods
+			return Stream.of(type.getDeclaredMethods()).filter(m -> !m.isBridge()).toArray(Method[]::new);
+		}
+	};
+
+	private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+	/**
+	 * The classes of the hierarchy, superclass first
+	 */
+	final List<Level> levels;
+	final boolean isSingleton;
+	/**
+	 * The constructors that can be used to create instances, sorted by
+	 * descending number of arguments
+	 */
+	final List<Site<Constructor<?>>> constructors;
+	/**
+	 * The {@link PostConstruct} methods, superclass first
+	 */
+	final List<Site<Method>> postConstruct;
+	/**
+	 * The {@link PreDestroy} methods, superclass first
+	 */
+	final List<Site<Method>> preDestroy;
+
+	/**
+	 * Returns the plan of the given class.
+	 */
+	static InjectionPlan get(Class<?> type) {
+		return plans.get(type);
+	}
+
+	private InjectionPlan(Class<?> type) {
+		isSingleton = type.isAnnotationPresent(Singleton.class);
+		// order: superclass first; subclasses are kept to check overridden methods
+		List<Class<?>> hierarchy = new ArrayList<>(5);
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			hierarchy.add(0, c);
+			Class<?> superClass = c.getSuperclass();
+			if (superClass == null || superClass.getName().equals(JAVA_OBJECT))
+				break;
+		}
+		List<Level> levelList = new ArrayList<>(hierarchy.size());
+		List<Site<Method>> postConstructList = new ArrayList<>(2);
+		List<Site<Method>> preDestroyList = new ArrayList<>(2);
+		for (int i = 0; i < hierarchy.size(); i++) {
+			Class<?> c = hierarchy.get(i);
+			// the subclasses, nearest to the injected class first
+			List<Class<?>> subClasses = new ArrayList<>(hierarchy.subList(i + 1, hierarchy.size()));
+			Collections.reverse(subClasses);
+			boolean hasStatic = false;
+			List<Site<Field>> fieldList = new ArrayList<>();
+			for (Field field : c.getDeclaredFields()) {
+				hasStatic |= Modifier.isStatic(field.getModifiers());
+				if (field.isAnnotationPresent(Inject.class))
+					fieldList.add(fieldSite(field));
+			}
+			List<Site<Method>> methodList = new ArrayList<>();
+			for (Method method : getDeclaredMethods(c)) {
+				hasStatic |= Modifier.isStatic(method.getModifiers());
+				boolean inject = method.isAnnotationPresent(Inject.class);
+				boolean isPostConstruct = isLifecycleMethod(method, PostConstruct.class);
+				boolean isPreDestroy = isLifecycleMethod(method, PreDestroy.class);
+				if (!inject && !isPostConstruct && !isPreDestroy)
+					continue;
+				if (isOverridden(method, subClasses))
+					continue; // process in the subclass
+				Site<Method> site = methodSite(method);
+				if (inject)
+					methodList.add(site);
+				if (isPostConstruct)
+					postConstructList.add(site);
+				if (isPreDestroy)
+					preDestroyList.add(site);
+			}
+			levelList.add(new Level(c, hasStatic, immutable(fieldList), immutable(methodList)));
+		}
+		levels = immutable(levelList);
+		postConstruct = immutable(postConstructList);
+		preDestroy = immutable(preDestroyList);
+
+		List<Site<Constructor<?>>> constructorList = new ArrayList<>();
+		for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+			// skip private and protected constructors; allow public and package visibility
+			int modifiers = constructor.getModifiers();
+			if (((modifiers & Modifier.PRIVATE) != 0) || ((modifiers & Modifier.PROTECTED) != 0))
+				continue;
+			// unless this is the default constructor, it has to be tagged
+			if (!constructor.isAnnotationPresent(Inject.class) && constructor.getParameterCount() != 0)
+				continue;
+			constructorList.add(constructorSite(constructor));
+		}
+		// Sort the constructors by descending number of constructor arguments
+		constructorList.sort(Comparator.comparing(s -> s.member.getParameterCount(), Comparator.reverseOrder()));
+		constructors = immutable(constructorList);
+	}
+
+	private static <T> List<T> immutable(List<T> list) {
+		return list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * Returns the declared methods of the given class without bridge methods.
+	 * The returned array is shared and must not be modified.
+	 */
+	static Method[] getDeclaredMethods(Class<?> c) {
+		return declaredMethods.get(c);
+	}
+
+	private static Site<Field> fieldSite(Field field) {
+		MethodHandle handle;
+		try {
+			field.setAccessible(true);
+			handle = MethodHandles.lookup().unreflectSetter(field);
+			if (Modifier.isStatic(field.getModifiers()))
+				handle = MethodHandles.dropArguments(handle, 0, Object.class);
+			handle = handle.asSpreader(Object[].class, 1).asType(INVOKER_TYPE);
+		} catch (IllegalAccessException | RuntimeException e) {
+			// final fields and inaccessible members are set with reflection
+			handle = null;
+		}
+		return new Site<>(field, field.getModifiers(), FieldRequestor.getDescriptors(field), handle);
+	}
+
+	private static Site<Method> methodSite(Method method) {
+		MethodHandle handle;
+		try {
+			method.setAccessible(true);
+			handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+			if (Modifier.isStatic(method.getModifiers()))
+				handle = MethodHandles.dropArguments(handle, 0, Object.class);
+			handle = handle.asSpreader(Object[].class, method.getParameterCount()).asType(INVOKER_TYPE);
+		} catch (IllegalAccessException | RuntimeException e) {
+			handle = null;
+		}
+		return new Site<>(method, method.getModifiers(), MethodRequestor.getDescriptors(method), handle);
+	}
+
+	private static Site<Constructor<?>> constructorSite(Constructor<?> constructor) {
+		MethodHandle handle = null;
+		// abstract classes report their instantiation error with reflection
+		if (!Modifier.isAbstract(constructor.getDeclaringClass().getModifiers())) {
+			try {
+				constructor.setAccessible(true);
+				handle = MethodHandles.lookup().unreflectConstructor(constructor).asFixedArity()
+						.asSpreader(Object[].class, constructor.getParameterCount());
+				handle = MethodHandles.dropArguments(handle, 0, Object.class).asType(INVOKER_TYPE);
+			} catch (IllegalAccessException | RuntimeException e) {
+				handle = null;
+			}
+		}
+		return new Site<>(constructor, constructor.getModifiers(), ConstructorRequestor.getDescriptors(constructor),
+				handle);
+	}
+
+	private static boolean isLifecycleMethod(Method method, Class<? extends Annotation> annotation) {
+		if (method.isAnnotationPresent(annotation))
+			return true;
+		if (InjectorImpl.shouldDebug) {
+			for (Annotation a : method.getAnnotations()) {
+				if (annotation.getName().equals(a.annotationType().getName())) {
+					StringBuilder tmp = new StringBuilder();
+					tmp.append("Possbible annotation mismatch: method \""); //$NON-NLS-1$
+					tmp.append(method.toString());
+					tmp.append("\" annotated with \""); //$NON-NLS-1$
+					tmp.append(describeClass(a.annotationType()));
+					tmp.append("\" but was looking for \""); //$NON-NLS-1$
+					tmp.append(describeClass(annotation));
+					tmp.append("\""); //$NON-NLS-1$
+					LogHelper.logWarning(tmp.toString(), null);
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if a given method is overridden with an injectable method.
+	 */
+	private static boolean isOverridden(Method method, List<Class<?>> classHierarchy) {
+		int modifiers = method.getModifiers();
+		if (Modifier.isPrivate(modifiers))
+			return false;
+		if (Modifier.isStatic(modifiers))
+			return false;
+		// method is not private if we reached this line, check not(public OR protected)
+		boolean isDefault = !(Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers));
+
+		String methodName = method.getName();
+		Class<?>[] methodParams = method.getParameterTypes();
+		for (Class<?> subClass : classHierarchy) {
+			Method matchingMethod = null;
+			for (Method candidate : getDeclaredMethods(subClass)) {
+				if (!methodName.equals(candidate.getName()))
+					continue;
+				// strictly speaking, need to add erasures
+				if (!Arrays.equals(candidate.getParameterTypes(), methodParams))
+					continue;
+				matchingMethod = candidate;
+				break;
+			}
+			if (matchingMethod == null)
+				continue;
+
+			if (isDefault) { // must be in the same package to override
+				Package originalPackage = method.getDeclaringClass().getPackage();
+				Package overridePackage = subClass.getPackage();
+
+				if (originalPackage == null && overridePackage == null)
+					return true;
+				if (originalPackage == null || overridePackage == null)
+					return false;
+				if (originalPackage.equals(overridePackage))
+					return true;
+			} else
+				return true;
+		}
+		return false;
+	}
+
+	/** Provide a human-meaningful description of the provided class */
+	private static String describeClass(Class<?> cl) {
+		Bundle b = FrameworkUtil.getBundle(cl);
+		if (b != null) {
+			return b.getSymbolicName() + ":" + b.getVersion() + ":" + cl.getName(); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		CodeSource clazzCS = cl.getProtectionDomain().getCodeSource();
+		if (clazzCS != null) {
+			return clazzCS.getLocation() + ">" + cl.getName(); //$NON-NLS-1$
+		}
+		if (cl.getClassLoader() == null) {
+			return cl.getName() + " [via bootstrap classloader]"; //$NON-NLS-1$
+		}
+		return cl.getName();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2017 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,32 +17,22 @@ package org.eclipse.e4.core.internal.di;
 
 import java.lang.annotation.Annotation;
 import java.lang.ref.WeakReference;
-import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.security.CodeSource;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
-import java.util.stream.Stream;
-import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
-import javax.inject.Inject;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.inject.Named;
 import javax.inject.Provider;
-import javax.inject.Singleton;
 import org.eclipse.e4.core.di.IBinding;
 import org.eclipse.e4.core.di.IInjector;
 import org.eclipse.e4.core.di.InjectionException;
@@ -53,17 +43,13 @@ import org.eclipse.e4.core.di.suppliers.IObjectDescriptor;
 import org.eclipse.e4.core.di.suppliers.IRequestor;
 import org.eclipse.e4.core.di.suppliers.PrimaryObjectSupplier;
 import org.eclipse.e4.core.internal.di.osgi.LogHelper;
-import org.osgi.framework.Bundle;
-import org.osgi.framework.FrameworkUtil;
 
 /**
  * Reflection-based dependency injector.
  */
 public class InjectorImpl implements IInjector {
 
-	final static private boolean shouldDebug = Boolean.getBoolean("org.eclipse.e4.core.di.debug"); //$NON-NLS-1$
-
-	final static private String JAVA_OBJECT = "java.lang.Object"; //$NON-NLS-1$
+	final static boolean shouldDebug = Boolean.getBoolean("org.eclipse.e4.core.di.debug"); //$NON-NLS-1$
 
 	final private static Boolean DEFAULT_BOOLEAN = Boolean.FALSE;
 	final private static Integer DEFAULT_INTEGER = Integer.valueOf(0);
@@ -76,15 +62,8 @@ public class InjectorImpl implements IInjector {
 
 	private Map<PrimaryObjectSupplier, List<WeakReference<?>>> injectedObjects = new HashMap<>();
 	private Set<WeakReference<Class<?>>> injectedClasses = new HashSet<>();
-	private HashMap<Class<?>, Object> singletonCache = new HashMap<>();
+	private Map<Class<?>, Object> singletonCache = new ConcurrentHashMap<>();
 	private Map<Class<?>, Set<Binding>> bindings = new HashMap<>();
-	private Map<Class<? extends Annotation>, Map<AnnotatedElement, Boolean>> annotationsPresent = new HashMap<>();
-
-	// Performance improvement:
-	private Map<Class<?>, Method[]> methodsCache = Collections.synchronizedMap(new WeakHashMap<>());
-	private Map<Class<?>, Field[]> fieldsCache = Collections.synchronizedMap(new WeakHashMap<>());
-	private Map<Class<?>, Constructor<?>[]> constructorsCache = Collections.synchronizedMap(new WeakHashMap<>());
-	private Map<Class<?>, Map<Method, Boolean>> isOverriddenCache = Collections.synchronizedMap(new WeakHashMap<>());
 
 	private Set<Class<?>> classesBeingCreated = new HashSet<>(5);
 
@@ -137,7 +116,7 @@ public class InjectorImpl implements IInjector {
 
 		// We call @PostConstruct after injection. This means that is is called
 		// as a part of both #make() and #inject().
-		processAnnotated(PostConstruct.class, object, object.getClass(), objectSupplier, tempSupplier, new ArrayList<>(5));
+		invokeLifecycle(InjectionPlan.get(object.getClass()).postConstruct, object, objectSupplier, tempSupplier);
 
 		// remove references to the temporary suppliers
 		for (Requestor<?> requestor : requestors) {
@@ -198,7 +177,7 @@ public class InjectorImpl implements IInjector {
 		try {
 			if (!forgetInjectedObject(object, objectSupplier))
 				return; // not injected at this time
-			processAnnotated(PreDestroy.class, object, object.getClass(), objectSupplier, null, new ArrayList<>(5));
+			invokeLifecycle(InjectionPlan.get(object.getClass()).preDestroy, object, objectSupplier, null);
 
 			ArrayList<Requestor<?>> requestors = new ArrayList<>();
 			processClassHierarchy(object, objectSupplier, null, true /* track */, false /* inverse order */, requestors);
@@ -299,7 +278,7 @@ public class InjectorImpl implements IInjector {
 	private Object invokeUsingClass(Object userObject, Class<?> currentClass, Class<? extends Annotation> qualifier,
 			Object defaultValue, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier,
 			boolean throwUnresolved, boolean initial, boolean track) {
-		Method[] methods = getDeclaredMethods(currentClass);
+		Method[] methods = InjectionPlan.getDeclaredMethods(currentClass);
 		for (Method method : methods) {
 			if (method.getAnnotation(qualifier) == null)
 				continue;
@@ -368,30 +347,16 @@ public class InjectorImpl implements IInjector {
 			if (shouldDebug)
 				classesBeingCreated.add(clazz);
 
-			boolean isSingleton = isAnnotationPresent(clazz, Singleton.class);
+			InjectionPlan plan = InjectionPlan.get(clazz);
+			boolean isSingleton = plan.isSingleton;
 			if (isSingleton) {
-				synchronized (singletonCache) {
-					if (singletonCache.containsKey(clazz))
-						return singletonCache.get(clazz);
-				}
+				Object singleton = singletonCache.get(clazz);
+				if (singleton != null)
+					return singleton;
 			}
 
-			Constructor<?>[] constructors = getDeclaredConstructors(clazz);
-			// Sort the constructors by descending number of constructor arguments
-			ArrayList<Constructor<?>> sortedConstructors = new ArrayList<>(constructors.length);
-			sortedConstructors.addAll(Arrays.asList(constructors));
-			sortedConstructors.sort(Comparator.comparing(c -> c.getParameterTypes().length, Comparator.reverseOrder()));
-
-			for (Constructor<?> constructor : sortedConstructors) {
-				// skip private and protected constructors; allow public and package visibility
-				int modifiers = constructor.getModifiers();
-				if (((modifiers & Modifier.PRIVATE) != 0) || ((modifiers & Modifier.PROTECTED) != 0))
-					continue;
-
-				// unless this is the default constructor, it has to be tagged
-				if (!isAnnotationPresent(constructor, Inject.class) && constructor.getParameterTypes().length != 0)
-					continue;
-
+			// constructors are sorted by descending number of constructor arguments
+			for (InjectionPlan.Site<Constructor<?>> constructor : plan.constructors) {
 				ConstructorRequestor requestor = new ConstructorRequestor(constructor, this, objectSupplier, tempSupplier);
 				Object[] actualArgs = resolveArgs(requestor, objectSupplier, tempSupplier, false, true, false);
 				if (unresolved(actualArgs) != -1)
@@ -402,9 +367,10 @@ public class InjectorImpl implements IInjector {
 				if (newInstance != null) {
 					internalInject(newInstance, objectSupplier, tempSupplier);
 					if (isSingleton) {
-						synchronized (singletonCache) { // TBD this is not quite right, synch the method
-							singletonCache.put(clazz, newInstance);
-						}
+						// if another thread created the singleton meanwhile, use that one
+						Object singleton = singletonCache.putIfAbsent(clazz, newInstance);
+						if (singleton != null)
+							return singleton;
 					}
 					return newInstance;
 				}
@@ -449,7 +415,7 @@ public class InjectorImpl implements IInjector {
 			Object object = objects[i];
 			if (!forgetInjectedObject(object, objectSupplier))
 				continue; // not injected at this time
-			processAnnotated(PreDestroy.class, object, object.getClass(), objectSupplier, null, new ArrayList<>(5));
+			invokeLifecycle(InjectionPlan.get(object.getClass()).preDestroy, object, objectSupplier, null);
 		}
 		forgetSupplier(objectSupplier);
 	}
@@ -644,34 +610,23 @@ public class InjectorImpl implements IInjector {
 		return -1;
 	}
 
-	private void processClassHierarchy(Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, boolean track, boolean normalOrder, List<Requestor<?>> requestors) {
-		processClass(userObject, objectSupplier, tempSupplier, (userObject == null) ? null : userObject.getClass(), new ArrayList<>(5), track, normalOrder, requestors);
-	}
-
 	/**
-	 * Make the processor visit all declared members on the given class and all superclasses
+	 * Make the processor visit all injected members on the class of the given object and all superclasses
 	 */
-	private void processClass(Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, Class<?> objectsClass, ArrayList<Class<?>> classHierarchy, boolean track, boolean normalOrder, List<Requestor<?>> requestors) {
+	private void processClassHierarchy(Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, boolean track, boolean normalOrder, List<Requestor<?>> requestors) {
 		// order: superclass, fields, methods
-		if (objectsClass != null) {
-			Class<?> superClass = objectsClass.getSuperclass();
-			if (superClass != null && !superClass.getName().equals(JAVA_OBJECT)) {
-				classHierarchy.add(objectsClass);
-				processClass(userObject, objectSupplier, tempSupplier, superClass, classHierarchy, track, normalOrder, requestors);
-				classHierarchy.remove(objectsClass);
+		for (InjectionPlan.Level level : InjectionPlan.get(userObject.getClass()).levels) {
+			boolean skipStatic = level.hasStatic && hasInjectedStatic(level.type);
+			if (normalOrder) {
+				processFields(userObject, objectSupplier, tempSupplier, level, skipStatic, track, requestors);
+				processMethods(userObject, objectSupplier, tempSupplier, level, skipStatic, track, requestors);
+			} else {
+				processMethods(userObject, objectSupplier, tempSupplier, level, skipStatic, track, requestors);
+				processFields(userObject, objectSupplier, tempSupplier, level, skipStatic, track, requestors);
 			}
+			if (level.hasStatic && !skipStatic)
+				rememberInjectedStatic(level.type);
 		}
-		boolean injectedStaticFields;
-		boolean injectedStaticMethods;
-		if (normalOrder) {
-			injectedStaticFields = processFields(userObject, objectSupplier, tempSupplier, objectsClass, track, requestors);
-			injectedStaticMethods = processMethods(userObject, objectSupplier, tempSupplier, objectsClass, classHierarchy, track, requestors);
-		} else {
-			injectedStaticMethods = processMethods(userObject, objectSupplier, tempSupplier, objectsClass, classHierarchy, track, requestors);
-			injectedStaticFields = processFields(userObject, objectSupplier, tempSupplier, objectsClass, track, requestors);
-		}
-		if (injectedStaticFields || injectedStaticMethods)
-			rememberInjectedStatic(objectsClass);
 	}
 
 	private boolean hasInjectedStatic(Class<?> objectsClass) {
@@ -693,156 +648,20 @@ public class InjectorImpl implements IInjector {
 		}
 	}
 
-	/**
-	 * Make the processor visit all declared fields on the given class.
-	 */
-	private boolean processFields(Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, Class<?> objectsClass, boolean track, List<Requestor<?>> requestors) {
-		boolean injectedStatic = false;
-		Field[] fields = getDeclaredFields(objectsClass);
-		for (Field field : fields) {
-			if (Modifier.isStatic(field.getModifiers())) {
-				if (hasInjectedStatic(objectsClass))
-					continue;
-				injectedStatic = true;
-			}
-			if (!isAnnotationPresent(field, Inject.class))
+	private void processFields(Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, InjectionPlan.Level level, boolean skipStatic, boolean track, List<Requestor<?>> requestors) {
+		for (InjectionPlan.Site<Field> field : level.fields) {
+			if (field.isStatic && skipStatic)
 				continue;
 			requestors.add(new FieldRequestor(field, this, objectSupplier, tempSupplier, userObject, track));
 		}
-		return injectedStatic;
 	}
 
-	/**
-	 * Make the processor visit all declared methods on the given class.
-	 */
-	private boolean processMethods(final Object userObject, PrimaryObjectSupplier objectSupplier,
-			PrimaryObjectSupplier tempSupplier, Class<?> objectsClass, ArrayList<Class<?>> classHierarchy,
-			boolean track, List<Requestor<?>> requestors) {
-		boolean injectedStatic = false;
-		Method[] methods = getDeclaredMethods(objectsClass);
-		for (Method method : methods) {
-
-			Boolean isOverridden = null;
-			Map<Method, Boolean> methodMap = null;
-			Class<?> originalClass = userObject.getClass();
-			methodMap = isOverriddenCache.get(originalClass);
-			if (methodMap != null) {
-				isOverridden = methodMap.get(method);
-			}
-			if (isOverridden == null) {
-				isOverridden = isOverridden(method, classHierarchy);
-				if (methodMap == null) {
-					methodMap = Collections.synchronizedMap(new WeakHashMap<>());
-					isOverriddenCache.put(originalClass, methodMap);
-				}
-				methodMap.put(method, isOverridden);
-			}
-
-			if (isOverridden) {
-				continue; // process in the subclass
-			}
-			if (Modifier.isStatic(method.getModifiers())) {
-				if (hasInjectedStatic(objectsClass)) {
-					continue;
-				}
-				injectedStatic = true;
-			}
-			if (!isAnnotationPresent(method, Inject.class)) {
+	private void processMethods(Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, InjectionPlan.Level level, boolean skipStatic, boolean track, List<Requestor<?>> requestors) {
+		for (InjectionPlan.Site<Method> method : level.methods) {
+			if (method.isStatic && skipStatic)
 				continue;
-			}
 			requestors.add(new MethodRequestor(method, this, objectSupplier, tempSupplier, userObject, track));
 		}
-		return injectedStatic;
-	}
-
-	/**
-	 * Checks if a given method is overridden with an injectable method.
-	 */
-	private boolean isOverridden(Method method, ArrayList<Class<?>> classHierarchy) {
-		int modifiers = method.getModifiers();
-		if (Modifier.isPrivate(modifiers))
-			return false;
-		if (Modifier.isStatic(modifiers))
-			return false;
-		// method is not private if we reached this line, check not(public OR protected)
-		boolean isDefault = !(Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers));
-
-		String methodName = method.getName();
-		Class<?>[] methodParams = method.getParameterTypes();
-		int methodParamsLength = method.getParameterTypes().length;
-		for (Class<?> subClass : classHierarchy) {
-			Method[] methods = getDeclaredMethods(subClass);
-			Method matchingMethod = null;
-			for (Method candidate : methods) {
-				if (!methodName.equals(candidate.getName()))
-					continue;
-				Class<?>[] candidateParams = candidate.getParameterTypes();
-				if (candidateParams.length != methodParamsLength)
-					continue;
-				boolean paramsMatch = true;
-				for (int i = 0; i < methodParamsLength; i++) {
-					if (candidateParams[i].equals(methodParams[i])) // strictly speaking, need to add erasures
-						continue;
-					paramsMatch = false;
-				}
-				if (!paramsMatch)
-					continue;
-				matchingMethod = candidate;
-				break;
-			}
-			if (matchingMethod == null)
-				continue;
-
-			if (isDefault) { // must be in the same package to override
-				Package originalPackage = method.getDeclaringClass().getPackage();
-				Package overridePackage = subClass.getPackage();
-
-				if (originalPackage == null && overridePackage == null)
-					return true;
-				if (originalPackage == null || overridePackage == null)
-					return false;
-				if (originalPackage.equals(overridePackage))
-					return true;
-			} else
-				return true;
-		}
-		return false;
-	}
-
-	private Constructor<?>[] getDeclaredConstructors(Class<?> c) {
-		Constructor<?>[] constructors = constructorsCache.get(c);
-		if (constructors == null) {
-			constructors = c.getDeclaredConstructors();
-			// Sort the constructors by descending number of constructor
-			// arguments
-			Arrays.sort(constructors, (c1, c2) -> {
-				int l1 = c1.getParameterTypes().length;
-				int l2 = c2.getParameterTypes().length;
-				return l2 - l1;
-			});
-			constructorsCache.put(c, constructors);
-		}
-		return constructors;
-	}
-
-	private Method[] getDeclaredMethods(Class<?> c) {
-		Method[] methods = methodsCache.get(c);
-		if (methods == null) {
-			// filter out all bridge methods
-			methods = Stream.of(c.getDeclaredMethods())
-					.filter(m -> !m.isBridge()).toArray(s -> new Method[s]);
-			methodsCache.put(c, methods);
-		}
-		return methods;
-	}
-
-	private Field[] getDeclaredFields(Class<?> c) {
-		Field[] fields = fieldsCache.get(c);
-		if (fields == null) {
-			fields = c.getDeclaredFields();
-			fieldsCache.put(c, fields);
-		}
-		return fields;
 	}
 
 	private Class<?> getDesiredClass(Type desiredType) {
@@ -953,41 +772,13 @@ public class InjectorImpl implements IInjector {
 		return str1.equals(str2);
 	}
 
-	private void processAnnotated(Class<? extends Annotation> annotation, Object userObject, Class<?> objectClass, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, ArrayList<Class<?>> classHierarchy) {
-		Class<?> superClass = objectClass.getSuperclass();
-		if (superClass != null && !superClass.getName().equals(JAVA_OBJECT)) {
-			classHierarchy.add(objectClass);
-			processAnnotated(annotation, userObject, superClass, objectSupplier, tempSupplier, classHierarchy);
-			classHierarchy.remove(objectClass);
-		}
-		Method[] methods = getDeclaredMethods(objectClass);
-		for (Method method : methods) {
-			if (!isAnnotationPresent(method, annotation)) {
-				if (shouldDebug) {
-					for (Annotation a : method.getAnnotations()) {
-						if (annotation.getName().equals(a.annotationType().getName())) {
-							StringBuilder tmp = new StringBuilder();
-							tmp.append("Possbible annotation mismatch: method \""); //$NON-NLS-1$
-							tmp.append(method.toString());
-							tmp.append("\" annotated with \""); //$NON-NLS-1$
-							tmp.append(describeClass(a.annotationType()));
-							tmp.append("\" but was looking for \""); //$NON-NLS-1$
-							tmp.append(describeClass(annotation));
-							tmp.append("\""); //$NON-NLS-1$
-							LogHelper.logWarning(tmp.toString(), null);
-						}
-					}
-				}
-				continue;
-			}
-			if (isOverridden(method, classHierarchy))
-				continue;
-
+	private void invokeLifecycle(List<InjectionPlan.Site<Method>> methods, Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier) {
+		for (InjectionPlan.Site<Method> method : methods) {
 			MethodRequestor requestor = new MethodRequestor(method, this, objectSupplier, tempSupplier, userObject, false);
 			Object[] actualArgs = resolveArgs(requestor, objectSupplier, tempSupplier, false, false, false);
 			int unresolved = unresolved(actualArgs);
 			if (unresolved != -1) {
-				if (isAnnotationPresent(method, Optional.class))
+				if (method.isOptional)
 					continue;
 				reportUnresolvedArgument(requestor, unresolved);
 			}
@@ -996,42 +787,8 @@ public class InjectorImpl implements IInjector {
 		}
 	}
 
-	/** Provide a human-meaningful description of the provided class */
-	private String describeClass(Class<?> cl) {
-		Bundle b = FrameworkUtil.getBundle(cl);
-		if (b != null) {
-			return b.getSymbolicName() + ":" + b.getVersion() + ":" + cl.getName(); //$NON-NLS-1$ //$NON-NLS-2$
-		}
-		CodeSource clazzCS = cl.getProtectionDomain().getCodeSource();
-		if (clazzCS != null) {
-			return clazzCS.getLocation() + ">" + cl.getName(); //$NON-NLS-1$
-		}
-		if (cl.getClassLoader() == null) {
-			return cl.getName() + " [via bootstrap classloader]"; //$NON-NLS-1$
-		}
-		return cl.getName();
-	}
-
 	@Override
 	public void setDefaultSupplier(PrimaryObjectSupplier objectSupplier) {
 		defaultSupplier = objectSupplier;
 	}
-
-	private boolean isAnnotationPresent(AnnotatedElement annotatedElement,
-			Class<? extends Annotation> annotation) {
-		Map<AnnotatedElement, Boolean> cache = annotationsPresent.get(annotation);
-		if (cache == null) {
-			cache = Collections.synchronizedMap(new WeakHashMap<>());
-			annotationsPresent.put(annotation, cache);
-		}
-
-		Boolean present = cache.get(annotatedElement);
-		if (present != null) {
-			return present;
-		}
-
-		boolean isPresent = annotatedElement.isAnnotationPresent(annotation);
-		cache.put(annotatedElement, isPresent);
-		return isPresent;
-	}
 }
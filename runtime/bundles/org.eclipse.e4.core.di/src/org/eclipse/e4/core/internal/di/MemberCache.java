@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.di;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Member;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A cache of values computed for classes or their members. The values of a
+ * class are kept in a concurrent map attached to the class with a
+ * {@link ClassValue}, so lookups do not lock and the cache does not prevent the
+ * class from being unloaded.
+ *
+ * @param <K> the type of the keys, a {@link Class} or a {@link Member}
+ * @param <V> the type of the values
+ */
+final class MemberCache<K extends AnnotatedElement, V> {
+
+	private final ClassValue<Map<K, V>> maps = new ClassValue<Map<K, V>>() {
+		@Override
+		protected Map<K, V> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>(4);
+		}
+	};
+
+	/**
+	 * Returns the value cached for the given class or member, computing it with
+	 * the given function if there is none. The function may be called more than
+	 * once for the same key if several threads ask for it at the same time.
+	 */
+	V get(K key, Function<? super K, ? extends V> function) {
+		Class<?> type = (key instanceof Member) ? ((Member) key).getDeclaringClass() : (Class<?>) key;
+		Map<K, V> map = maps.get(type);
+		V value = map.get(key);
+		if (value == null) {
+			value = function.apply(key);
+			V previous = map.putIfAbsent(key, value);
+			if (previous != null)
+				value = previous;
+		}
+		return value;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2016 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,12 +14,10 @@
 package org.eclipse.e4.core.internal.di;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
-import java.util.Collections;
-import java.util.Map;
-import java.util.WeakHashMap;
 import org.eclipse.e4.core.di.IInjector;
 import org.eclipse.e4.core.di.InjectionException;
 import org.eclipse.e4.core.di.suppliers.IObjectDescriptor;
@@ -30,23 +28,35 @@ public class MethodRequestor extends Requestor<Method> {
 	/**
 	 * The parameters annotation cache.  Having a *static* map is valuable as it changes the hit rate from about 60% to about 90%.
 	 */
-	private static Map<Method, Annotation[][]> annotationCache = Collections.synchronizedMap(new WeakHashMap<>());
+	private static final MemberCache<Method, Annotation[][]> annotationCache = new MemberCache<>();
+
+	private static final Object[] EMPTY_ARGS = new Object[0];
+
+	/** The site of the method in an injection plan; may be null */
+	final private InjectionPlan.Site<Method> site;
 
 	public MethodRequestor(Method method, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier, Object requestingObject, boolean track) {
 		super(method, injector, primarySupplier, tempSupplier, requestingObject, track);
+		site = null;
+	}
+
+	MethodRequestor(InjectionPlan.Site<Method> site, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier, Object requestingObject, boolean track) {
+		super(site, injector, primarySupplier, tempSupplier, requestingObject, track);
+		this.site = site;
 	}
 
 	@Override
 	public Object execute() throws InjectionException {
 		if (actualArgs == null) {
-			if (location.getParameterTypes().length > 0)
+			if (location.getParameterCount() > 0)
 				return null; // optional method call
 		}
 		Object userObject = getRequestingObject();
 		if (userObject == null)
 			return null;
 		Object result = null;
-		if (!location.isAccessible()) {
+		MethodHandle handle = (site == null) ? null : site.handle;
+		if (handle == null && !location.isAccessible()) {
 			location.setAccessible(true);
 		}
 		boolean pausedRecording = false;
@@ -55,7 +65,10 @@ public class MethodRequestor extends Requestor<Method> {
 			pausedRecording = true;
 		}
 		try {
-			result = location.invoke(userObject, actualArgs);
+			if (handle != null)
+				result = site.invoke(userObject, (actualArgs == null) ? EMPTY_ARGS : actualArgs);
+			else
+				result = location.invoke(userObject, actualArgs);
 		} catch (IllegalArgumentException | IllegalAccessException e) {
 			throw new InjectionException(e);
 		} catch (InvocationTargetException e) {
@@ -76,8 +89,12 @@ public class MethodRequestor extends Requestor<Method> {
 
 	@Override
 	protected IObjectDescriptor[] calcDependentObjects() {
-		Type[] parameterTypes = location.getGenericParameterTypes();
-		Annotation[][] annotations = getParameterAnnotations();
+		return getDescriptors(location);
+	}
+
+	static IObjectDescriptor[] getDescriptors(Method method) {
+		Type[] parameterTypes = method.getGenericParameterTypes();
+		Annotation[][] annotations = getParameterAnnotations(method);
 		if (parameterTypes.length == 0) {
 			return EMPTY_DESCRIPTORS;
 		}
@@ -90,15 +107,11 @@ public class MethodRequestor extends Requestor<Method> {
 
 	/** @return the annotations for each of the method parameters */
 	public Annotation[][] getParameterAnnotations() {
-		// We don't synchronize annotationCache to avoid performance overhead.
-		// The code below should be fine non-synchronized; but this needs to be
-		// kept in mind if this method is updated.
-		Annotation[][] result = annotationCache.get(location);
-		if (result == null) {
-			result = location.getParameterAnnotations();
-			annotationCache.put(location, result);
-		}
-		return result;
+		return getParameterAnnotations(location);
+	}
+
+	private static Annotation[][] getParameterAnnotations(Method method) {
+		return annotationCache.get(method, Method::getParameterAnnotations);
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2015 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,10 +17,7 @@ import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.AnnotatedElement;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Map;
 import java.util.Objects;
-import java.util.WeakHashMap;
 import org.eclipse.e4.core.di.IInjector;
 import org.eclipse.e4.core.di.annotations.GroupUpdates;
 import org.eclipse.e4.core.di.annotations.Optional;
@@ -33,8 +30,7 @@ import org.eclipse.e4.core.di.suppliers.PrimaryObjectSupplier;
  */
 abstract public class Requestor<L extends AnnotatedElement> implements IRequestor {
 
-	private static final Map<AnnotatedElement, IObjectDescriptor[]> descriptorCache = Collections
-			.synchronizedMap(new WeakHashMap<>());
+	private static final MemberCache<AnnotatedElement, IObjectDescriptor[]> descriptorCache = new MemberCache<>();
 	protected static final IObjectDescriptor[] EMPTY_DESCRIPTORS = new IObjectDescriptor[0];
 
 	/** The request location; may be null */
@@ -58,6 +54,20 @@ abstract public class Requestor<L extends AnnotatedElement> implements IRequesto
 	protected abstract IObjectDescriptor[] calcDependentObjects();
 
 	public Requestor(L location, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier, Object requestingObject, boolean track) {
+		this(location, injector, primarySupplier, tempSupplier, requestingObject, track,
+				(location == null) ? false : location.isAnnotationPresent(GroupUpdates.class),
+				(location == null) ? false : location.isAnnotationPresent(Optional.class), null);
+	}
+
+	/**
+	 * Creates a requestor for an injection point of a cached {@link InjectionPlan}.
+	 */
+	Requestor(InjectionPlan.Site<L> site, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier, Object requestingObject, boolean track) {
+		this(site.member, injector, primarySupplier, tempSupplier, requestingObject, track, site.groupUpdates,
+				site.isOptional, site.descriptors);
+	}
+
+	private Requestor(L location, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier, Object requestingObject, boolean track, boolean groupUpdates, boolean isOptional, IObjectDescriptor[] objectDescriptors) {
 		this.location = location;
 		this.injector = injector;
 		this.primarySupplier = primarySupplier;
@@ -73,8 +83,9 @@ abstract public class Requestor<L extends AnnotatedElement> implements IRequesto
 			objectHashcode = 0;
 		}
 		this.track = track;
-		groupUpdates = (location == null) ? false : location.isAnnotationPresent(GroupUpdates.class);
-		isOptional = (location == null) ? false : location.isAnnotationPresent(Optional.class);
+		this.groupUpdates = groupUpdates;
+		this.isOptional = isOptional;
+		this.objectDescriptors = objectDescriptors;
 	}
 
 	/**
@@ -180,7 +191,8 @@ abstract public class Requestor<L extends AnnotatedElement> implements IRequesto
 
 	public synchronized IObjectDescriptor[] getDependentObjects() {
 		if (objectDescriptors == null) {
-			objectDescriptors = descriptorCache.computeIfAbsent(location, l -> calcDependentObjects());
+			objectDescriptors = (location == null) ? calcDependentObjects()
+					: descriptorCache.get(location, l -> calcDependentObjects());
 		}
 		return objectDescriptors;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -47,6 +47,7 @@ import org.eclipse.core.expressions.EvaluationContext;
 import org.eclipse.core.expressions.EvaluationResult;
 import org.eclipse.core.expressions.Expression;
 import org.eclipse.core.expressions.ExpressionConverter;
+import org.eclipse.core.expressions.ExpressionInfo;
 import org.eclipse.core.expressions.IEvaluationContext;
 import org.eclipse.core.expressions.IVariableResolver;
 import org.eclipse.core.expressions.OrExpression;
@@ -1140,4 +1141,268 @@ public class ExpressionTests {
 				cachedDelta < instanceDelta);
 	}
 
+	/**
+	 * Tests that cached instanceof computations do not contend when several threads
+	 * evaluate them at the same time.
+	 */
+	@Test
+	public void testSubTypeConcurrentTiming() throws Throwable {
+		HashSet<?> o1 = new HashSet<>();
+		// fill the cache
+		assertTrue(Expressions.isInstanceOf(o1, "java.util.Set"));
+
+		System.gc();
+		long cachedDelta= runConcurrently(() -> {
+			for (int i= 0; i < TYPE_ITERATIONS; i++) {
+				assertTrue(Expressions.isInstanceOf(o1, "java.util.Set"));
+				assertFalse(Expressions.isInstanceOf(o1, "java.util.List"));
+			}
+		});
+
+		System.gc();
+		long instanceDelta= runConcurrently(() -> {
+			for (int i= 0; i < TYPE_ITERATIONS; i++) {
+				assertTrue(Expressions.uncachedIsSubtype(o1.getClass(), "java.util.Set"));
+				assertFalse(Expressions.uncachedIsSubtype(o1.getClass(), "java.util.List"));
+			}
+		});
+
+		assertTrue("cachedDelta: " + cachedDelta + ", instanceDelta: " + instanceDelta,
+				cachedDelta < instanceDelta);
+	}
+
+	private static long runConcurrently(Runnable runnable) throws Throwable {
+		Thread[] threads= new Thread[4];
+		Throwable[] failure= new Throwable[1];
+		for (int i= 0; i < threads.length; i++) {
+			threads[i]= new Thread(() -> {
+				try {
+					runnable.run();
+				} catch (Throwable e) {
+					failure[0]= e;
+				}
+			});
+		}
+		long start= System.currentTimeMillis();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long delta= System.currentTimeMillis() - start;
+		if (failure[0] != null)
+			throw failure[0];
+		return delta;
+	}
+
+	@Test
+	public void testCompile() throws Exception {
+		WithExpression with= new WithExpression("selection"); //$NON-NLS-1$
+		OrExpression or= new OrExpression();
+		or.add(new InstanceofExpression("java.util.Set")); //$NON-NLS-1$
+		or.add(new InstanceofExpression("java.util.List")); //$NON-NLS-1$
+		with.add(or);
+		with.add(new NotExpression(new EqualsExpression(Collections.emptyList())));
+		AndExpression and= new AndExpression();
+		and.add(new SystemTestExpression("os.name", System.getProperty("os.name"))); //$NON-NLS-1$ //$NON-NLS-2$
+		and.add(with);
+		and.add(Expression.TRUE);
+		Expression compiled= ExpressionConverter.getDefault().compile(and);
+
+		EvaluationContext context= new EvaluationContext(null, new Object());
+		for (Object selection : new Object[] { new ArrayList<>(Arrays.asList("a")), new HashSet<>(), Collections.emptyList(), "a", //$NON-NLS-1$ //$NON-NLS-2$
+				IEvaluationContext.UNDEFINED_VARIABLE }) {
+			context.addVariable("selection", selection); //$NON-NLS-1$
+			assertEquals(String.valueOf(selection), and.evaluate(context), compiled.evaluate(context));
+		}
+
+		context.removeVariable("selection"); //$NON-NLS-1$
+		try {
+			compiled.evaluate(context);
+			fail("undefined variable not reported"); //$NON-NLS-1$
+		} catch (CoreException e) {
+			assertEquals(ExpressionStatus.VARIABLE_NOT_DEFINED, e.getStatus().getCode());
+		}
+
+		assertEquals(and.computeExpressionInfo().hasDefaultVariableAccess(), compiled.computeExpressionInfo().hasDefaultVariableAccess());
+		assertEquals(Arrays.asList(and.computeExpressionInfo().getAccessedVariableNames()),
+				Arrays.asList(compiled.computeExpressionInfo().getAccessedVariableNames()));
+		assertTrue(compiled.computeExpressionInfo().hasSystemPropertyAccess());
+		assertEquals(compiled, ExpressionConverter.getDefault().compile(and));
+		assertEquals(compiled.hashCode(), ExpressionConverter.getDefault().compile(and).hashCode());
+		assertTrue(compiled == ExpressionConverter.getDefault().compile(compiled));
+	}
+
+	@Test
+	public void testCompileIterate() throws Exception {
+		IterateExpression iterate= new IterateExpression("or"); //$NON-NLS-1$
+		iterate.add(new InstanceofExpression("java.lang.String")); //$NON-NLS-1$
+		Expression compiled= ExpressionConverter.getDefault().compile(iterate);
+		for (Object selection : new Object[] { Arrays.asList(Integer.valueOf(1), "a"), Arrays.asList(Integer.valueOf(1), null), //$NON-NLS-1$
+				Collections.singletonList("a"), Collections.singleton(Integer.valueOf(1)), Collections.emptyList() }) { //$NON-NLS-1$
+			EvaluationContext context= new EvaluationContext(null, selection);
+			assertEquals(String.valueOf(selection), iterate.evaluate(context), compiled.evaluate(context));
+		}
+	}
+
+	@Test
+	public void testCompileConstants() throws Exception {
+		EvaluationContext context= new EvaluationContext(null, new Object());
+		AndExpression and= new AndExpression();
+		and.add(new WithExpression("undefined")); //$NON-NLS-1$
+		and.add(Expression.FALSE);
+		assertEquals(EvaluationResult.FALSE, ExpressionConverter.getDefault().compile(and).evaluate(context));
+		// the interpreter evaluates the operands in order and fails
+		try {
+			and.evaluate(context);
+			fail("Expected a CoreException for the undefined variable"); //$NON-NLS-1$
+		} catch (CoreException e) {
+			assertEquals(ExpressionStatus.VARIABLE_NOT_DEFINED, e.getStatus().getCode());
+		}
+
+		OrExpression or= new OrExpression();
+		assertEquals(EvaluationResult.TRUE, ExpressionConverter.getDefault().compile(or).evaluate(context));
+		or.add(Expression.FALSE);
+		assertEquals(EvaluationResult.FALSE, ExpressionConverter.getDefault().compile(or).evaluate(context));
+		or.add(new NotExpression(Expression.FALSE));
+		assertEquals(EvaluationResult.TRUE, ExpressionConverter.getDefault().compile(or).evaluate(context));
+	}
+
+	/**
+	 * Counts its evaluations and tests the default variable.
+	 */
+	private static class CountingExpression extends Expression {
+		int evaluations;
+		EvaluationResult result= EvaluationResult.TRUE;
+
+		@Override
+		public EvaluationResult evaluate(IEvaluationContext context) {
+			evaluations++;
+			return result;
+		}
+
+		@Override
+		public void collectExpressionInfo(ExpressionInfo info) {
+			info.markDefaultVariableAccessed();
+			info.addAccessedPropertyName("org.eclipse.core.expressions.tests.counting"); //$NON-NLS-1$
+		}
+	}
+
+	@Test
+	public void testEvaluateCached() throws Exception {
+		CountingExpression counting= new CountingExpression();
+		WithExpression with= new WithExpression("selection"); //$NON-NLS-1$
+		with.add(counting);
+		EvaluationContext parent= new EvaluationContext(null, new Object());
+		parent.addVariable("selection", "a"); //$NON-NLS-1$ //$NON-NLS-2$
+		EvaluationContext context= new EvaluationContext(parent, new Object());
+
+		assertEquals(EvaluationResult.TRUE, context.evaluateCached(with));
+		assertEquals(EvaluationResult.TRUE, context.evaluateCached(with));
+		assertEquals(1, counting.evaluations);
+
+		// unrelated variables don't matter
+		context.addVariable("other", "b"); //$NON-NLS-1$ //$NON-NLS-2$
+		parent.addVariable("other", "b"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(EvaluationResult.TRUE, context.evaluateCached(with));
+		assertEquals(1, counting.evaluations);
+
+		// variables of the context and its parents do
+		parent.addVariable("selection", "b"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(EvaluationResult.TRUE, context.evaluateCached(with));
+		assertEquals(2, counting.evaluations);
+		context.addVariable("selection", "c"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(EvaluationResult.TRUE, context.evaluateCached(with));
+		context.removeVariable("selection"); //$NON-NLS-1$
+		assertEquals(EvaluationResult.TRUE, context.evaluateCached(with));
+		assertEquals(4, counting.evaluations);
+
+		// so do plug-in activation and explicit requests
+		context.setAllowPluginActivation(true);
+		assertEquals(EvaluationResult.TRUE, context.evaluateCached(with));
+		assertEquals(5, counting.evaluations);
+		context.clearCachedResults("org.eclipse.core.expressions.tests.other"); //$NON-NLS-1$
+		assertEquals(EvaluationResult.TRUE, context.evaluateCached(with));
+		assertEquals(5, counting.evaluations);
+		context.clearCachedResults("org.eclipse.core.expressions.tests.counting"); //$NON-NLS-1$
+		counting.result= EvaluationResult.FALSE;
+		assertEquals(EvaluationResult.FALSE, context.evaluateCached(with));
+		assertEquals(6, counting.evaluations);
+
+		// results that may change when a plug-in is loaded are not kept
+		context.clearCachedResults(null);
+		counting.result= EvaluationResult.NOT_LOADED;
+		assertEquals(EvaluationResult.NOT_LOADED, context.evaluateCached(with));
+		assertEquals(EvaluationResult.NOT_LOADED, context.evaluateCached(with));
+		assertEquals(8, counting.evaluations);
+	}
+
+	@Test
+	public void testEvaluateCachedNotTracked() throws Exception {
+		CountingExpression counting= new CountingExpression();
+		AndExpression and= new AndExpression();
+		and.add(counting);
+		and.add(new SystemTestExpression("os.name", System.getProperty("os.name"))); //$NON-NLS-1$ //$NON-NLS-2$
+		EvaluationContext context= new EvaluationContext(null, new Object());
+		context.evaluateCached(and);
+		context.evaluateCached(and);
+		assertEquals(2, counting.evaluations);
+
+		IVariableResolver resolver= (name, args) -> null;
+		context= new EvaluationContext(new EvaluationContext(null, new Object(), new IVariableResolver[] { resolver }), new Object());
+		context.evaluateCached(counting);
+		context.evaluateCached(counting);
+		assertEquals(4, counting.evaluations);
+	}
+
+	@Test
+	public void testCompiledTiming() throws Exception {
+		// enablement expressions of many contributions
+		Expression[] expressions= new Expression[2000];
+		String[] types= { "java.util.Set", "java.util.List", "java.util.Map", "java.lang.CharSequence" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		for (int i= 0; i < expressions.length; i++) {
+			EnablementExpression enablement= new EnablementExpression((IConfigurationElement) null);
+			WithExpression with= new WithExpression("selection"); //$NON-NLS-1$
+			IterateExpression iterate= new IterateExpression("or", "false"); //$NON-NLS-1$ //$NON-NLS-2$
+			iterate.add(new InstanceofExpression(types[i % types.length]));
+			with.add(new NotExpression(new EqualsExpression("contribution" + i))); //$NON-NLS-1$
+			with.add(iterate);
+			WithExpression part= new WithExpression("activePart"); //$NON-NLS-1$
+			OrExpression or= new OrExpression();
+			or.add(new EqualsExpression("part" + i % 10)); //$NON-NLS-1$
+			or.add(new InstanceofExpression(types[(i + 1) % types.length]));
+			part.add(or);
+			enablement.add(with);
+			enablement.add(part);
+			expressions[i]= enablement;
+		}
+		Expression[] compiled= new Expression[expressions.length];
+		for (int i= 0; i < expressions.length; i++) {
+			compiled[i]= ExpressionConverter.getDefault().compile(expressions[i]);
+		}
+		EvaluationContext context= new EvaluationContext(null, new Object());
+		context.addVariable("selection", Arrays.asList("a", "b")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		context.addVariable("activePart", new HashSet<>()); //$NON-NLS-1$
+
+		for (int i= 0; i < expressions.length; i++) {
+			assertEquals(expressions[i].evaluate(context), compiled[i].evaluate(context));
+		}
+		long interpretedDelta= 0;
+		long compiledDelta= 0;
+		for (int run= 0; run < 5; run++) {
+			long start= System.nanoTime();
+			for (int n= 0; n < 20; n++)
+				for (Expression expression : expressions)
+					expression.evaluate(context);
+			interpretedDelta= System.nanoTime() - start;
+			start= System.nanoTime();
+			for (int n= 0; n < 20; n++)
+				for (Expression expression : compiled)
+					expression.evaluate(context);
+			compiledDelta= System.nanoTime() - start;
+		}
+		assertTrue("compiledDelta: " + compiledDelta + ", interpretedDelta: " + interpretedDelta, //$NON-NLS-1$ //$NON-NLS-2$
+				compiledDelta < interpretedDelta);
+	}
 }
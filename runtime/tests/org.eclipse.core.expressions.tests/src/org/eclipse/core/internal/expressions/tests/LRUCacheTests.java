@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.expressions.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import org.eclipse.core.internal.expressions.util.LRUCache;
+
+public class LRUCacheTests {
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		List<String> removed= new ArrayList<>();
+		LRUCache<String, String> cache= new LRUCache<String, String>(3) {
+			@Override
+			protected void entryRemoved(String key, String value) {
+				removed.add(key);
+			}
+		};
+		cache.put("a", "A"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("b", "B"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("c", "C"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("A", cache.get("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("d", "D"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertNull(cache.get("b")); //$NON-NLS-1$
+		assertEquals("A", cache.peek("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(3, cache.getCurrentSpace());
+		assertEquals(List.of("b"), removed); //$NON-NLS-1$
+
+		assertEquals("C", cache.removeKey("c")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(List.of("b", "c"), removed); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.flush();
+		assertEquals(0, cache.getCurrentSpace());
+		assertEquals(4, removed.size());
+	}
+
+	@Test
+	public void testStatistics() {
+		LRUCache<Integer, Integer> cache= new LRUCache<>(100);
+		for (int i= 0; i < 150; i++) {
+			cache.put(i, i);
+		}
+		for (int i= 0; i < 150; i++) {
+			cache.get(i);
+		}
+		cache.recordMiss();
+
+		assertEquals(100, cache.getCurrentSpace());
+		assertEquals(50, cache.getEvictionCount());
+		assertEquals(100, cache.getHitCount());
+		assertEquals(51, cache.getMissCount());
+		assertTrue(cache.toString(), cache.toString().contains("evictions: 50")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testSkewedKeysUseWholeSpace() {
+		LRUCache<Integer, Integer> cache= new LRUCache<>(1000);
+		// small multiples of 64 hash to the same segment
+		for (int i= 0; i < 1000; i++) {
+			cache.put(i * 64, i);
+		}
+		assertEquals(1000, cache.getCurrentSpace());
+		assertEquals(0, cache.getEvictionCount());
+
+		// a key of another segment makes space in the full one
+		cache.put(1, 1);
+		assertEquals(1000, cache.getCurrentSpace());
+		assertEquals(1, cache.getEvictionCount());
+		assertNull(cache.peek(0));
+		assertEquals(Integer.valueOf(1), cache.peek(1));
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		Map<Integer, Integer> evicted= new ConcurrentHashMap<>();
+		LRUCache<Integer, Integer> cache= new LRUCache<Integer, Integer>(500) {
+			@Override
+			protected void entryRemoved(Integer key, Integer value) {
+				evicted.merge(key, 1, Integer::sum);
+			}
+		};
+		ExecutorService executor= Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Void>> results= new ArrayList<>();
+			for (int t= 0; t < 4; t++) {
+				int offset= t * 1000;
+				results.add(executor.submit((Callable<Void>) () -> {
+					for (int n= 0; n < 1000; n++) {
+						Integer key= Integer.valueOf(offset + n);
+						cache.put(key, key);
+						Integer value= cache.get(key % 100);
+						assertTrue(value == null || value.intValue() == key % 100);
+					}
+					return null;
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertTrue(cache.toString(), cache.getCurrentSpace() <= cache.getSpaceLimit());
+		assertEquals(4000 - cache.getCurrentSpace(), cache.getEvictionCount());
+		assertEquals(4000 - cache.getCurrentSpace(), evicted.size());
+		assertEquals(4000, cache.getHitCount() + cache.getMissCount());
+	}
+}
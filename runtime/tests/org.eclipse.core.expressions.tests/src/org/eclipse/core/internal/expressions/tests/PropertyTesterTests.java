@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,15 +13,26 @@
  *******************************************************************************/
 package org.eclipse.core.internal.expressions.tests;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.osgi.framework.Bundle;
 
 import org.eclipse.core.expressions.EvaluationContext;
 import org.eclipse.core.expressions.EvaluationResult;
+import org.eclipse.core.expressions.Expression;
+import org.eclipse.core.expressions.ExpressionConverter;
 import org.eclipse.core.expressions.TestExpression;
 import org.eclipse.core.internal.expressions.Property;
 import org.eclipse.core.internal.expressions.TypeExtensionManager;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IExtensionDelta;
+import org.eclipse.core.runtime.IRegistryChangeEvent;
 import org.eclipse.core.runtime.InvalidRegistryObjectException;
 import org.eclipse.core.runtime.Platform;
 
@@ -175,6 +186,109 @@ public class PropertyTesterTests extends TestCase {
 		assertEquals(EvaluationResult.TRUE, result);
 	}
 
+	public void testConcurrentLookup() throws Exception {
+		final Object[] receivers= { a, b, a, b, a, b, new I() {} };
+		final String[] properties= { "simple", "simple", "overridden", "overridden", "chaining", "ordering", "ordering" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+		ExecutorService executor= Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Property[]>> results= new ArrayList<>();
+			for (int t= 0; t < 4; t++) {
+				results.add(executor.submit((Callable<Property[]>) () -> {
+					Property[] found= new Property[receivers.length];
+					for (int n= 0; n < 1000; n++) {
+						for (int k= 0; k < receivers.length; k++) {
+							found[k]= fgManager.getProperty(receivers[k], "org.eclipse.core.internal.expressions.tests", properties[k]); //$NON-NLS-1$
+							assertTrue(found[k].isInstantiated());
+						}
+					}
+					return found;
+				}));
+			}
+			// all threads see the same cached properties
+			Property[] expected= results.get(0).get();
+			for (Future<Property[]> result : results) {
+				Property[] found= result.get();
+				for (int k= 0; k < expected.length; k++) {
+					assertSame(expected[k], found[k]);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public void testCompiledTest() throws Exception {
+		String namespace= "org.eclipse.core.internal.expressions.tests"; //$NON-NLS-1$
+		Expression[] expressions= {
+				new TestExpression(namespace, "simple", null, "simple", false), //$NON-NLS-1$ //$NON-NLS-2$
+				new TestExpression(namespace, "overridden", null, "B", false), //$NON-NLS-1$ //$NON-NLS-2$
+				new TestExpression(namespace, "overridden", null, "A", true), //$NON-NLS-1$ //$NON-NLS-2$
+				new TestExpression(namespace, "ordering", null, "I", true) //$NON-NLS-1$ //$NON-NLS-2$
+		};
+		Object[] receivers= { a, b, i, new I() {}, a };
+		TypeExtensionManager manager= TestExpression.testGetTypeExtensionManager();
+		for (Expression expression : expressions) {
+			Expression compiled= ExpressionConverter.getDefault().compile(expression);
+			// the compiled test caches the property of the last receiver type
+			for (int n= 0; n < 2; n++) {
+				for (Object receiver : receivers) {
+					EvaluationContext context= new EvaluationContext(null, receiver);
+					assertCompiledResult(expression, compiled, context);
+					context.setAllowPluginActivation(true);
+					assertCompiledResult(expression, compiled, context);
+				}
+			}
+
+			// a registry change flushes the properties the compiled test caches
+			int generation= manager.getCacheGeneration();
+			manager.registryChanged(new IRegistryChangeEvent() {
+				@Override
+				public IExtensionDelta[] getExtensionDeltas() {
+					return new IExtensionDelta[1];
+				}
+
+				@Override
+				public IExtensionDelta[] getExtensionDeltas(String namespaceName) {
+					return new IExtensionDelta[1];
+				}
+
+				@Override
+				public IExtensionDelta[] getExtensionDeltas(String namespaceName, String extensionPoint) {
+					return new IExtensionDelta[1];
+				}
+
+				@Override
+				public IExtensionDelta getExtensionDelta(String namespaceName, String extensionPoint, String extension) {
+					return null;
+				}
+			});
+			assertTrue(manager.getCacheGeneration() != generation);
+			for (Object receiver : receivers) {
+				EvaluationContext context= new EvaluationContext(null, receiver);
+				context.setAllowPluginActivation(true);
+				assertCompiledResult(expression, compiled, context);
+			}
+		}
+	}
+
+	private static void assertCompiledResult(Expression expression, Expression compiled, EvaluationContext context) throws CoreException {
+		String message= expression + " on " + context.getDefaultVariable(); //$NON-NLS-1$
+		EvaluationResult expected;
+		try {
+			expected= expression.evaluate(context);
+		} catch (CoreException e) {
+			// unknown properties fail in both cases
+			try {
+				compiled.evaluate(context);
+			} catch (CoreException compiledException) {
+				return;
+			}
+			fail(message);
+			return;
+		}
+		assertEquals(message, expected, compiled.evaluate(context));
+	}
+
 	public void testDifferentNameSpace() throws Exception {
 		assertTrue(test("org.eclipse.core.internal.expressions.tests2", a, "differentNamespace", null, "A3"));		 //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	}
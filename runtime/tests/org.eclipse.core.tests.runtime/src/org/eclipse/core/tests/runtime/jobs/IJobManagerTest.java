@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2018 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@ package org.eclipse.core.tests.runtime.jobs;
 
 import java.util.*;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerArray;
 import junit.framework.AssertionFailedError;
 import org.eclipse.core.runtime.*;
@@ -635,6 +636,70 @@ public class IJobManagerTest extends AbstractJobManagerTest {
 		}
 	}
 
+	public void testJobFamilyDeclared() {
+		final int NUM_JOBS = 10;
+		final Object first = new Object();
+		final Object second = new Object();
+		TestJob[] jobs = new TestJob[NUM_JOBS];
+		//need a scheduling rule so that the jobs would be executed one by one
+		ISchedulingRule rule = new IdentityRule();
+		for (int i = 0; i < NUM_JOBS; i++) {
+			jobs[i] = new TestJob("testJobFamilyDeclared", 1000000, 10);
+			if (i % 2 == 0) {
+				jobs[i].setFamilies(first, second);
+			} else {
+				jobs[i].setFamilies(second);
+			}
+			jobs[i].setRule(rule);
+		}
+		//a job that does not declare its families is still found by belongsTo
+		FamilyTestJob undeclared = new FamilyTestJob("testJobFamilyDeclared", 1000000, 10, TestJobFamily.TYPE_ONE);
+		undeclared.setRule(rule);
+		TestJobFamily familyOne = new TestJobFamily(TestJobFamily.TYPE_ONE);
+
+		assertTrue("1.0", jobs[0].belongsTo(first));
+		assertTrue("1.1", !jobs[1].belongsTo(first));
+		assertEquals("1.2", 0, manager.find(first).length);
+		for (TestJob job : jobs) {
+			job.schedule();
+		}
+		undeclared.schedule();
+		waitForStart(jobs[0]);
+		assertEquals("2.0", NUM_JOBS / 2, manager.find(first).length);
+		assertEquals("2.1", NUM_JOBS, manager.find(second).length);
+		assertEquals("2.2", 1, manager.find(familyOne).length);
+		assertTrue("2.3", Arrays.asList(manager.find(null)).containsAll(Arrays.asList(jobs)));
+
+		//families cannot be changed while the job is scheduled
+		try {
+			jobs[1].setFamilies(first);
+			fail("3.0");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+
+		manager.cancel(first);
+		for (int i = 0; i < NUM_JOBS; i += 2) {
+			waitForCancel(jobs[i]);
+			assertState("4." + i, jobs[i], Job.NONE);
+		}
+		assertEquals("4.1", 0, manager.find(first).length);
+		assertEquals("4.2", NUM_JOBS / 2, manager.find(second).length);
+
+		manager.cancel(second);
+		undeclared.cancel();
+		for (int i = 1; i < NUM_JOBS; i += 2) {
+			waitForCancel(jobs[i]);
+		}
+		waitForCancel(undeclared);
+		try {
+			manager.join(second, null);
+		} catch (OperationCanceledException | InterruptedException e) {
+			fail("5.0", e);
+		}
+		assertEquals("5.1", 0, manager.find(second).length);
+	}
+
 	public void testJobFamilyFind() {
 		//test of finding jobs based on the job family they belong to
 		final int NUM_JOBS = 20;
@@ -1678,6 +1743,50 @@ public class IJobManagerTest extends AbstractJobManagerTest {
 		}
 	}
 
+	/**
+	 * Tests that listeners extending JobChangeAdapter are notified of the events
+	 * they override, also if they override them in a subclass.
+	 */
+	public void testListenerEventMask() throws InterruptedException {
+		final List<String> events = Collections.synchronizedList(new ArrayList<>());
+		final Semaphore done = new Semaphore(0);
+		class DoneListener extends JobChangeAdapter {
+			@Override
+			public void done(IJobChangeEvent event) {
+				events.add("done");
+				done.release();
+			}
+		}
+		IJobChangeListener global = new DoneListener() {
+			@Override
+			public void scheduled(IJobChangeEvent event) {
+				events.add("scheduled");
+			}
+		};
+		IJobChangeListener local = new JobChangeAdapter() {
+			@Override
+			public void running(IJobChangeEvent event) {
+				events.add("running");
+			}
+		};
+		TestJob job = new TestJob("testListenerEventMask", 1, 1);
+		job.addJobChangeListener(local);
+		try {
+			manager.addJobChangeListener(global);
+			job.schedule();
+			//listeners are notified that the job is done after join returns
+			assertTrue("0.0", done.tryAcquire(10, TimeUnit.SECONDS));
+		} finally {
+			manager.removeJobChangeListener(global);
+			job.removeJobChangeListener(local);
+		}
+		assertEquals("1.0", Arrays.asList("scheduled", "running", "done"), events);
+		//removed listeners are no longer notified
+		job.schedule();
+		job.join();
+		assertEquals("2.0", 3, events.size());
+	}
+
 	public void testMutexRule() {
 		final int JOB_COUNT = 10;
 		TestJob[] jobs = new TestJob[JOB_COUNT];
@@ -2421,6 +2530,35 @@ public class IJobManagerTest extends AbstractJobManagerTest {
 		}
 	}
 
+	public void testPathRules() {
+		ISchedulingRule[] rules = {new PathRule("/testPathRules/A"), new PathRule("/testPathRules/A/B"),
+				new PathRule("/testPathRules/C"),
+				MultiRule.combine(new PathRule("/testPathRules/C/D"), new PathRule("/testPathRules/E")),
+				new PathRule("/testPathRules/F")};
+		TestJob[] jobs = new TestJob[rules.length];
+		for (int i = 0; i < rules.length; i++) {
+			jobs[i] = new TestJob("testPathRules", 1000000, 10);
+			jobs[i].setRule(rules[i]);
+			jobs[i].schedule();
+		}
+		//jobs with a rule below the rule of a running job must wait
+		waitForStart(jobs[0]);
+		waitForStart(jobs[2]);
+		waitForStart(jobs[4]);
+		assertState("1.0", jobs[1], Job.WAITING);
+		assertState("1.1", jobs[3], Job.WAITING);
+		jobs[0].cancel();
+		waitForStart(jobs[1]);
+		assertState("2.0", jobs[1], Job.RUNNING);
+		assertState("2.1", jobs[3], Job.WAITING);
+		jobs[2].cancel();
+		waitForStart(jobs[3]);
+		assertState("3.0", jobs[3], Job.RUNNING);
+		for (TestJob job : jobs) {
+			job.cancel();
+		}
+	}
+
 	/**
 	 * A job has been canceled.  Pause this thread so that a worker thread
 	 * has a chance to receive the cancel event.
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.runtime.jobs;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.junit.Test;
+
+/**
+ * Tests the flight recorder events of the job manager.
+ */
+public class JobEventsTest {
+	private static final String RUN_EVENT = "org.eclipse.core.jobs.JobRun";
+	private static final String WAIT_EVENT = "org.eclipse.core.jobs.JobWait";
+	private static final String BLOCKED_EVENT = "org.eclipse.core.jobs.JobBlocked";
+
+	private static void runJob(String name) throws InterruptedException {
+		Job job = Job.create(name, monitor -> Status.OK_STATUS);
+		job.schedule();
+		job.join();
+		assertEquals(name, Status.OK_STATUS, job.getResult());
+	}
+
+	private static List<RecordedEvent> readEvents(Recording recording) throws IOException {
+		Path file = Files.createTempFile("JobEventsTest", ".jfr");
+		try {
+			recording.dump(file);
+			return RecordingFile.readAllEvents(file);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static long count(List<RecordedEvent> events, String type, String jobName) {
+		return events.stream().filter(e -> e.getEventType().getName().equals(type) && jobName.equals(e.getString("jobName"))).count();
+	}
+
+	/**
+	 * Tests that jobs run when no recording is in progress and when their
+	 * events are disabled in the recording, and that disabled events are not
+	 * recorded.
+	 */
+	@Test
+	public void testDisabledEvents() throws Exception {
+		runJob("testDisabledEvents");
+		try (Recording recording = new Recording()) {
+			recording.enable(RUN_EVENT);
+			recording.disable(WAIT_EVENT);
+			recording.disable(BLOCKED_EVENT);
+			recording.start();
+			runJob("testDisabledEvents");
+			recording.stop();
+			List<RecordedEvent> events = readEvents(recording);
+			assertEquals("1.0", 1, count(events, RUN_EVENT, "testDisabledEvents"));
+			assertEquals("1.1", 0, count(events, WAIT_EVENT, "testDisabledEvents"));
+		}
+		runJob("testDisabledEvents");
+	}
+
+	/**
+	 * Tests that enabled events are recorded.
+	 */
+	@Test
+	public void testEnabledEvents() throws Exception {
+		try (Recording recording = new Recording()) {
+			recording.enable(RUN_EVENT);
+			recording.enable(WAIT_EVENT);
+			recording.start();
+			runJob("testEnabledEvents");
+			recording.stop();
+			List<RecordedEvent> events = readEvents(recording);
+			assertEquals("1.0", 1, count(events, RUN_EVENT, "testEnabledEvents"));
+			assertEquals("1.1", 1, count(events, WAIT_EVENT, "testEnabledEvents"));
+		}
+	}
+}
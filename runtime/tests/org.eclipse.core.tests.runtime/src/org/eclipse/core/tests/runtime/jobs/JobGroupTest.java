@@ -15,6 +15,7 @@
 package org.eclipse.core.tests.runtime.jobs;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
 import junit.framework.AssertionFailedError;
@@ -1459,6 +1460,106 @@ public class JobGroupTest extends AbstractJobTest {
 		}
 	}
 
+	public void testBatchJob() throws InterruptedException {
+		final int NUM_TASKS = 1000;
+		final int MAX_THREADS = 3;
+		final JobGroup jobGroup = new JobGroup("BatchGroup", MAX_THREADS, 1);
+		final AtomicIntegerArray runs = new AtomicIntegerArray(NUM_TASKS);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		List<ICoreRunnable> tasks = new ArrayList<>();
+		for (int i = 0; i < NUM_TASKS; i++) {
+			final int index = i;
+			tasks.add(monitor -> {
+				int current = running.incrementAndGet();
+				maxRunning.accumulateAndGet(current, Math::max);
+				if (index % 100 == 0) {
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {
+						// ignore
+					}
+				}
+				runs.incrementAndGet(index);
+				running.decrementAndGet();
+			});
+		}
+		Job batch = jobGroup.createBatchJob("testBatchJob", tasks);
+		assertSame("1.0", jobGroup, batch.getJobGroup());
+		batch.schedule();
+		batch.join();
+		assertTrue("1.1", batch.getResult().isOK());
+		for (int i = 0; i < NUM_TASKS; i++) {
+			assertEquals("1.2." + i, 1, runs.get(i));
+		}
+		assertTrue("1.3 " + maxRunning.get(), maxRunning.get() <= MAX_THREADS);
+		waitForCompletion(jobGroup);
+	}
+
+	public void testBatchJobFailures() throws InterruptedException {
+		final JobGroup jobGroup = new JobGroup("BatchGroup", 2, 1);
+		final IStatus failure = new Status(IStatus.ERROR, "org.eclipse.core.tests.runtime", "failed task");
+		List<ICoreRunnable> tasks = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			final int index = i;
+			tasks.add(monitor -> {
+				if (index == 3)
+					throw new CoreException(failure);
+				if (index == 7)
+					throw new IllegalStateException();
+			});
+		}
+		Job batch = jobGroup.createBatchJob("testBatchJobFailures", tasks);
+		batch.schedule();
+		batch.join();
+		IStatus result = batch.getResult();
+		assertEquals("1.0", IStatus.ERROR, result.getSeverity());
+		assertEquals("1.1", 2, result.getChildren().length);
+		assertTrue("1.2", Arrays.asList(result.getChildren()).contains(failure));
+		waitForCompletion(jobGroup);
+	}
+
+	public void testBatchJobCancel() throws InterruptedException {
+		final int NUM_TASKS = 1000;
+		final JobGroup jobGroup = new JobGroup("BatchGroup", 2, 1);
+		final AtomicInteger runs = new AtomicInteger();
+		final TestBarrier2 barrier = new TestBarrier2();
+		List<ICoreRunnable> tasks = new ArrayList<>();
+		for (int i = 0; i < NUM_TASKS; i++) {
+			tasks.add(monitor -> {
+				if (runs.incrementAndGet() == 1) {
+					barrier.setStatus(TestBarrier2.STATUS_RUNNING);
+					barrier.waitForStatus(TestBarrier2.STATUS_WAIT_FOR_DONE);
+				}
+			});
+		}
+		Job batch = jobGroup.createBatchJob("testBatchJobCancel", tasks);
+		batch.schedule();
+		barrier.waitForStatus(TestBarrier2.STATUS_RUNNING);
+		batch.cancel();
+		barrier.setStatus(TestBarrier2.STATUS_WAIT_FOR_DONE);
+		batch.join();
+		assertEquals("1.0", IStatus.CANCEL, batch.getResult().getSeverity());
+		assertTrue("1.1 " + runs.get(), runs.get() < NUM_TASKS);
+		waitForCompletion(jobGroup);
+	}
+
+	public void testBatchJobRule() {
+		final JobGroup jobGroup = new JobGroup("BatchGroup", 2, 1);
+		ICoreRunnable task = monitor -> {
+			// nothing to do
+		};
+		Job batch = jobGroup.createBatchJob("testBatchJobRule", Collections.singletonList(task));
+		batch.setRule(new IdentityRule());
+		try {
+			batch.schedule();
+			fail("1.0");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals("1.1", Job.NONE, batch.getState());
+	}
+
 	private void assertState(String msg, Job job, int expectedState) {
 		int actualState = job.getState();
 		assertSame(
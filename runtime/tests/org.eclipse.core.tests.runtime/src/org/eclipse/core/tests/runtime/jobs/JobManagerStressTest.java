@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.runtime.jobs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.*;
+import org.junit.Test;
+
+/**
+ * Schedules many short jobs with conflicting rules from several threads while
+ * other threads query the job manager, to check that the job manager stays
+ * consistent under contention.
+ */
+public class JobManagerStressTest {
+	private static final int THREADS = 8;
+	private static final int JOBS_PER_THREAD = 500;
+
+	@Test
+	public void testConcurrentScheduling() throws Exception {
+		final IJobManager manager = Job.getJobManager();
+		final Object family = new Object();
+		final ISchedulingRule[] rules = {null, new PathRule("/testConcurrentScheduling/A"),
+				new PathRule("/testConcurrentScheduling/A/B"), new PathRule("/testConcurrentScheduling/C"),
+				new IdentityRule()};
+		final AtomicInteger done = new AtomicInteger();
+		final Set<ISchedulingRule> runningRules = ConcurrentHashMap.newKeySet();
+		final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch scheduled = new CountDownLatch(THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				final int thread = t;
+				executor.execute(() -> {
+					try {
+						start.await();
+						for (int i = 0; i < JOBS_PER_THREAD; i++) {
+							final ISchedulingRule rule = rules[(thread + i) % rules.length];
+							Job job = new Job("testConcurrentScheduling") {
+								@Override
+								protected IStatus run(IProgressMonitor monitor) {
+									//no two jobs with conflicting rules may run at the same time
+									if (rule != null) {
+										for (ISchedulingRule other : runningRules) {
+											if (other.isConflicting(rule))
+												errors.add(rule + " runs concurrently with " + other);
+										}
+										runningRules.add(rule);
+									}
+									if (manager.currentJob() != this)
+										errors.add("wrong current job");
+									if (rule != null)
+										runningRules.remove(rule);
+									done.incrementAndGet();
+									return Status.OK_STATUS;
+								}
+
+								@Override
+								public boolean belongsTo(Object f) {
+									return f == family;
+								}
+							};
+							job.setRule(rule);
+							job.setPriority(i % 3 == 0 ? Job.SHORT : Job.LONG);
+							job.setSystem(true);
+							job.schedule();
+						}
+					} catch (InterruptedException e) {
+						errors.add(e.toString());
+					} finally {
+						scheduled.countDown();
+					}
+				});
+			}
+			//query the manager concurrently
+			executor.execute(() -> {
+				while (scheduled.getCount() > 0) {
+					manager.find(family);
+					manager.isIdle();
+					manager.isSuspended();
+					manager.currentJob();
+				}
+			});
+			start.countDown();
+			assertTrue("1.0", scheduled.await(60, TimeUnit.SECONDS));
+			manager.join(family, null);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals("2.0", Collections.emptyList(), errors);
+		assertEquals("2.1", THREADS * JOBS_PER_THREAD, done.get());
+		assertEquals("2.2", 0, manager.find(family).length);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2015 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,9 +18,12 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.eclipse.core.internal.jobs.InternalJob;
 import org.eclipse.core.internal.jobs.JobQueue;
 import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
 import org.junit.Before;
 import org.junit.Test;
@@ -33,6 +36,11 @@ public class JobQueueTest {
 			setPriority(value);
 		}
 
+		Entry(int value, ISchedulingRule rule) {
+			this(value);
+			setRule(rule);
+		}
+
 		@Override
 		protected IStatus run(IProgressMonitor monitor) {
 			return Status.OK_STATUS;
@@ -93,6 +101,54 @@ public class JobQueueTest {
 		assertEquals("3.1", 0, count);
 	}
 
+	@Test
+	public void testRemoveFromMiddle() {
+		final int NUM_ENTRIES = 100;
+		List<Entry> expected = new ArrayList<>();
+		List<Entry> removed = new ArrayList<>();
+		for (int i = 0; i < NUM_ENTRIES; i++) {
+			Entry entry = i % 2 == 0 ? new Entry(Job.LONG, new IdentityRule()) : new Entry(Job.LONG);
+			queue.enqueue(entry);
+			expected.add(entry);
+		}
+		for (int i = NUM_ENTRIES - 1; i >= 0; i -= 3) {
+			Entry entry = expected.remove(i);
+			queue.remove(entry);
+			removed.add(entry);
+		}
+		//removed entries are added again behind the remaining ones
+		for (Entry entry : removed) {
+			queue.enqueue(entry);
+			expected.add(entry);
+		}
+		int i = 0;
+		for (InternalJob job : queue) {
+			assertEquals("1.0." + i, expected.get(i++), job);
+		}
+		assertEquals("1.1", NUM_ENTRIES, i);
+		for (i = 0; i < NUM_ENTRIES; i++) {
+			assertEquals("2.0." + i, expected.get(i), queue.dequeue());
+		}
+		assertTrue("2.1", queue.isEmpty());
+	}
+
+	@Test
+	public void testClear() {
+		Entry[] entries = createEntries();
+		for (Entry entry : entries) {
+			queue.enqueue(entry);
+		}
+		queue.clear();
+		assertTrue("1.0", queue.isEmpty());
+		assertNull("1.1", queue.peek());
+		//the queue must be usable after it was cleared
+		Entry entry = new Entry(Job.LONG);
+		queue.enqueue(entry);
+		assertEquals("2.0", entry, queue.peek());
+		assertEquals("2.1", entry, queue.dequeue());
+		assertTrue("2.2", queue.isEmpty());
+	}
+
 	private Entry[] createEntries() {
 		return new Entry[] {new Entry(Job.INTERACTIVE), new Entry(Job.BUILD), new Entry(Job.INTERACTIVE), new Entry(Job.SHORT), new Entry(Job.DECORATE), new Entry(Job.LONG), new Entry(Job.SHORT), new Entry(Job.BUILD), new Entry(Job.LONG), new Entry(Job.DECORATE),};
 	}
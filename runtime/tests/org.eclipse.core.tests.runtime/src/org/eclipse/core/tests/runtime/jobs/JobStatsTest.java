@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.runtime.jobs;
+
+import static org.junit.Assert.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import org.eclipse.core.internal.jobs.JobStats;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.junit.*;
+
+/**
+ * Tests the scheduling statistics collected by {@link JobStats}.
+ */
+public class JobStatsTest {
+	static class SleepingJob extends Job {
+		SleepingJob(ISchedulingRule rule) {
+			super("SleepingJob");
+			setRule(rule);
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				return Status.CANCEL_STATUS;
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	static class BlockedJob extends SleepingJob {
+		BlockedJob(ISchedulingRule rule) {
+			super(rule);
+		}
+	}
+
+	@Before
+	public void setUp() {
+		JobStats.clear();
+		JobStats.setEnabled(true);
+	}
+
+	@After
+	public void tearDown() {
+		JobStats.setEnabled(false);
+		JobStats.clear();
+	}
+
+	@Test
+	public void testBlockedJob() throws InterruptedException {
+		ISchedulingRule rule = new IdentityRule();
+		Job first = new SleepingJob(rule);
+		Job second = new BlockedJob(rule);
+		first.schedule();
+		second.schedule();
+		first.join();
+		second.join();
+
+		JobStats sleeping = JobStats.getStats(SleepingJob.class);
+		assertNotNull("1.0", sleeping);
+		assertEquals("1.1", 1, sleeping.getRunTime().getCount());
+		assertTrue("1.2", sleeping.getRunTime().getMax() >= 100_000);
+
+		JobStats blocked = JobStats.getStats(BlockedJob.class);
+		assertNotNull("2.0", blocked);
+		assertEquals("2.1", 1, blocked.getQueueWait().getCount());
+		assertEquals("2.2", 1, blocked.getConflicts().getMax());
+		assertTrue("2.3", blocked.getBlockedTime().getMax() > 0);
+		assertTrue("2.4", blocked.getQueueWait().getMax() >= blocked.getBlockedTime().getMax());
+		assertTrue("2.5", JobStats.getQueueDepth().getCount() >= 2);
+
+		StringWriter out = new StringWriter();
+		JobStats.printStats(new PrintWriter(out));
+		assertTrue("3.0", out.toString().contains(BlockedJob.class.getName()));
+	}
+
+	@Test
+	public void testDisabled() throws InterruptedException {
+		JobStats.setEnabled(false);
+		Job job = new SleepingJob(null);
+		job.schedule();
+		job.join();
+		assertNull("1.0", JobStats.getStats(SleepingJob.class));
+		assertEquals("1.1", 0, JobStats.getQueueDepth().getCount());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2015 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.eclipse.core.tests.runtime.jobs;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -271,6 +273,135 @@ public class OrderedLockTest {
 		assertTrue("Locks not removed from graph.", manager.isEmpty());
 	}
 
+	/**
+	 * Test that a thread that owns and releases locks without contention is a
+	 * lock owner, but never shows up in the deadlock detector.
+	 */
+	@Test
+	public void testUncontendedLocksNotInGraph() {
+		LockManager manager = new LockManager();
+		OrderedLock lock1 = manager.newLock();
+		OrderedLock lock2 = manager.newLock();
+		lock1.acquire();
+		assertTrue("1.0", manager.isLockOwner());
+		lock2.acquire();
+		lock1.acquire();
+		assertEquals("1.1", 2, lock1.getDepth());
+		assertTrue("1.2", manager.isLockOwner());
+		assertTrue("1.3", manager.isEmpty());
+		lock1.release();
+		lock2.release();
+		assertTrue("2.0", manager.isLockOwner());
+		assertTrue("2.1", manager.isEmpty());
+		lock1.release();
+		assertFalse("3.0", manager.isLockOwner());
+		assertTrue("3.1", manager.isEmpty());
+	}
+
+	/**
+	 * Test that a lock that was acquired without contention is recorded in the
+	 * deadlock detector with its full depth once another thread waits for it,
+	 * so that a deadlock involving it is still found after a partial release.
+	 */
+	@Test
+	public void testLockTrackedWhileWaiting() throws InterruptedException {
+		LockManager manager = new LockManager();
+		OrderedLock lock1 = manager.newLock();
+		OrderedLock lock2 = manager.newLock();
+		final AtomicIntegerArray status = new AtomicIntegerArray(new int[] { TestBarrier2.STATUS_WAIT_FOR_START });
+		lock1.acquire();
+		lock1.acquire();
+		assertTrue("1.0", manager.isEmpty());
+
+		Thread waiting = new Thread(() -> {
+			lock2.acquire();
+			status.set(0, TestBarrier2.STATUS_START);
+			lock1.acquire();
+			status.set(0, TestBarrier2.STATUS_RUNNING);
+			lock1.release();
+			lock2.release();
+			status.set(0, TestBarrier2.STATUS_DONE);
+		});
+		waiting.start();
+		TestBarrier2.waitForStatus(status, TestBarrier2.STATUS_START);
+		waitForGraph(manager);
+
+		//the waiting thread must not get the lock before both acquires are released
+		lock1.release();
+		Thread.sleep(200);
+		assertEquals("2.0", TestBarrier2.STATUS_START, status.get(0));
+		assertTrue("2.1", manager.isLockOwner());
+
+		//this deadlock is only found if the remaining acquire is still in the graph
+		assertTrue("Deadlock not detected.", lock2.acquire(10000));
+		lock2.release();
+		lock1.release();
+		TestBarrier2.waitForStatus(status, TestBarrier2.STATUS_DONE);
+		waiting.join();
+		assertFalse("3.0", manager.isLockOwner());
+		assertTrue("Locks not removed from graph.", manager.isEmpty());
+
+		//without contention the lock is not recorded anymore
+		lock1.acquire();
+		assertTrue("4.0", manager.isEmpty());
+		lock1.release();
+	}
+
+	/**
+	 * Test that a deadlock between two locks that were acquired without
+	 * contention is resolved, and that the deadlock detector is empty once all
+	 * locks are released.
+	 */
+	@Test
+	public void testDeadlockOfUntrackedLocks() throws InterruptedException {
+		LockManager manager = new LockManager();
+		OrderedLock lock1 = manager.newLock();
+		OrderedLock lock2 = manager.newLock();
+		final AtomicIntegerArray status = new AtomicIntegerArray(
+				new int[] { TestBarrier2.STATUS_WAIT_FOR_START, TestBarrier2.STATUS_WAIT_FOR_START });
+		final boolean[] ownerAfterRelease = new boolean[2];
+		Thread first = new Thread(() -> {
+			lock1.acquire();
+			status.set(0, TestBarrier2.STATUS_START);
+			TestBarrier2.waitForStatus(status, 1, TestBarrier2.STATUS_START);
+			lock2.acquire();
+			lock2.release();
+			lock1.release();
+			ownerAfterRelease[0] = manager.isLockOwner();
+			status.set(0, TestBarrier2.STATUS_DONE);
+		});
+		Thread second = new Thread(() -> {
+			lock2.acquire();
+			status.set(1, TestBarrier2.STATUS_START);
+			TestBarrier2.waitForStatus(status, 0, TestBarrier2.STATUS_START);
+			lock1.acquire();
+			lock1.release();
+			lock2.release();
+			ownerAfterRelease[1] = manager.isLockOwner();
+			status.set(1, TestBarrier2.STATUS_DONE);
+		});
+		first.start();
+		second.start();
+		TestBarrier2.waitForStatus(status, 0, TestBarrier2.STATUS_DONE);
+		TestBarrier2.waitForStatus(status, 1, TestBarrier2.STATUS_DONE);
+		first.join();
+		second.join();
+		assertFalse("1.0", ownerAfterRelease[0]);
+		assertFalse("1.1", ownerAfterRelease[1]);
+		assertTrue("Locks not removed from graph.", manager.isEmpty());
+	}
+
+	/**
+	 * Waits until the deadlock detector of the given manager knows about a lock.
+	 */
+	private void waitForGraph(LockManager manager) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (manager.isEmpty()) {
+			assertTrue("Lock not added to graph.", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+	}
+
 	private void start(ArrayList<LockAcquiringRunnable> allRunnables) {
 		for (LockAcquiringRunnable lockAcquiringRunnable : allRunnables) {
 			new Thread(lockAcquiringRunnable).start();
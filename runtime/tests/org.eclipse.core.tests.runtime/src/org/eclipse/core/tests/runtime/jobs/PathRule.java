@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2015 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@ package org.eclipse.core.tests.runtime.jobs;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.IHierarchicalRule;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 
 /**
@@ -22,7 +23,7 @@ import org.eclipse.core.runtime.jobs.ISchedulingRule;
  * rule if its path is a prefix of the other rule's path.  A path rule is conflicting
  * with another rule if either one is a prefix of the other.
  */
-public class PathRule implements ISchedulingRule {
+public class PathRule implements IHierarchicalRule {
 	private IPath path;
 
 	public PathRule(IPath path) {
@@ -54,6 +55,16 @@ public class PathRule implements ISchedulingRule {
 		return path;
 	}
 
+	@Override
+	public Object getHierarchy() {
+		return PathRule.class;
+	}
+
+	@Override
+	public IPath getHierarchyPath() {
+		return path;
+	}
+
 	@Override
 	public String toString() {
 		return "PathRule(" + path + ")";
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.runtime.jobs;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import org.eclipse.core.internal.jobs.JobManager;
+import org.eclipse.core.runtime.*;
+import org.junit.Test;
+
+/**
+ * Tests running jobs with the <code>eclipse.jobs.virtualThreads</code>
+ * property. The property is read when the job manager is created, so each
+ * test runs its jobs in a separate copy of the job manager, loaded by a
+ * {@link JobsClassLoader}, and accesses it reflectively. With the property
+ * set, jobs run in virtual threads if the running Java runtime provides them,
+ * and in platform worker threads otherwise.
+ */
+@SuppressWarnings("restriction")
+public class VirtualThreadsTest {
+	private static final String PROP_USE_VIRTUAL_THREADS = "eclipse.jobs.virtualThreads";
+	private static final int JOB_COUNT = 20;
+
+	/**
+	 * Loads the classes of the jobs bundle again, and shares all other classes
+	 * with the jobs bundle.
+	 */
+	static class JobsClassLoader extends ClassLoader {
+		JobsClassLoader() {
+			super(JobManager.class.getClassLoader());
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (!name.startsWith("org.eclipse.core.internal.jobs.") && !name.startsWith("org.eclipse.core.runtime.jobs."))
+				return super.loadClass(name, resolve);
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> loaded = findLoadedClass(name);
+				if (loaded != null)
+					return loaded;
+				try (InputStream input = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+					if (input == null)
+						throw new ClassNotFoundException(name);
+					byte[] bytes = input.readAllBytes();
+					return defineClass(name, bytes, 0, bytes.length);
+				} catch (IOException e) {
+					throw new ClassNotFoundException(name, e);
+				}
+			}
+		}
+	}
+
+	private static boolean isVirtualThreadsAvailable() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+		if (!isVirtualThreadsAvailable())
+			return false;
+		return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+	}
+
+	@Test
+	public void testVirtualThreads() throws Exception {
+		runJobs("true", isVirtualThreadsAvailable());
+	}
+
+	@Test
+	public void testPlatformThreads() throws Exception {
+		runJobs(null, false);
+	}
+
+	/**
+	 * Runs jobs in a new job manager created with the given value of the
+	 * property, and checks that they complete, and that the jobs and their
+	 * workers are found from the threads that run them as with platform
+	 * worker threads.
+	 */
+	private void runJobs(String property, boolean expectVirtual) throws Exception {
+		ClassLoader loader = new JobsClassLoader();
+		String previous = System.getProperty(PROP_USE_VIRTUAL_THREADS);
+		Class<?> jobClass;
+		try {
+			if (property == null)
+				System.clearProperty(PROP_USE_VIRTUAL_THREADS);
+			else
+				System.setProperty(PROP_USE_VIRTUAL_THREADS, property);
+			// creates the job manager
+			jobClass = Class.forName("org.eclipse.core.runtime.jobs.Job", true, loader);
+		} finally {
+			if (previous == null)
+				System.clearProperty(PROP_USE_VIRTUAL_THREADS);
+			else
+				System.setProperty(PROP_USE_VIRTUAL_THREADS, previous);
+		}
+		Class<?> managerClass = loader.loadClass(JobManager.class.getName());
+		Class<?> workerClass = loader.loadClass("org.eclipse.core.internal.jobs.Worker");
+		Method create = jobClass.getMethod("create", String.class, ICoreRunnable.class);
+		Method schedule = jobClass.getMethod("schedule");
+		Method join = jobClass.getMethod("join");
+		Method getResult = jobClass.getMethod("getResult");
+		Method getThread = jobClass.getMethod("getThread");
+		Method getJobManager = jobClass.getMethod("getJobManager");
+		Method currentJob = getJobManager.getReturnType().getMethod("currentJob");
+		Method getCurrentWorker = workerClass.getDeclaredMethod("getCurrentWorker");
+		getCurrentWorker.setAccessible(true);
+		Method workerJob = workerClass.getMethod("currentJob");
+		Object manager = getJobManager.invoke(null);
+		try {
+			Object[] jobs = new Object[JOB_COUNT];
+			Thread[] threads = new Thread[JOB_COUNT];
+			Object[] jobThreads = new Object[JOB_COUNT];
+			Object[] workerJobs = new Object[JOB_COUNT];
+			Object[] currentJobs = new Object[JOB_COUNT];
+			for (int i = 0; i < JOB_COUNT; i++) {
+				final int index = i;
+				jobs[i] = create.invoke(null, "VirtualThreadsTest-" + i, (ICoreRunnable) monitor -> {
+					try {
+						threads[index] = Thread.currentThread();
+						jobThreads[index] = getThread.invoke(jobs[index]);
+						Object worker = getCurrentWorker.invoke(null);
+						workerJobs[index] = worker == null ? null : workerJob.invoke(worker);
+						currentJobs[index] = currentJob.invoke(manager);
+					} catch (ReflectiveOperationException e) {
+						throw new CoreException(new Status(IStatus.ERROR, "org.eclipse.core.tests.runtime", e.getMessage(), e));
+					}
+				});
+			}
+			for (Object job : jobs)
+				schedule.invoke(job);
+			for (Object job : jobs)
+				join.invoke(job);
+			for (int i = 0; i < JOB_COUNT; i++) {
+				assertEquals("1." + i, Status.OK_STATUS, getResult.invoke(jobs[i]));
+				assertSame("2." + i, threads[i], jobThreads[i]);
+				assertSame("3." + i, jobs[i], workerJobs[i]);
+				assertSame("4." + i, jobs[i], currentJobs[i]);
+				assertEquals("5." + i, expectVirtual, isVirtual(threads[i]));
+			}
+			assertNull("6.0", getCurrentWorker.invoke(null));
+			assertNull("6.1", currentJob.invoke(manager));
+		} finally {
+			managerClass.getMethod("shutdown").invoke(null);
+		}
+	}
+}
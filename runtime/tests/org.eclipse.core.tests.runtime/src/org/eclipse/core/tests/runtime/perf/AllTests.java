@@ -45,6 +45,8 @@ public class AllTests extends TestCase {
 
 		suite.addTest(new UIPerformanceSessionTestSuite(RuntimeTestsPlugin.PI_RUNTIME_TESTS, 5, UIStartupTest.class));
 		suite.addTestSuite(BenchPath.class);
+		suite.addTestSuite(BenchJobQueue.class);
+		suite.addTestSuite(BenchJobManager.class);
 		suite.addTest(ContentTypePerformanceTest.suite());
 		suite.addTestSuite(PreferencePerformanceTest.class);
 		return suite;
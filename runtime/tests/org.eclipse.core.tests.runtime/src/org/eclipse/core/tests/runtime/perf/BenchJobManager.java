@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.runtime.perf;
+
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.tests.harness.PerformanceTestRunner;
+import org.eclipse.core.tests.runtime.RuntimeTest;
+
+/**
+ * Measures the job manager when several threads schedule short jobs at the
+ * same time, so that the scheduling threads and the workers contend for the
+ * job manager.
+ */
+public class BenchJobManager extends RuntimeTest {
+	private static final int THREADS = 8;
+	private static final int JOBS_PER_THREAD = 2000;
+
+	public BenchJobManager() {
+		super();
+	}
+
+	public BenchJobManager(String testName) {
+		super(testName);
+	}
+
+	private void scheduleFromThreads(final Object family, final boolean delayed) throws InterruptedException {
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < JOBS_PER_THREAD; i++) {
+					Job job = new Job("BenchJobManager" + i) {
+						@Override
+						protected IStatus run(IProgressMonitor monitor) {
+							return Status.OK_STATUS;
+						}
+
+						@Override
+						public boolean belongsTo(Object jobFamily) {
+							return jobFamily == family;
+						}
+					};
+					job.setSystem(true);
+					//delayed jobs make idle workers poll the sleep queue
+					job.schedule(delayed && i % 2 == 0 ? 1 + i % 5 : 0);
+				}
+			}, "BenchJobManager" + t);
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+	}
+
+	private void measure(final boolean delayed) {
+		new PerformanceTestRunner() {
+			@Override
+			protected void test() {
+				Object family = new Object();
+				try {
+					scheduleFromThreads(family, delayed);
+					Job.getJobManager().join(family, null);
+				} catch (InterruptedException e) {
+					fail("4.99", e);
+				}
+			}
+		}.run(this, 10, 1);
+	}
+
+	/**
+	 * Schedules short jobs from several threads and waits for them.
+	 */
+	public void testScheduleFromThreads() {
+		measure(false);
+	}
+
+	/**
+	 * Schedules short jobs, half of them with a short delay, from several
+	 * threads and waits for them.
+	 */
+	public void testScheduleDelayedFromThreads() {
+		measure(true);
+	}
+}
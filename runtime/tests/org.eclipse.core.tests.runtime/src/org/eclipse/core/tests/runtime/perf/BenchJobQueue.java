@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.runtime.perf;
+
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.IJobManager;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.tests.harness.PerformanceTestRunner;
+import org.eclipse.core.tests.runtime.RuntimeTest;
+import org.eclipse.core.tests.runtime.jobs.IdentityRule;
+
+/**
+ * Measures the throughput of the job queues when many jobs of mixed priorities
+ * are waiting.
+ */
+public class BenchJobQueue extends RuntimeTest {
+	private static final int[] PRIORITIES = {Job.INTERACTIVE, Job.SHORT, Job.LONG, Job.BUILD, Job.DECORATE};
+
+	public BenchJobQueue() {
+		super();
+	}
+
+	public BenchJobQueue(String testName) {
+		super(testName);
+	}
+
+	private Job[] createJobs(int count, boolean withRules) {
+		Job[] jobs = new Job[count];
+		for (int i = 0; i < count; i++) {
+			jobs[i] = new Job("BenchJobQueue" + i) {
+				@Override
+				protected IStatus run(IProgressMonitor monitor) {
+					return Status.OK_STATUS;
+				}
+			};
+			//lower priorities first so that later jobs have to overtake them
+			jobs[i].setPriority(PRIORITIES[PRIORITIES.length - 1 - (i * PRIORITIES.length / count)]);
+			if (withRules) {
+				jobs[i].setRule(new IdentityRule());
+			}
+			jobs[i].setSystem(true);
+		}
+		return jobs;
+	}
+
+	private void scheduleAndCancel(final Job[] jobs) {
+		final IJobManager manager = Job.getJobManager();
+		manager.suspend();
+		try {
+			new PerformanceTestRunner() {
+				@Override
+				protected void test() {
+					for (Job job : jobs) {
+						job.schedule();
+					}
+					for (Job job : jobs) {
+						job.cancel();
+					}
+				}
+			}.run(this, 10, 20);
+		} finally {
+			manager.resume();
+		}
+	}
+
+	/**
+	 * Schedules and cancels many waiting jobs without rules.
+	 */
+	public void testScheduleWaiting() {
+		scheduleAndCancel(createJobs(10000, false));
+	}
+
+	/**
+	 * Schedules and cancels many waiting jobs with rules that do not conflict.
+	 */
+	public void testScheduleWaitingWithRules() {
+		scheduleAndCancel(createJobs(10000, true));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2021 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -243,6 +243,166 @@ public class EclipseContextTest {
 		assertEquals(3, runCounter);
 	}
 
+	/**
+	 * Changes are propagated only into branches that depend on the changed name;
+	 * check that dependencies are found in deep branches, after reparenting and
+	 * after the names of disposed contexts were cleaned up.
+	 */
+	@Test
+	public void testRunAndTrackInDescendant() {
+		IEclipseContext root = EclipseContextFactory.create("Root");
+		IEclipseContext sibling = root.createChild("Sibling");
+		IEclipseContext leaf = root;
+		for (int i = 0; i < 5; i++) {
+			root.createChild("Other" + i);
+			leaf = leaf.createChild("Branch" + i);
+		}
+		final Object[] value = new Object[1];
+		leaf.runAndTrack(new RunAndTrack() {
+			@Override
+			public boolean changed(IEclipseContext context) {
+				runCounter++;
+				value[0] = context.get("foo");
+				return true;
+			}
+		});
+		assertEquals(1, runCounter);
+		root.set("foo", "bar");
+		assertEquals(2, runCounter);
+		assertEquals("bar", value[0]);
+		root.set("unrelated", "bar");
+		assertEquals(2, runCounter);
+
+		// move the leaf into another branch
+		IEclipseContext newParent = sibling.createChild("NewParent");
+		leaf.setParent(newParent);
+		assertEquals(2, runCounter);
+		sibling.set("foo", "baz");
+		assertEquals(3, runCounter);
+		assertEquals("baz", value[0]);
+
+		// cleaning up the names of the old branch must keep the ones still used
+		root.createChild("Disposed").dispose();
+		root.set("foo", "bam");
+		assertEquals(3, runCounter);
+		sibling.remove("foo");
+		assertEquals(4, runCounter);
+		assertEquals("bam", value[0]);
+		root.dispose();
+	}
+
+	/**
+	 * Values resolved from ancestors are cached; check that the cached values
+	 * follow the changes in the parent chain.
+	 */
+	@Test
+	public void testGetFromAncestors() {
+		IEclipseContext root = EclipseContextFactory.create("Root");
+		IEclipseContext parent = root.createChild("Parent");
+		IEclipseContext child = parent.createChild("Child");
+		root.set("foo", "root");
+		root.set(Integer.class, Integer.valueOf(1));
+		assertEquals("root", child.get("foo"));
+		assertEquals(Integer.valueOf(1), child.get(Integer.class));
+		root.set("foo", "root2");
+		root.set(Integer.class, Integer.valueOf(2));
+		assertEquals("root2", child.get("foo"));
+		assertEquals(Integer.valueOf(2), child.get(Integer.class));
+
+		// shadowed by the parent
+		parent.set("foo", "parent");
+		assertEquals("parent", child.get("foo"));
+		parent.remove("foo");
+		assertEquals("root2", child.get("foo"));
+
+		// replaced by a function
+		root.set("foo", new ComputedValueBar());
+		root.set("bar", "bar");
+		assertEquals("bar", child.get("foo"));
+		root.set("bar", "baz");
+		assertEquals("baz", child.get("foo"));
+		root.set("foo", "root3");
+		assertEquals("root3", child.get("foo"));
+
+		// declared modifiable in the parent
+		parent.declareModifiable("foo");
+		assertNull(child.get("foo"));
+		parent.modify("foo", "modified");
+		assertEquals("modified", child.get("foo"));
+
+		// moved to another parent
+		IEclipseContext otherRoot = EclipseContextFactory.create("OtherRoot");
+		otherRoot.set(Integer.class, Integer.valueOf(3));
+		parent.setParent(otherRoot);
+		assertEquals(Integer.valueOf(3), child.get(Integer.class));
+		child.setParent(root);
+		assertEquals(Integer.valueOf(2), child.get(Integer.class));
+		assertEquals("root3", child.get("foo"));
+		root.remove(Integer.class);
+		assertNull(child.get(Integer.class));
+		root.dispose();
+		otherRoot.dispose();
+	}
+
+	@Test
+	public void testBatch() {
+		IEclipseContext parent = EclipseContextFactory.create("Parent");
+		IEclipseContext child = parent.createChild("Child");
+		final Object[] values = new Object[3];
+		child.runAndTrack(new RunAndTrack() {
+			@Override
+			public boolean changed(IEclipseContext context) {
+				runCounter++;
+				values[0] = context.get("a");
+				values[1] = context.get("b");
+				values[2] = context.get("c");
+				return true;
+			}
+		});
+		assertEquals(1, runCounter);
+
+		child.beginBatch();
+		try {
+			child.set("a", "a1");
+			parent.set("b", "b1");
+			parent.beginBatch();
+			try {
+				parent.set("c", "c1");
+			} finally {
+				parent.commitBatch();
+			}
+			assertEquals(1, runCounter);
+			assertNull(values[0]);
+		} finally {
+			child.commitBatch();
+		}
+		assertEquals(2, runCounter);
+		assertEquals("a1", values[0]);
+		assertEquals("b1", values[1]);
+		assertEquals("c1", values[2]);
+
+		// changes outside of a batch are processed right away again
+		child.remove("a");
+		assertEquals(3, runCounter);
+		assertNull(values[0]);
+
+		// computations of disposed contexts are dropped from the batch
+		parent.beginBatch();
+		try {
+			parent.set("a", "a2");
+			child.dispose();
+		} finally {
+			parent.commitBatch();
+		}
+		assertEquals(3, runCounter);
+		parent.dispose();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCommitWithoutBatch() {
+		EclipseContextFactory.create().commitBatch();
+	}
+
 	@Test
 	public void testModify() {
 		IEclipseContext grandParent = EclipseContextFactory.create();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2015 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,14 +15,24 @@
 
 package org.eclipse.e4.core.internal.tests.contexts.performance;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+
 import org.eclipse.core.runtime.IAdapterManager;
 import org.eclipse.core.runtime.IExtensionRegistry;
 import org.eclipse.core.runtime.preferences.IPreferencesService;
 import org.eclipse.core.tests.harness.PerformanceTestRunner;
 import org.eclipse.e4.core.contexts.ContextFunction;
+import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.EclipseContextFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.contexts.RunAndTrack;
+import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.core.internal.tests.CoreTestsActivator;
 import org.eclipse.osgi.service.datalocation.Location;
 import org.eclipse.osgi.service.debug.DebugOptions;
@@ -36,6 +46,37 @@ import junit.framework.TestSuite;
  */
 public class ContextPerformanceTest extends TestCase {
 
+	static class InjectionBase {
+		@Inject
+		@Named("Value-1")
+		Integer value1;
+		Object value2;
+		boolean constructed;
+
+		@Inject
+		void setValue2(@Named("Value-2") Integer value2, @Optional @Named("something") Object something) {
+			this.value2 = value2;
+		}
+
+		@PostConstruct
+		void construct() {
+			constructed = true;
+		}
+	}
+
+	static class InjectionTarget extends InjectionBase {
+		@Inject
+		@Named("Value-3")
+		Integer value3;
+		@Inject
+		IEclipseContext injectedContext;
+
+		@PreDestroy
+		void destroy() {
+			injectedContext = null;
+		}
+	}
+
 	IEclipseContext parentContext, context;
 
 	public static Test suite() {
@@ -81,6 +122,31 @@ public class ContextPerformanceTest extends TestCase {
 		}.run(this, 10, 600000);
 	}
 
+	/**
+	 * Tests looking up values and services set in an ancestor of a deep context.
+	 */
+	public void testLookupFromAncestor() {
+		parentContext.set("something", "value");
+		// contexts only hold weak references to their children
+		List<IEclipseContext> chain = new ArrayList<>();
+		IEclipseContext leaf = context;
+		for (int i = 0; i < 20; i++) {
+			leaf = leaf.createChild("chain-" + i);
+			leaf.set("Value-" + i, Integer.valueOf(i));
+			chain.add(leaf);
+		}
+		final IEclipseContext lookupContext = leaf;
+		new PerformanceTestRunner() {
+			@Override
+			protected void test() {
+				lookupContext.get("something");
+				lookupContext.get(IExtensionRegistry.class);
+			}
+		}.run(this, 10, 600000);
+		assertEquals(20, chain.size());
+		parentContext.remove("something");
+	}
+
 	public void testLookupContextFunction() {
 		context.set("somefunction", new ContextFunction() {
 			@Override
@@ -113,6 +179,66 @@ public class ContextPerformanceTest extends TestCase {
 		}.run(this, 10, 600000);
 	}
 
+	/**
+	 * Tests creating and disposing objects with injected fields, methods and life
+	 * cycle methods in a class hierarchy. Once the first object is created, the
+	 * injection points of the class are not scanned again.
+	 */
+	public void testInjection() {
+		new PerformanceTestRunner() {
+			@Override
+			protected void test() {
+				IEclipseContext child = context.createChild();
+				InjectionTarget target = ContextInjectionFactory.make(InjectionTarget.class, child);
+				if (!target.constructed)
+					fail("Object not constructed");
+				child.dispose();
+			}
+		}.run(this, 10, 50000);
+	}
+
+	/**
+	 * Tests setting a value in a context with a deep and wide hierarchy of
+	 * descendants, where only one leaf context has a RAT listening to the value.
+	 */
+	public void testSetValueContextTree() {
+		// contexts only hold weak references to their children
+		List<IEclipseContext> tree = new ArrayList<>();
+		IEclipseContext leaf = null;
+		for (int i = 0; i < 10; i++) {
+			IEclipseContext child = context.createChild("child-" + i);
+			tree.add(child);
+			for (int j = 0; j < 10; j++) {
+				IEclipseContext grandChild = child.createChild("grandChild-" + j);
+				tree.add(grandChild);
+				for (int k = 0; k < 10; k++) {
+					leaf = grandChild.createChild("leaf-" + k);
+					leaf.get("Value-" + k);
+					tree.add(leaf);
+				}
+			}
+		}
+		final int[] runs = new int[1];
+		leaf.runAndTrack(new RunAndTrack() {
+			@Override
+			public boolean changed(IEclipseContext context) {
+				context.get("something");
+				runs[0]++;
+				return true;
+			}
+		});
+		new PerformanceTestRunner() {
+			int i = 0;
+
+			@Override
+			protected void test() {
+				context.set("something", "value-" + i++);
+			}
+		}.run(this, 10, 100000);
+		assertTrue(runs[0] > 1);
+		assertEquals(1110, tree.size());
+	}
+
 	/**
 	 * Tests setting a value in a context that a RAT is listening to. This test mimics what occurs
 	 * when handlers change in e4. See https://bugs.eclipse.org/bugs/show_bug.cgi?id=305038
@@ -145,4 +271,39 @@ public class ContextPerformanceTest extends TestCase {
 		}.run(this, 10, 400);
 	}
 
+	/**
+	 * Tests setting several values a RAT depends on in one batch, which runs the
+	 * RAT once per batch instead of once per value.
+	 */
+	public void testSetValuesBatched() {
+		final int[] runs = new int[1];
+		context.runAndTrack(new RunAndTrack() {
+			@Override
+			public boolean changed(IEclipseContext context) {
+				for (int i = 0; i < 5; i++) {
+					context.get("batched-" + i);
+				}
+				runs[0]++;
+				return true;
+			}
+		});
+		new PerformanceTestRunner() {
+			int i = 0;
+
+			@Override
+			protected void test() {
+				context.beginBatch();
+				try {
+					for (int j = 0; j < 5; j++) {
+						context.set("batched-" + j, "value-" + i);
+					}
+				} finally {
+					context.commitBatch();
+				}
+				i++;
+			}
+		}.run(this, 10, 10000);
+		assertEquals(10 * 10000 + 1, runs[0]);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2019 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -39,7 +39,7 @@ public class DocLineComparator implements ITokenComparator {
 	private boolean fIgnoreWhiteSpace;
 	private ICompareFilter[] fCompareFilters;
 	private char fContributor;
-	private LRUCache fCompareFilterCache;
+	private LRUCache<Integer, String> fCompareFilterCache;
 
 	/**
 	 * Creates a <code>DocLineComparator</code> for the given document range.
@@ -92,7 +92,7 @@ public class DocLineComparator implements ITokenComparator {
 				}
 			}
 		}
-		fCompareFilterCache = (cacheFilteredLines) ? new LRUCache(1024) : null;
+		fCompareFilterCache = (cacheFilteredLines) ? new LRUCache<>(1024) : null;
 
 		fLineOffset = 0;
 		if (region != null) {
@@ -211,7 +211,7 @@ public class DocLineComparator implements ITokenComparator {
 		if (fCompareFilters != null && fCompareFilters.length > 0) {
 			if (fCompareFilterCache != null
 					&& other.fCompareFilterCache != null) {
-				extracts[0] = (String) fCompareFilterCache.get(Integer.valueOf(
+				extracts[0] = fCompareFilterCache.get(Integer.valueOf(
 						thisIndex));
 				if (extracts[0] == null) {
 					extracts[0] = Utilities.applyCompareFilters(
@@ -222,7 +222,7 @@ public class DocLineComparator implements ITokenComparator {
 							.put(Integer.valueOf(thisIndex), extracts[0]);
 				}
 
-				extracts[1] = (String) other.fCompareFilterCache
+				extracts[1] = other.fCompareFilterCache
 						.get(Integer.valueOf(otherIndex));
 				if (extracts[1] == null) {
 					extracts[1] = Utilities.applyCompareFilters(